@@ -0,0 +1,91 @@
+package core.gateway;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop load over loopback against an in-process {@link OrderGateway}: orders go out at a
+ * fixed rate whether or not the gateway keeps up, and each acknowledgement is timed from the
+ * moment its order was due, so queueing behind a stall counts against the gateway. The flow
+ * alternates a 1-lot buy and sell at one price, so every pair trades and the book stays empty.
+ *
+ * mvn -Ploadgen test-compile exec:exec -Dloadgen.args="[messagesPerSecond] [seconds]"
+ */
+public class GatewayLoadGenerator {
+    private static final int INSTRUMENT_ID = 0;
+    private static final long PRICE = 100;
+
+    public static void main(String[] args) throws Exception {
+        final long rate = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final long total = rate * seconds;
+        final long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        try (OrderGateway gateway = new OrderGateway(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             GatewayClient client = new GatewayClient(gateway.getLocalAddress())) {
+            gateway.start();
+            final LatencyHistogram roundTrip = new LatencyHistogram();
+            final AtomicLong acknowledged = new AtomicLong();
+            final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+            // client tag = due time of the order relative to start, so the ack carries its own send stamp
+            final ExecutionReportHandler onReport = (clientTag, instrumentId, orderId, execType, side, reason, price,
+                                                     quantity, matchedOrderId, timestamp) -> {
+                if (execType == WireCodec.EXEC_NEW || execType == WireCodec.EXEC_REJECTED) {
+                    roundTrip.record(System.nanoTime() - start - clientTag);
+                    acknowledged.lazySet(acknowledged.get() + 1);
+                }
+            };
+            Thread receiver = new Thread(() -> {
+                try {
+                    while (acknowledged.get() < total && client.poll(onReport) >= 0) {
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, "load-receiver");
+            receiver.setDaemon(true);
+            receiver.start();
+
+            long sent = 0;
+            while (sent < total) {
+                final long elapsed = System.nanoTime() - start;
+                long due = sent * intervalNanos;
+                if (due > elapsed) {
+                    Thread.yield();
+                    continue;
+                }
+                // everything due by now goes out in one write
+                while (sent < total && due <= elapsed) {
+                    client.sendLimitOrder(due, INSTRUMENT_ID, 1, PRICE, (sent & 1) == 0 ? Side.BUY : Side.SELL);
+                    sent++;
+                    due = sent * intervalNanos;
+                }
+                client.flush();
+            }
+            final long sendNanos = System.nanoTime() - start;
+            receiver.join(TimeUnit.SECONDS.toMillis(30));
+            final long endNanos = System.nanoTime() - start;
+
+            System.out.printf("sent %,d orders in %.2f s (%,.0f msgs/s offered, target %,d)%n",
+                    sent, sendNanos / 1e9, sent / (sendNanos / 1e9), rate);
+            System.out.printf("acknowledged %,d in %.2f s (%,.0f msgs/s)%n",
+                    acknowledged.get(), endNanos / 1e9, acknowledged.get() / (endNanos / 1e9));
+            System.out.printf("round trip us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  p99.99 %.1f  max %.1f%n",
+                    roundTrip.getValueAtPercentile(50) / 1e3, roundTrip.getValueAtPercentile(90) / 1e3,
+                    roundTrip.getValueAtPercentile(99) / 1e3, roundTrip.getValueAtPercentile(99.9) / 1e3,
+                    roundTrip.getValueAtPercentile(99.99) / 1e3, roundTrip.getMaxValue() / 1e3);
+        }
+    }
+}
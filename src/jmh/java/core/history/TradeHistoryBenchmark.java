@@ -0,0 +1,90 @@
+package core.history;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.TradeStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-history VWAP over a few million fills: the compressed columnar file scanned by 1..N
+ * fork-join workers against the same query on the uncompressed in-memory store. The file and
+ * row-record sizes are printed once per trial.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TradeHistoryBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TradeHistoryBenchmark {
+    private static final int ROW_RECORD_BYTES = 44; // a trade journal record with its header
+
+    @Param({"4000000"})
+    int trades;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    TradeStore store;
+    Path file;
+    ForkJoinPool pool;
+    TradeHistoryFile history;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        store = new TradeStore(trades);
+        SplittableRandom random = new SplittableRandom(5);
+        int activeOrderId = 100000000;
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < trades; i++) {
+            if (random.nextInt(3) > 0) {
+                activeOrderId += 1 + random.nextInt(4);
+                time += random.nextInt(3);
+            }
+            store.append(random.nextInt(4), activeOrderId, activeOrderId - 1 - random.nextInt(500), 10_000 + random.nextInt(40),
+                    1 + random.nextInt(100), time, random.nextBoolean());
+        }
+        file = Files.createTempFile("trades", ".hist");
+        TradeHistoryWriter.export(store, file);
+        pool = new ForkJoinPool(parallelism);
+        history = TradeHistoryFile.open(file, pool);
+        System.out.printf("%n%,d rows: history %,d bytes, row records %,d bytes (%.1fx)%n", trades, history.getFileSize(),
+                (long) trades * ROW_RECORD_BYTES, (double) trades * ROW_RECORD_BYTES / history.getFileSize());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        history.close();
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public double historyVwap() {
+        return history.getVwap(1, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public double inMemoryVwap() {
+        return store.getVwap(1, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+}
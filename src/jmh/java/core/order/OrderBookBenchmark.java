@@ -0,0 +1,149 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.bean.LimitOrder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single operations against a tree-backed or ladder-backed ask side of {@code depth} levels with
+ * {@code ORDERS_PER_LEVEL} orders each. Every benchmark leaves the book as it found it, so the
+ * numbers are per steady-state operation; insert and cancel can only be measured as a pair.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="OrderBookBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+    private static final long BASE_PRICE = 100_000;
+    private static final int ORDERS_PER_LEVEL = 4;
+    private static final int QUANTITY = 10;
+
+    @Param({"TREE", "LADDER"})
+    BookType bookType;
+
+    @Param({"16", "128", "1024"})
+    int depth;
+
+    OrderBook asks;
+    SplittableRandom random;
+    int orderId;
+    int[] restingIds;       // every resting order, so cancels can pick any of them
+    long[] restingPrices;
+    final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+    final TradeBuffer trades = new TradeBuffer();
+    final long[] depthPrices = new long[10];
+    final int[] depthQuantities = new int[10];
+    final int[] depthCounts = new int[10];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        asks = bookType == BookType.TREE ? new TreeOrderBook(Side.SELL) : new LadderOrderBook(Side.SELL, BASE_PRICE, 4 * depth);
+        random = new SplittableRandom(42);
+        orderId = 1;
+        restingIds = new int[depth * ORDERS_PER_LEVEL];
+        restingPrices = new long[restingIds.length];
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                rest(level * ORDERS_PER_LEVEL + i, BASE_PRICE + level);
+            }
+        }
+    }
+
+    private void rest(int slot, long price) {
+        restingIds[slot] = orderId;
+        restingPrices[slot] = price;
+        order.reset(orderId++, QUANTITY, price, Side.SELL);
+        asks.onNewOrder(order);
+    }
+
+    // joins an existing level behind the touch, then pulls the order again
+    @Benchmark
+    public long insertNonCrossingAndCancel() {
+        final int id = orderId++;
+        final long price = BASE_PRICE + 1 + random.nextInt(depth - 1);
+        order.reset(id, QUANTITY, price, Side.SELL);
+        asks.onNewOrder(order);
+        asks.onCancelOrder(id);
+        return price;
+    }
+
+    // opens and closes a price level behind the resting ones, the level index does all the work
+    @Benchmark
+    public long insertNewLevelAndCancel() {
+        final int id = orderId++;
+        final long price = BASE_PRICE + depth + random.nextInt(depth);
+        order.reset(id, QUANTITY, price, Side.SELL);
+        asks.onNewOrder(order);
+        asks.onCancelOrder(id);
+        return price;
+    }
+
+    // cancel by id anywhere in the book, the replacement goes to the back of the same level
+    @Benchmark
+    public int cancelById() {
+        final int slot = random.nextInt(restingIds.length);
+        asks.onCancelOrder(restingIds[slot]);
+        rest(slot, restingPrices[slot]);
+        return slot;
+    }
+
+    @Benchmark
+    public int fullFill() {
+        final long best = asks.getBestPrice();
+        trades.clear();
+        order.reset(orderId++, QUANTITY, best, Side.BUY);
+        asks.matchOrder(order, trades, 0);
+        order.reset(orderId++, QUANTITY, best, Side.SELL);
+        asks.onNewOrder(order);
+        return trades.size();
+    }
+
+    // takes part of the head order, the same quantity is added back at the touch
+    @Benchmark
+    public int partialFill() {
+        final long best = asks.getBestPrice();
+        trades.clear();
+        order.reset(orderId++, QUANTITY / 2, best, Side.BUY);
+        asks.matchOrder(order, trades, 0);
+        order.reset(orderId++, QUANTITY / 2, best, Side.SELL);
+        asks.onNewOrder(order);
+        return trades.size();
+    }
+
+    @Benchmark
+    public long bestPrice() {
+        return asks.getBestPrice();
+    }
+
+    // top 10 from the book's depth cache, repeated reads between changes
+    @Benchmark
+    public int depth10() {
+        return asks.getDepth(10, depthPrices, depthQuantities, depthCounts);
+    }
+
+    // a change at the touch followed by a read, the cache is patched in place
+    @Benchmark
+    public int partialFillAndDepth10() {
+        partialFill();
+        return asks.getDepth(10, depthPrices, depthQuantities, depthCounts);
+    }
+}
@@ -0,0 +1,105 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.bean.LimitOrder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed market-making flow at a given cancel ratio: every operation rests one non-crossing ask
+ * inside the top {@code depth} levels and removes one order again, either by cancelling a random
+ * resting order (probability {@code cancelRatio}) or by a buy filling the touch. The book keeps
+ * its size, so the score is the cost of one insert plus one cancel-or-fill.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="OrderFlowBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderFlowBenchmark {
+    private static final long BASE_PRICE = 100_000;
+    private static final int ORDERS_PER_LEVEL = 8;
+    private static final int QUANTITY = 10;
+
+    @Param({"TREE", "LADDER"})
+    BookType bookType;
+
+    @Param({"16", "256"})
+    int depth;
+
+    @Param({"0.0", "0.5", "0.9", "0.99"})
+    double cancelRatio;
+
+    OrderBook asks;
+    SplittableRandom random;
+    int orderId;
+    int[] restingIds; // live orders, slots are refilled as orders leave
+    Int2IntOpenHashMap slotOfId;
+    int liveCount;
+    final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        asks = bookType == BookType.TREE ? new TreeOrderBook(Side.SELL) : new LadderOrderBook(Side.SELL, BASE_PRICE, 4 * depth);
+        random = new SplittableRandom(42);
+        orderId = 1;
+        restingIds = new int[depth * ORDERS_PER_LEVEL * 2];
+        slotOfId = new Int2IntOpenHashMap(restingIds.length);
+        for (int i = 0; i < depth * ORDERS_PER_LEVEL; i++) {
+            insert();
+        }
+    }
+
+    private void insert() {
+        final int id = orderId++;
+        order.reset(id, QUANTITY, BASE_PRICE + random.nextInt(depth), Side.SELL);
+        asks.onNewOrder(order);
+        slotOfId.put(id, liveCount);
+        restingIds[liveCount++] = id;
+    }
+
+    private void forget(int slot) {
+        slotOfId.remove(restingIds[slot]);
+        final int last = restingIds[--liveCount];
+        if (slot != liveCount) {
+            restingIds[slot] = last;
+            slotOfId.put(last, slot);
+        }
+    }
+
+    @Benchmark
+    public int flow() {
+        insert();
+        if (random.nextDouble() < cancelRatio) {
+            final int slot = random.nextInt(liveCount);
+            asks.onCancelOrder(restingIds[slot]);
+            forget(slot);
+            return slot;
+        }
+        trades.clear();
+        order.reset(orderId++, QUANTITY, asks.getBestPrice(), Side.BUY);
+        asks.matchOrder(order, trades, 0);
+        // same quantity everywhere, so exactly the head order of the touch was filled
+        forget(slotOfId.get(trades.getPassiveOrderId(0)));
+        return trades.size();
+    }
+}
@@ -0,0 +1,69 @@
+package core.order;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * orderId -> node lookups at {@code size} resting orders. Order ids are sequential as the engine
+ * hands them out; the index is pre-sized like a book built with a matching {@link OrderBookSizing}.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="OrderIndexBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderIndexBenchmark {
+    @Param({"1000", "1000000"})
+    int size;
+
+    OrderIndex index;
+    SplittableRandom random;
+    int firstId;
+    int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new OrderIndex(size);
+        random = new SplittableRandom(42);
+        firstId = 100000000;
+        nextId = firstId;
+        for (int i = 0; i < size; i++) {
+            index.addIndex(nextId, i);
+            nextId++;
+        }
+    }
+
+    @Benchmark
+    public int lookup() {
+        return index.getNode(firstId + random.nextInt(nextId - firstId));
+    }
+
+    @Benchmark
+    public int lookupMiss() {
+        return index.getNode(nextId + random.nextInt(size));
+    }
+
+    // the oldest order leaves and a new one arrives, as in a book at steady size
+    @Benchmark
+    public int addRemove() {
+        index.removeIndex(firstId++);
+        index.addIndex(nextId++, 0);
+        return index.size();
+    }
+}
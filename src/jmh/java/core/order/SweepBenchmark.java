@@ -0,0 +1,86 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.bean.LimitOrder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of an aggressive buy that sweeps {@code levels} ask levels of {@code ordersPerLevel}
+ * orders each. The swept levels are restocked before every invocation, outside the measurement,
+ * so each sample is exactly one sweep; sample mode reports the percentiles.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SweepBenchmark"
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SweepBenchmark {
+    private static final long BASE_PRICE = 100_000;
+    private static final int QUANTITY = 10;
+    private static final int RESTING_LEVELS = 256;
+
+    @Param({"TREE", "LADDER"})
+    BookType bookType;
+
+    @Param({"1", "8", "64"})
+    int levels;
+
+    @Param({"4"})
+    int ordersPerLevel;
+
+    OrderBook asks;
+    final TradeBuffer trades = new TradeBuffer(1 << 12);
+    final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+    int orderId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        asks = bookType == BookType.TREE ? new TreeOrderBook(Side.SELL) : new LadderOrderBook(Side.SELL, BASE_PRICE, 1024);
+        orderId = 1;
+        for (int level = 0; level < RESTING_LEVELS; level++) {
+            restock(level);
+        }
+    }
+
+    // refill the levels the previous sweep took out
+    @Setup(Level.Invocation)
+    public void restockSweptLevels() {
+        for (int level = 0; level < levels; level++) {
+            if (asks.getPriceLevel(BASE_PRICE + level) == null) {
+                restock(level);
+            }
+        }
+        trades.clear();
+    }
+
+    private void restock(int level) {
+        for (int i = 0; i < ordersPerLevel; i++) {
+            order.reset(orderId++, QUANTITY, BASE_PRICE + level, Side.SELL);
+            asks.onNewOrder(order);
+        }
+    }
+
+    @Benchmark
+    public int sweep() {
+        order.reset(orderId++, levels * ordersPerLevel * QUANTITY, BASE_PRICE + levels - 1, Side.BUY);
+        asks.matchOrder(order, trades);
+        return trades.size();
+    }
+}
@@ -0,0 +1,106 @@
+package core.price;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.bean.LimitOrder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One price level holding {@code queueLength} orders, without the book around it: the cost of the
+ * FIFO queue and the slab alone. Every benchmark puts back what it removed.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PriceLevelBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PriceLevelBenchmark {
+    private static final long PRICE = 100_000;
+    private static final int QUANTITY = 10;
+
+    @Param({"16", "1024"})
+    int queueLength;
+
+    PriceLevel level;
+    SplittableRandom random;
+    int orderId;
+    int[] restingIds;
+    int[] restingNodes;
+    final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        level = new PriceLevel(Side.SELL, new OrderSlab(2 * queueLength), 0);
+        random = new SplittableRandom(42);
+        orderId = 1;
+        restingIds = new int[queueLength];
+        restingNodes = new int[queueLength];
+        for (int i = 0; i < queueLength; i++) {
+            rest(i);
+        }
+    }
+
+    private void rest(int slot) {
+        restingIds[slot] = orderId;
+        order.reset(orderId++, QUANTITY, PRICE, Side.SELL);
+        restingNodes[slot] = level.newOrder(order);
+    }
+
+    // append to the tail and unlink it again
+    @Benchmark
+    public boolean appendAndCancelTail() {
+        final int id = orderId++;
+        order.reset(id, QUANTITY, PRICE, Side.SELL);
+        return level.cancelOrder(level.newOrder(order), id);
+    }
+
+    // unlink from anywhere in the queue, the replacement joins the tail
+    @Benchmark
+    public int cancelById() {
+        final int slot = random.nextInt(queueLength);
+        level.cancelOrder(restingNodes[slot], restingIds[slot]);
+        rest(slot);
+        return slot;
+    }
+
+    @Benchmark
+    public int fullFill() {
+        trades.clear();
+        order.reset(orderId++, QUANTITY, PRICE, Side.BUY);
+        level.matchOrder(order, trades, 0);
+        order.reset(orderId++, QUANTITY, PRICE, Side.SELL);
+        level.newOrder(order);
+        return trades.size();
+    }
+
+    // leaves the head order resting with less quantity, topped up by a new order at the tail
+    @Benchmark
+    public int partialFill() {
+        trades.clear();
+        order.reset(orderId++, QUANTITY / 2, PRICE, Side.BUY);
+        level.matchOrder(order, trades, 0);
+        if (trades.isPassiveCompleted(0)) {
+            order.reset(orderId++, QUANTITY, PRICE, Side.SELL);
+            level.newOrder(order);
+        }
+        return trades.size();
+    }
+}
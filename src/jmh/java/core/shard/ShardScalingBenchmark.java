@@ -0,0 +1,89 @@
+package core.shard;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order entry throughput of the sharded engine from 1 to N matcher threads. Producers publish
+ * random crossing limit orders spread over all instruments; the score is commands per second
+ * accepted by the rings, which back-pressure once the matchers fall behind.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ShardScalingBenchmark -t 4"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ShardScalingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class EngineState {
+        @Param({"1", "2", "4", "8"})
+        int shards;
+
+        @Param({"16"})
+        int instruments;
+
+        ShardedEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            final InstrumentRegistry registry = new InstrumentRegistry(instruments);
+            for (int i = 0; i < instruments; i++) {
+                registry.register(i, "SYM" + i);
+            }
+            engine = new ShardedEngine(registry, shards, 1 << 14, new ShardListener() {
+                @Override
+                public void onTrades(int instrumentId, TradeBuffer trades) {
+                }
+            });
+            engine.start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void awaitDrained() {
+            while (engine.getProcessedCount() < engine.getPublishedCount()) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            engine.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OrderFlow {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int submitLimitOrder(EngineState state, OrderFlow flow) {
+        final SplittableRandom random = flow.random;
+        final int instrumentId = random.nextInt(state.instruments);
+        final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+        final double price = 95 + random.nextInt(11);
+        return state.engine.submitLimitOrder(instrumentId, 1 + random.nextInt(10), price, side);
+    }
+}
@@ -0,0 +1,104 @@
+package core.snapshot;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.order.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import trader.bean.LimitOrder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot cost for a book of {@code orders} resting orders spread over 2 x {@code levels}
+ * levels: the copy on the matcher thread (the only part that stalls matching), writing it, and
+ * reading + restoring it into empty books. The file size is printed once per trial.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SnapshotBenchmark"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    private static final int INSTRUMENT_ID = 0;
+
+    @Param({"1000000"})
+    int orders;
+
+    @Param({"1000"})
+    int levels;
+
+    InstrumentRegistry registry;
+    Path directory;
+    Path file;
+    BookSnapshot captured;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        registry = newRegistry();
+        final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+        final OrderBook bids = registry.get(INSTRUMENT_ID).orderBook(Side.BUY);
+        final OrderBook asks = registry.get(INSTRUMENT_ID).orderBook(Side.SELL);
+        for (int i = 0; i < orders; i++) {
+            final int level = i % levels;
+            if ((i & 1) == 0) {
+                order.reset(i + 1, 10, 100_000 - 1 - level, Side.BUY);
+                bids.onNewOrder(order);
+            } else {
+                order.reset(i + 1, 10, 100_000 + level, Side.SELL);
+                asks.onNewOrder(order);
+            }
+        }
+        directory = Files.createTempDirectory("snapshot-bench");
+        file = directory.resolve("snapshot.snap");
+        captured = BookSnapshot.capture(registry, 0, orders + 1);
+        final long size = captured.write(file);
+        System.out.println("snapshot of " + captured.getOrderCount() + " orders: " + size + " bytes");
+    }
+
+    private static InstrumentRegistry newRegistry() {
+        final InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(INSTRUMENT_ID, "BTC-USDT", 1);
+        return registry;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public BookSnapshot capture() {
+        return BookSnapshot.capture(registry, 0, orders + 1);
+    }
+
+    @Benchmark
+    public long write() {
+        return captured.write(file);
+    }
+
+    @Benchmark
+    public InstrumentRegistry restore() {
+        final InstrumentRegistry restored = newRegistry();
+        BookSnapshot.read(file).restore(restored);
+        return restored;
+    }
+}
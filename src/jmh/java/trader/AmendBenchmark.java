@@ -0,0 +1,101 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.BookType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Market-maker requotes against a book of {@code depth} ask levels with 8 orders each: a random
+ * resting order is lowered by one lot, either with a native amend in place or the cancel and new
+ * order it takes without one, or moved to another non-crossing price with one amend. Quantities
+ * start high enough that no order runs out during a run.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="AmendBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AmendBenchmark {
+    private static final int INSTRUMENT_ID = 0;
+    private static final long BASE_PRICE = 100_000;
+    private static final int ORDERS_PER_LEVEL = 8;
+    private static final int QUANTITY = 1 << 30;
+
+    @Param({"TREE", "LADDER"})
+    BookType bookType;
+
+    @Param({"16", "256"})
+    int depth;
+
+    LimitOrderHandler handler;
+    SplittableRandom random;
+    int orderId;
+    int[] orderIds; // slot -> id of the resting order, replaced when a cancel and new order re-enters it
+    int[] quantities;
+    long[] prices;
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        InstrumentSpec spec = new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1);
+        if (bookType == BookType.LADDER) {
+            spec.ladderBook(BASE_PRICE, BASE_PRICE + depth - 1);
+        }
+        registry.register(spec);
+        handler = new LimitOrderHandler(registry, DiscardingTradePersistence.INSTANCE);
+        random = new SplittableRandom(42);
+        orderId = 1;
+        final int orders = depth * ORDERS_PER_LEVEL;
+        orderIds = new int[orders];
+        quantities = new int[orders];
+        prices = new long[orders];
+        for (int slot = 0; slot < orders; slot++) {
+            orderIds[slot] = orderId++;
+            quantities[slot] = QUANTITY;
+            prices[slot] = BASE_PRICE + slot % depth;
+            handler.matchOrder(INSTRUMENT_ID, orderIds[slot], QUANTITY, prices[slot], Side.SELL, trades);
+        }
+    }
+
+    @Benchmark
+    public int amendQuantityDown() {
+        final int slot = random.nextInt(orderIds.length);
+        return handler.amendOrder(INSTRUMENT_ID, Side.SELL, orderIds[slot], --quantities[slot], prices[slot], trades);
+    }
+
+    @Benchmark
+    public int cancelAndNewQuantityDown() {
+        final int slot = random.nextInt(orderIds.length);
+        handler.cancelOrder(INSTRUMENT_ID, Side.SELL, orderIds[slot]);
+        orderIds[slot] = orderId++;
+        return handler.matchOrder(INSTRUMENT_ID, orderIds[slot], --quantities[slot], prices[slot], Side.SELL, trades);
+    }
+
+    @Benchmark
+    public int amendPrice() {
+        final int slot = random.nextInt(orderIds.length);
+        prices[slot] = BASE_PRICE + random.nextInt(depth);
+        return handler.amendOrder(INSTRUMENT_ID, Side.SELL, orderIds[slot], quantities[slot], prices[slot], trades);
+    }
+}
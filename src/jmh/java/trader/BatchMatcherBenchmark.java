@@ -0,0 +1,90 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per command of the same 4096-command flow cut into batches of different sizes. The flow
+ * repeats rest, rest, cancel, crossing buy, so the book is empty again after every invocation.
+ * Batch size 1 is the order-by-order baseline.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="BatchMatcherBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchMatcherBenchmark {
+    private static final int FLOW = 4096;
+
+    @Param({"1", "16", "256", "4096"})
+    int batchSize;
+
+    BatchMatcher matcher;
+    InMemoryTradePersistence persistence;
+    OrderBatch[] batches;
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(0, "BTC-USDT", 1);
+        persistence = new InMemoryTradePersistence(FLOW);
+        matcher = new BatchMatcher(registry, persistence);
+        batches = new OrderBatch[FLOW / batchSize];
+        for (int b = 0; b < batches.length; b++) {
+            batches[b] = new OrderBatch(batchSize);
+        }
+        for (int i = 0; i < FLOW; i++) {
+            OrderBatch batch = batches[i / batchSize];
+            final int group = i & ~3;
+            switch (i & 3) {
+                case 0:
+                    batch.addLimitOrder(0, group + 1, 5, 101, Side.SELL);
+                    break;
+                case 1:
+                    batch.addLimitOrder(0, group + 2, 5, 102, Side.SELL);
+                    break;
+                case 2:
+                    batch.addCancel(0, group + 1, Side.SELL);
+                    break;
+                default:
+                    batch.addLimitOrder(0, group + 4, 5, 102, Side.BUY);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTrades() {
+        persistence.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOW)
+    public int matchFlow() {
+        int fills = 0;
+        for (OrderBatch batch : batches) {
+            trades.clear();
+            fills += matcher.matchBatch(batch, trades);
+        }
+        return fills;
+    }
+}
@@ -0,0 +1,76 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A large seller showing 10 lots at a time at the best ask, behind which 64 levels of 8 orders
+ * rest. Each operation is a buy taking exactly one slice: either a native iceberg whose level
+ * refills it in place, or the client-side split it replaces, where the filled child order is
+ * followed by a new one from the client.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="IcebergBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IcebergBenchmark {
+    private static final int INSTRUMENT_ID = 0;
+    private static final int CHILD_INSTRUMENT_ID = 1;
+    private static final long BEST_ASK = 100_000;
+    private static final int LEVELS = 64;
+    private static final int ORDERS_PER_LEVEL = 8;
+    private static final int SLICE = 10;
+
+    LimitOrderHandler handler;
+    int orderId;
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InstrumentRegistry registry = new InstrumentRegistry(2);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        registry.register(new InstrumentSpec(CHILD_INSTRUMENT_ID, "ETH-USDT").tickSize(1));
+        handler = new LimitOrderHandler(registry, DiscardingTradePersistence.INSTANCE);
+        orderId = 1;
+        for (int instrumentId = 0; instrumentId < 2; instrumentId++) {
+            for (int i = 0; i < LEVELS * ORDERS_PER_LEVEL; i++) {
+                handler.matchOrder(instrumentId, orderId++, SLICE, BEST_ASK + 1 + i % LEVELS, Side.SELL, trades);
+            }
+        }
+        handler.matchIcebergOrder(INSTRUMENT_ID, orderId++, Integer.MAX_VALUE, SLICE, BEST_ASK, Side.SELL, trades);
+        handler.matchOrder(CHILD_INSTRUMENT_ID, orderId++, SLICE, BEST_ASK, Side.SELL, trades);
+        trades.clear();
+    }
+
+    @Benchmark
+    public int icebergSlice() {
+        trades.clear();
+        return handler.matchOrder(INSTRUMENT_ID, orderId++, SLICE, BEST_ASK, Side.BUY, trades);
+    }
+
+    @Benchmark
+    public int childOrderSlice() {
+        trades.clear();
+        final int fills = handler.matchOrder(CHILD_INSTRUMENT_ID, orderId++, SLICE, BEST_ASK, Side.BUY, trades);
+        return fills + handler.matchOrder(CHILD_INSTRUMENT_ID, orderId++, SLICE, BEST_ASK, Side.SELL, trades);
+    }
+}
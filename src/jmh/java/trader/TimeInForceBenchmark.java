@@ -0,0 +1,102 @@
+package trader;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders that must not stay in the book, against 64 ask levels of 8 orders. A bid that does not
+ * reach the asks is either an IOC or a post-only refused at the touch in one call, or the limit
+ * order plus cancel it takes without them; a FOK too large for the depth it crosses is killed
+ * after its depth check. GTD orders rest with a deadline 1 to 1000 ms out while the clock moves
+ * 1 ms per operation, so the wheel expires about as many as are entered.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TimeInForceBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeInForceBenchmark {
+    private static final int INSTRUMENT_ID = 0;
+    private static final long BEST_ASK = 100_000;
+    private static final int LEVELS = 64;
+    private static final int ORDERS_PER_LEVEL = 8;
+    private static final int QUANTITY = 10;
+
+    ManualClock clock;
+    LimitOrderHandler handler;
+    SplittableRandom random;
+    int orderId;
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        clock = new ManualClock(1_700_000_000_000L);
+        handler = new LimitOrderHandler(registry, DiscardingTradePersistence.INSTANCE, clock);
+        random = new SplittableRandom(42);
+        orderId = 1;
+        for (int i = 0; i < LEVELS * ORDERS_PER_LEVEL; i++) {
+            handler.matchOrder(INSTRUMENT_ID, orderId++, QUANTITY, BEST_ASK + i % LEVELS, Side.SELL, trades);
+        }
+    }
+
+    private long bidPrice() {
+        return BEST_ASK - 1 - random.nextInt(LEVELS);
+    }
+
+    @Benchmark
+    public int ioc() {
+        return handler.matchOrder(INSTRUMENT_ID, orderId++, QUANTITY, bidPrice(), Side.BUY, OrderType.IOC, 0, trades);
+    }
+
+    @Benchmark
+    public int limitThenCancel() {
+        final int id = orderId++;
+        final int fills = handler.matchOrder(INSTRUMENT_ID, id, QUANTITY, bidPrice(), Side.BUY, trades);
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, id);
+        return fills;
+    }
+
+    @Benchmark
+    public int postOnlyRefused() {
+        return handler.matchOrder(INSTRUMENT_ID, orderId++, QUANTITY, BEST_ASK + random.nextInt(LEVELS), Side.BUY,
+                OrderType.POST_ONLY, 0, trades);
+    }
+
+    @Benchmark
+    public int fokKilled() {
+        // crosses every level but wants one lot more than all of them hold
+        return handler.matchOrder(INSTRUMENT_ID, orderId++, LEVELS * ORDERS_PER_LEVEL * QUANTITY + 1, BEST_ASK + LEVELS,
+                Side.BUY, OrderType.FOK, 0, trades);
+    }
+
+    @Benchmark
+    public int gtdRestAndExpire() {
+        final long now = clock.currentTimeMillis() + 1;
+        clock.set(now);
+        return handler.matchOrder(INSTRUMENT_ID, orderId++, QUANTITY, bidPrice(), Side.BUY, OrderType.GTD,
+                now + 1 + random.nextInt(1000), trades);
+    }
+}
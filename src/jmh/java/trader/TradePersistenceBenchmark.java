@@ -0,0 +1,94 @@
+package trader;
+
+import core.bean.TradeBuffer;
+import core.journal.FlushPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sustained appends per second, one fill per append: the in-memory columns against the mapped
+ * journal under each flush policy. Every iteration starts from an empty store, so the in-memory
+ * backend does not run out of heap and the journal does not fill the disk.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TradePersistenceBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TradePersistenceBenchmark {
+
+    @Param({"MEMORY", "MAPPED_NONE", "MAPPED_EVERY_1000_RECORDS", "MAPPED_EVERY_100_MICROS"})
+    String backend;
+
+    TradePersistence persistence;
+    Path directory;
+    final TradeBuffer trades = new TradeBuffer();
+
+    @Setup(Level.Trial)
+    public void fillBuffer() {
+        trades.add(1, 2, 100_000, 10, System.currentTimeMillis(), true);
+    }
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        switch (backend) {
+            case "MEMORY":
+                persistence = new InMemoryTradePersistence();
+                return;
+            case "MAPPED_NONE":
+                persistence = mapped(FlushPolicy.none());
+                return;
+            case "MAPPED_EVERY_1000_RECORDS":
+                persistence = mapped(FlushPolicy.everyNRecords(1000));
+                return;
+            case "MAPPED_EVERY_100_MICROS":
+                persistence = mapped(FlushPolicy.everyNMicros(100));
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    private TradePersistence mapped(FlushPolicy flushPolicy) throws IOException {
+        directory = Files.createTempDirectory("trade-journal");
+        return new MappedTradePersistence(directory, flushPolicy);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        if (persistence instanceof MappedTradePersistence) {
+            ((MappedTradePersistence) persistence).close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        persistence = null;
+    }
+
+    @Benchmark
+    public int append() {
+        persistence.addTrades(0, trades, 0, 1);
+        return trades.size();
+    }
+}
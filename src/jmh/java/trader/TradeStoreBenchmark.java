@@ -0,0 +1,99 @@
+package trader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciliation queries against a store of one million fills: the per-order total from the
+ * index against the full column scan it replaces, per-order VWAP, and volume / VWAP over a time
+ * window of 1% of the history.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TradeStoreBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TradeStoreBenchmark {
+    private static final int ORDERS = 1 << 18;
+    private static final int KEYS = 1 << 10;
+
+    @Param({"1000000"})
+    int trades;
+
+    TradeStore store;
+    // query keys drawn up front, a per-invocation setup would cost more than the lookups
+    final int[] orderIds = new int[KEYS];
+    final long[] windowStarts = new long[KEYS];
+    int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        store = new TradeStore(trades);
+        SplittableRandom flow = new SplittableRandom(7);
+        for (int i = 0; i < trades; i++) {
+            store.append(flow.nextInt(4), 1 + flow.nextInt(ORDERS), 1 + flow.nextInt(ORDERS), 90 + flow.nextInt(20),
+                    1 + flow.nextInt(100), i, false);
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < KEYS; i++) {
+            orderIds[i] = 1 + random.nextInt(ORDERS);
+            windowStarts[i] = random.nextInt(trades - trades / 100);
+        }
+    }
+
+    private int nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public long activeQuantityIndexed() {
+        return store.getActiveQuantity(orderIds[nextKey()]);
+    }
+
+    // what every query cost before the index
+    @Benchmark
+    public long activeQuantityFullScan() {
+        final int orderId = orderIds[nextKey()];
+        long sum = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getActiveOrderId(i) == orderId) {
+                sum += store.getQuantity(i);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double orderVwap() {
+        return store.getOrderVwap(orderIds[nextKey()]);
+    }
+
+    @Benchmark
+    public long volumeInWindow() {
+        final long windowStart = windowStarts[nextKey()];
+        return store.getVolume(0, windowStart, windowStart + trades / 100);
+    }
+
+    @Benchmark
+    public double vwapInWindow() {
+        final long windowStart = windowStarts[nextKey()];
+        return store.getVwap(0, windowStart, windowStart + trades / 100);
+    }
+}
@@ -1,28 +1,42 @@
 package core;
 
 import core.bean.Side;
+import core.common.Clock;
+import core.instrument.InstrumentRegistry;
 import core.order.OrderBook;
 
 public class Engine {
-    public static OrderBook SELL_ORDER_BOOK;
-    public static OrderBook BUY_ORDER_BOOK;
+    protected final InstrumentRegistry registry;
+    protected final Clock clock; // trade timestamps
 
-    public Engine() {
-        SELL_ORDER_BOOK = new OrderBook(Side.SELL);
-        BUY_ORDER_BOOK = new OrderBook(Side.BUY);
+    public Engine(InstrumentRegistry registry) {
+        this(registry, Clock.SYSTEM);
     }
 
-    public static OrderBook OPPOSITE_ORDER_BOOK(Side side) {
-        if (side == null) {
-            throw new IllegalArgumentException("Unsupported order side");
+    public Engine(InstrumentRegistry registry, Clock clock) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Instrument registry is required");
         }
-        return side == Side.SELL ? BUY_ORDER_BOOK : SELL_ORDER_BOOK;
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock is required");
+        }
+        this.registry = registry;
+        this.clock = clock;
     }
 
-    public static OrderBook ORDER_BOOK(Side side) {
-        if (side == null) {
-            throw new IllegalArgumentException("Unsupported order side");
-        }
-        return side == Side.SELL ? SELL_ORDER_BOOK : BUY_ORDER_BOOK;
+    public OrderBook oppositeOrderBook(int instrumentId, Side side) {
+        return registry.get(instrumentId).oppositeOrderBook(side);
+    }
+
+    public OrderBook orderBook(int instrumentId, Side side) {
+        return registry.get(instrumentId).orderBook(side);
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public InstrumentRegistry getRegistry() {
+        return registry;
     }
 }
@@ -1,6 +1,11 @@
 package core;
 
 public interface EngineConstants {
-    int MAX_PRICE_LEVELS = 1 << 8;   // 256
-    int MAX_ORDERS_AT_EACH_PRICE_LEVEL = 1 << 15;  // 32768
+    int DEFAULT_PRICE_LEVELS = 1 << 8;   // 256, initial level slots per book, doubled on demand
+    int DEFAULT_EXPECTED_ORDERS = 1 << 12;  // initial order index and order slab size per book
+    int MAX_ARRAY_CAPACITY = 1 << 30;
+    int MAX_INSTRUMENTS = 1 << 10;  // 1024
+    double DEFAULT_TICK_SIZE = 0.01;
+    long NULL_PRICE = Long.MIN_VALUE; // best price of an empty book
+    long NO_SLIPPAGE_LIMIT = Long.MAX_VALUE; // market orders may walk the whole opposite book
 }
@@ -1,28 +1,53 @@
 package core.bean;
 
 public class Order {
-    private final Side side;
-    private final int orderId;
+    private Side side;
+    private int orderId;
     protected int quantity;
-    private final double price;
+    private long price; // in ticks
     private boolean isCompleted;
     protected int completedQuantity;
+    private int displayQuantity; // iceberg slice, 0 when the whole order is displayed
 
 
-    public Order(int orderId, int quantity, double price, Side side) {
+    public Order(int orderId, int quantity, long price, Side side) {
+        reset(orderId, quantity, price, side);
+    }
+
+    // reuse the instance for the next incoming order, books only copy primitives out of it
+    public void reset(int orderId, int quantity, long price, Side side) {
         this.orderId = orderId;
         this.quantity = quantity;
         this.price = price;
         this.side = side;
         this.isCompleted = false;
         this.completedQuantity = 0;
+        this.displayQuantity = 0;
+    }
+
+    // rests as an iceberg showing this much at a time, 0 to display everything; cleared by reset
+    public void setDisplayQuantity(int displayQuantity) {
+        if (displayQuantity < 0) {
+            throw new IllegalArgumentException("Display quantity must not be negative: " + displayQuantity);
+        }
+        this.displayQuantity = displayQuantity;
+    }
+
+    public int getDisplayQuantity() {
+        return displayQuantity;
+    }
+
+    // the slice that would rest in the queue now, the remainder stays in reserve
+    public int getDisplayedQuantity() {
+        final int pending = getPendingMatchQuantity();
+        return displayQuantity == 0 ? pending : Math.min(displayQuantity, pending);
     }
 
     public int getPendingMatchQuantity() {
         return quantity - completedQuantity;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
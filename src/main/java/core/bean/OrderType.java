@@ -1,5 +1,11 @@
 package core.bean;
 
 public enum OrderType {
-    LIMIT, MARKET
+    LIMIT,     // rests until cancelled
+    MARKET,
+    IOC,       // immediate or cancel: a limit order that trades what it can, the rest is cancelled
+    FOK,       // fill or kill: trades its whole quantity at once or nothing at all
+    POST_ONLY, // rests without trading, refused when it would cross
+    GTD,       // good till date: rests until its expire time
+    DAY        // rests until the end of the trading day
 }
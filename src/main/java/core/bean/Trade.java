@@ -3,16 +3,16 @@ package core.bean;
 public class Trade {
     private final int activeOrderId;
     private final int passiveOrderId;
-    private final double price;
+    private final long price; // in ticks
     private final int quantity;
     private final long tradeTime;
 
-    public Trade(int activeOrderId, int passiveOrderId, double tradePrice, int tradeQuantity) {
+    public Trade(int activeOrderId, int passiveOrderId, long tradePrice, int tradeQuantity, long tradeTime) {
         this.activeOrderId = activeOrderId;
         this.passiveOrderId = passiveOrderId;
         this.price = tradePrice;
         this.quantity = tradeQuantity;
-        this.tradeTime = System.currentTimeMillis();
+        this.tradeTime = tradeTime;
     }
 
     public int getActiveOrderId() {
@@ -23,7 +23,7 @@ public class Trade {
         return passiveOrderId;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -0,0 +1,114 @@
+package core.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable, caller-owned sink for fills. Trades are stored column-wise in primitive arrays and read
+ * back by index, so the matching path writes fills without creating a {@link Trade} per fill. The
+ * arrays double when full and are kept across {@link #clear()}, so a warmed-up buffer does not allocate.
+ */
+public class TradeBuffer {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    int[] activeOrderIds;
+    int[] passiveOrderIds;
+    long[] prices; // in ticks
+    int[] quantities;
+    long[] tradeTimes;
+    boolean[] passiveCompleted; // the fill took the passive order's last quantity
+    int size = 0;
+
+    public TradeBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TradeBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Trade buffer capacity must be positive");
+        }
+        activeOrderIds = new int[capacity];
+        passiveOrderIds = new int[capacity];
+        prices = new long[capacity];
+        quantities = new int[capacity];
+        tradeTimes = new long[capacity];
+        passiveCompleted = new boolean[capacity];
+    }
+
+    public void add(int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime, boolean passiveCompleted) {
+        if (size == activeOrderIds.length) {
+            grow();
+        }
+        activeOrderIds[size] = activeOrderId;
+        passiveOrderIds[size] = passiveOrderId;
+        prices[size] = price;
+        quantities[size] = quantity;
+        tradeTimes[size] = tradeTime;
+        this.passiveCompleted[size] = passiveCompleted;
+        size++;
+    }
+
+    public void add(Trade trade) {
+        add(trade.getActiveOrderId(), trade.getPassiveOrderId(), trade.getPrice(), trade.getQuantity(), trade.getTradeTime(), false);
+    }
+
+    private void grow() {
+        final int newCapacity = activeOrderIds.length << 1;
+        activeOrderIds = Arrays.copyOf(activeOrderIds, newCapacity);
+        passiveOrderIds = Arrays.copyOf(passiveOrderIds, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        tradeTimes = Arrays.copyOf(tradeTimes, newCapacity);
+        passiveCompleted = Arrays.copyOf(passiveCompleted, newCapacity);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getActiveOrderId(int i) {
+        return activeOrderIds[i];
+    }
+
+    public int getPassiveOrderId(int i) {
+        return passiveOrderIds[i];
+    }
+
+    public long getPrice(int i) {
+        return prices[i];
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i];
+    }
+
+    public long getTradeTime(int i) {
+        return tradeTimes[i];
+    }
+
+    public boolean isPassiveCompleted(int i) {
+        return passiveCompleted[i];
+    }
+
+    public Trade toTrade(int i) {
+        return new Trade(activeOrderIds[i], passiveOrderIds[i], prices[i], quantities[i], tradeTimes[i]);
+    }
+
+    // materializes fills [from, size) as objects, for the List based API only
+    public List<Trade> toTrades(int from) {
+        final List<Trade> trades = new ArrayList<>(size - from);
+        for (int i = from; i < size; i++) {
+            trades.add(toTrade(i));
+        }
+        return trades;
+    }
+}
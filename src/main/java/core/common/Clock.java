@@ -0,0 +1,8 @@
+package core.common;
+
+// source of trade timestamps, injected so a replay can reproduce them exactly
+public interface Clock {
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,22 @@
+package core.common;
+
+// a clock that only moves when told to, e.g. to the timestamp recorded with a journaled command
+public class ManualClock implements Clock {
+    long timeMillis;
+
+    public ManualClock() {
+    }
+
+    public ManualClock(long timeMillis) {
+        this.timeMillis = timeMillis;
+    }
+
+    public void set(long timeMillis) {
+        this.timeMillis = timeMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -7,15 +7,10 @@ public class NumberUtil implements EngineConstants {
         return v & (d - 1);
     }
 
-    public static int coalesceOrderPriceIndexAndPriceLevelIndex(int priceIndex, int priceLevelIndex) {
-        return (priceIndex << 15) | (priceLevelIndex);
-    }
-
-    public static int getPriceLevelIndex(int coalescedVal) {
-        return coalescedVal & (MAX_ORDERS_AT_EACH_PRICE_LEVEL - 1);
-    }
-
-    public static int getPriceIndex(int coalescedVal) {
-        return (coalescedVal >> 15) & (MAX_PRICE_LEVELS - 1);
+    public static int nextCapacity(int capacity) {
+        if (capacity >= MAX_ARRAY_CAPACITY) {
+            throw new IllegalStateException("Capacity limit reached: " + capacity);
+        }
+        return capacity << 1;
     }
 }
@@ -0,0 +1,7 @@
+package core.common;
+
+// a timer of a TimingWheel came due
+@FunctionalInterface
+public interface TimerHandler {
+    void onTimer(long payload);
+}
@@ -0,0 +1,181 @@
+package core.common;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel with millisecond ticks: four levels of 256 slots, level {@code n}
+ * slots spanning {@code 256^n} ms, about 49 days in all. A timer lives in the level that fits its
+ * distance from now and moves one level down each time the wheel reaches its slot, so scheduling
+ * is O(1) and {@link #advance} only visits the slots that come due. Deadlines further out wait in
+ * the last slot of the top level and are placed again when it comes around. Timers carry a
+ * {@code long} payload and sit in a pool of primitive arrays linked per slot, nothing is allocated
+ * once the pool is large enough. Timers cannot be removed: owners ignore the ones no longer
+ * relevant when they fire. Single threaded.
+ */
+public class TimingWheel {
+    static final int LEVELS = 4;
+    static final int SLOT_BITS = 8;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int SLOT_MASK = SLOTS - 1;
+    static final long SPAN = 1L << (LEVELS * SLOT_BITS); // ticks covered by the whole wheel
+    private static final int NULL_TIMER = -1;
+
+    final int[] slotHeads = new int[LEVELS * SLOTS]; // level * SLOTS + slot -> first timer, NULL_TIMER when empty
+    final int[] levelCounts = new int[LEVELS];
+    long[] deadlines;
+    long[] payloads;
+    int[] next; // also links the free list
+    int allocated = 0;
+    int freeHead = NULL_TIMER;
+    int size = 0;
+    long currentTick; // every timer with deadline <= currentTick has fired
+
+    public TimingWheel(long startMillis) {
+        this(startMillis, 64);
+    }
+
+    public TimingWheel(long startMillis, int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Timer capacity must be positive");
+        }
+        this.currentTick = startMillis;
+        this.deadlines = new long[initialCapacity];
+        this.payloads = new long[initialCapacity];
+        this.next = new int[initialCapacity];
+        Arrays.fill(slotHeads, NULL_TIMER);
+    }
+
+    // false when the deadline has already passed, the timer is then not kept
+    public boolean schedule(long deadlineMillis, long payload) {
+        if (deadlineMillis <= currentTick) {
+            return false;
+        }
+        final int timer = acquire();
+        deadlines[timer] = deadlineMillis;
+        payloads[timer] = payload;
+        place(timer);
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and hands every timer with a deadline at or before it
+     * to the handler, earlier deadlines first. Returns how many fired. The handler must not
+     * schedule timers. Time going backwards is ignored.
+     */
+    public int advance(long nowMillis, TimerHandler handler) {
+        int fired = 0;
+        while (currentTick < nowMillis) {
+            if (size == 0) {
+                currentTick = nowMillis;
+                break;
+            }
+            int emptyLevels = 0;
+            while (levelCounts[emptyLevels] == 0) {
+                emptyLevels++;
+            }
+            if (emptyLevels > 0) {
+                // nothing fires or moves down before the lowest occupied level wraps, skip to the tick before it
+                final long beforeWrap = currentTick | ((1L << (emptyLevels * SLOT_BITS)) - 1);
+                if (beforeWrap >= nowMillis) {
+                    currentTick = nowMillis;
+                    break;
+                }
+                currentTick = beforeWrap;
+            }
+            final long tick = ++currentTick;
+            cascade(tick);
+            fired += fire((int) tick & SLOT_MASK, handler);
+        }
+        return fired;
+    }
+
+    // at a level boundary the timers of the next slot of each wrapped level move down, top level first
+    private void cascade(long tick) {
+        int level = 0;
+        while (level < LEVELS - 1 && (tick & ((1L << ((level + 1) * SLOT_BITS)) - 1)) == 0) {
+            level++;
+        }
+        for (; level > 0; level--) {
+            final int head = level * SLOTS + ((int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+            int timer = slotHeads[head];
+            slotHeads[head] = NULL_TIMER;
+            while (timer != NULL_TIMER) {
+                final int following = next[timer];
+                levelCounts[level]--;
+                place(timer);
+                timer = following;
+            }
+        }
+    }
+
+    private int fire(int slot, TimerHandler handler) {
+        int timer = slotHeads[slot];
+        if (timer == NULL_TIMER) {
+            return 0;
+        }
+        slotHeads[slot] = NULL_TIMER;
+        int fired = 0;
+        while (timer != NULL_TIMER) {
+            final int following = next[timer];
+            final long payload = payloads[timer];
+            release(timer);
+            levelCounts[0]--;
+            size--;
+            fired++;
+            handler.onTimer(payload);
+            timer = following;
+        }
+        return fired;
+    }
+
+    // the level is the smallest whose span covers the distance, due timers go to the current level 0 slot
+    private void place(int timer) {
+        final long deadline = deadlines[timer];
+        final long distance = deadline - currentTick;
+        int level = 0;
+        int slot;
+        if (distance >= SPAN) {
+            level = LEVELS - 1;
+            slot = ((int) (currentTick >>> (level * SLOT_BITS)) - 1) & SLOT_MASK; // comes around last
+        } else {
+            while (distance >= 1L << ((level + 1) * SLOT_BITS)) {
+                level++;
+            }
+            slot = (int) (Math.max(deadline, currentTick) >>> (level * SLOT_BITS)) & SLOT_MASK;
+        }
+        final int head = level * SLOTS + slot;
+        next[timer] = slotHeads[head];
+        slotHeads[head] = timer;
+        levelCounts[level]++;
+    }
+
+    private int acquire() {
+        if (freeHead != NULL_TIMER) {
+            final int timer = freeHead;
+            freeHead = next[timer];
+            return timer;
+        }
+        if (allocated == deadlines.length) {
+            final int capacity = NumberUtil.nextCapacity(deadlines.length);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int timer) {
+        next[timer] = freeHead;
+        freeHead = timer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // ms up to which every due timer has fired
+    public long getCurrentTime() {
+        return currentTick;
+    }
+}
@@ -0,0 +1,11 @@
+package core.gateway;
+
+import core.bean.Side;
+
+// client side of an OrderGateway connection
+public interface ExecutionReportHandler {
+    // execType is one of WireCodec.EXEC_*; reason is a WireCodec.REJECT_* code of a rejected request, 0 otherwise;
+    // matchedOrderId is the counterparty order of a fill and the amended order itself on a replace, 0 otherwise
+    void onExecutionReport(long clientTag, int instrumentId, int orderId, byte execType, Side side, byte reason,
+                           long price, int quantity, int matchedOrderId, long timestamp);
+}
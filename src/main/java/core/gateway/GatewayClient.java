@@ -0,0 +1,106 @@
+package core.gateway;
+
+import core.EngineConstants;
+import core.bean.Side;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking client of an {@link OrderGateway}. Requests are encoded into an output buffer and sent
+ * by {@link #flush()} (or when the buffer fills); {@link #poll} reads reports. One thread may send
+ * while another polls.
+ */
+public class GatewayClient implements Closeable, EngineConstants {
+    final SocketChannel channel;
+    final ByteBuffer out;
+    final ByteBuffer in;
+
+    public GatewayClient(InetSocketAddress address) throws IOException {
+        this(address, OrderGateway.DEFAULT_BUFFER_SIZE);
+    }
+
+    public GatewayClient(InetSocketAddress address, int bufferSize) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.out = WireCodec.allocate(bufferSize);
+        this.in = WireCodec.allocate(bufferSize);
+    }
+
+    // price in ticks
+    public void sendLimitOrder(long clientTag, int instrumentId, int quantity, long price, Side side) throws IOException {
+        reserve(WireCodec.NEW_ORDER_LENGTH);
+        out.position(out.position() + WireCodec.encodeNewOrder(out, out.position(), clientTag, instrumentId, quantity, WireCodec.LIMIT, price, side));
+    }
+
+    // price in ticks, kind one of WireCodec.LIMIT, IOC, FOK or POST_ONLY
+    public void sendLimitOrder(long clientTag, int instrumentId, int quantity, long price, Side side, byte kind) throws IOException {
+        reserve(WireCodec.NEW_ORDER_LENGTH);
+        out.position(out.position() + WireCodec.encodeNewOrder(out, out.position(), clientTag, instrumentId, quantity, kind, price, side));
+    }
+
+    // slippage bound in ticks, NULL_PRICE for the instrument's own
+    public void sendMarketOrder(long clientTag, int instrumentId, int quantity, long slippageTicks, Side side) throws IOException {
+        reserve(WireCodec.NEW_ORDER_LENGTH);
+        out.position(out.position() + WireCodec.encodeNewOrder(out, out.position(), clientTag, instrumentId, quantity, WireCodec.MARKET, slippageTicks, side));
+    }
+
+    public void sendCancel(long clientTag, int instrumentId, int orderId, Side side) throws IOException {
+        reserve(WireCodec.CANCEL_ORDER_LENGTH);
+        out.position(out.position() + WireCodec.encodeCancelOrder(out, out.position(), clientTag, instrumentId, orderId, side));
+    }
+
+    public void sendReplace(long clientTag, int instrumentId, int orderId, int quantity, long price, Side side) throws IOException {
+        reserve(WireCodec.REPLACE_ORDER_LENGTH);
+        out.position(out.position() + WireCodec.encodeReplaceOrder(out, out.position(), clientTag, instrumentId, orderId, quantity, price, side));
+    }
+
+    private void reserve(int length) throws IOException {
+        if (out.remaining() < length) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    // blocks until at least one read completes, then hands over every complete report; -1 once the gateway closed
+    public int poll(ExecutionReportHandler handler) throws IOException {
+        if (channel.read(in) < 0) {
+            return -1;
+        }
+        in.flip();
+        int count = 0;
+        while (in.remaining() >= WireCodec.HEADER_LENGTH) {
+            final int offset = in.position();
+            final int length = WireCodec.length(in, offset);
+            if (length < WireCodec.HEADER_LENGTH) {
+                throw new IOException("Corrupt message length: " + length);
+            }
+            if (in.remaining() < length) {
+                break;
+            }
+            if (WireCodec.type(in, offset) == WireCodec.EXECUTION_REPORT) {
+                WireCodec.decodeExecutionReport(in, offset, handler);
+                count++;
+            }
+            in.position(offset + length);
+        }
+        in.compact();
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
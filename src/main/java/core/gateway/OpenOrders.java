@@ -0,0 +1,78 @@
+package core.gateway;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Resting orders entered through the gateway: owning connection, client tag, instrument, side
+ * and open quantity, in parallel arrays indexed by a slot. Freed slots are reused, so a warmed-up
+ * table does not allocate. Gateway thread only.
+ */
+final class OpenOrders {
+    private final Int2IntOpenHashMap slotOfOrder;
+    Session[] owners;
+    long[] clientTags;
+    int[] instrumentIds;
+    byte[] sides;
+    int[] openQuantities;
+    int[] freeSlots;
+    int freeCount;
+    int highWater; // slots below it have been handed out at least once
+
+    OpenOrders(int expectedOrders) {
+        slotOfOrder = new Int2IntOpenHashMap(expectedOrders);
+        slotOfOrder.defaultReturnValue(-1);
+        owners = new Session[expectedOrders];
+        clientTags = new long[expectedOrders];
+        instrumentIds = new int[expectedOrders];
+        sides = new byte[expectedOrders];
+        openQuantities = new int[expectedOrders];
+        freeSlots = new int[expectedOrders];
+    }
+
+    void add(int orderId, Session owner, long clientTag, int instrumentId, byte side, int openQuantity) {
+        final int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == owners.length) {
+                grow();
+            }
+            slot = highWater++;
+        }
+        owners[slot] = owner;
+        clientTags[slot] = clientTag;
+        instrumentIds[slot] = instrumentId;
+        sides[slot] = side;
+        openQuantities[slot] = openQuantity;
+        slotOfOrder.put(orderId, slot);
+    }
+
+    // -1 when the order is not resting or was not entered through the gateway
+    int slotOf(int orderId) {
+        return slotOfOrder.get(orderId);
+    }
+
+    void remove(int orderId) {
+        final int slot = slotOfOrder.remove(orderId);
+        if (slot != -1) {
+            owners[slot] = null;
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    int size() {
+        return slotOfOrder.size();
+    }
+
+    private void grow() {
+        final int newCapacity = owners.length << 1;
+        owners = Arrays.copyOf(owners, newCapacity);
+        clientTags = Arrays.copyOf(clientTags, newCapacity);
+        instrumentIds = Arrays.copyOf(instrumentIds, newCapacity);
+        sides = Arrays.copyOf(sides, newCapacity);
+        openQuantities = Arrays.copyOf(openQuantities, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+    }
+}
@@ -0,0 +1,520 @@
+package core.gateway;
+
+import core.EngineConstants;
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import trader.InMemoryTradePersistence;
+import trader.LimitOrderHandler;
+import trader.MarketOrderHandler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * TCP entry point speaking the {@link WireCodec} protocol. One thread runs a non-blocking
+ * selector (epoll on Linux) over all connections, decodes requests in place from each
+ * connection's direct buffer straight into handler calls and encodes the execution reports into
+ * the connection's output buffer, which is flushed once per selector round. The gateway thread is
+ * the only caller of its handlers, so they keep their single-writer books.
+ *
+ * A connection that sends faster than it reads its reports stops being read until its output
+ * drains; one whose reports overflow the output buffer even after a flush is disconnected. Orders
+ * of a closed connection stay in the book.
+ */
+public class OrderGateway implements Runnable, Closeable, EngineConstants {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16; // per connection and direction
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORDER_TYPES = {null, OrderType.LIMIT, OrderType.MARKET, OrderType.IOC, OrderType.FOK,
+            OrderType.POST_ONLY}; // by wire kind
+
+    final LimitOrderHandler limitOrderHandler;
+    final MarketOrderHandler marketOrderHandler;
+    final int bufferSize;
+    final Selector selector;
+    final ServerSocketChannel serverChannel;
+    final OpenOrders openOrders = new OpenOrders(DEFAULT_EXPECTED_ORDERS);
+    final TradeBuffer trades = new TradeBuffer();
+    final Consumer<SelectionKey> onReady = this::onReady; // one instance, select(Consumer) then allocates nothing
+    Session[] pendingFlush = new Session[16];
+    int pendingFlushCount;
+    int nextOrderId = 100000000;
+    volatile boolean running;
+    Thread thread;
+
+    public OrderGateway(InstrumentRegistry registry, InetSocketAddress address) throws IOException {
+        this(new LimitOrderHandler(registry, new InMemoryTradePersistence()),
+                new MarketOrderHandler(registry, new InMemoryTradePersistence()), address, DEFAULT_BUFFER_SIZE);
+    }
+
+    // the handlers are called from the gateway thread only, once started nothing else may use them
+    public OrderGateway(LimitOrderHandler limitOrderHandler, MarketOrderHandler marketOrderHandler,
+                        InetSocketAddress address, int bufferSize) throws IOException {
+        if (limitOrderHandler.getRegistry() != marketOrderHandler.getRegistry()) {
+            throw new IllegalArgumentException("Handlers must share one instrument registry");
+        }
+        if (bufferSize < 2 * WireCodec.MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("Buffer size too small: " + bufferSize);
+        }
+        this.limitOrderHandler = limitOrderHandler;
+        this.marketOrderHandler = marketOrderHandler;
+        this.bufferSize = bufferSize;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    public void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Gateway already started");
+        }
+        running = true;
+        thread = new Thread(this, "order-gateway");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // the bound address, with the actual port when bound to port 0
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(onReady);
+                flushPending();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Session) {
+                    closeSession((Session) key.attachment());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    private void onReady(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        final Session session = (Session) key.attachment();
+        if (key.isWritable()) {
+            flush(session);
+        }
+        if (!session.closed && key.isReadable()) {
+            read(session);
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                final Session session = new Session(channel, bufferSize);
+                session.key = channel.register(selector, SelectionKey.OP_READ, session);
+            }
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // package-private, like flushPending, so tests can drive one session at a time without the gateway thread
+    void read(Session session) {
+        try {
+            if (session.channel.read(session.in) < 0) {
+                closeSession(session);
+                return;
+            }
+        } catch (IOException e) {
+            closeSession(session);
+            return;
+        }
+        process(session);
+    }
+
+    // decodes every complete request in the input buffer while the output has room for its reports
+    private void process(Session session) {
+        final ByteBuffer in = session.in;
+        in.flip();
+        boolean paused = false;
+        while (!session.closed && in.remaining() >= WireCodec.HEADER_LENGTH) {
+            final int offset = in.position();
+            final int length = WireCodec.length(in, offset);
+            if (length < WireCodec.HEADER_LENGTH || length > in.capacity()) {
+                closeSession(session); // lost framing
+                return;
+            }
+            if (in.remaining() < length) {
+                break;
+            }
+            if (session.out.remaining() < session.out.capacity() / 2) {
+                paused = true;
+                break;
+            }
+            onMessage(session, in, offset, length);
+            in.position(offset + length);
+        }
+        if (session.closed) {
+            return;
+        }
+        in.compact();
+        session.readPaused = paused;
+        updateInterest(session);
+    }
+
+    // paused: wait for the output to drain; otherwise read, and write too while output is pending
+    private void updateInterest(Session session) {
+        final int ops;
+        if (session.readPaused) {
+            ops = SelectionKey.OP_WRITE;
+        } else {
+            ops = session.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        }
+        if (session.key.interestOps() != ops) {
+            session.key.interestOps(ops);
+        }
+    }
+
+    private void onMessage(Session session, ByteBuffer in, int offset, int length) {
+        final byte type = WireCodec.type(in, offset);
+        final int expected = WireCodec.messageLength(type);
+        if (expected == -1 || type == WireCodec.EXECUTION_REPORT) {
+            final long clientTag = length >= WireCodec.HEADER_LENGTH + 8 ? in.getLong(offset + WireCodec.HEADER_LENGTH) : 0;
+            report(session, clientTag, 0, 0, WireCodec.EXEC_REJECTED, Side.BUY, WireCodec.REJECT_UNKNOWN_MESSAGE, 0, 0, 0, now());
+            return;
+        }
+        if (length < expected) {
+            closeSession(session); // truncated fixed block
+            return;
+        }
+        switch (type) {
+            case WireCodec.NEW_ORDER:
+                onNewOrder(session, in, offset);
+                break;
+            case WireCodec.CANCEL_ORDER:
+                onCancelOrder(session, in, offset);
+                break;
+            default:
+                onReplaceOrder(session, in, offset);
+        }
+    }
+
+    private void onNewOrder(Session session, ByteBuffer in, int offset) {
+        final long clientTag = in.getLong(offset + WireCodec.NEW_CLIENT_TAG);
+        final int instrumentId = in.getInt(offset + WireCodec.NEW_INSTRUMENT_ID);
+        final int quantity = in.getInt(offset + WireCodec.NEW_QUANTITY);
+        final byte kind = in.get(offset + WireCodec.NEW_KIND);
+        final long price = in.getLong(offset + WireCodec.NEW_PRICE);
+        final Side side;
+        try {
+            side = WireCodec.side(in, offset + WireCodec.NEW_SIDE);
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+            }
+            if (kind < WireCodec.LIMIT || kind > WireCodec.POST_ONLY) {
+                throw new IllegalArgumentException("Unknown order kind: " + kind);
+            }
+        } catch (IllegalArgumentException e) {
+            report(session, clientTag, instrumentId, 0, WireCodec.EXEC_REJECTED, Side.BUY, WireCodec.REJECT_INVALID, price, quantity, 0, now());
+            return;
+        }
+        if (kind == WireCodec.MARKET) {
+            enterMarketOrder(session, clientTag, instrumentId, quantity, price, side);
+        } else {
+            enterLimitOrder(session, clientTag, instrumentId, quantity, price, side, ORDER_TYPES[kind]);
+        }
+    }
+
+    // acknowledges with NEW, then reports the fills and what was cancelled instead of resting
+    private void enterLimitOrder(Session session, long clientTag, int instrumentId, int quantity, long price, Side side,
+                                 OrderType orderType) {
+        final int orderId = nextOrderId++;
+        trades.clear();
+        try {
+            limitOrderHandler.matchOrder(instrumentId, orderId, quantity, price, side, orderType, 0, trades);
+        } catch (RuntimeException e) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, side, WireCodec.REJECT_INVALID, price, quantity, 0, now());
+            return;
+        }
+        report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_NEW, side, (byte) 0, price, quantity, 0, now());
+        final int filled = reportFills(session, clientTag, instrumentId, side);
+        final int cancelled = limitOrderHandler.getLastCancelledQuantity();
+        if (cancelled > 0) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_CANCELLED, side, (byte) 0, 0, cancelled, 0, now());
+        } else if (filled < quantity) {
+            openOrders.add(orderId, session, clientTag, instrumentId, (byte) side.ordinal(), quantity - filled);
+        }
+    }
+
+    private void enterMarketOrder(Session session, long clientTag, int instrumentId, int quantity, long slippageTicks, Side side) {
+        final int orderId = nextOrderId++;
+        trades.clear();
+        try {
+            if (slippageTicks == NULL_PRICE) {
+                marketOrderHandler.matchOrder(instrumentId, orderId, quantity, side, trades);
+            } else {
+                marketOrderHandler.matchOrder(instrumentId, orderId, quantity, slippageTicks, side, trades);
+            }
+        } catch (RuntimeException e) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, side, WireCodec.REJECT_INVALID, slippageTicks, quantity, 0, now());
+            return;
+        }
+        report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_NEW, side, (byte) 0, slippageTicks, quantity, 0, now());
+        reportFills(session, clientTag, instrumentId, side);
+        // IOC: the rest never rests
+        final int cancelled = marketOrderHandler.getLastCancelledQuantity();
+        if (cancelled > 0) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_CANCELLED, side, (byte) 0, 0, cancelled, 0, now());
+        }
+    }
+
+    // one report per fill to each side that entered through the gateway, returns the filled quantity
+    private int reportFills(Session session, long clientTag, int instrumentId, Side side) {
+        final Side passiveSide = side == Side.BUY ? Side.SELL : Side.BUY;
+        int filled = 0;
+        for (int i = 0; i < trades.size(); i++) {
+            final int activeOrderId = trades.getActiveOrderId(i);
+            final int passiveOrderId = trades.getPassiveOrderId(i);
+            final long price = trades.getPrice(i);
+            final int quantity = trades.getQuantity(i);
+            final long tradeTime = trades.getTradeTime(i);
+            filled += quantity;
+            report(session, clientTag, instrumentId, activeOrderId, WireCodec.EXEC_FILL, side, (byte) 0, price, quantity, passiveOrderId, tradeTime);
+            final int slot = openOrders.slotOf(passiveOrderId);
+            if (slot != -1) {
+                report(openOrders.owners[slot], openOrders.clientTags[slot], instrumentId, passiveOrderId, WireCodec.EXEC_FILL,
+                        passiveSide, (byte) 0, price, quantity, activeOrderId, tradeTime);
+                if (trades.isPassiveCompleted(i)) {
+                    openOrders.remove(passiveOrderId);
+                } else {
+                    openOrders.openQuantities[slot] -= quantity;
+                }
+            }
+        }
+        return filled;
+    }
+
+    private void onCancelOrder(Session session, ByteBuffer in, int offset) {
+        final long clientTag = in.getLong(offset + WireCodec.CANCEL_CLIENT_TAG);
+        final int instrumentId = in.getInt(offset + WireCodec.CANCEL_INSTRUMENT_ID);
+        final int orderId = in.getInt(offset + WireCodec.CANCEL_ORDER_ID);
+        final int slot = ownedSlot(session, instrumentId, orderId, in.get(offset + WireCodec.CANCEL_SIDE));
+        if (slot == -1) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, Side.BUY, WireCodec.REJECT_UNKNOWN_ORDER, 0, 0, 0, now());
+            return;
+        }
+        cancel(session, clientTag, orderId, slot);
+    }
+
+    private void onReplaceOrder(Session session, ByteBuffer in, int offset) {
+        final long clientTag = in.getLong(offset + WireCodec.REPLACE_CLIENT_TAG);
+        final int instrumentId = in.getInt(offset + WireCodec.REPLACE_INSTRUMENT_ID);
+        final int orderId = in.getInt(offset + WireCodec.REPLACE_ORDER_ID);
+        final int quantity = in.getInt(offset + WireCodec.REPLACE_QUANTITY);
+        final long price = in.getLong(offset + WireCodec.REPLACE_PRICE);
+        final int slot = ownedSlot(session, instrumentId, orderId, in.get(offset + WireCodec.REPLACE_SIDE));
+        if (slot == -1) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, Side.BUY, WireCodec.REJECT_UNKNOWN_ORDER, price, quantity, 0, now());
+            return;
+        }
+        final Side side = SIDES[openOrders.sides[slot]];
+        if (quantity <= 0) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, side, WireCodec.REJECT_INVALID, price, quantity, 0, now());
+            return;
+        }
+        // amended in one engine call under the same order id, a smaller quantity at the same price keeps its queue position
+        trades.clear();
+        final int fills;
+        try {
+            fills = limitOrderHandler.amendOrder(instrumentId, side, orderId, quantity, price, trades);
+        } catch (RuntimeException e) {
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, side, WireCodec.REJECT_INVALID, price, quantity, 0, now());
+            return;
+        }
+        if (fills == -1) {
+            openOrders.remove(orderId);
+            report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REJECTED, side, WireCodec.REJECT_UNKNOWN_ORDER, price, quantity, 0, now());
+            return;
+        }
+        openOrders.clientTags[slot] = clientTag; // later fills are reported under the tag of the replace
+        report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_REPLACED, side, (byte) 0, price, quantity, orderId, now());
+        final int filled = reportFills(session, clientTag, instrumentId, side);
+        if (filled < quantity) {
+            openOrders.openQuantities[slot] = quantity - filled;
+        } else {
+            openOrders.remove(orderId);
+        }
+    }
+
+    // slot of a resting order of this connection matching instrument and side, -1 otherwise
+    private int ownedSlot(Session session, int instrumentId, int orderId, byte side) {
+        final int slot = openOrders.slotOf(orderId);
+        if (slot == -1 || openOrders.owners[slot] != session || openOrders.instrumentIds[slot] != instrumentId
+                || openOrders.sides[slot] != side) {
+            return -1;
+        }
+        return slot;
+    }
+
+    private void cancel(Session session, long clientTag, int orderId, int slot) {
+        final int instrumentId = openOrders.instrumentIds[slot];
+        final Side side = SIDES[openOrders.sides[slot]];
+        final int openQuantity = openOrders.openQuantities[slot];
+        limitOrderHandler.cancelOrder(instrumentId, side, orderId);
+        openOrders.remove(orderId);
+        report(session, clientTag, instrumentId, orderId, WireCodec.EXEC_CANCELLED, side, (byte) 0, 0, openQuantity, 0, now());
+    }
+
+    private long now() {
+        return limitOrderHandler.getClock().currentTimeMillis();
+    }
+
+    private void report(Session session, long clientTag, int instrumentId, int orderId, byte execType, Side side, byte reason,
+                        long price, int quantity, int matchedOrderId, long timestamp) {
+        if (session.closed) {
+            return;
+        }
+        final ByteBuffer out = session.out;
+        if (out.remaining() < WireCodec.EXECUTION_REPORT_LENGTH) {
+            // write only: a paused session resumes from the selector, never inside another session's request
+            if (!write(session) || out.remaining() < WireCodec.EXECUTION_REPORT_LENGTH) {
+                closeSession(session); // slow consumer
+                return;
+            }
+            updateInterest(session);
+        }
+        final int position = out.position();
+        out.position(position + WireCodec.encodeExecutionReport(out, position, clientTag, instrumentId, orderId, execType,
+                side, reason, price, quantity, matchedOrderId, timestamp));
+        if (!session.pendingFlush) {
+            session.pendingFlush = true;
+            if (pendingFlushCount == pendingFlush.length) {
+                pendingFlush = Arrays.copyOf(pendingFlush, pendingFlushCount << 1);
+            }
+            pendingFlush[pendingFlushCount++] = session;
+        }
+    }
+
+    // once per selector round, so a burst of requests goes back in few writes
+    void flushPending() {
+        for (int i = 0; i < pendingFlushCount; i++) {
+            final Session session = pendingFlush[i];
+            pendingFlush[i] = null;
+            session.pendingFlush = false;
+            if (!session.closed) {
+                flush(session);
+            }
+        }
+        pendingFlushCount = 0;
+    }
+
+    // selector round only: may run the requests held back, which report to other sessions and reuse the shared trades
+    private void flush(Session session) {
+        if (!write(session)) {
+            return;
+        }
+        final ByteBuffer out = session.out;
+        if (session.readPaused && out.remaining() >= out.capacity() / 2) {
+            // requests held back while the output was full; cleared first so their reports do not come back here
+            session.readPaused = false;
+            process(session);
+        } else {
+            updateInterest(session);
+        }
+    }
+
+    // false when the connection failed and was closed
+    private boolean write(Session session) {
+        final ByteBuffer out = session.out;
+        out.flip();
+        try {
+            session.channel.write(out);
+        } catch (IOException e) {
+            out.compact();
+            closeSession(session);
+            return false;
+        }
+        out.compact();
+        return true;
+    }
+
+    private void closeSession(Session session) {
+        if (session.closed) {
+            return;
+        }
+        session.closed = true;
+        if (session.key != null) {
+            session.key.cancel();
+        }
+        try {
+            session.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // resting orders entered through this gateway, for monitoring; gateway thread or after close()
+    public int getOpenOrderCount() {
+        return openOrders.size();
+    }
+
+    public LimitOrderHandler getLimitOrderHandler() {
+        return limitOrderHandler;
+    }
+
+    public MarketOrderHandler getMarketOrderHandler() {
+        return marketOrderHandler;
+    }
+}
@@ -0,0 +1,22 @@
+package core.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+// one client connection, both buffers are direct and stay in write mode between calls
+final class Session {
+    final SocketChannel channel;
+    final ByteBuffer in;
+    final ByteBuffer out;
+    SelectionKey key;
+    boolean pendingFlush; // reports written since the last flush
+    boolean readPaused; // output backed up, requests wait in the input buffer
+    boolean closed;
+
+    Session(SocketChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.in = WireCodec.allocate(bufferSize);
+        this.out = WireCodec.allocate(bufferSize);
+    }
+}
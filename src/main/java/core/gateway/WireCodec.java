@@ -0,0 +1,203 @@
+package core.gateway;
+
+import core.bean.Side;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-layout little-endian binary protocol spoken by the {@link OrderGateway}. Every message
+ * starts with a 4-byte header (total length, message type, version) followed by fixed-offset
+ * fields, so messages are read and written in place with absolute gets and puts on the
+ * connection's buffer, without a message object in between. Buffers must be little-endian.
+ */
+public final class WireCodec {
+    public static final byte VERSION = 1;
+
+    // header, common to all messages
+    public static final int LENGTH_OFFSET = 0;
+    public static final int TYPE_OFFSET = 2;
+    public static final int VERSION_OFFSET = 3;
+    public static final int HEADER_LENGTH = 4;
+
+    // inbound message types
+    public static final byte NEW_ORDER = 1;
+    public static final byte CANCEL_ORDER = 2;
+    public static final byte REPLACE_ORDER = 3;
+    // outbound message types
+    public static final byte EXECUTION_REPORT = 11;
+
+    // order kinds of a NEW_ORDER, the first two are the command codes of the engine
+    public static final byte LIMIT = 1;
+    public static final byte MARKET = 2;
+    public static final byte IOC = 3; // limit price, never rests
+    public static final byte FOK = 4; // limit price, fills in full or not at all
+    public static final byte POST_ONLY = 5; // limit price, cancelled instead of crossing
+
+    // execution types of an EXECUTION_REPORT
+    public static final byte EXEC_NEW = 1;
+    public static final byte EXEC_FILL = 2;
+    public static final byte EXEC_CANCELLED = 3;
+    public static final byte EXEC_REPLACED = 4;
+    public static final byte EXEC_REJECTED = 5;
+
+    // reject reasons, in the reason field of an EXEC_REJECTED report
+    public static final byte REJECT_INVALID = 1; // refused by the engine, e.g. unknown instrument or bad price
+    public static final byte REJECT_UNKNOWN_ORDER = 2; // not resting, or owned by another connection
+    public static final byte REJECT_UNKNOWN_MESSAGE = 3;
+
+    // NEW_ORDER: clientTag, instrumentId, quantity, kind, side, price (ticks; slippage ticks or NULL_PRICE for market)
+    public static final int NEW_ORDER_LENGTH = 32;
+    static final int NEW_CLIENT_TAG = 4;
+    static final int NEW_INSTRUMENT_ID = 12;
+    static final int NEW_QUANTITY = 16;
+    static final int NEW_KIND = 20;
+    static final int NEW_SIDE = 21;
+    static final int NEW_PRICE = 24;
+
+    // CANCEL_ORDER: clientTag, instrumentId, orderId, side
+    public static final int CANCEL_ORDER_LENGTH = 24;
+    static final int CANCEL_CLIENT_TAG = 4;
+    static final int CANCEL_INSTRUMENT_ID = 12;
+    static final int CANCEL_ORDER_ID = 16;
+    static final int CANCEL_SIDE = 20;
+
+    // REPLACE_ORDER: clientTag, instrumentId, orderId, new quantity, new price, side
+    public static final int REPLACE_ORDER_LENGTH = 40;
+    static final int REPLACE_CLIENT_TAG = 4;
+    static final int REPLACE_INSTRUMENT_ID = 12;
+    static final int REPLACE_ORDER_ID = 16;
+    static final int REPLACE_QUANTITY = 20;
+    static final int REPLACE_PRICE = 24;
+    static final int REPLACE_SIDE = 32;
+
+    // EXECUTION_REPORT: clientTag, instrumentId, orderId, execType, side, reason, price, quantity, matchedOrderId, timestamp
+    public static final int EXECUTION_REPORT_LENGTH = 48;
+    static final int REPORT_CLIENT_TAG = 4;
+    static final int REPORT_INSTRUMENT_ID = 12;
+    static final int REPORT_ORDER_ID = 16;
+    static final int REPORT_EXEC_TYPE = 20;
+    static final int REPORT_SIDE = 21;
+    static final int REPORT_REASON = 22;
+    static final int REPORT_PRICE = 24;
+    static final int REPORT_QUANTITY = 32;
+    static final int REPORT_MATCHED_ORDER_ID = 36;
+    static final int REPORT_TIMESTAMP = 40;
+
+    public static final int MAX_MESSAGE_LENGTH = EXECUTION_REPORT_LENGTH;
+
+    private static final Side[] SIDES = Side.values();
+
+    private WireCodec() {
+    }
+
+    public static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // length of the message of the given type, -1 for a type this protocol does not define
+    public static int messageLength(byte type) {
+        switch (type) {
+            case NEW_ORDER:
+                return NEW_ORDER_LENGTH;
+            case CANCEL_ORDER:
+                return CANCEL_ORDER_LENGTH;
+            case REPLACE_ORDER:
+                return REPLACE_ORDER_LENGTH;
+            case EXECUTION_REPORT:
+                return EXECUTION_REPORT_LENGTH;
+            default:
+                return -1;
+        }
+    }
+
+    private static void header(ByteBuffer buffer, int offset, int length, byte type) {
+        buffer.putShort(offset + LENGTH_OFFSET, (short) length);
+        buffer.put(offset + TYPE_OFFSET, type);
+        buffer.put(offset + VERSION_OFFSET, VERSION);
+    }
+
+    public static int encodeNewOrder(ByteBuffer buffer, int offset, long clientTag, int instrumentId, int quantity,
+                                     byte kind, long price, Side side) {
+        header(buffer, offset, NEW_ORDER_LENGTH, NEW_ORDER);
+        buffer.putLong(offset + NEW_CLIENT_TAG, clientTag);
+        buffer.putInt(offset + NEW_INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + NEW_QUANTITY, quantity);
+        buffer.put(offset + NEW_KIND, kind);
+        buffer.put(offset + NEW_SIDE, (byte) side.ordinal());
+        buffer.putShort(offset + NEW_SIDE + 1, (short) 0);
+        buffer.putLong(offset + NEW_PRICE, price);
+        return NEW_ORDER_LENGTH;
+    }
+
+    public static int encodeCancelOrder(ByteBuffer buffer, int offset, long clientTag, int instrumentId, int orderId, Side side) {
+        header(buffer, offset, CANCEL_ORDER_LENGTH, CANCEL_ORDER);
+        buffer.putLong(offset + CANCEL_CLIENT_TAG, clientTag);
+        buffer.putInt(offset + CANCEL_INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + CANCEL_ORDER_ID, orderId);
+        buffer.putInt(offset + CANCEL_SIDE, side.ordinal()); // side byte and padding
+        return CANCEL_ORDER_LENGTH;
+    }
+
+    public static int encodeReplaceOrder(ByteBuffer buffer, int offset, long clientTag, int instrumentId, int orderId,
+                                         int quantity, long price, Side side) {
+        header(buffer, offset, REPLACE_ORDER_LENGTH, REPLACE_ORDER);
+        buffer.putLong(offset + REPLACE_CLIENT_TAG, clientTag);
+        buffer.putInt(offset + REPLACE_INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + REPLACE_ORDER_ID, orderId);
+        buffer.putInt(offset + REPLACE_QUANTITY, quantity);
+        buffer.putLong(offset + REPLACE_PRICE, price);
+        buffer.putLong(offset + REPLACE_SIDE, side.ordinal()); // side byte and padding
+        return REPLACE_ORDER_LENGTH;
+    }
+
+    public static int encodeExecutionReport(ByteBuffer buffer, int offset, long clientTag, int instrumentId, int orderId,
+                                            byte execType, Side side, byte reason, long price, int quantity,
+                                            int matchedOrderId, long timestamp) {
+        header(buffer, offset, EXECUTION_REPORT_LENGTH, EXECUTION_REPORT);
+        buffer.putLong(offset + REPORT_CLIENT_TAG, clientTag);
+        buffer.putInt(offset + REPORT_INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + REPORT_ORDER_ID, orderId);
+        buffer.put(offset + REPORT_EXEC_TYPE, execType);
+        buffer.put(offset + REPORT_SIDE, (byte) side.ordinal());
+        buffer.put(offset + REPORT_REASON, reason);
+        buffer.put(offset + REPORT_REASON + 1, (byte) 0);
+        buffer.putLong(offset + REPORT_PRICE, price);
+        buffer.putInt(offset + REPORT_QUANTITY, quantity);
+        buffer.putInt(offset + REPORT_MATCHED_ORDER_ID, matchedOrderId);
+        buffer.putLong(offset + REPORT_TIMESTAMP, timestamp);
+        return EXECUTION_REPORT_LENGTH;
+    }
+
+    public static int length(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset + LENGTH_OFFSET) & 0xFFFF;
+    }
+
+    public static byte type(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + TYPE_OFFSET);
+    }
+
+    // side byte at the given field offset, IllegalArgumentException when it is not a side
+    static Side side(ByteBuffer buffer, int offset) {
+        final int ordinal = buffer.get(offset);
+        if (ordinal < 0 || ordinal >= SIDES.length) {
+            throw new IllegalArgumentException("Unknown side: " + ordinal);
+        }
+        return SIDES[ordinal];
+    }
+
+    // calls the handler with the fields of the execution report at the offset
+    public static void decodeExecutionReport(ByteBuffer buffer, int offset, ExecutionReportHandler handler) {
+        handler.onExecutionReport(
+                buffer.getLong(offset + REPORT_CLIENT_TAG),
+                buffer.getInt(offset + REPORT_INSTRUMENT_ID),
+                buffer.getInt(offset + REPORT_ORDER_ID),
+                buffer.get(offset + REPORT_EXEC_TYPE),
+                side(buffer, offset + REPORT_SIDE),
+                buffer.get(offset + REPORT_REASON),
+                buffer.getLong(offset + REPORT_PRICE),
+                buffer.getInt(offset + REPORT_QUANTITY),
+                buffer.getInt(offset + REPORT_MATCHED_ORDER_ID),
+                buffer.getLong(offset + REPORT_TIMESTAMP));
+    }
+}
@@ -0,0 +1,92 @@
+package core.history;
+
+import java.nio.ByteBuffer;
+
+import static core.history.TradeHistoryWriter.*;
+
+// decodes one mapped chunk row by row, reading each column block in place; the order id columns only when asked for
+final class ChunkCursor {
+    final int rows;
+    final boolean orderIds;
+    final byte priceEncoding;
+    final Varint.Reader timeReader;
+    final Varint.Reader instrumentReader;
+    final Varint.Reader activeReader;
+    final Varint.Reader passiveReader;
+    final Varint.Reader priceReader;
+    final Varint.Reader quantityReader;
+    final ByteBuffer chunk;
+    final int flagsOffset;
+    long[] dictionary;
+    long priceBase;
+    int row;
+
+    // the current row
+    long tradeTime;
+    int instrumentId;
+    int activeOrderId;
+    int passiveOrderId;
+    long price;
+    int quantity;
+    boolean passiveCompleted;
+
+    ChunkCursor(ByteBuffer chunk, ByteBuffer directory, int entry, boolean orderIds) {
+        this.chunk = chunk;
+        this.rows = directory.getInt(entry + ENTRY_ROWS);
+        this.orderIds = orderIds;
+        this.priceEncoding = (byte) directory.getInt(entry + ENTRY_PRICE_ENCODING);
+        final int timeOffset = column(directory, entry, TIME);
+        this.tradeTime = chunk.getLong(timeOffset);
+        this.timeReader = new Varint.Reader(chunk, timeOffset + 8);
+        this.instrumentReader = new Varint.Reader(chunk, column(directory, entry, INSTRUMENT));
+        final int activeOffset = column(directory, entry, ACTIVE_ORDER);
+        this.activeOrderId = chunk.getInt(activeOffset);
+        this.activeReader = new Varint.Reader(chunk, activeOffset + 4);
+        this.passiveReader = new Varint.Reader(chunk, column(directory, entry, PASSIVE_ORDER));
+        this.priceReader = new Varint.Reader(chunk, column(directory, entry, PRICE));
+        if (priceEncoding == PRICE_DICTIONARY) {
+            dictionary = new long[(int) priceReader.read()];
+            for (int d = 0; d < dictionary.length; d++) {
+                dictionary[d] = chunk.getLong(priceReader.position);
+                priceReader.position += 8;
+            }
+        } else if (priceEncoding == PRICE_FRAME_OF_REFERENCE) {
+            priceBase = chunk.getLong(priceReader.position);
+            priceReader.position += 8;
+        } else {
+            throw new IllegalStateException("Unknown price encoding: " + priceEncoding);
+        }
+        this.quantityReader = new Varint.Reader(chunk, column(directory, entry, QUANTITY));
+        this.flagsOffset = column(directory, entry, FLAGS);
+    }
+
+    private static int column(ByteBuffer directory, int entry, int column) {
+        return directory.getInt(entry + ENTRY_COLUMN_OFFSETS + 4 * column);
+    }
+
+    // false after the last row
+    boolean next() {
+        if (row == rows) {
+            return false;
+        }
+        if (row > 0) {
+            tradeTime += timeReader.readSigned();
+        }
+        instrumentId = (int) instrumentReader.read();
+        if (orderIds) {
+            if (row > 0) {
+                activeOrderId += (int) activeReader.readSigned();
+            }
+            passiveOrderId = (int) (activeOrderId + passiveReader.readSigned());
+            passiveCompleted = (chunk.get(flagsOffset + (row >>> 3)) & (1 << (row & 7))) != 0;
+        }
+        if (priceEncoding == PRICE_DICTIONARY) {
+            price = dictionary[chunk.get(priceReader.position++) & 0xFF];
+        } else {
+            price = priceBase + priceReader.read();
+        }
+        quantity = (int) quantityReader.read();
+        row++;
+        return true;
+    }
+}
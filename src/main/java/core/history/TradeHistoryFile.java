@@ -0,0 +1,214 @@
+package core.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static core.history.TradeHistoryWriter.*;
+
+/**
+ * Read side of a trade history file written by {@link TradeHistoryWriter}. Every chunk is mapped
+ * read-only on its own and decoded in place, column by column, without copying it to the heap.
+ * Aggregate queries fork one task per chunk on a {@link ForkJoinPool}, skip the chunks whose time
+ * span misses the range and decode only the columns they need. Safe for concurrent readers.
+ */
+public class TradeHistoryFile implements Closeable {
+    final FileChannel channel;
+    final ForkJoinPool pool;
+    final ByteBuffer directory;
+    final MappedByteBuffer[] chunks;
+    final int chunkRows;
+    final long rowCount;
+    final long fileSize;
+
+    public static TradeHistoryFile open(Path file) {
+        return open(file, ForkJoinPool.commonPool());
+    }
+
+    public static TradeHistoryFile open(Path file, ForkJoinPool pool) {
+        try {
+            return new TradeHistoryFile(FileChannel.open(file, StandardOpenOption.READ), pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    TradeHistoryFile(FileChannel channel, ForkJoinPool pool) throws IOException {
+        this.channel = channel;
+        this.pool = pool;
+        try {
+            this.fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a trade history file, " + fileSize + " bytes");
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IllegalArgumentException("Not a trade history file, bad magic");
+            }
+            if (header.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IllegalArgumentException("Unsupported trade history version: " + header.getInt(VERSION_OFFSET));
+            }
+            this.chunkRows = header.getInt(CHUNK_ROWS_OFFSET);
+            this.rowCount = header.getLong(ROW_COUNT_OFFSET);
+            final int chunkCount = header.getInt(CHUNK_COUNT_OFFSET);
+            final long directoryOffset = header.getLong(DIRECTORY_OFFSET);
+            if (directoryOffset + (long) chunkCount * ENTRY_BYTES > fileSize) {
+                throw new IllegalArgumentException("Truncated trade history file");
+            }
+            this.directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, (long) chunkCount * ENTRY_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.chunks = new MappedByteBuffer[chunkCount];
+            for (int c = 0; c < chunkCount; c++) {
+                final int entry = c * ENTRY_BYTES;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, directory.getLong(entry + ENTRY_CHUNK_OFFSET),
+                        directory.getInt(entry + ENTRY_CHUNK_LENGTH));
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private boolean overlaps(int chunk, long fromTime, long toTime) {
+        final int entry = chunk * ENTRY_BYTES;
+        return directory.getLong(entry + ENTRY_MAX_TIME) >= fromTime && directory.getLong(entry + ENTRY_MIN_TIME) < toTime;
+    }
+
+    /**
+     * Calls the handler for every trade with {@code fromTime <= tradeTime < toTime}, in file order,
+     * on the calling thread, and returns how many there were.
+     */
+    public long scan(long fromTime, long toTime, TradeRowHandler handler) {
+        long count = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            if (!overlaps(c, fromTime, toTime)) {
+                continue;
+            }
+            final ChunkCursor cursor = new ChunkCursor(chunks[c], directory, c * ENTRY_BYTES, true);
+            final long firstRow = (long) c * chunkRows;
+            while (cursor.next()) {
+                if (cursor.tradeTime >= fromTime && cursor.tradeTime < toTime) {
+                    handler.onTrade(firstRow + cursor.row - 1, cursor.instrumentId, cursor.activeOrderId, cursor.passiveOrderId,
+                            cursor.price, cursor.quantity, cursor.tradeTime, cursor.passiveCompleted);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // trades of the instrument with fromTime <= tradeTime < toTime
+    public long getTradeCount(int instrumentId, long fromTime, long toTime) {
+        return aggregate(instrumentId, fromTime, toTime).count;
+    }
+
+    // traded quantity of the instrument with fromTime <= tradeTime < toTime
+    public long getVolume(int instrumentId, long fromTime, long toTime) {
+        return aggregate(instrumentId, fromTime, toTime).volume;
+    }
+
+    // volume weighted average price in ticks of the instrument over [fromTime, toTime), NaN when it did not trade
+    public double getVwap(int instrumentId, long fromTime, long toTime) {
+        final Totals totals = aggregate(instrumentId, fromTime, toTime);
+        return totals.volume == 0 ? Double.NaN : totals.notional / totals.volume;
+    }
+
+    Totals aggregate(int instrumentId, long fromTime, long toTime) {
+        return pool.invoke(new AggregateTask(this, instrumentId, fromTime, toTime, 0, chunks.length));
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    // the mappings stay valid until they are garbage collected, the JDK cannot unmap them earlier
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static final class Totals {
+        long count;
+        long volume;
+        double notional; // a double, so billions of rows cannot overflow it
+
+        Totals add(Totals other) {
+            count += other.count;
+            volume += other.volume;
+            notional += other.notional;
+            return this;
+        }
+    }
+
+    // splits the chunk range in halves down to single chunks
+    static final class AggregateTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        final TradeHistoryFile file;
+        final int instrumentId;
+        final long fromTime;
+        final long toTime;
+        final int fromChunk;
+        final int toChunk;
+
+        AggregateTask(TradeHistoryFile file, int instrumentId, long fromTime, long toTime, int fromChunk, int toChunk) {
+            this.file = file;
+            this.instrumentId = instrumentId;
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (toChunk - fromChunk > 1) {
+                final int middle = (fromChunk + toChunk) >>> 1;
+                final AggregateTask left = new AggregateTask(file, instrumentId, fromTime, toTime, fromChunk, middle);
+                left.fork();
+                final Totals right = new AggregateTask(file, instrumentId, fromTime, toTime, middle, toChunk).compute();
+                return right.add(left.join());
+            }
+            final Totals totals = new Totals();
+            if (fromChunk == toChunk || !file.overlaps(fromChunk, fromTime, toTime)) {
+                return totals;
+            }
+            final ChunkCursor cursor = new ChunkCursor(file.chunks[fromChunk], file.directory, fromChunk * ENTRY_BYTES, false);
+            long count = 0;
+            long volume = 0;
+            double notional = 0;
+            while (cursor.next()) {
+                if (cursor.instrumentId == instrumentId && cursor.tradeTime >= fromTime && cursor.tradeTime < toTime) {
+                    count++;
+                    volume += cursor.quantity;
+                    notional += (double) cursor.price * cursor.quantity;
+                }
+            }
+            totals.count = count;
+            totals.volume = volume;
+            totals.notional = notional;
+            return totals;
+        }
+    }
+}
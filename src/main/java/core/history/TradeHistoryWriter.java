@@ -0,0 +1,319 @@
+package core.history;
+
+import core.journal.MappedRecordLog;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import trader.MappedTradePersistence;
+import trader.TradeStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes fills into a columnar trade history file for offline analytics. Rows are cut into chunks
+ * of {@link #DEFAULT_CHUNK_ROWS}, and each chunk stores every column as its own block:
+ * <ul>
+ *   <li>trade time and active order id: first value, then zigzag varint deltas</li>
+ *   <li>passive order id: zigzag varint distance to the active order id of the row</li>
+ *   <li>price: a dictionary of at most 256 prices and one byte per row, or ticks above the chunk's lowest price as varints</li>
+ *   <li>instrument id and quantity: varints; passive-completed flag: one bit per row</li>
+ * </ul>
+ * A directory at the end of the file holds each chunk's offset, row count, time span and column
+ * offsets, so {@link TradeHistoryFile} maps chunks independently and skips those outside a query.
+ */
+public class TradeHistoryWriter implements Closeable {
+    public static final int DEFAULT_CHUNK_ROWS = 1 << 16;
+
+    static final int MAGIC = 0x48445254; // "TRDH" little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int CHUNK_ROWS_OFFSET = 8;
+    static final int CHUNK_COUNT_OFFSET = 12;
+    static final int ROW_COUNT_OFFSET = 16;
+    static final int DIRECTORY_OFFSET = 24;
+
+    // columns, in block order within a chunk
+    static final int TIME = 0;
+    static final int INSTRUMENT = 1;
+    static final int ACTIVE_ORDER = 2;
+    static final int PASSIVE_ORDER = 3;
+    static final int PRICE = 4;
+    static final int QUANTITY = 5;
+    static final int FLAGS = 6;
+    static final int COLUMNS = 7;
+
+    // directory entry of a chunk
+    static final int ENTRY_BYTES = 64;
+    static final int ENTRY_CHUNK_OFFSET = 0;
+    static final int ENTRY_CHUNK_LENGTH = 8;
+    static final int ENTRY_ROWS = 12;
+    static final int ENTRY_MIN_TIME = 16;
+    static final int ENTRY_MAX_TIME = 24;
+    static final int ENTRY_COLUMN_OFFSETS = 32; // int per column, relative to the chunk
+    static final int ENTRY_PRICE_ENCODING = 60;
+
+    static final byte PRICE_DICTIONARY = 1;
+    static final byte PRICE_FRAME_OF_REFERENCE = 2;
+    static final int MAX_DICTIONARY = 256;
+
+    final FileChannel channel;
+    final int chunkRows;
+    // the chunk being filled
+    final long[] times;
+    final int[] instrumentIds;
+    final int[] activeOrderIds;
+    final int[] passiveOrderIds;
+    final long[] prices;
+    final int[] quantities;
+    final boolean[] passiveCompleted;
+    int rows;
+    final Long2IntOpenHashMap dictionaryIndex = new Long2IntOpenHashMap(MAX_DICTIONARY * 2);
+    final long[] dictionary = new long[MAX_DICTIONARY];
+    ByteBuffer chunkBuffer;
+    ByteBuffer directory = ByteBuffer.allocate(ENTRY_BYTES * 64).order(ByteOrder.LITTLE_ENDIAN);
+    final int[] columnOffsets = new int[COLUMNS];
+    long position = HEADER_BYTES;
+    long rowCount;
+    int chunkCount;
+    boolean closed;
+
+    public TradeHistoryWriter(Path file) {
+        this(file, DEFAULT_CHUNK_ROWS);
+    }
+
+    public TradeHistoryWriter(Path file, int chunkRows) {
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("Chunk rows must be positive: " + chunkRows);
+        }
+        this.chunkRows = chunkRows;
+        this.times = new long[chunkRows];
+        this.instrumentIds = new int[chunkRows];
+        this.activeOrderIds = new int[chunkRows];
+        this.passiveOrderIds = new int[chunkRows];
+        this.prices = new long[chunkRows];
+        this.quantities = new int[chunkRows];
+        this.passiveCompleted = new boolean[chunkRows];
+        // worst case per row: 10 + 5 + 10 + 10 + 10 + 5 bytes and a flag bit, plus the column preambles
+        this.chunkBuffer = ByteBuffer.allocate(chunkRows * 51 + MAX_DICTIONARY * 10 + 64).order(ByteOrder.LITTLE_ENDIAN);
+        dictionaryIndex.defaultReturnValue(-1);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // every fill of an in-memory store into a new history file
+    public static void export(TradeStore store, Path file) {
+        try (TradeHistoryWriter writer = new TradeHistoryWriter(file)) {
+            for (int i = 0; i < store.size(); i++) {
+                writer.append(store.getInstrumentId(i), store.getActiveOrderId(i), store.getPassiveOrderId(i),
+                        store.getPrice(i), store.getQuantity(i), store.getTradeTime(i), store.isPassiveCompleted(i));
+            }
+        }
+    }
+
+    // rolls a trade journal into a new history file, the journal itself is left as it is
+    public static void export(MappedTradePersistence journal, Path file) {
+        try (TradeHistoryWriter writer = new TradeHistoryWriter(file)) {
+            final MappedRecordLog log = journal.getLog();
+            log.read(0, (sequence, buffer, offset) -> writer.append(
+                    buffer.getInt(offset + MappedTradePersistence.INSTRUMENT_ID),
+                    buffer.getInt(offset + MappedTradePersistence.ACTIVE_ORDER_ID),
+                    buffer.getInt(offset + MappedTradePersistence.PASSIVE_ORDER_ID),
+                    buffer.getLong(offset + MappedTradePersistence.PRICE),
+                    buffer.getInt(offset + MappedTradePersistence.QUANTITY),
+                    buffer.getLong(offset + MappedTradePersistence.TRADE_TIME),
+                    (buffer.getInt(offset + MappedTradePersistence.FLAGS) & MappedTradePersistence.PASSIVE_COMPLETED) != 0));
+        }
+    }
+
+    public void append(int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime,
+                       boolean passiveCompleted) {
+        if (closed) {
+            throw new IllegalStateException("Trade history writer is closed");
+        }
+        times[rows] = tradeTime;
+        instrumentIds[rows] = instrumentId;
+        activeOrderIds[rows] = activeOrderId;
+        passiveOrderIds[rows] = passiveOrderId;
+        prices[rows] = price;
+        quantities[rows] = quantity;
+        this.passiveCompleted[rows] = passiveCompleted;
+        rows++;
+        rowCount++;
+        if (rows == chunkRows) {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() {
+        final ByteBuffer out = chunkBuffer;
+        out.clear();
+        long minTime = times[0];
+        long maxTime = times[0];
+        for (int i = 1; i < rows; i++) {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+        }
+
+        columnOffsets[TIME] = out.position();
+        out.putLong(times[0]);
+        for (int i = 1; i < rows; i++) {
+            Varint.writeSigned(out, times[i] - times[i - 1]);
+        }
+
+        columnOffsets[INSTRUMENT] = out.position();
+        for (int i = 0; i < rows; i++) {
+            Varint.write(out, instrumentIds[i] & 0xFFFFFFFFL);
+        }
+
+        columnOffsets[ACTIVE_ORDER] = out.position();
+        out.putInt(activeOrderIds[0]);
+        for (int i = 1; i < rows; i++) {
+            Varint.writeSigned(out, (long) activeOrderIds[i] - activeOrderIds[i - 1]);
+        }
+
+        columnOffsets[PASSIVE_ORDER] = out.position();
+        for (int i = 0; i < rows; i++) {
+            Varint.writeSigned(out, (long) passiveOrderIds[i] - activeOrderIds[i]);
+        }
+
+        columnOffsets[PRICE] = out.position();
+        final byte priceEncoding = writePrices(out);
+
+        columnOffsets[QUANTITY] = out.position();
+        for (int i = 0; i < rows; i++) {
+            Varint.write(out, quantities[i] & 0xFFFFFFFFL);
+        }
+
+        columnOffsets[FLAGS] = out.position();
+        for (int i = 0; i < rows; i += 8) {
+            int bits = 0;
+            for (int b = 0; b < 8 && i + b < rows; b++) {
+                if (passiveCompleted[i + b]) {
+                    bits |= 1 << b;
+                }
+            }
+            out.put((byte) bits);
+        }
+
+        out.flip();
+        final int length = out.remaining();
+        try {
+            while (out.hasRemaining()) {
+                channel.write(out, position + out.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (directory.remaining() < ENTRY_BYTES) {
+            final ByteBuffer grown = ByteBuffer.allocate(directory.capacity() << 1).order(ByteOrder.LITTLE_ENDIAN);
+            directory.flip();
+            grown.put(directory);
+            directory = grown;
+        }
+        final int entry = directory.position();
+        directory.putLong(entry + ENTRY_CHUNK_OFFSET, position);
+        directory.putInt(entry + ENTRY_CHUNK_LENGTH, length);
+        directory.putInt(entry + ENTRY_ROWS, rows);
+        directory.putLong(entry + ENTRY_MIN_TIME, minTime);
+        directory.putLong(entry + ENTRY_MAX_TIME, maxTime);
+        for (int c = 0; c < COLUMNS; c++) {
+            directory.putInt(entry + ENTRY_COLUMN_OFFSETS + 4 * c, columnOffsets[c]);
+        }
+        directory.putInt(entry + ENTRY_PRICE_ENCODING, priceEncoding);
+        directory.position(entry + ENTRY_BYTES);
+
+        position += length;
+        chunkCount++;
+        rows = 0;
+    }
+
+    // dictionary while the chunk has few distinct prices, which is the common case for one instrument per shard
+    private byte writePrices(ByteBuffer out) {
+        dictionaryIndex.clear();
+        long minPrice = prices[0];
+        int distinct = 0;
+        for (int i = 0; i < rows; i++) {
+            minPrice = Math.min(minPrice, prices[i]);
+            if (distinct <= MAX_DICTIONARY && dictionaryIndex.get(prices[i]) == -1) {
+                if (distinct < MAX_DICTIONARY) {
+                    dictionary[distinct] = prices[i];
+                    dictionaryIndex.put(prices[i], distinct);
+                }
+                distinct++;
+            }
+        }
+        if (distinct <= MAX_DICTIONARY) {
+            Varint.write(out, distinct);
+            for (int d = 0; d < distinct; d++) {
+                out.putLong(dictionary[d]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.put((byte) dictionaryIndex.get(prices[i]));
+            }
+            return PRICE_DICTIONARY;
+        }
+        out.putLong(minPrice);
+        for (int i = 0; i < rows; i++) {
+            Varint.write(out, prices[i] - minPrice); // unsigned, may use all 64 bits for extreme spreads
+        }
+        return PRICE_FRAME_OF_REFERENCE;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // bytes written so far, chunks only; the header and directory are added on close
+    public long getChunkBytes() {
+        return position - HEADER_BYTES;
+    }
+
+    // flushes the last partial chunk, then writes the directory and header
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (rows > 0) {
+                writeChunk();
+            }
+            directory.flip();
+            final long directoryOffset = position;
+            while (directory.hasRemaining()) {
+                channel.write(directory, directoryOffset + directory.position());
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(CHUNK_ROWS_OFFSET, chunkRows);
+            header.putInt(CHUNK_COUNT_OFFSET, chunkCount);
+            header.putLong(ROW_COUNT_OFFSET, rowCount);
+            header.putLong(DIRECTORY_OFFSET, directoryOffset);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
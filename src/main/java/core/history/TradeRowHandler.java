@@ -0,0 +1,8 @@
+package core.history;
+
+// visitor of a TradeHistoryFile scan
+public interface TradeRowHandler {
+    // row is the position in the file, in append order
+    void onTrade(long row, int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime,
+                 boolean passiveCompleted);
+}
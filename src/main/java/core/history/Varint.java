@@ -0,0 +1,56 @@
+package core.history;
+
+import java.nio.ByteBuffer;
+
+// LEB128 varints, zigzag encoded for signed deltas
+final class Varint {
+    private Varint() {
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void write(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void writeSigned(ByteBuffer buffer, long value) {
+        write(buffer, zigzag(value));
+    }
+
+    // sequential reads at an absolute position, one per column being decoded
+    static final class Reader {
+        final ByteBuffer buffer;
+        int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long read() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readSigned() {
+            return unzigzag(read());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package core.instrument;
+
+import core.EngineConstants;
+import core.bean.Side;
+import core.common.TimerHandler;
+import core.common.TimingWheel;
+import core.order.BookType;
+import core.order.LadderOrderBook;
+import core.order.OrderBook;
+import core.order.TreeOrderBook;
+
+public class Instrument implements EngineConstants {
+    private static final double TICK_TOLERANCE = 1e-6;
+    private static final Side[] SIDES = Side.values();
+
+    private final int id;
+    private final String symbol;
+    private final double tickSize;
+    private final double ticksPerUnit; // 1 / tickSize, dividing by it keeps decimal ticks like 0.01 exact
+    private final BookType bookType;
+    private final long marketSlippageTicks;
+    private final OrderBook sellOrderBook;
+    private final OrderBook buyOrderBook;
+
+    // GTD and DAY orders of both books by expire time, payload side << 32 | orderId. Kept with the books,
+    // so every handler matching this instrument expires them first, whichever order type it handles
+    private final TimingWheel expiryWheel = new TimingWheel(0);
+    private final TimerHandler onExpiry = this::onExpiry;
+    private long expiredCount = 0;
+
+    public Instrument(int id, String symbol) {
+        this(id, symbol, DEFAULT_TICK_SIZE);
+    }
+
+    public Instrument(int id, String symbol, double tickSize) {
+        this(new InstrumentSpec(id, symbol).tickSize(tickSize));
+    }
+
+    public Instrument(InstrumentSpec spec) {
+        if (!(spec.tickSize > 0) || Double.isInfinite(spec.tickSize)) {
+            throw new IllegalArgumentException("Tick size must be positive: " + spec.tickSize);
+        }
+        this.id = spec.id;
+        this.symbol = spec.symbol;
+        this.tickSize = spec.tickSize;
+        this.ticksPerUnit = 1 / spec.tickSize;
+        this.bookType = spec.bookType;
+        this.marketSlippageTicks = Double.isInfinite(spec.marketSlippage) ? NO_SLIPPAGE_LIMIT : toTicks(spec.marketSlippage);
+        this.sellOrderBook = newOrderBook(Side.SELL, spec);
+        this.buyOrderBook = newOrderBook(Side.BUY, spec);
+    }
+
+    private OrderBook newOrderBook(Side side, InstrumentSpec spec) {
+        switch (spec.bookType) {
+            case TREE:
+                return new TreeOrderBook(side, spec.sizing);
+            case LADDER:
+                final long basePrice = toTicks(spec.ladderMinPrice);
+                final long rungs = toTicks(spec.ladderMaxPrice) - basePrice + 1;
+                if (rungs > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Ladder band too wide: " + rungs + " ticks");
+                }
+                return new LadderOrderBook(side, basePrice, (int) rungs, spec.sizing);
+            default:
+                throw new IllegalArgumentException("Unsupported book type: " + spec.bookType);
+        }
+    }
+
+    public OrderBook oppositeOrderBook(Side side) {
+        if (side == null) {
+            throw new IllegalArgumentException("Unsupported order side");
+        }
+        return side == Side.SELL ? buyOrderBook : sellOrderBook;
+    }
+
+    public OrderBook orderBook(Side side) {
+        if (side == null) {
+            throw new IllegalArgumentException("Unsupported order side");
+        }
+        return side == Side.SELL ? sellOrderBook : buyOrderBook;
+    }
+
+    // best n levels of one side into the caller's arrays, prices in ticks; see OrderBook.getDepth
+    public int getDepth(Side side, int n, long[] prices, int[] quantities, int[] orderCounts) {
+        return orderBook(side).getDepth(n, prices, quantities, orderCounts);
+    }
+
+    // on the matcher thread after expireOrders(now); false when the expire time has already passed
+    public boolean scheduleExpiry(long expireTime, Side side, int orderId) {
+        return expiryWheel.schedule(expireTime, ((long) side.ordinal() << 32) | (orderId & 0xFFFFFFFFL));
+    }
+
+    // cancels the GTD and DAY orders due by now, no book scan: the wheel hands over only those due; returns how many
+    public int expireOrders(long now) {
+        final long before = expiredCount;
+        expiryWheel.advance(now, onExpiry);
+        return (int) (expiredCount - before);
+    }
+
+    private void onExpiry(long payload) {
+        final OrderBook book = orderBook(SIDES[(int) (payload >>> 32)]);
+        final int orderId = (int) payload;
+        // filled or cancelled since, nothing to do
+        if (book.getOpenQuantity(orderId) > 0) {
+            book.onCancelOrder(orderId);
+            expiredCount++;
+        }
+    }
+
+    // ms up to which every due order has been expired
+    public long getExpiryTime() {
+        return expiryWheel.getCurrentTime();
+    }
+
+    // GTD and DAY orders waiting for their expiry, including ones already filled or cancelled
+    public int getPendingExpiryCount() {
+        return expiryWheel.size();
+    }
+
+    // GTD and DAY orders cancelled by expiry so far
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    // decimal -> ticks, only at the api edge
+    public long toTicks(double price) {
+        final double ticks = price * ticksPerUnit;
+        final long rounded = Math.round(ticks);
+        if (Math.abs(ticks - rounded) > Math.max(TICK_TOLERANCE, 4 * Math.ulp(ticks))) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of tick size " + tickSize);
+        }
+        return rounded;
+    }
+
+    // ticks -> decimal, only at the api edge
+    public double toPrice(long ticks) {
+        return ticks / ticksPerUnit;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTickSize() {
+        return tickSize;
+    }
+
+    public BookType getBookType() {
+        return bookType;
+    }
+
+    public long getMarketSlippageTicks() {
+        return marketSlippageTicks;
+    }
+
+    @Override
+    public String toString() {
+        return "Instrument{" +
+                "id=" + id +
+                ", symbol='" + symbol + '\'' +
+                ", tickSize=" + tickSize +
+                ", bookType=" + bookType +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package core.instrument;
+
+import core.EngineConstants;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+public class InstrumentRegistry implements EngineConstants {
+    private final Instrument[] instruments; // instrumentId -> instrument
+    private final Object2IntOpenHashMap<String> symbolIndex = new Object2IntOpenHashMap<>(); // only used at the api edge
+
+    public InstrumentRegistry() {
+        this(MAX_INSTRUMENTS);
+    }
+
+    public InstrumentRegistry(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Registry capacity must be positive");
+        }
+        this.instruments = new Instrument[capacity];
+        this.symbolIndex.defaultReturnValue(-1);
+    }
+
+    public Instrument register(int instrumentId, String symbol) {
+        return register(instrumentId, symbol, DEFAULT_TICK_SIZE);
+    }
+
+    public Instrument register(int instrumentId, String symbol, double tickSize) {
+        return register(new InstrumentSpec(instrumentId, symbol).tickSize(tickSize));
+    }
+
+    public Instrument register(InstrumentSpec spec) {
+        final int instrumentId = spec.getId();
+        final String symbol = spec.getSymbol();
+        if (instrumentId < 0 || instrumentId >= instruments.length) {
+            throw new IllegalArgumentException("Instrument id out of range: " + instrumentId);
+        }
+        if (instruments[instrumentId] != null) {
+            throw new IllegalArgumentException("Instrument already registered: " + instrumentId);
+        }
+        if (symbolIndex.containsKey(symbol)) {
+            throw new IllegalArgumentException("Symbol already registered: " + symbol);
+        }
+        final Instrument instrument = new Instrument(spec);
+        instruments[instrumentId] = instrument;
+        symbolIndex.put(symbol, instrumentId);
+        return instrument;
+    }
+
+    public Instrument get(int instrumentId) {
+        final Instrument instrument = instrumentId >= 0 && instrumentId < instruments.length ? instruments[instrumentId] : null;
+        if (instrument == null) {
+            throw new IllegalArgumentException("Unknown instrument: " + instrumentId);
+        }
+        return instrument;
+    }
+
+    public boolean isRegistered(int instrumentId) {
+        return instrumentId >= 0 && instrumentId < instruments.length && instruments[instrumentId] != null;
+    }
+
+    public int getInstrumentId(String symbol) {
+        return symbolIndex.getInt(symbol);
+    }
+
+    public int capacity() {
+        return instruments.length;
+    }
+}
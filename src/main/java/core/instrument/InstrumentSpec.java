@@ -0,0 +1,74 @@
+package core.instrument;
+
+import core.EngineConstants;
+import core.order.BookType;
+import core.order.OrderBookSizing;
+
+// per-instrument configuration, prices given as decimals and converted with the tick size
+public class InstrumentSpec implements EngineConstants {
+    final int id;
+    final String symbol;
+    double tickSize = DEFAULT_TICK_SIZE;
+    BookType bookType = BookType.TREE;
+    double ladderMinPrice;
+    double ladderMaxPrice;
+    OrderBookSizing sizing = OrderBookSizing.DEFAULT;
+    double marketSlippage = Double.POSITIVE_INFINITY;
+
+    public InstrumentSpec(int id, String symbol) {
+        this.id = id;
+        this.symbol = symbol;
+    }
+
+    public InstrumentSpec tickSize(double tickSize) {
+        this.tickSize = tickSize;
+        return this;
+    }
+
+    public InstrumentSpec treeBook() {
+        this.bookType = BookType.TREE;
+        return this;
+    }
+
+    // direct-indexed book for instruments trading inside a bounded band, prices outside are rejected
+    public InstrumentSpec ladderBook(double minPrice, double maxPrice) {
+        if (!(maxPrice >= minPrice)) {
+            throw new IllegalArgumentException("Ladder max price must not be below min price");
+        }
+        this.bookType = BookType.LADDER;
+        this.ladderMinPrice = minPrice;
+        this.ladderMaxPrice = maxPrice;
+        return this;
+    }
+
+    // initial capacities only, books keep growing past them
+    public InstrumentSpec sizing(int initialPriceLevels, int expectedOrders) {
+        this.sizing = new OrderBookSizing(initialPriceLevels, expectedOrders);
+        return this;
+    }
+
+    // how far from the arrival best price a market order may fill, the rest is cancelled
+    public InstrumentSpec marketSlippage(double maxSlippage) {
+        if (!(maxSlippage >= 0)) {
+            throw new IllegalArgumentException("Market slippage must not be negative: " + maxSlippage);
+        }
+        this.marketSlippage = maxSlippage;
+        return this;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public BookType getBookType() {
+        return bookType;
+    }
+
+    public OrderBookSizing getSizing() {
+        return sizing;
+    }
+}
@@ -0,0 +1,11 @@
+package core.journal;
+
+import core.bean.OrderType;
+import core.bean.Side;
+
+// one journaled command, types as in CommandRing; orderType, expireTime and displayQuantity as given to LimitOrderHandler
+@FunctionalInterface
+public interface CommandHandler {
+    void onCommand(long sequence, long timestamp, byte type, int instrumentId, int orderId, int quantity, long price, Side side,
+                   OrderType orderType, long expireTime, int displayQuantity);
+}
@@ -0,0 +1,122 @@
+package core.journal;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.shard.CommandRing;
+import trader.OrderBatch;
+
+import java.io.Closeable;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Sequenced inbound commands as fixed-width records, written before the command is applied. Every
+ * record starts with its format version; a record of another version is refused on replay rather
+ * than misread. Version 1 carries the order type, expire time and display quantity, so IOC, FOK,
+ * POST_ONLY, GTD, DAY and iceberg orders replay as they were submitted.
+ */
+public class CommandJournal implements Closeable {
+    public static final byte VERSION = 1;
+
+    static final int RECORD_VERSION = 0;
+    static final int TYPE = 1;
+    static final int SIDE = 2;
+    static final int ORDER_TYPE = 3;
+    static final int INSTRUMENT_ID = 4;
+    static final int TIMESTAMP = 8;
+    static final int PRICE = 16;
+    static final int EXPIRE_TIME = 24;
+    static final int ORDER_ID = 32;
+    static final int QUANTITY = 36;
+    static final int DISPLAY_QUANTITY = 40; // 0 unless an iceberg
+    static final int RECORD_BYTES = 44;
+
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    final MappedRecordLog log;
+
+    public CommandJournal(Path directory, FlushPolicy flushPolicy) {
+        this(new MappedRecordLog(directory, "commands", RECORD_BYTES, flushPolicy));
+    }
+
+    public CommandJournal(Path directory, long segmentBytes, FlushPolicy flushPolicy) {
+        this(new MappedRecordLog(directory, "commands", RECORD_BYTES, segmentBytes, flushPolicy));
+    }
+
+    CommandJournal(MappedRecordLog log) {
+        if (log.getPayloadBytes() != RECORD_BYTES) {
+            throw new IllegalArgumentException("Not a command journal, payload is " + log.getPayloadBytes() + " bytes");
+        }
+        this.log = log;
+    }
+
+    // returns the sequence of the command; a plain limit order, or a market order, cancel or amend
+    public long append(long timestamp, byte type, int instrumentId, int orderId, int quantity, long price, Side side) {
+        return append(timestamp, type, instrumentId, orderId, quantity, price, side, OrderType.LIMIT, 0, 0);
+    }
+
+    // expireTime is only read for GTD, displayQuantity 0 for an order that is not an iceberg
+    public long append(long timestamp, byte type, int instrumentId, int orderId, int quantity, long price, Side side,
+                       OrderType orderType, long expireTime, int displayQuantity) {
+        write(timestamp, type, instrumentId, orderId, quantity, price, side, orderType, expireTime, displayQuantity);
+        return log.commit();
+    }
+
+    private void write(long timestamp, byte type, int instrumentId, int orderId, int quantity, long price, Side side,
+                       OrderType orderType, long expireTime, int displayQuantity) {
+        final int offset = log.claim();
+        final MappedByteBuffer buffer = log.buffer();
+        buffer.put(offset + RECORD_VERSION, VERSION);
+        buffer.put(offset + TYPE, type);
+        buffer.put(offset + SIDE, (byte) side.ordinal());
+        buffer.put(offset + ORDER_TYPE, (byte) orderType.ordinal());
+        buffer.putInt(offset + INSTRUMENT_ID, instrumentId);
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putLong(offset + PRICE, price);
+        buffer.putLong(offset + EXPIRE_TIME, expireTime);
+        buffer.putInt(offset + ORDER_ID, orderId);
+        buffer.putInt(offset + QUANTITY, quantity);
+        buffer.putInt(offset + DISPLAY_QUANTITY, displayQuantity);
+    }
+
+    // the matched commands of a batch under one timestamp and their engine order ids, as one append; returns the first sequence
+    public long append(long timestamp, OrderBatch batch) {
+        final long first = log.getNextSequence();
+        for (int i = 0; i < batch.size(); i++) {
+            final byte type = batch.getType(i);
+            write(timestamp, type, batch.getInstrumentId(i), batch.getOrderId(i), batch.getQuantity(i), batch.getPrice(i),
+                    batch.getSide(i), type == CommandRing.NEW_MARKET_ORDER ? OrderType.MARKET : OrderType.LIMIT, 0, 0);
+            log.commitInGroup();
+        }
+        log.publish();
+        return first;
+    }
+
+    // feeds commands [fromSequence, end) to the handler, returns the next sequence
+    public long replay(long fromSequence, CommandHandler handler) {
+        return log.read(fromSequence, (sequence, buffer, offset) -> {
+            final byte version = buffer.get(offset + RECORD_VERSION);
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported command record version " + version + " at sequence " + sequence);
+            }
+            handler.onCommand(sequence, buffer.getLong(offset + TIMESTAMP), buffer.get(offset + TYPE),
+                    buffer.getInt(offset + INSTRUMENT_ID), buffer.getInt(offset + ORDER_ID), buffer.getInt(offset + QUANTITY),
+                    buffer.getLong(offset + PRICE), SIDES[buffer.get(offset + SIDE)], ORDER_TYPES[buffer.get(offset + ORDER_TYPE)],
+                    buffer.getLong(offset + EXPIRE_TIME), buffer.getInt(offset + DISPLAY_QUANTITY));
+        });
+    }
+
+    public long getNextSequence() {
+        return log.getNextSequence();
+    }
+
+    public MappedRecordLog getLog() {
+        return log;
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,51 @@
+package core.journal;
+
+// when appended records are forced to disk, forcing always happens on the log's flusher thread
+public class FlushPolicy {
+    public enum Mode {
+        NONE,             // left to the OS page cache
+        EVERY_N_RECORDS,
+        EVERY_N_MICROS
+    }
+
+    public static final FlushPolicy NONE = new FlushPolicy(Mode.NONE, 0);
+
+    final Mode mode;
+    final long interval; // records or microseconds
+
+    private FlushPolicy(Mode mode, long interval) {
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    public static FlushPolicy none() {
+        return NONE;
+    }
+
+    public static FlushPolicy everyNRecords(int records) {
+        if (records <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + records);
+        }
+        return new FlushPolicy(Mode.EVERY_N_RECORDS, records);
+    }
+
+    public static FlushPolicy everyNMicros(long micros) {
+        if (micros <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + micros);
+        }
+        return new FlushPolicy(Mode.EVERY_N_MICROS, micros);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.NONE ? "NONE" : mode + "(" + interval + ")";
+    }
+}
@@ -0,0 +1,289 @@
+package core.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only log of fixed-width records in memory-mapped segment files {@code <name>-<n>.log}.
+ * Every record is an 8 byte header holding {@code sequence + 1} followed by the payload. The
+ * header is written after the payload, so a zero header marks the end of the log when it is
+ * reopened. A segment rolls to the next file when it is full.
+ *
+ * <p>There is a single writer. Appending is a few stores into the mapped buffer. {@code force()}
+ * runs on a background flusher thread according to the {@link FlushPolicy}, so the writer never
+ * waits for the disk. The writer only pays for mapping the next file on a roll.
+ *
+ * <pre>
+ * int offset = log.claim();
+ * log.buffer().putLong(offset, value);
+ * log.commit();
+ * </pre>
+ */
+public class MappedRecordLog implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final int HEADER_BYTES = 8;
+
+    final Path directory;
+    final String name;
+    final int payloadBytes;
+    final int recordBytes;     // header + payload, 8 byte aligned
+    final int recordsPerSegment;
+    final FlushPolicy flushPolicy;
+
+    MappedByteBuffer segment;
+    int segmentIndex;
+    int position;              // offset of the next record in the active segment
+    long nextSequence;
+    int claimedOffset = -1;
+
+    // writer -> flusher
+    volatile MappedByteBuffer flushSegment;
+    final ConcurrentLinkedQueue<MappedByteBuffer> retiredSegments = new ConcurrentLinkedQueue<>();
+    volatile long committedCount;
+    volatile long flushedCount;   // only ever raised, under flushLock
+    final Object flushLock = new Object();
+    volatile boolean running = true;
+    final Thread flusher;
+
+    public MappedRecordLog(Path directory, String name, int payloadBytes, FlushPolicy flushPolicy) {
+        this(directory, name, payloadBytes, DEFAULT_SEGMENT_BYTES, flushPolicy);
+    }
+
+    public MappedRecordLog(Path directory, String name, int payloadBytes, long segmentBytes, FlushPolicy flushPolicy) {
+        if (payloadBytes <= 0) {
+            throw new IllegalArgumentException("Payload size must be positive: " + payloadBytes);
+        }
+        if (flushPolicy == null) {
+            throw new IllegalArgumentException("Flush policy must not be null");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.payloadBytes = payloadBytes;
+        this.recordBytes = (HEADER_BYTES + payloadBytes + 7) & ~7;
+        final long records = segmentBytes / recordBytes;
+        if (records <= 0 || records * recordBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must hold 1 to 2GB of records: " + segmentBytes);
+        }
+        this.recordsPerSegment = (int) records;
+        this.flushPolicy = flushPolicy;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recover();
+        this.committedCount = nextSequence;
+        this.flushedCount = nextSequence;
+        this.flushSegment = segment;
+        if (flushPolicy.mode == FlushPolicy.Mode.NONE) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::flushLoop, "journal-flusher-" + name);
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+    }
+
+    // continue after the last committed record of the last segment
+    private void recover() {
+        int last = 0;
+        while (Files.exists(segmentPath(last + 1))) {
+            last++;
+        }
+        segmentIndex = last;
+        segment = map(last);
+        position = 0;
+        while (position < segmentCapacityBytes() && segment.getLong(position) != 0) {
+            position += recordBytes;
+        }
+        nextSequence = (long) last * recordsPerSegment + position / recordBytes;
+    }
+
+    // returns the payload offset in buffer() for the next record
+    public int claim() {
+        if (claimedOffset != -1) {
+            throw new IllegalStateException("Previous record not committed");
+        }
+        if (position == segmentCapacityBytes()) {
+            roll();
+        }
+        claimedOffset = position + HEADER_BYTES;
+        return claimedOffset;
+    }
+
+    public MappedByteBuffer buffer() {
+        return segment;
+    }
+
+    public long commit() {
+        final long sequence = commitInGroup();
+        publish();
+        return sequence;
+    }
+
+    // commits the claimed record as one of a group, the flusher is told about the group once by publish()
+    public long commitInGroup() {
+        if (claimedOffset == -1) {
+            throw new IllegalStateException("Nothing claimed");
+        }
+        final long sequence = nextSequence++;
+        segment.putLong(position, sequence + 1); // header last, it is what makes the record visible on recovery
+        position += recordBytes;
+        claimedOffset = -1;
+        return sequence;
+    }
+
+    // hands every record committed so far to the flusher
+    public void publish() {
+        committedCount = nextSequence;
+        if (flushPolicy.mode == FlushPolicy.Mode.EVERY_N_RECORDS && nextSequence - flushedCount >= flushPolicy.interval) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void roll() {
+        retiredSegments.add(segment);
+        segmentIndex++;
+        segment = map(segmentIndex);
+        position = 0;
+        flushSegment = segment;
+    }
+
+    private void flushLoop() {
+        final boolean timed = flushPolicy.mode == FlushPolicy.Mode.EVERY_N_MICROS;
+        final long parkNanos = timed ? flushPolicy.interval * 1000 : 1_000_000;
+        while (running) {
+            LockSupport.parkNanos(parkNanos);
+            final long committed = committedCount;
+            if (committed == flushedCount) {
+                continue;
+            }
+            if (timed || committed - flushedCount >= flushPolicy.interval) {
+                flush(committed);
+            }
+        }
+    }
+
+    // records up to committed sit in the segment active when it was read or earlier ones; roll() queues the old
+    // segment before publishing the new one, so a roll racing this is caught as active or by the second drain
+    private void flush(long committed) {
+        synchronized (flushLock) {
+            forceRetired();
+            final MappedByteBuffer active = flushSegment;
+            active.force();
+            forceRetired();
+            advanceFlushed(committed);
+        }
+    }
+
+    // a flush that read an older count may finish after one that read a newer count
+    private void advanceFlushed(long count) {
+        if (count > flushedCount) {
+            flushedCount = count;
+        }
+    }
+
+    private void forceRetired() {
+        MappedByteBuffer retired;
+        while ((retired = retiredSegments.poll()) != null) {
+            retired.force();
+        }
+    }
+
+    // replays every committed record in sequence order, from {fromSequence} on
+    public long read(long fromSequence, RecordHandler handler) {
+        long sequence = Math.max(0, fromSequence);
+        final long end = nextSequence;
+        while (sequence < end) {
+            final int index = (int) (sequence / recordsPerSegment);
+            final MappedByteBuffer buffer = index == segmentIndex ? segment : map(index);
+            int offset = (int) (sequence % recordsPerSegment) * recordBytes;
+            while (sequence < end && offset < segmentCapacityBytes()) {
+                handler.onRecord(sequence, buffer, offset + HEADER_BYTES);
+                offset += recordBytes;
+                sequence++;
+            }
+        }
+        return sequence;
+    }
+
+    private MappedByteBuffer map(int index) {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentCapacityBytes());
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int segmentCapacityBytes() {
+        return recordsPerSegment * recordBytes;
+    }
+
+    Path segmentPath(int index) {
+        return directory.resolve(name + "-" + index + ".log");
+    }
+
+    public List<Path> segmentPaths() {
+        final List<Path> paths = new ArrayList<>();
+        for (int i = 0; i <= segmentIndex; i++) {
+            paths.add(segmentPath(i));
+        }
+        return paths;
+    }
+
+    // synchronous force of everything appended so far; waits for a flush the flusher has under way, so a
+    // segment it has taken off the retired queue is forced before the count covers it
+    public void flush() {
+        synchronized (flushLock) {
+            forceRetired();
+            segment.force();
+            advanceFlushed(nextSequence);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (flushPolicy.mode != FlushPolicy.Mode.NONE) {
+            flush();
+        }
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    public long getFlushedCount() {
+        return flushedCount;
+    }
+
+    public int getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+}
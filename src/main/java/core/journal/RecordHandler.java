@@ -0,0 +1,9 @@
+package core.journal;
+
+import java.nio.ByteBuffer;
+
+// payload of the record with the given sequence starts at {offset} in {buffer}, only valid during the call
+@FunctionalInterface
+public interface RecordHandler {
+    void onRecord(long sequence, ByteBuffer buffer, int offset);
+}
@@ -0,0 +1,40 @@
+package core.journal;
+
+// outcome of a journal replay, to size recovery time
+public class ReplayStats {
+    final long commands;
+    final long rejected;
+    final long elapsedNanos;
+
+    public ReplayStats(long commands, long rejected, long elapsedNanos) {
+        this.commands = commands;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getCommandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayStats{" +
+                "commands=" + commands +
+                ", rejected=" + rejected +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", commandsPerSecond=" + (long) getCommandsPerSecond() +
+                '}';
+    }
+}
@@ -0,0 +1,189 @@
+package core.marketdata;
+
+import core.bean.Side;
+import core.instrument.Instrument;
+import core.order.LevelListener;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Level-2 feed of incremental depth updates: the new aggregate quantity and order count of every
+ * price level a command changed. Books of attached instruments report level changes to the feed,
+ * which writes them straight into a preallocated ring; {@link #publish()} at the end of a command
+ * makes them visible to consumers in one ordered store, so consumers only ever see whole commands.
+ *
+ * One producer, the matcher thread, which never waits for consumers. Consumers keep their own
+ * sequence and read with {@link #poll}; one that falls a ring behind is told through
+ * {@link DepthHandler#onOverrun} and skips ahead.
+ */
+public class DepthFeed {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final Side[] SIDES = Side.values();
+
+    final int capacity;
+    final int mask;
+    final int[] instrumentIds;
+    final byte[] sides;
+    final long[] prices;
+    final int[] quantities;
+    final int[] orderCounts;
+    final boolean[] endOfCommand;
+
+    final AtomicLong claimed = new AtomicLong();   // slots up to here may be being rewritten
+    final AtomicLong published = new AtomicLong(); // updates below here are readable
+    long next = 0;          // producer only, next sequence to write
+    long commandStart = 0;  // producer only, first sequence of the current command
+    // producer only: open-addressed index of the levels the current command touched, by sequence;
+    // an entry from an earlier command counts as free, so nothing is cleared between commands
+    long[] pending = newIndex(64);
+
+    public DepthFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DepthFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.instrumentIds = new int[capacity];
+        this.sides = new byte[capacity];
+        this.prices = new long[capacity];
+        this.quantities = new int[capacity];
+        this.orderCounts = new int[capacity];
+        this.endOfCommand = new boolean[capacity];
+    }
+
+    // reports both books of the instrument to this feed, on the matcher thread or before it starts
+    public void attach(Instrument instrument) {
+        final LevelListener tap = new InstrumentTap(instrument.getId());
+        instrument.orderBook(Side.BUY).setLevelListener(tap);
+        instrument.orderBook(Side.SELL).setLevelListener(tap);
+    }
+
+    public void detach(Instrument instrument) {
+        instrument.orderBook(Side.BUY).setLevelListener(null);
+        instrument.orderBook(Side.SELL).setLevelListener(null);
+    }
+
+    // producer: a level touched again anywhere within the command overwrites its pending update
+    void levelChanged(int instrumentId, Side side, long price, int quantity, int orderCount) {
+        final long oldest = Math.max(commandStart, next - capacity);
+        int index = hash(instrumentId, side, price) & (pending.length - 1);
+        for (long sequence; (sequence = pending[index]) >= oldest; index = (index + 1) & (pending.length - 1)) {
+            final int slot = (int) sequence & mask;
+            if (prices[slot] == price && instrumentIds[slot] == instrumentId && sides[slot] == side.ordinal()) {
+                quantities[slot] = quantity;
+                orderCounts[slot] = orderCount;
+                return;
+            }
+        }
+        pending[index] = next;
+        final int slot = (int) next & mask;
+        // claim before overwriting, so a reader of the old update in this slot can tell
+        claimed.lazySet(next + 1);
+        VarHandle.storeStoreFence();
+        instrumentIds[slot] = instrumentId;
+        sides[slot] = (byte) side.ordinal();
+        prices[slot] = price;
+        quantities[slot] = quantity;
+        orderCounts[slot] = orderCount;
+        endOfCommand[slot] = false;
+        next++;
+        if (Math.min(next - commandStart, capacity) * 2 > pending.length) {
+            growIndex();
+        }
+    }
+
+    private void growIndex() {
+        final long[] index = newIndex(pending.length * 2);
+        for (long sequence = Math.max(commandStart, next - capacity); sequence < next; sequence++) {
+            final int slot = (int) sequence & mask;
+            int i = hash(instrumentIds[slot], SIDES[sides[slot]], prices[slot]) & (index.length - 1);
+            while (index[i] >= 0) {
+                i = (i + 1) & (index.length - 1);
+            }
+            index[i] = sequence;
+        }
+        pending = index;
+    }
+
+    private static long[] newIndex(int size) {
+        final long[] index = new long[size];
+        Arrays.fill(index, -1);
+        return index;
+    }
+
+    private static int hash(int instrumentId, Side side, long price) {
+        final long h = (price * 31 + instrumentId) * 2 + side.ordinal();
+        final int x = (int) (h ^ (h >>> 32)) * 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+
+    // producer: end of command, makes its updates visible
+    public void publish() {
+        if (next == commandStart) {
+            return;
+        }
+        endOfCommand[(int) (next - 1) & mask] = true;
+        commandStart = next;
+        published.lazySet(next);
+    }
+
+    // consumer: hands at most maxUpdates updates from fromSequence on to the handler, returns the sequence to poll from next
+    public long poll(long fromSequence, DepthHandler handler, int maxUpdates) {
+        final long available = published.get();
+        long sequence = fromSequence;
+        if (available - sequence > capacity) {
+            handler.onOverrun(sequence, available);
+            sequence = available;
+        }
+        int count = 0;
+        while (sequence < available && count < maxUpdates) {
+            final int slot = (int) sequence & mask;
+            final int instrumentId = instrumentIds[slot];
+            final byte side = sides[slot];
+            final long price = prices[slot];
+            final int quantity = quantities[slot];
+            final int orderCount = orderCounts[slot];
+            final boolean end = endOfCommand[slot];
+            VarHandle.loadLoadFence();
+            final long overwrittenBelow = claimed.get() - capacity;
+            if (sequence < overwrittenBelow) {
+                // the producer lapped us while we were reading
+                final long resume = published.get();
+                handler.onOverrun(sequence, resume);
+                return resume;
+            }
+            handler.onDepth(sequence, instrumentId, SIDES[side], price, quantity, orderCount, end);
+            sequence++;
+            count++;
+        }
+        return sequence;
+    }
+
+    public long getPublishedSequence() {
+        return published.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private final class InstrumentTap implements LevelListener {
+        final int instrumentId;
+
+        InstrumentTap(int instrumentId) {
+            this.instrumentId = instrumentId;
+        }
+
+        @Override
+        public void onLevelChanged(Side side, long price, int quantity, int orderCount) {
+            levelChanged(instrumentId, side, price, quantity, orderCount);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package core.marketdata;
+
+import core.bean.Side;
+
+// consumer side of a DepthFeed
+public interface DepthHandler {
+    // new aggregate state of one level, quantity 0 when the level is gone; the last update of a command has endOfCommand set
+    void onDepth(long sequence, int instrumentId, Side side, long price, int quantity, int orderCount, boolean endOfCommand);
+
+    // the consumer fell more than a ring behind, updates in [fromSequence, toSequence) are lost and depth must be rebuilt from the books
+    void onOverrun(long fromSequence, long toSequence);
+}
@@ -0,0 +1,97 @@
+package core.marketdata;
+
+import core.bean.Side;
+import core.instrument.Instrument;
+import core.order.OrderBook;
+import core.price.OrderSlab;
+import core.price.PriceLevel;
+
+import java.util.Arrays;
+
+/**
+ * Every resting order of one instrument in queue order within its level, as of the instrument's
+ * order feed sequence {@link #getSequence()}. Captured on the matcher thread, read anywhere.
+ */
+public class OrderBookImage {
+    private static final Side[] SIDES = Side.values();
+
+    final int instrumentId;
+    final long sequence;
+    int orderCount;
+    byte[] sides = new byte[64];
+    long[] prices = new long[64];
+    int[] orderIds = new int[64];
+    int[] quantities = new int[64];
+
+    OrderBookImage(int instrumentId, long sequence) {
+        this.instrumentId = instrumentId;
+        this.sequence = sequence;
+    }
+
+    // matcher thread
+    public static OrderBookImage capture(Instrument instrument, long sequence) {
+        final OrderBookImage image = new OrderBookImage(instrument.getId(), sequence);
+        for (Side side : SIDES) {
+            image.copyBook(side, instrument.orderBook(side));
+        }
+        return image;
+    }
+
+    private void copyBook(Side side, OrderBook orderBook) {
+        final PriceLevel[] priceLevels = orderBook.getPriceLevels();
+        for (int i = 0; i < orderBook.getAllocatedPriceLevels(); i++) {
+            final PriceLevel level = priceLevels[i];
+            if (level.isEmpty()) {
+                continue; // pooled slot
+            }
+            final OrderSlab slab = level.getSlab();
+            for (int node = level.getHeadNode(); node != OrderSlab.NULL_NODE; node = slab.getNext(node)) {
+                add(side, level.getPrice(), slab.getOrderId(node), slab.getQuantity(node));
+            }
+        }
+    }
+
+    private void add(Side side, long price, int orderId, int quantity) {
+        if (orderCount == orderIds.length) {
+            final int capacity = orderCount << 1;
+            sides = Arrays.copyOf(sides, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        sides[orderCount] = (byte) side.ordinal();
+        prices[orderCount] = price;
+        orderIds[orderCount] = orderId;
+        quantities[orderCount] = quantity;
+        orderCount++;
+    }
+
+    public int getInstrumentId() {
+        return instrumentId;
+    }
+
+    // instrument sequence of the last event reflected in the image
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public Side getSide(int i) {
+        return SIDES[sides[i]];
+    }
+
+    public long getPrice(int i) {
+        return prices[i];
+    }
+
+    public int getOrderId(int i) {
+        return orderIds[i];
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i];
+    }
+}
@@ -0,0 +1,13 @@
+package core.marketdata;
+
+import core.bean.Side;
+
+// consumer side of an OrderFeed
+public interface OrderEventHandler {
+    // type is one of OrderFeed.ADD, CANCEL, EXECUTE, REDUCE; matchedOrderId is the incoming order of an EXECUTE, 0 otherwise
+    void onOrderEvent(long sequence, byte type, int instrumentId, long instrumentSequence, Side side,
+                      int orderId, long price, int quantity, int matchedOrderId);
+
+    // events in [fromSequence, toSequence) were overwritten before they were read, resync from an OrderBookImage
+    void onOverrun(long fromSequence, long toSequence);
+}
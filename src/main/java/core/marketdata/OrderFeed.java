@@ -0,0 +1,174 @@
+package core.marketdata;
+
+import core.bean.Side;
+import core.instrument.Instrument;
+import core.order.OrderListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Level-3 feed: one event per change of a resting order, written into a ring inside a
+ * memory-mapped file so consumers on the same host map the file with {@link OrderFeedReader} and
+ * read events in place. Events carry a global sequence and a per-instrument sequence; a late
+ * subscriber applies an {@link OrderBookImage} and then the events after its sequence.
+ *
+ * <p>One writer, the matcher thread, which never waits for readers. Every slot is stamped with
+ * its sequence + 1 after the event is written and cleared before it is overwritten, so a reader
+ * can tell a slot it was too slow for.
+ *
+ * <p>File layout, native byte order: header {magic, version, capacity, recordBytes, nextSequence}
+ * padded to 64 bytes, then capacity records of {stamp, instrumentSequence, price, orderId,
+ * quantity, instrumentId, matchedOrderId, type, side} padded to 48 bytes.
+ */
+public class OrderFeed {
+    public static final byte ADD = 1;
+    public static final byte CANCEL = 2;
+    public static final byte EXECUTE = 3;
+    public static final byte REDUCE = 4; // quantity lowered in place, the order keeps its queue position
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    static final int MAGIC = 0x4C334556; // "L3EV"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 48;
+    static final int CAPACITY_OFFSET = 8;
+    static final int RECORD_BYTES_OFFSET = 12;
+    static final int NEXT_SEQUENCE_OFFSET = 16;
+    static final int STAMP = 0;
+    static final int INSTRUMENT_SEQUENCE = 8;
+    static final int PRICE = 16;
+    static final int ORDER_ID = 24;
+    static final int QUANTITY = 28;
+    static final int INSTRUMENT_ID = 32;
+    static final int MATCHED_ORDER_ID = 36;
+    static final int TYPE = 40;
+    static final int SIDE = 41;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    final Path file;
+    final int capacity;
+    final int mask;
+    final MappedByteBuffer buffer;
+    final long[] instrumentSequences; // instrumentId -> sequence of its last event
+    long nextSequence = 0;
+
+    public OrderFeed(Path file, int instrumentCapacity) {
+        this(file, DEFAULT_CAPACITY, instrumentCapacity);
+    }
+
+    // creates or truncates the file, a feed always starts at sequence 0
+    public OrderFeed(Path file, int capacity, int instrumentCapacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        }
+        if ((long) capacity * RECORD_BYTES + HEADER_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring capacity too large: " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.instrumentSequences = new long[instrumentCapacity];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(RECORD_BYTES_OFFSET, RECORD_BYTES);
+        LONGS.setRelease(buffer, NEXT_SEQUENCE_OFFSET, 0L);
+    }
+
+    // reports both books of the instrument to this feed, on the matcher thread or before it starts
+    public void attach(Instrument instrument) {
+        final OrderListener tap = new InstrumentTap(instrument.getId());
+        instrument.orderBook(Side.BUY).setOrderListener(tap);
+        instrument.orderBook(Side.SELL).setOrderListener(tap);
+    }
+
+    public void detach(Instrument instrument) {
+        instrument.orderBook(Side.BUY).setOrderListener(null);
+        instrument.orderBook(Side.SELL).setOrderListener(null);
+    }
+
+    // matcher thread, also for amends that lower an order's quantity in place
+    public void append(byte type, int instrumentId, Side side, int orderId, long price, int quantity, int matchedOrderId) {
+        final long sequence = nextSequence;
+        final int offset = HEADER_BYTES + ((int) sequence & mask) * RECORD_BYTES;
+        LONGS.setRelease(buffer, offset + STAMP, 0L);
+        VarHandle.storeStoreFence();
+        buffer.putLong(offset + INSTRUMENT_SEQUENCE, ++instrumentSequences[instrumentId]);
+        buffer.putLong(offset + PRICE, price);
+        buffer.putInt(offset + ORDER_ID, orderId);
+        buffer.putInt(offset + QUANTITY, quantity);
+        buffer.putInt(offset + INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + MATCHED_ORDER_ID, matchedOrderId);
+        buffer.put(offset + TYPE, type);
+        buffer.put(offset + SIDE, (byte) side.ordinal());
+        LONGS.setRelease(buffer, offset + STAMP, sequence + 1);
+        nextSequence = sequence + 1;
+        LONGS.setRelease(buffer, NEXT_SEQUENCE_OFFSET, nextSequence);
+    }
+
+    // matcher thread: the instrument's resting orders as of its latest event, for late subscribers
+    public OrderBookImage image(Instrument instrument) {
+        return OrderBookImage.capture(instrument, instrumentSequences[instrument.getId()]);
+    }
+
+    public long getInstrumentSequence(int instrumentId) {
+        return instrumentSequences[instrumentId];
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private final class InstrumentTap implements OrderListener {
+        final int instrumentId;
+
+        InstrumentTap(int instrumentId) {
+            this.instrumentId = instrumentId;
+        }
+
+        @Override
+        public void onOrderAdded(Side side, int orderId, long price, int quantity) {
+            append(ADD, instrumentId, side, orderId, price, quantity, 0);
+        }
+
+        @Override
+        public void onOrderCancelled(Side side, int orderId, long price, int quantity) {
+            append(CANCEL, instrumentId, side, orderId, price, quantity, 0);
+        }
+
+        @Override
+        public void onOrderReduced(Side side, int orderId, long price, int quantity) {
+            append(REDUCE, instrumentId, side, orderId, price, quantity, 0);
+        }
+
+        @Override
+        public void onOrderExecuted(Side side, int orderId, long price, int quantity, int activeOrderId) {
+            append(EXECUTE, instrumentId, side, orderId, price, quantity, activeOrderId);
+        }
+    }
+}
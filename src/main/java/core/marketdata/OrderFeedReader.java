@@ -0,0 +1,90 @@
+package core.marketdata;
+
+import core.bean.Side;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static core.marketdata.OrderFeed.*;
+
+/**
+ * Reads an {@link OrderFeed} file in place, from this or another process on the same host. Each
+ * reader keeps its own sequence and may start anywhere in the ring.
+ *
+ * <p>To join late: poll from {@link #getHeadSequence()}, obtain an {@link OrderBookImage} of the
+ * instrument, apply it, then apply only the instrument's events whose instrument sequence is above
+ * {@link OrderBookImage#getSequence()}. The ring must still hold events from where polling began.
+ */
+public class OrderFeedReader {
+    private static final Side[] SIDES = Side.values();
+
+    final MappedByteBuffer buffer;
+    final int capacity;
+    final int mask;
+
+    public OrderFeedReader(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.order(ByteOrder.nativeOrder());
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an order feed: " + file);
+        }
+        if (buffer.getInt(4) != VERSION || buffer.getInt(RECORD_BYTES_OFFSET) != RECORD_BYTES) {
+            throw new IllegalArgumentException("Unsupported order feed version: " + buffer.getInt(4));
+        }
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.mask = capacity - 1;
+    }
+
+    // sequence the writer will use next
+    public long getHeadSequence() {
+        return (long) LONGS.getAcquire(buffer, NEXT_SEQUENCE_OFFSET);
+    }
+
+    // hands at most maxEvents events from fromSequence on to the handler, returns the sequence to poll from next
+    public long poll(long fromSequence, OrderEventHandler handler, int maxEvents) {
+        final long head = getHeadSequence();
+        long sequence = fromSequence;
+        if (head - sequence > capacity) {
+            handler.onOverrun(sequence, head - capacity);
+            sequence = head - capacity;
+        }
+        int count = 0;
+        while (sequence < head && count < maxEvents) {
+            final int offset = HEADER_BYTES + ((int) sequence & mask) * RECORD_BYTES;
+            final long stamp = (long) LONGS.getAcquire(buffer, offset + STAMP);
+            final long instrumentSequence = buffer.getLong(offset + INSTRUMENT_SEQUENCE);
+            final long price = buffer.getLong(offset + PRICE);
+            final int orderId = buffer.getInt(offset + ORDER_ID);
+            final int quantity = buffer.getInt(offset + QUANTITY);
+            final int instrumentId = buffer.getInt(offset + INSTRUMENT_ID);
+            final int matchedOrderId = buffer.getInt(offset + MATCHED_ORDER_ID);
+            final byte type = buffer.get(offset + TYPE);
+            final byte side = buffer.get(offset + SIDE);
+            VarHandle.loadLoadFence();
+            if (stamp != sequence + 1 || (long) LONGS.getAcquire(buffer, offset + STAMP) != stamp) {
+                // published once, so the writer has lapped this slot since
+                final long resume = getHeadSequence() - capacity + 1;
+                handler.onOverrun(sequence, resume);
+                return resume;
+            }
+            handler.onOrderEvent(sequence, type, instrumentId, instrumentSequence, SIDES[side], orderId, price, quantity, matchedOrderId);
+            sequence++;
+            count++;
+        }
+        return sequence;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,123 @@
+package core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: values below {@code 2^SUB_BUCKET_BITS}
+ * have a bucket each, above that every power of two is split into {@code 2^(SUB_BUCKET_BITS-1)}
+ * linear buckets, so any recorded value is reported within 1/128 of itself. Counts live in one
+ * preallocated array covering the whole positive long range; recording never allocates or locks.
+ *
+ * A histogram has a single writer. Other threads may read it at any time: every count is published
+ * with an ordered store, so a reader sees each count at some recent value and {@link #copy()} gives
+ * a stable view to take several percentiles from.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 8;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >>> 1;
+    static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_COUNT;
+
+    final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    volatile long maxValue = 0; // exact, only written when a new max is recorded
+
+    // writer thread only, negative values count as 0
+    public void record(long value) {
+        final int index = bucketIndex(value);
+        counts.lazySet(index, counts.get(index) + 1);
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return value <= 0 ? 0 : (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKET_HALF - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF) << shift;
+    }
+
+    static long highestValue(int index) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowestValue(index + 1) - 1;
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    // highest value of the bucket holding the percentile, 0 when empty; percentile in [0, 100]
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100]: " + percentile);
+        }
+        final long total = getTotalCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    // adds the other histogram's counts, e.g. to aggregate instruments or shards into a copy
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = other.counts.get(i);
+            if (count != 0) {
+                counts.lazySet(i, counts.get(i) + count);
+            }
+        }
+        if (other.maxValue > maxValue) {
+            maxValue = other.maxValue;
+        }
+    }
+
+    public LatencyHistogram copy() {
+        final LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    // writer thread only
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.lazySet(i, 0);
+        }
+        maxValue = 0;
+    }
+
+    @Override
+    public String toString() {
+        final LatencyHistogram view = copy();
+        return "LatencyHistogram{" +
+                "count=" + view.getTotalCount() +
+                ", p50=" + view.getValueAtPercentile(50) +
+                ", p99=" + view.getValueAtPercentile(99) +
+                ", p99.9=" + view.getValueAtPercentile(99.9) +
+                ", max=" + view.getMaxValue() +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package core.metrics;
+
+/**
+ * Nanosecond latency histograms per instrument and {@link Operation}, owned by one matcher thread.
+ * Recording is opt-in per instrument: histograms only exist for enabled instruments, and callers
+ * check {@link #isEnabled(int)} before reading the clock, so disabled instruments pay one array load.
+ */
+public class LatencyRecorder {
+    private static final int OPERATION_COUNT = Operation.values().length;
+
+    final LatencyHistogram[][] histograms; // instrumentId -> operation ordinal, null when not recorded
+
+    public LatencyRecorder(int instrumentCapacity) {
+        this.histograms = new LatencyHistogram[instrumentCapacity][];
+    }
+
+    // before the recording thread starts, or on it
+    public void enable(int instrumentId) {
+        checkInstrument(instrumentId);
+        if (histograms[instrumentId] != null) {
+            return;
+        }
+        final LatencyHistogram[] perOperation = new LatencyHistogram[OPERATION_COUNT];
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            perOperation[i] = new LatencyHistogram();
+        }
+        histograms[instrumentId] = perOperation;
+    }
+
+    public boolean isEnabled(int instrumentId) {
+        return instrumentId >= 0 && instrumentId < histograms.length && histograms[instrumentId] != null;
+    }
+
+    // no-op for instruments that are not enabled
+    public void record(int instrumentId, Operation operation, long nanos) {
+        final LatencyHistogram[] perOperation = histograms[instrumentId];
+        if (perOperation != null) {
+            perOperation[operation.ordinal()].record(nanos);
+        }
+    }
+
+    // live histogram, null when the instrument is not enabled
+    public LatencyHistogram getHistogram(int instrumentId, Operation operation) {
+        checkInstrument(instrumentId);
+        final LatencyHistogram[] perOperation = histograms[instrumentId];
+        return perOperation == null ? null : perOperation[operation.ordinal()];
+    }
+
+    // copy summed over every enabled instrument
+    public LatencyHistogram aggregate(Operation operation) {
+        final LatencyHistogram sum = new LatencyHistogram();
+        for (LatencyHistogram[] perOperation : histograms) {
+            if (perOperation != null) {
+                sum.add(perOperation[operation.ordinal()]);
+            }
+        }
+        return sum;
+    }
+
+    private void checkInstrument(int instrumentId) {
+        if (instrumentId < 0 || instrumentId >= histograms.length) {
+            throw new IllegalArgumentException("Unknown instrument: " + instrumentId);
+        }
+    }
+}
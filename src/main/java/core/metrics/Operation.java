@@ -0,0 +1,9 @@
+package core.metrics;
+
+// matching engine operations whose latency can be recorded
+public enum Operation {
+    INSERT, // resting the unfilled part of an order in its book
+    MATCH,  // matching an incoming order against the opposite book
+    CANCEL,
+    AMEND   // lowering the quantity of a resting order in place
+}
@@ -0,0 +1,6 @@
+package core.order;
+
+public enum BookType {
+    TREE,   // red-black tree keyed by price, any price range
+    LADDER  // flat array indexed by price offset, bounded tick band
+}
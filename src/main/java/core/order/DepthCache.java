@@ -0,0 +1,93 @@
+package core.order;
+
+import core.bean.Side;
+import core.common.NumberUtil;
+
+/**
+ * The best levels of one book, best first, kept up to date by the book as levels change. A quantity
+ * change is patched in place and a level entering the cached range is shifted in; only a cached
+ * level leaving while deeper levels exist forces the cache to be rebuilt from the book.
+ */
+final class DepthCache {
+    final Side side;
+    long[] prices = new long[0];
+    int[] quantities = new int[0];
+    int[] orderCounts = new int[0];
+    int[] priceIndexes = new int[0]; // scratch for rebuilds
+    int size = 0;           // cached levels
+    boolean valid = false;
+    boolean holdsAll = false; // every level of the book is cached
+
+    DepthCache(Side side) {
+        this.side = side;
+    }
+
+    int capacity() {
+        return prices.length;
+    }
+
+    void ensureCapacity(int levels) {
+        if (levels <= prices.length) {
+            return;
+        }
+        int capacity = Math.max(prices.length, 1);
+        while (capacity < levels) {
+            capacity = NumberUtil.nextCapacity(capacity);
+        }
+        prices = new long[capacity];
+        quantities = new int[capacity];
+        orderCounts = new int[capacity];
+        priceIndexes = new int[capacity];
+        valid = false;
+    }
+
+    void onLevelChanged(long price, int quantity, int orderCount) {
+        if (!valid) {
+            return;
+        }
+        int i = 0;
+        while (i < size && better(prices[i], price)) {
+            i++;
+        }
+        if (i < size && prices[i] == price) {
+            if (quantity != 0) {
+                quantities[i] = quantity;
+                orderCounts[i] = orderCount;
+                return;
+            }
+            // a cached level is gone, the next deeper one is only known to the book
+            if (!holdsAll) {
+                valid = false;
+                return;
+            }
+            size--;
+            System.arraycopy(prices, i + 1, prices, i, size - i);
+            System.arraycopy(quantities, i + 1, quantities, i, size - i);
+            System.arraycopy(orderCounts, i + 1, orderCounts, i, size - i);
+            return;
+        }
+        if (quantity == 0) {
+            return; // an uncached level is gone
+        }
+        if (i == size && (!holdsAll || size == prices.length)) {
+            holdsAll = false; // below the cached range
+            return;
+        }
+        // a new level inside the cached range, the worst cached one drops out when full
+        if (size == prices.length) {
+            size--;
+            holdsAll = false;
+        }
+        System.arraycopy(prices, i, prices, i + 1, size - i);
+        System.arraycopy(quantities, i, quantities, i + 1, size - i);
+        System.arraycopy(orderCounts, i, orderCounts, i + 1, size - i);
+        prices[i] = price;
+        quantities[i] = quantity;
+        orderCounts[i] = orderCount;
+        size++;
+    }
+
+    private boolean better(long price, long than) {
+        return side == Side.BUY ? price > than : price < than;
+    }
+}
@@ -0,0 +1,163 @@
+package core.order;
+
+import core.bean.Side;
+
+import java.util.Arrays;
+
+/**
+ * Price levels kept in a flat array indexed by {@code price - basePrice} (prices are already in
+ * ticks). An occupancy bitmap with one bit per rung finds the next non-empty level with a
+ * trailing/leading zero count per 64 rungs, and the best rung is cached.
+ */
+public class LadderOrderBook extends OrderBook {
+    final long basePrice; // price in ticks of rung 0
+    final int[] ladder;   // rung -> {priceIndex}, -1 when empty
+    final long[] occupied; // bit per rung
+    int bestRung = -1;
+    int levelCount = 0;
+
+    public LadderOrderBook(Side side, long basePrice, int rungs) {
+        this(side, basePrice, rungs, OrderBookSizing.DEFAULT);
+    }
+
+    public LadderOrderBook(Side side, long basePrice, int rungs, OrderBookSizing sizing) {
+        super(side, sizing);
+        if (rungs <= 0) {
+            throw new IllegalArgumentException("Ladder needs at least one rung");
+        }
+        this.basePrice = basePrice;
+        this.ladder = new int[rungs];
+        this.occupied = new long[(rungs + 63) >>> 6];
+        Arrays.fill(ladder, -1);
+    }
+
+    @Override
+    public long getBestPrice() {
+        return bestRung == -1 ? NULL_PRICE : basePrice + bestRung;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levelCount == 0;
+    }
+
+    @Override
+    public int getPriceLevelCount() {
+        return levelCount;
+    }
+
+    @Override
+    protected int findPriceIndex(long price) {
+        final long rung = price - basePrice;
+        if (rung < 0 || rung >= ladder.length) {
+            return -1;
+        }
+        return ladder[(int) rung];
+    }
+
+    @Override
+    protected int bestPriceIndex() {
+        return bestRung == -1 ? -1 : ladder[bestRung];
+    }
+
+    @Override
+    protected int priceIndexAfter(long price) {
+        final int rung = rungOf(price);
+        final int after = side == Side.BUY ? previousOccupied(rung - 1) : nextOccupied(rung + 1);
+        return after == -1 ? -1 : ladder[after];
+    }
+
+    @Override
+    protected int collectPriceIndexes(int[] priceIndexes, int max) {
+        int count = 0;
+        int rung = bestRung;
+        while (count < max && rung != -1) {
+            priceIndexes[count++] = ladder[rung];
+            rung = side == Side.BUY ? previousOccupied(rung - 1) : nextOccupied(rung + 1);
+        }
+        return count;
+    }
+
+    @Override
+    protected void addPriceIndex(long price, int priceIndex) {
+        final int rung = rungOf(price);
+        ladder[rung] = priceIndex;
+        occupied[rung >>> 6] |= 1L << rung;
+        levelCount++;
+        if (bestRung == -1 || (side == Side.BUY ? rung > bestRung : rung < bestRung)) {
+            bestRung = rung;
+        }
+    }
+
+    @Override
+    protected void removePriceIndex(long price) {
+        final int rung = rungOf(price);
+        if (ladder[rung] == -1) {
+            return;
+        }
+        ladder[rung] = -1;
+        occupied[rung >>> 6] &= ~(1L << rung);
+        levelCount--;
+        if (rung == bestRung) {
+            // the best level can only move away from the spread
+            bestRung = side == Side.BUY ? previousOccupied(rung) : nextOccupied(rung);
+        }
+    }
+
+    @Override
+    public boolean acceptsPrice(long price) {
+        return price >= basePrice && price - basePrice < ladder.length;
+    }
+
+    private int rungOf(long price) {
+        final long rung = price - basePrice;
+        if (rung < 0 || rung >= ladder.length) {
+            throw new IllegalArgumentException("Price " + price + " outside ladder band [" + basePrice + ", " + (basePrice + ladder.length - 1) + "]");
+        }
+        return (int) rung;
+    }
+
+    // lowest occupied rung >= from, -1 when none
+    int nextOccupied(int from) {
+        int word = from >>> 6;
+        if (word >= occupied.length) {
+            return -1;
+        }
+        long bits = occupied[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == occupied.length) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+
+    // highest occupied rung <= from, -1 when none
+    int previousOccupied(int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = occupied[word] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+            if (word-- == 0) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+
+    public long getBasePrice() {
+        return basePrice;
+    }
+
+    public int getRungs() {
+        return ladder.length;
+    }
+}
@@ -0,0 +1,8 @@
+package core.order;
+
+import core.bean.Side;
+
+// told about every change of a price level, on the thread mutating the book; quantity 0 means the level is gone
+public interface LevelListener {
+    void onLevelChanged(Side side, long price, int quantity, int orderCount);
+}
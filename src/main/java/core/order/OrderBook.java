@@ -3,114 +3,363 @@ package core.order;
 import core.EngineConstants;
 import core.bean.Order;
 import core.bean.Trade;
+import core.bean.TradeBuffer;
+import core.common.Clock;
 import core.common.NumberUtil;
+import core.price.OrderSlab;
 import core.price.PriceLevel;
 import core.bean.Side;
-import core.price.PriceLevelComparator;
-import it.unimi.dsi.fastutil.doubles.Double2IntRBTreeMap;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 
-public class OrderBook implements EngineConstants {
-    int index = -1;
+public abstract class OrderBook implements EngineConstants {
     final Side side;
-    final PriceLevel[] priceLevels = new PriceLevel[MAX_PRICE_LEVELS];
-    final Double2IntRBTreeMap priceLevelIndexMap; //price -> {priceIndex}
-    OrderIndex ORDER_INDEX = new OrderIndex();
+    final OrderBookSizing sizing;
+    PriceLevel[] priceLevels; // created lazily, reused through freePriceIndexes, doubled when all are in use
+    int allocatedPriceLevels = 0;
+    int[] freePriceIndexes; // stack of released {priceIndex}
+    int freePriceLevelCount = 0;
+    final OrderSlab orderSlab; // nodes of every resting order of this book
+    OrderIndex ORDER_INDEX;
+    LevelListener levelListener; // null unless depth is published
+    DepthCache depthCache; // created by the first getDepth call
+    OrderListener orderListener; // null unless order-level events are published
 
-    public OrderBook(Side side) {
-        this.side = side;
-        this.priceLevelIndexMap = new Double2IntRBTreeMap(new PriceLevelComparator(side));
-        initPriceLevels();
+    protected OrderBook(Side side) {
+        this(side, OrderBookSizing.DEFAULT);
     }
 
-    public double getBestPrice() {
-        if (priceLevelIndexMap.isEmpty()) {
-            return 0;
+    protected OrderBook(Side side, OrderBookSizing sizing) {
+        if (sizing == null) {
+            throw new IllegalArgumentException("Book sizing must not be null");
         }
-        return priceLevelIndexMap.firstDoubleKey();
+        this.side = side;
+        this.sizing = sizing;
+        this.priceLevels = new PriceLevel[sizing.initialPriceLevels];
+        this.freePriceIndexes = new int[sizing.initialPriceLevels];
+        this.orderSlab = new OrderSlab(sizing.expectedOrders);
+        this.ORDER_INDEX = new OrderIndex(sizing.expectedOrders);
     }
 
+    public abstract long getBestPrice();
+
+    public abstract boolean isEmpty();
+
+    public abstract int getPriceLevelCount();
+
+    // price -> {priceIndex} of the live level at that price, -1 when there is none
+    protected abstract int findPriceIndex(long price);
+
+    // {priceIndex} of the best level, -1 when the book is empty
+    protected abstract int bestPriceIndex();
+
+    // {priceIndex} of the first level after the given price in priority order, -1 when there is none
+    protected abstract int priceIndexAfter(long price);
+
+    // fills {priceIndex} of up to max levels, best first, returns how many
+    protected abstract int collectPriceIndexes(int[] priceIndexes, int max);
+
+    protected abstract void addPriceIndex(long price, int priceIndex);
+
+    protected abstract void removePriceIndex(long price);
+
     public List<Trade> matchOrder(Order order) {
+        final TradeBuffer trades = new TradeBuffer();
+        matchOrder(order, trades);
+        return trades.toTrades(0);
+    }
+
+    public void matchOrder(Order order, TradeBuffer trades) {
+        matchOrder(order, trades, Clock.SYSTEM.currentTimeMillis());
+    }
+
+    // appends the fills to the caller's buffer, allocation free once the buffer is warm
+    public void matchOrder(Order order, TradeBuffer trades, long tradeTime) {
         if(side.equals(order.getSide())) {
-            return Collections.emptyList();
+            return;
         }
 
-        final List<Trade> trades = new ArrayList<>();
+        // price priority: sweep from the best level while it still crosses the order's limit
         do {
-            final int priceIndex = priceLevelIndexMap.getOrDefault(order.getPrice(), -1);
+            final int priceIndex = bestPriceIndex();
             if (priceIndex == -1) {
                 break;
             }
-            final PriceLevel priceLevel = priceLevels[index];
+            final PriceLevel priceLevel = priceLevels[priceIndex];
+            if (!crosses(priceLevel.getPrice(), order.getPrice())) {
+                break;
+            }
 
-            priceLevel.matchOrder(order, trades);
+            final int from = trades.size();
+            priceLevel.matchOrder(order, trades, tradeTime);
+            removeCompletedOrders(trades, from);
+            if (orderListener != null) {
+                // a refilled iceberg slice reads as the order added again at the back of the level
+                int replenished = 0;
+                for (int i = from; i < trades.size(); i++) {
+                    orderListener.onOrderExecuted(side, trades.getPassiveOrderId(i), trades.getPrice(i), trades.getQuantity(i), trades.getActiveOrderId(i));
+                    while (replenished < priceLevel.getReplenishedCount() && priceLevel.getReplenishedTrade(replenished) == i) {
+                        orderListener.onOrderAdded(side, trades.getPassiveOrderId(i), trades.getPrice(i), priceLevel.getReplenishedQuantity(replenished++));
+                    }
+                }
+            }
+            levelChanged(priceLevel.getPrice(), priceLevel.getOpenQuantity(), priceLevel.getOpenOrderCount());
             if (priceLevel.isEmpty()) {
-                priceLevelIndexMap.remove(order.getPrice());
+                releasePriceLevel(priceIndex);
             }
             if (order.isCompleted()) {
-                return trades;
+                return;
             }
-        } while (!priceLevelIndexMap.isEmpty());
+        } while (!isEmpty());
+    }
 
-        return trades;
+    /**
+     * Open quantity an incoming order limited at {@code limitPrice} could trade against, walking the
+     * levels from the best while they cross and stopping once {@code wanted} is reached. Iceberg
+     * reserves count, they trade like the displayed quantity. Nothing in the book changes, so a
+     * fill-or-kill order can be checked before it trades.
+     */
+    public int getCrossingQuantity(long limitPrice, int wanted) {
+        long quantity = 0;
+        int priceIndex = bestPriceIndex();
+        while (priceIndex != -1 && quantity < wanted) {
+            final PriceLevel priceLevel = priceLevels[priceIndex];
+            if (!crosses(priceLevel.getPrice(), limitPrice)) {
+                break;
+            }
+            quantity += priceLevel.getOpenQuantity() + priceLevel.getReserveQuantity();
+            priceIndex = priceIndexAfter(priceLevel.getPrice());
+        }
+        return (int) Math.min(quantity, Integer.MAX_VALUE);
+    }
+
+    // whether a resting level of this book trades against an incoming limit
+    protected boolean crosses(long levelPrice, long limitPrice) {
+        return side == Side.SELL ? levelPrice <= limitPrice : levelPrice >= limitPrice;
+    }
+
+    private void removeCompletedOrders(TradeBuffer trades, int from) {
+        for (int i = from; i < trades.size(); i++) {
+            if (trades.isPassiveCompleted(i)) {
+                ORDER_INDEX.removeIndex(trades.getPassiveOrderId(i));
+            }
+        }
     }
 
     public void onCancelOrder(int orderId) {
-        OrderIndex.Index idx = ORDER_INDEX.getIndex(orderId);
-        PriceLevel priceLevel = priceLevels[idx.priceIndex];
-        priceLevel.cancelOrder(idx.priceIndex);
+        final int node = ORDER_INDEX.getNode(orderId);
+        if (node == -1) {
+            return;
+        }
+        final int priceIndex = orderSlab.getPriceIndex(node);
+        PriceLevel priceLevel = priceLevels[priceIndex];
+        final int quantity = orderSlab.getQuantity(node);
+        priceLevel.cancelOrder(node, orderId);
         ORDER_INDEX.removeIndex(orderId);
+        if (orderListener != null) {
+            orderListener.onOrderCancelled(side, orderId, priceLevel.getPrice(), quantity);
+        }
+        levelChanged(priceLevel.getPrice(), priceLevel.getOpenQuantity(), priceLevel.getOpenOrderCount());
+        if (priceLevel.isEmpty()) {
+            releasePriceLevel(priceIndex);
+        }
+    }
+
+    /**
+     * Lowers the open quantity of a resting order to {@code quantity} without moving it, so it
+     * keeps its time priority. An iceberg gives up reserve first; while its displayed slice is
+     * untouched nothing is published. Returns false when the order is not resting in this book.
+     */
+    public boolean reduceOrder(int orderId, int quantity) {
+        final int node = ORDER_INDEX.getNode(orderId);
+        if (node == -1) {
+            return false;
+        }
+        final PriceLevel priceLevel = priceLevels[orderSlab.getPriceIndex(node)];
+        final int displayed = orderSlab.getQuantity(node);
+        if (!priceLevel.reduceOrder(node, orderId, quantity)) {
+            return false;
+        }
+        if (orderSlab.getQuantity(node) == displayed) {
+            return true;
+        }
+        if (orderListener != null) {
+            orderListener.onOrderReduced(side, orderId, priceLevel.getPrice(), orderSlab.getQuantity(node));
+        }
+        levelChanged(priceLevel.getPrice(), priceLevel.getOpenQuantity(), priceLevel.getOpenOrderCount());
+        return true;
+    }
+
+    // open quantity of a resting order, an iceberg's reserve included, 0 when it is not in this book
+    public int getOpenQuantity(int orderId) {
+        final int node = ORDER_INDEX.getNode(orderId);
+        return node == -1 ? 0 : orderSlab.getQuantity(node) + orderSlab.getReserve(node);
+    }
+
+    // iceberg slice size of a resting order, 0 when it is fully displayed or not in this book
+    public int getDisplayQuantity(int orderId) {
+        final int node = ORDER_INDEX.getNode(orderId);
+        return node == -1 ? 0 : orderSlab.getDisplayQuantity(node);
+    }
+
+    // price of a resting order in ticks, NULL_PRICE when it is not in this book
+    public long getOrderPrice(int orderId) {
+        final int node = ORDER_INDEX.getNode(orderId);
+        return node == -1 ? NULL_PRICE : priceLevels[orderSlab.getPriceIndex(node)].getPrice();
+    }
+
+    // whether an order at this price can rest in the book
+    public boolean acceptsPrice(long price) {
+        return true;
     }
 
     public void onNewOrder(Order order) {
-        final double price = order.getPrice();
-        final int priceIndex = priceLevelIndexMap.getOrDefault(price, -1);
-        if (priceIndex != -1) {
-            var newIdx = newOrder(order, priceIndex);
-            ORDER_INDEX.addIndex(order.getOrderId(), newIdx);
-        } else {
-            boolean isFound = false;
-            int calcCount = MAX_PRICE_LEVELS - 1;
-            do{
-                calcCount--;
-                final int idx = NumberUtil.moduloPowerOfTwo(index + 1, MAX_PRICE_LEVELS);
-                if (priceLevels[idx].isEmpty()) {
-                    priceLevelIndexMap.put(price, idx);
-                    var newIdx = newOrder(order, idx);
-                    ORDER_INDEX.addIndex(order.getOrderId(), newIdx);
-                    isFound = true;
-                    index = idx;
-                    break;
-                }
-            } while (calcCount >= 0);
+        onNewOrder(order, order.getDisplayedQuantity());
+    }
 
-            if (!isFound) {
-                throw new RuntimeException("Price Level Full");
+    // rests the order showing displayedQuantity of it, e.g. a snapshot restoring an iceberg part way through a slice
+    public void onNewOrder(Order order, int displayedQuantity) {
+        final long price = order.getPrice();
+        int priceIndex = findPriceIndex(price);
+        if (priceIndex == -1) {
+            priceIndex = acquirePriceLevel();
+            try {
+                addPriceIndex(price, priceIndex);
+            } catch (RuntimeException e) {
+                freePriceIndexes[freePriceLevelCount++] = priceIndex;
+                throw e;
             }
         }
+        final PriceLevel priceLevel = priceLevels[priceIndex];
+        final int node = priceLevel.newOrder(order, displayedQuantity);
+        ORDER_INDEX.addIndex(order.getOrderId(), node);
+        if (orderListener != null) {
+            orderListener.onOrderAdded(side, order.getOrderId(), price, displayedQuantity);
+        }
+        levelChanged(price, priceLevel.getOpenQuantity(), priceLevel.getOpenOrderCount());
     }
 
-    private OrderIndex.Index newOrder(Order order, int priceLevelIdx) {
-        final PriceLevel priceLevel = priceLevels[priceLevelIdx];
-        final int oIdx = priceLevel.newOrder(order);
-        return new OrderIndex.Index(priceLevelIdx, oIdx);
+    private void levelChanged(long price, int quantity, int orderCount) {
+        if (depthCache != null) {
+            depthCache.onLevelChanged(price, quantity, orderCount);
+        }
+        if (levelListener != null) {
+            levelListener.onLevelChanged(side, price, quantity, orderCount);
+        }
     }
 
-    private void initPriceLevels() {
-        for (int i = 0; i < MAX_PRICE_LEVELS; i++) {
-            priceLevels[i] = new PriceLevel(side);
+    /**
+     * Copies the best {@code n} levels, best first, into the caller's arrays and returns how many
+     * there are. Served from a cache of the top levels that the book keeps current as it changes,
+     * so repeated reads are plain array copies. On the thread mutating the book only.
+     */
+    public int getDepth(int n, long[] prices, int[] quantities, int[] orderCounts) {
+        if (n < 0 || prices.length < n || quantities.length < n || orderCounts.length < n) {
+            throw new IllegalArgumentException("Depth arrays must hold " + n + " levels");
+        }
+        if (depthCache == null) {
+            depthCache = new DepthCache(side);
         }
+        final DepthCache cache = depthCache;
+        cache.ensureCapacity(n);
+        if (!cache.valid) {
+            rebuildDepthCache(cache);
+        }
+        final int levels = Math.min(n, cache.size);
+        System.arraycopy(cache.prices, 0, prices, 0, levels);
+        System.arraycopy(cache.quantities, 0, quantities, 0, levels);
+        System.arraycopy(cache.orderCounts, 0, orderCounts, 0, levels);
+        return levels;
+    }
+
+    private void rebuildDepthCache(DepthCache cache) {
+        final int[] priceIndexes = cache.priceIndexes;
+        final int levels = collectPriceIndexes(priceIndexes, cache.capacity());
+        for (int i = 0; i < levels; i++) {
+            final PriceLevel priceLevel = priceLevels[priceIndexes[i]];
+            cache.prices[i] = priceLevel.getPrice();
+            cache.quantities[i] = priceLevel.getOpenQuantity();
+            cache.orderCounts[i] = priceLevel.getOpenOrderCount();
+        }
+        cache.size = levels;
+        cache.holdsAll = levels == getPriceLevelCount();
+        cache.valid = true;
+    }
+
+    // O(1): pop a released level, or lazily create the next one
+    private int acquirePriceLevel() {
+        if (freePriceLevelCount > 0) {
+            return freePriceIndexes[--freePriceLevelCount];
+        }
+        if (allocatedPriceLevels == priceLevels.length) {
+            growPriceLevels();
+        }
+        final int priceIndex = allocatedPriceLevels++;
+        priceLevels[priceIndex] = new PriceLevel(side, orderSlab, priceIndex);
+        return priceIndex;
+    }
+
+    // only happens when every level is live, so the free stack is empty and can simply grow alongside
+    private void growPriceLevels() {
+        final int newCapacity = NumberUtil.nextCapacity(priceLevels.length);
+        priceLevels = Arrays.copyOf(priceLevels, newCapacity);
+        freePriceIndexes = new int[newCapacity];
+    }
+
+    private void releasePriceLevel(int priceIndex) {
+        final PriceLevel priceLevel = priceLevels[priceIndex];
+        removePriceIndex(priceLevel.getPrice());
+        priceLevel.release();
+        freePriceIndexes[freePriceLevelCount++] = priceIndex;
+    }
+
+    // one listener per book, null to stop notifications
+    public void setLevelListener(LevelListener levelListener) {
+        this.levelListener = levelListener;
+    }
+
+    public LevelListener getLevelListener() {
+        return levelListener;
+    }
+
+    // one listener per book, null to stop notifications
+    public void setOrderListener(OrderListener orderListener) {
+        this.orderListener = orderListener;
+    }
+
+    public OrderListener getOrderListener() {
+        return orderListener;
+    }
+
+    public Side getSide() {
+        return side;
     }
 
     public OrderIndex getOrderIndex() {
         return ORDER_INDEX;
     }
 
+    public OrderSlab getOrderSlab() {
+        return orderSlab;
+    }
+
+    public OrderBookSizing getSizing() {
+        return sizing;
+    }
+
+    // slots [0, allocated) of getPriceLevels() have been created, released ones are empty
+    public int getAllocatedPriceLevels() {
+        return allocatedPriceLevels;
+    }
+
     public PriceLevel[] getPriceLevels() {
         return priceLevels;
     }
+
+    public PriceLevel getPriceLevel(long price) {
+        final int priceIndex = findPriceIndex(price);
+        return priceIndex == -1 ? null : priceLevels[priceIndex];
+    }
 }
@@ -0,0 +1,27 @@
+package core.order;
+
+import core.EngineConstants;
+
+// initial sizes of a book: level slots and order slab nodes, both still grow on demand
+public class OrderBookSizing implements EngineConstants {
+    public static final OrderBookSizing DEFAULT = new OrderBookSizing(DEFAULT_PRICE_LEVELS, DEFAULT_EXPECTED_ORDERS);
+
+    final int initialPriceLevels;
+    final int expectedOrders;
+
+    public OrderBookSizing(int initialPriceLevels, int expectedOrders) {
+        if (initialPriceLevels <= 0 || expectedOrders <= 0) {
+            throw new IllegalArgumentException("Book sizes must be positive");
+        }
+        this.initialPriceLevels = initialPriceLevels;
+        this.expectedOrders = expectedOrders;
+    }
+
+    public int getInitialPriceLevels() {
+        return initialPriceLevels;
+    }
+
+    public int getExpectedOrders() {
+        return expectedOrders;
+    }
+}
@@ -1,41 +1,39 @@
 package core.order;
 
-import core.common.NumberUtil;
+import core.EngineConstants;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 public class OrderIndex {
-    final Int2IntMap orderIndex = new Int2IntOpenHashMap(); // orderId -> {priceIndex & priceLevelIndex}
+    final Int2IntMap orderIndex; // orderId -> slab node, the node carries its {priceIndex}
 
-    protected void addIndex(int orderId, Index idx) {
-        orderIndex.put(orderId, idx.coalesceValue());
+    public OrderIndex() {
+        this(EngineConstants.DEFAULT_EXPECTED_ORDERS);
     }
 
-    public Index getIndex(int orderId) {
-        final int val = orderIndex.get(orderId);
-        return new Index(val);
+    public OrderIndex(int expectedOrders) {
+        this.orderIndex = new Int2IntOpenHashMap(expectedOrders);
+        this.orderIndex.defaultReturnValue(-1);
     }
 
-    protected void removeIndex(int orderId) {
-        orderIndex.remove(orderId);
+    protected void addIndex(int orderId, int node) {
+        orderIndex.put(orderId, node);
     }
 
-    public static class Index {
-        int priceIndex;
-        int priceLevelIndex;
+    // -1 when the order is not resting
+    public int getNode(int orderId) {
+        return orderIndex.get(orderId);
+    }
 
-        public Index(int priceIndex, int priceLevelIndex) {
-            this.priceIndex = priceIndex;
-            this.priceLevelIndex = priceLevelIndex;
-        }
+    public boolean contains(int orderId) {
+        return orderIndex.containsKey(orderId);
+    }
 
-        public Index(int val) {
-            this.priceIndex = NumberUtil.getPriceIndex(val);
-            this.priceLevelIndex = NumberUtil.getPriceLevelIndex(val);
-        }
+    protected void removeIndex(int orderId) {
+        orderIndex.remove(orderId);
+    }
 
-        public int coalesceValue() {
-            return NumberUtil.coalesceOrderPriceIndexAndPriceLevelIndex(priceIndex, priceLevelIndex);
-        }
+    public int size() {
+        return orderIndex.size();
     }
 }
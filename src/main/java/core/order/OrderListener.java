@@ -0,0 +1,18 @@
+package core.order;
+
+import core.bean.Side;
+
+// told about every change of a resting order, on the thread mutating the book; side is the book's.
+// Quantities are displayed ones: an iceberg's reserve is never reported, each refilled slice is added again
+public interface OrderListener {
+    void onOrderAdded(Side side, int orderId, long price, int quantity);
+
+    // quantity is what was still open
+    void onOrderCancelled(Side side, int orderId, long price, int quantity);
+
+    // quantity is what is left open, the order kept its queue position
+    void onOrderReduced(Side side, int orderId, long price, int quantity);
+
+    // orderId is the resting order, activeOrderId the incoming one it traded with
+    void onOrderExecuted(Side side, int orderId, long price, int quantity, int activeOrderId);
+}
@@ -0,0 +1,95 @@
+package core.order;
+
+import core.bean.Side;
+import core.price.PriceLevel;
+import core.price.PriceLevelComparator;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.LongBidirectionalIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntRBTreeMap;
+
+// price levels kept in a red-black tree, no bound on the price range
+public class TreeOrderBook extends OrderBook {
+    final Long2IntRBTreeMap priceLevelIndexMap; //price in ticks -> {priceIndex}
+
+    public TreeOrderBook(Side side) {
+        this(side, OrderBookSizing.DEFAULT);
+    }
+
+    public TreeOrderBook(Side side, OrderBookSizing sizing) {
+        super(side, sizing);
+        this.priceLevelIndexMap = new Long2IntRBTreeMap(new PriceLevelComparator(side));
+        this.priceLevelIndexMap.defaultReturnValue(-1);
+    }
+
+    @Override
+    public long getBestPrice() {
+        if (priceLevelIndexMap.isEmpty()) {
+            return NULL_PRICE;
+        }
+        return priceLevelIndexMap.firstLongKey();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return priceLevelIndexMap.isEmpty();
+    }
+
+    @Override
+    public int getPriceLevelCount() {
+        return priceLevelIndexMap.size();
+    }
+
+    @Override
+    protected int findPriceIndex(long price) {
+        return priceLevelIndexMap.get(price);
+    }
+
+    @Override
+    protected int bestPriceIndex() {
+        if (priceLevelIndexMap.isEmpty()) {
+            return -1;
+        }
+        return priceLevelIndexMap.get(priceLevelIndexMap.firstLongKey());
+    }
+
+    // one in-order walk of the tree instead of a lookup per level
+    @Override
+    public int getCrossingQuantity(long limitPrice, int wanted) {
+        long quantity = 0;
+        final IntIterator iterator = priceLevelIndexMap.values().iterator();
+        while (quantity < wanted && iterator.hasNext()) {
+            final PriceLevel priceLevel = priceLevels[iterator.nextInt()];
+            if (!crosses(priceLevel.getPrice(), limitPrice)) {
+                break;
+            }
+            quantity += priceLevel.getOpenQuantity() + priceLevel.getReserveQuantity();
+        }
+        return (int) Math.min(quantity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected int priceIndexAfter(long price) {
+        final LongBidirectionalIterator iterator = priceLevelIndexMap.keySet().iterator(price);
+        return iterator.hasNext() ? priceLevelIndexMap.get(iterator.nextLong()) : -1;
+    }
+
+    @Override
+    protected int collectPriceIndexes(int[] priceIndexes, int max) {
+        int count = 0;
+        final IntIterator iterator = priceLevelIndexMap.values().iterator();
+        while (count < max && iterator.hasNext()) {
+            priceIndexes[count++] = iterator.nextInt();
+        }
+        return count;
+    }
+
+    @Override
+    protected void addPriceIndex(long price, int priceIndex) {
+        priceLevelIndexMap.put(price, priceIndex);
+    }
+
+    @Override
+    protected void removePriceIndex(long price) {
+        priceLevelIndexMap.remove(price);
+    }
+}
@@ -0,0 +1,122 @@
+package core.price;
+
+import core.common.NumberUtil;
+
+import java.util.Arrays;
+
+/**
+ * Node storage for the resting orders of one book. Nodes live in parallel primitive arrays and
+ * form an intrusive doubly linked list per price level through {@code prev[]}/{@code next[]};
+ * released nodes are chained on a free list through {@code next[]} and handed out again, so a
+ * node index stays a stable handle for the lifetime of the order and nothing is allocated once
+ * the slab is large enough. Icebergs keep their displayed slice in {@code quantities[]} and the
+ * rest in {@code reserves[]}, which no level total or market data ever counts.
+ */
+public class OrderSlab {
+    public static final int NULL_NODE = -1;
+
+    int[] orderIds;   // -1 on free nodes
+    int[] quantities; // open quantity, the displayed slice of an iceberg
+    int[] reserves;   // hidden quantity of an iceberg, 0 otherwise
+    int[] displayQuantities; // slice an iceberg is refilled to, 0 when fully displayed
+    int[] prev;
+    int[] next;       // also links the free list
+    int[] priceIndexes; // {priceIndex} of the level holding the node
+    int allocated = 0;  // nodes ever handed out, [allocated, capacity) were never used
+    int freeHead = NULL_NODE;
+    int size = 0;
+
+    public OrderSlab(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Slab capacity must be positive");
+        }
+        orderIds = new int[initialCapacity];
+        quantities = new int[initialCapacity];
+        reserves = new int[initialCapacity];
+        displayQuantities = new int[initialCapacity];
+        prev = new int[initialCapacity];
+        next = new int[initialCapacity];
+        priceIndexes = new int[initialCapacity];
+        Arrays.fill(orderIds, -1);
+    }
+
+    int acquire(int orderId, int quantity, int priceIndex) {
+        final int node;
+        if (freeHead != NULL_NODE) {
+            node = freeHead;
+            freeHead = next[node];
+        } else {
+            if (allocated == orderIds.length) {
+                grow();
+            }
+            node = allocated++;
+        }
+        orderIds[node] = orderId;
+        quantities[node] = quantity;
+        reserves[node] = 0;
+        displayQuantities[node] = 0;
+        prev[node] = NULL_NODE;
+        next[node] = NULL_NODE;
+        priceIndexes[node] = priceIndex;
+        size++;
+        return node;
+    }
+
+    void release(int node) {
+        orderIds[node] = -1;
+        quantities[node] = 0;
+        reserves[node] = 0;
+        next[node] = freeHead;
+        freeHead = node;
+        size--;
+    }
+
+    private void grow() {
+        final int capacity = orderIds.length;
+        final int newCapacity = NumberUtil.nextCapacity(capacity);
+        orderIds = Arrays.copyOf(orderIds, newCapacity);
+        Arrays.fill(orderIds, capacity, newCapacity, -1);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        reserves = Arrays.copyOf(reserves, newCapacity);
+        displayQuantities = Arrays.copyOf(displayQuantities, newCapacity);
+        prev = Arrays.copyOf(prev, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        priceIndexes = Arrays.copyOf(priceIndexes, newCapacity);
+    }
+
+    public boolean isLive(int node, int orderId) {
+        return node >= 0 && node < allocated && orderIds[node] == orderId && orderId != -1;
+    }
+
+    public int getOrderId(int node) {
+        return orderIds[node];
+    }
+
+    public int getQuantity(int node) {
+        return quantities[node];
+    }
+
+    public int getReserve(int node) {
+        return reserves[node];
+    }
+
+    public int getDisplayQuantity(int node) {
+        return displayQuantities[node];
+    }
+
+    public int getPriceIndex(int node) {
+        return priceIndexes[node];
+    }
+
+    public int getNext(int node) {
+        return next[node];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return orderIds.length;
+    }
+}
@@ -5,109 +5,205 @@ import core.EngineConstants;
 import core.bean.Order;
 import core.bean.Side;
 import core.bean.Trade;
-import core.common.NumberUtil;
+import core.bean.TradeBuffer;
+import core.common.Clock;
 import it.unimi.dsi.fastutil.Pair;
 
+import java.util.Arrays;
 import java.util.List;
 
-import static core.common.NumberUtil.moduloPowerOfTwo;
-
+/**
+ * FIFO queue of the orders resting at one price, kept as a doubly linked list of {@link OrderSlab}
+ * nodes shared with the other levels of the book. An order is addressed by its node, so cancel is
+ * an O(1) unlink and matching only ever visits live orders.
+ *
+ * <p>An iceberg queues only its displayed slice. When matching takes the slice, the level refills
+ * it from the order's reserve and moves the node to the back of the queue in place, so the order
+ * keeps its node and id and never goes back through the handler. Reserves are kept out of
+ * {@link #getOpenQuantity()}, which is what depth and market data publish.
+ */
 public class PriceLevel implements EngineConstants {
-    double price;
+    private static final int DEFAULT_SLAB_CAPACITY = 16;
+
+    long price;
     final Side side;
-    int[][] orderQuantity = new int[MAX_ORDERS_AT_EACH_PRICE_LEVEL][2]; // {orderId, quantity}
-    int start = -1, end = -1;
+    final OrderSlab slab;
+    final int priceIndex; // slot of this level in the book, stamped on its nodes
+    int headNode = OrderSlab.NULL_NODE, tailNode = OrderSlab.NULL_NODE;
     int openOrderCount = 0;
-    int openQuantity = 0;
+    int openQuantity = 0; // displayed quantity only
+    int reserveQuantity = 0; // hidden behind the icebergs of this level
+    // slices refilled by the last matchOrder call: index of the fill that took the previous slice, new slice
+    int[] replenishedTrades;
+    int[] replenishedQuantities;
+    int replenishedCount = 0;
 
+    // standalone level with a private slab
     public PriceLevel(Side side) {
+        this(side, new OrderSlab(DEFAULT_SLAB_CAPACITY), 0);
+    }
+
+    public PriceLevel(Side side, OrderSlab slab, int priceIndex) {
         this.side = side;
+        this.slab = slab;
+        this.priceIndex = priceIndex;
     }
 
+    // returns the node of the order, its handle for cancel
     public int newOrder(Order order) {
+        return newOrder(order, order.getDisplayedQuantity());
+    }
+
+    // displayedQuantity of the pending quantity queues now, the rest is the reserve refilled in slices of the order's display quantity
+    public int newOrder(Order order, int displayedQuantity) {
+        final int pending = order.getPendingMatchQuantity();
+        if (displayedQuantity <= 0 || displayedQuantity > pending) {
+            throw new IllegalArgumentException("Displayed quantity must be between 1 and " + pending + ": " + displayedQuantity);
+        }
         this.price = order.getPrice();
-        int idx = moduloPowerOfTwo(end + 1, MAX_ORDERS_AT_EACH_PRICE_LEVEL);
-        if (idx == start) throw new RuntimeException("Price Level Full");
-        orderQuantity[idx][0] = order.getOrderId();
-        orderQuantity[idx][1] = order.getPendingMatchQuantity();
-        end = idx;
+        final int node = slab.acquire(order.getOrderId(), displayedQuantity, priceIndex);
+        slab.reserves[node] = pending - displayedQuantity;
+        slab.displayQuantities[node] = order.getDisplayQuantity();
+        if (tailNode == OrderSlab.NULL_NODE) {
+            headNode = node;
+        } else {
+            slab.next[tailNode] = node;
+            slab.prev[node] = tailNode;
+        }
+        tailNode = node;
         openOrderCount++;
-        openQuantity += order.getPendingMatchQuantity();
-        return idx;
+        openQuantity += displayedQuantity;
+        reserveQuantity += pending - displayedQuantity;
+        return node;
     }
 
-    public void cancelOrder(int idx) {
-        if (orderQuantity[idx][0] == -1) {
-            return;
+    public boolean cancelOrder(int node, int orderId) {
+        if (!slab.isLive(node, orderId) || slab.priceIndexes[node] != priceIndex) {
+            return false;
         }
-
-        makeInvalid(idx);
-
-        do {
-            start = nextIndex(idx);
-        } while (start != -1 && orderQuantity[start][0] == -1 && start < end);
+        openQuantity -= slab.quantities[node];
+        reserveQuantity -= slab.reserves[node];
+        unlink(node);
+        return true;
     }
 
-    public boolean isEmpty() {
-        return openOrderCount == 0;
+    // lowers the total open quantity of a live order in place, it keeps its place in the queue; an iceberg gives up reserve first
+    public boolean reduceOrder(int node, int orderId, int quantity) {
+        if (!slab.isLive(node, orderId) || slab.priceIndexes[node] != priceIndex) {
+            return false;
+        }
+        final int displayed = slab.quantities[node];
+        final int total = displayed + slab.reserves[node];
+        if (quantity <= 0 || quantity >= total) {
+            throw new IllegalArgumentException("Reduced quantity must be between 0 and " + total + " exclusive: " + quantity);
+        }
+        final int newDisplayed = Math.min(displayed, quantity);
+        openQuantity -= displayed - newDisplayed;
+        reserveQuantity -= total - quantity - (displayed - newDisplayed);
+        slab.quantities[node] = newDisplayed;
+        slab.reserves[node] = quantity - newDisplayed;
+        return true;
     }
 
-    public void makeInvalid(int idx) {
-        openQuantity -= orderQuantity[idx][1];
+    private void unlink(int node) {
+        detach(node);
         openOrderCount--;
-        orderQuantity[idx][0] = -1;
-        orderQuantity[idx][1] = -1;
+        slab.release(node);
     }
 
-    public void matchOrder(Order order, List<Trade> trades) {
-        if (openOrderCount == 0) {
-            return;
+    // takes the node out of the queue without releasing it
+    private void detach(int node) {
+        final int[] prev = slab.prev;
+        final int[] next = slab.next;
+        final int before = prev[node];
+        final int after = next[node];
+        if (before == OrderSlab.NULL_NODE) {
+            headNode = after;
+        } else {
+            next[before] = after;
         }
-
-        if (start == -1 && end >= 0) {
-            start = 0;
+        if (after == OrderSlab.NULL_NODE) {
+            tailNode = before;
+        } else {
+            prev[after] = before;
         }
+    }
 
-        int currentIdx = start;
+    public boolean isEmpty() {
+        return openOrderCount == 0;
+    }
 
-        while (openOrderCount > 0) {
-            int targetOrderId = orderQuantity[currentIdx][0];
-            int targetQuantity = orderQuantity[currentIdx][1];
+    public void matchOrder(Order order, List<Trade> trades) {
+        final TradeBuffer buffer = new TradeBuffer();
+        matchOrder(order, buffer, Clock.SYSTEM.currentTimeMillis());
+        trades.addAll(buffer.toTrades(0));
+    }
 
-            if (targetOrderId <= 0 || targetQuantity <= 0) {
-                currentIdx = nextIndex(currentIdx);
-                start = currentIdx;
-                continue;
-            }
+    // tradeTime comes from the caller's clock, once per incoming order
+    public void matchOrder(Order order, TradeBuffer trades, long tradeTime) {
+        final int[] quantities = slab.quantities;
+        replenishedCount = 0;
+        while (headNode != OrderSlab.NULL_NODE) {
+            final int node = headNode;
+            final int targetOrderId = slab.orderIds[node];
 
-            int tradeQuantity = Math.min(order.getPendingMatchQuantity(), targetQuantity);
-            trades.add(new Trade(order.getOrderId(), targetOrderId, price, tradeQuantity));
-            orderQuantity[currentIdx][1] -= tradeQuantity;
+            int tradeQuantity = Math.min(order.getPendingMatchQuantity(), quantities[node]);
+            quantities[node] -= tradeQuantity;
             openQuantity -= tradeQuantity;
+            final boolean sliceFilled = quantities[node] == 0;
+            final boolean passiveCompleted = sliceFilled && slab.reserves[node] == 0;
+            trades.add(order.getOrderId(), targetOrderId, price, tradeQuantity, tradeTime, passiveCompleted);
 
             order.makeMatched(tradeQuantity);
-            if (orderQuantity[currentIdx][1] == 0) {
-                makeInvalid(currentIdx);
+            if (passiveCompleted) {
+                unlink(node);
+            } else if (sliceFilled) {
+                replenish(node, trades.size() - 1);
             }
 
             // if activityOrder completed, stop
             if (order.isCompleted()) {
                 break;
             }
-            currentIdx = nextIndex(currentIdx);
         }
+    }
 
-        start = currentIdx;
+    // iceberg slice taken: the next one comes out of the reserve and joins the back of the queue
+    private void replenish(int node, int tradeIndex) {
+        final int slice = Math.min(slab.displayQuantities[node], slab.reserves[node]);
+        slab.reserves[node] -= slice;
+        slab.quantities[node] = slice;
+        reserveQuantity -= slice;
+        openQuantity += slice;
+        if (node != tailNode) {
+            detach(node);
+            slab.prev[node] = tailNode;
+            slab.next[node] = OrderSlab.NULL_NODE;
+            slab.next[tailNode] = node;
+            tailNode = node;
+        }
+        if (replenishedTrades == null) {
+            replenishedTrades = new int[4];
+            replenishedQuantities = new int[4];
+        } else if (replenishedCount == replenishedTrades.length) {
+            replenishedTrades = Arrays.copyOf(replenishedTrades, replenishedCount << 1);
+            replenishedQuantities = Arrays.copyOf(replenishedQuantities, replenishedCount << 1);
+        }
+        replenishedTrades[replenishedCount] = tradeIndex;
+        replenishedQuantities[replenishedCount++] = slice;
     }
 
-    private int nextIndex(int idx) {
-        if (idx == end) {
-            return -1;
+    // called when the level is handed back to the book's pool, returns any remaining nodes to the slab
+    public void release() {
+        while (headNode != OrderSlab.NULL_NODE) {
+            unlink(headNode);
         }
-        return NumberUtil.moduloPowerOfTwo(idx + 1, MAX_ORDERS_AT_EACH_PRICE_LEVEL);
+        openOrderCount = 0;
+        openQuantity = 0;
+        reserveQuantity = 0;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -115,20 +211,51 @@ public class PriceLevel implements EngineConstants {
         return openQuantity;
     }
 
+    // hidden iceberg quantity, tradeable but never published
+    public int getReserveQuantity() {
+        return reserveQuantity;
+    }
+
+    public int getReplenishedCount() {
+        return replenishedCount;
+    }
+
+    // trade buffer index of the fill after which the i-th refill of the last match happened
+    public int getReplenishedTrade(int i) {
+        return replenishedTrades[i];
+    }
+
+    public int getReplenishedQuantity(int i) {
+        return replenishedQuantities[i];
+    }
+
     public int getOpenOrderCount() {
         return openOrderCount;
     }
 
+    public int getPriceIndex() {
+        return priceIndex;
+    }
+
+    // FIFO walk: node = getHeadNode(), then getSlab().getNext(node) until NULL_NODE
+    public int getHeadNode() {
+        return headNode;
+    }
+
+    public OrderSlab getSlab() {
+        return slab;
+    }
+
     //below for test
     public Pair<Integer, Integer> getStartOrder() {
-        return Pair.of(orderQuantity[start][0], orderQuantity[start][1]);
+        return Pair.of(slab.orderIds[headNode], slab.quantities[headNode]);
     }
 
     public Pair<Integer, Integer> getEndOrder() {
-        return Pair.of(orderQuantity[end][0], orderQuantity[end][1]);
+        return Pair.of(slab.orderIds[tailNode], slab.quantities[tailNode]);
     }
 
-    public Pair<Integer, Integer> getIndexEndOrder(int idx) {
-        return Pair.of(orderQuantity[idx][0], orderQuantity[idx][1]);
+    public Pair<Integer, Integer> getIndexEndOrder(int node) {
+        return Pair.of(slab.orderIds[node], slab.quantities[node]);
     }
 }
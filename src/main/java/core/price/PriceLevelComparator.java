@@ -1,10 +1,9 @@
 package core.price;
 
 import core.bean.Side;
+import it.unimi.dsi.fastutil.longs.LongComparator;
 
-import java.util.Comparator;
-
-public class PriceLevelComparator implements Comparator<Double> {
+public class PriceLevelComparator implements LongComparator {
     private final Side side;
 
     public PriceLevelComparator(Side side) {
@@ -12,11 +11,11 @@ public class PriceLevelComparator implements Comparator<Double> {
     }
 
     @Override
-    public int compare(Double price1, Double price2) {
+    public int compare(long price1, long price2) {
         if (side == Side.BUY) {
-            return price2.compareTo(price1);
+            return Long.compare(price2, price1);
         } else {
-            return price1.compareTo(price2);
+            return Long.compare(price1, price2);
         }
     }
 }
@@ -0,0 +1,108 @@
+package core.shard;
+
+import core.bean.OrderType;
+import core.bean.Side;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer / single-consumer command ring. Slots are preallocated as parallel
+ * primitive arrays, producers claim a sequence with one atomic increment and publish the slot
+ * with an ordered store, the matcher thread is the only reader.
+ */
+public class CommandRing {
+    public static final byte NEW_LIMIT_ORDER = 1;
+    public static final byte NEW_MARKET_ORDER = 2;
+    public static final byte CANCEL_ORDER = 3;
+    public static final byte AMEND_ORDER = 4; // quantity and price are the amended ones
+
+    private static final Side[] SIDES = Side.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    final int capacity;
+    final int mask;
+    final byte[] types;
+    final int[] instrumentIds;
+    final int[] orderIds;
+    final int[] quantities;
+    final long[] prices; // in ticks, slippage bound in ticks for market orders
+    final byte[] sides;
+    final byte[] orderTypes; // OrderType ordinal of new limit orders
+    final long[] expireTimes; // ms, GTD orders only
+    final AtomicLongArray published; // slot -> sequence of the command it holds
+
+    final AtomicLong claimSequence = new AtomicLong();
+    final AtomicLong consumerSequence = new AtomicLong(); // next sequence the consumer will read
+
+    public CommandRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.types = new byte[capacity];
+        this.instrumentIds = new int[capacity];
+        this.orderIds = new int[capacity];
+        this.quantities = new int[capacity];
+        this.prices = new long[capacity];
+        this.sides = new byte[capacity];
+        this.orderTypes = new byte[capacity];
+        this.expireTimes = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public void publish(byte type, int instrumentId, int orderId, int quantity, long price, Side side) {
+        publish(type, instrumentId, orderId, quantity, price, side, OrderType.LIMIT, 0);
+    }
+
+    // orderType and expireTime only matter for NEW_LIMIT_ORDER
+    public void publish(byte type, int instrumentId, int orderId, int quantity, long price, Side side, OrderType orderType,
+                        long expireTime) {
+        final long seq = claimSequence.getAndIncrement();
+        while (seq - consumerSequence.get() >= capacity) {
+            Thread.onSpinWait(); // ring full, wait for the matcher
+        }
+        final int slot = (int) seq & mask;
+        types[slot] = type;
+        instrumentIds[slot] = instrumentId;
+        orderIds[slot] = orderId;
+        quantities[slot] = quantity;
+        prices[slot] = price;
+        sides[slot] = (byte) side.ordinal();
+        orderTypes[slot] = (byte) orderType.ordinal();
+        expireTimes[slot] = expireTime;
+        published.lazySet(slot, seq);
+    }
+
+    // consumer side, only called from the owning matcher thread
+    int drain(Shard shard, int maxBatch) {
+        long next = consumerSequence.get();
+        int count = 0;
+        while (count < maxBatch) {
+            final int slot = (int) next & mask;
+            if (published.get(slot) != next) {
+                break;
+            }
+            shard.onCommand(types[slot], instrumentIds[slot], orderIds[slot], quantities[slot], prices[slot], SIDES[sides[slot]],
+                    ORDER_TYPES[orderTypes[slot]], expireTimes[slot]);
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumerSequence.lazySet(next);
+        }
+        return count;
+    }
+
+    public long getProcessedCount() {
+        return consumerSequence.get();
+    }
+
+    public long getPublishedCount() {
+        return claimSequence.get();
+    }
+}
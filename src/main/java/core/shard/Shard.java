@@ -0,0 +1,208 @@
+package core.shard;
+
+import core.EngineConstants;
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.Instrument;
+import core.instrument.InstrumentRegistry;
+import core.marketdata.DepthFeed;
+import core.marketdata.OrderBookImage;
+import core.marketdata.OrderFeed;
+import core.metrics.LatencyRecorder;
+import trader.InMemoryTradePersistence;
+import trader.LimitOrderHandler;
+import trader.MarketOrderHandler;
+import trader.TradePersistence;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One matcher thread. It is the only writer of the books of the instruments assigned to it, so
+ * the books themselves need no locks.
+ */
+public class Shard implements Runnable {
+    private static final int MAX_BATCH = 256;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    final int shardId;
+    final CommandRing ring;
+    final LimitOrderHandler limitOrderHandler;
+    final MarketOrderHandler marketOrderHandler;
+    final ShardListener listener;
+    final TradePersistence tradePersistence; // shared by both handlers, written only by this matcher thread
+    final TradeBuffer tradeBuffer = new TradeBuffer();
+    final LatencyRecorder latencyRecorder; // written by this matcher thread, histograms readable from any thread
+    DepthFeed depthFeed; // created when the first instrument publishes depth
+    OrderFeed orderFeed; // created when the first instrument publishes order events
+    final ConcurrentLinkedQueue<ImageRequest> imageRequests = new ConcurrentLinkedQueue<>(); // served between batches
+    volatile boolean running;
+    Thread thread;
+
+    public Shard(int shardId, InstrumentRegistry registry, int ringCapacity, ShardListener listener) {
+        this(shardId, registry, ringCapacity, listener, new InMemoryTradePersistence());
+    }
+
+    public Shard(int shardId, InstrumentRegistry registry, int ringCapacity, ShardListener listener, TradePersistence tradePersistence) {
+        this.shardId = shardId;
+        this.ring = new CommandRing(ringCapacity);
+        this.tradePersistence = tradePersistence;
+        this.limitOrderHandler = new LimitOrderHandler(registry, tradePersistence);
+        this.marketOrderHandler = new MarketOrderHandler(registry, tradePersistence);
+        this.latencyRecorder = new LatencyRecorder(registry.capacity());
+        limitOrderHandler.setLatencyRecorder(latencyRecorder);
+        marketOrderHandler.setLatencyRecorder(latencyRecorder);
+        this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running) {
+            if (!imageRequests.isEmpty()) {
+                serveImageRequests();
+            }
+            final int drained = ring.drain(this, MAX_BATCH);
+            // every command expires its instrument before it matches; GTD and DAY orders of the
+            // instruments no command reaches come due on the clock, busy or not
+            if (limitOrderHandler.expireOrders() > 0 || drained > 0) {
+                idle = 0;
+            } else if (idle < SPIN_TRIES) {
+                idle++;
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                idle++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        // drain whatever was published before stop
+        while (ring.drain(this, MAX_BATCH) > 0) {
+        }
+        serveImageRequests();
+    }
+
+    // matcher thread, between commands, so every image matches its feed sequence exactly
+    private void serveImageRequests() {
+        ImageRequest request;
+        while ((request = imageRequests.poll()) != null) {
+            try {
+                request.result.complete(orderFeed.image(limitOrderHandler.getRegistry().get(request.instrumentId)));
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // any thread, completed by the matcher thread while it runs
+    CompletableFuture<OrderBookImage> requestImage(int instrumentId) {
+        final ImageRequest request = new ImageRequest(instrumentId);
+        imageRequests.add(request);
+        return request.result;
+    }
+
+    void onCommand(byte type, int instrumentId, int orderId, int quantity, long price, Side side, OrderType orderType,
+                   long expireTime) {
+        try {
+            switch (type) {
+                case CommandRing.NEW_LIMIT_ORDER:
+                    tradeBuffer.clear();
+                    limitOrderHandler.matchOrder(instrumentId, orderId, quantity, price, side, orderType, expireTime, tradeBuffer);
+                    if (!tradeBuffer.isEmpty()) {
+                        listener.onTrades(instrumentId, tradeBuffer);
+                    }
+                    break;
+                case CommandRing.NEW_MARKET_ORDER:
+                    // the price slot carries the slippage bound in ticks, NULL_PRICE for the instrument's own
+                    tradeBuffer.clear();
+                    if (price == EngineConstants.NULL_PRICE) {
+                        marketOrderHandler.matchOrder(instrumentId, orderId, quantity, side, tradeBuffer);
+                    } else {
+                        marketOrderHandler.matchOrder(instrumentId, orderId, quantity, price, side, tradeBuffer);
+                    }
+                    if (!tradeBuffer.isEmpty()) {
+                        listener.onTrades(instrumentId, tradeBuffer);
+                    }
+                    break;
+                case CommandRing.CANCEL_ORDER:
+                    limitOrderHandler.cancelOrder(instrumentId, side, orderId);
+                    break;
+                case CommandRing.AMEND_ORDER:
+                    tradeBuffer.clear();
+                    limitOrderHandler.amendOrder(instrumentId, side, orderId, quantity, price, tradeBuffer);
+                    if (!tradeBuffer.isEmpty()) {
+                        listener.onTrades(instrumentId, tradeBuffer);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported command type: " + type);
+            }
+        } catch (RuntimeException e) {
+            // a bad command must not take the matcher thread down with it
+            listener.onReject(instrumentId, orderId, e);
+        }
+    }
+
+    public TradePersistence getTradePersistence() {
+        return tradePersistence;
+    }
+
+    // before the matcher thread starts
+    void publishDepth(Instrument instrument) {
+        if (depthFeed == null) {
+            depthFeed = new DepthFeed();
+            limitOrderHandler.setDepthFeed(depthFeed);
+            marketOrderHandler.setDepthFeed(depthFeed);
+        }
+        depthFeed.attach(instrument);
+    }
+
+    // before the matcher thread starts, the feed file is orders-<shardId>.l3 in the directory
+    void publishOrders(Instrument instrument, Path directory) {
+        if (orderFeed == null) {
+            orderFeed = new OrderFeed(directory.resolve("orders-" + shardId + ".l3"), limitOrderHandler.getRegistry().capacity());
+        }
+        orderFeed.attach(instrument);
+    }
+
+    // null when no instrument of this shard publishes order events
+    public OrderFeed getOrderFeed() {
+        return orderFeed;
+    }
+
+    // null when no instrument of this shard publishes depth
+    public DepthFeed getDepthFeed() {
+        return depthFeed;
+    }
+
+    public LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public long getProcessedCount() {
+        return ring.getProcessedCount();
+    }
+
+    public long getPublishedCount() {
+        return ring.getPublishedCount();
+    }
+
+    static final class ImageRequest {
+        final int instrumentId;
+        final CompletableFuture<OrderBookImage> result = new CompletableFuture<>();
+
+        ImageRequest(int instrumentId) {
+            this.instrumentId = instrumentId;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package core.shard;
+
+import core.bean.TradeBuffer;
+
+// callbacks run on the matcher thread of the shard that owns the instrument, the trade buffer is reused
+// after the callback returns so copy what has to outlive it
+public interface ShardListener {
+    void onTrades(int instrumentId, TradeBuffer trades);
+
+    default void onReject(int instrumentId, int orderId, RuntimeException cause) {
+    }
+}
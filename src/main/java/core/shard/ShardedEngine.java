@@ -0,0 +1,241 @@
+package core.shard;
+
+import core.EngineConstants;
+import core.bean.OrderType;
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.marketdata.DepthFeed;
+import core.marketdata.OrderBookImage;
+import core.metrics.LatencyHistogram;
+import core.metrics.Operation;
+import trader.InMemoryTradePersistence;
+import trader.TradePersistence;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Pins every instrument to one {@link Shard}. Any thread may submit; commands for an instrument
+ * are applied in submission order by that instrument's matcher thread.
+ */
+public class ShardedEngine {
+    public static final int DEFAULT_RING_CAPACITY = 1 << 16;
+
+    final InstrumentRegistry registry;
+    final Shard[] shards;
+    final int[] shardOfInstrument; // instrumentId -> shard index
+    final boolean[] latencyInstruments;
+    final boolean[] depthInstruments;
+    final boolean[] orderInstruments;
+    Path orderFeedDirectory;
+    final AtomicInteger orderIdSequence = new AtomicInteger(100000000);
+
+    public ShardedEngine(InstrumentRegistry registry, int shardCount, ShardListener listener) {
+        this(registry, shardCount, DEFAULT_RING_CAPACITY, listener);
+    }
+
+    public ShardedEngine(InstrumentRegistry registry, int shardCount, int ringCapacity, ShardListener listener) {
+        this(registry, shardCount, ringCapacity, listener, shardId -> new InMemoryTradePersistence());
+    }
+
+    // one trade persistence per shard, e.g. a journal directory per shard, since each has a single writer
+    public ShardedEngine(InstrumentRegistry registry, int shardCount, int ringCapacity, ShardListener listener,
+                         IntFunction<TradePersistence> tradePersistenceOfShard) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.registry = registry;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, registry, ringCapacity, listener, tradePersistenceOfShard.apply(i));
+        }
+        this.shardOfInstrument = new int[registry.capacity()];
+        this.latencyInstruments = new boolean[registry.capacity()];
+        this.depthInstruments = new boolean[registry.capacity()];
+        this.orderInstruments = new boolean[registry.capacity()];
+        for (int i = 0; i < shardOfInstrument.length; i++) {
+            shardOfInstrument[i] = i % shardCount;
+        }
+    }
+
+    // must be called before start(), the thread start publishes the assignment to the matchers
+    public void assign(int instrumentId, int shardIndex) {
+        if (shardIndex < 0 || shardIndex >= shards.length) {
+            throw new IllegalArgumentException("Shard index out of range: " + shardIndex);
+        }
+        if (shards[0].thread != null) {
+            throw new IllegalStateException("Engine already started");
+        }
+        registry.get(instrumentId);
+        shardOfInstrument[instrumentId] = shardIndex;
+    }
+
+    // opt-in latency histograms for one instrument, must be called before start() like assign()
+    public void recordLatency(int instrumentId) {
+        if (shards[0].thread != null) {
+            throw new IllegalStateException("Engine already started");
+        }
+        registry.get(instrumentId);
+        latencyInstruments[instrumentId] = true;
+    }
+
+    // copy of the instrument's histogram, null when its latency is not recorded
+    public LatencyHistogram getLatency(int instrumentId, Operation operation) {
+        final LatencyHistogram live = shardOf(instrumentId).latencyRecorder.getHistogram(instrumentId, operation);
+        return live == null ? null : live.copy();
+    }
+
+    // opt-in level-2 depth updates for one instrument, must be called before start() like assign()
+    public void publishDepth(int instrumentId) {
+        if (shards[0].thread != null) {
+            throw new IllegalStateException("Engine already started");
+        }
+        registry.get(instrumentId);
+        depthInstruments[instrumentId] = true;
+    }
+
+    // feed of the shard owning the instrument, shared by that shard's instruments; null before start() or when not published
+    public DepthFeed getDepthFeed(int instrumentId) {
+        return shardOf(instrumentId).depthFeed;
+    }
+
+    // opt-in level-3 order events for one instrument, in one feed file per shard under the directory; before start()
+    public void publishOrders(int instrumentId, Path directory) {
+        if (shards[0].thread != null) {
+            throw new IllegalStateException("Engine already started");
+        }
+        if (orderFeedDirectory != null && !orderFeedDirectory.equals(directory)) {
+            throw new IllegalArgumentException("Order feeds already go to " + orderFeedDirectory);
+        }
+        registry.get(instrumentId);
+        orderFeedDirectory = directory;
+        orderInstruments[instrumentId] = true;
+    }
+
+    // file to map with an OrderFeedReader, null before start() or when the instrument's orders are not published
+    public Path getOrderFeedFile(int instrumentId) {
+        final Shard shard = shardOf(instrumentId);
+        return shard.orderFeed == null ? null : shard.orderFeed.getFile();
+    }
+
+    // resting orders of the instrument at its current feed sequence, taken by its matcher between commands
+    public CompletableFuture<OrderBookImage> requestOrderImage(int instrumentId) {
+        final Shard shard = shardOf(instrumentId);
+        if (!orderInstruments[instrumentId]) {
+            throw new IllegalArgumentException("Orders of instrument " + instrumentId + " are not published");
+        }
+        if (!shard.running) {
+            throw new IllegalStateException("Engine not running");
+        }
+        return shard.requestImage(instrumentId);
+    }
+
+    public void start() {
+        // enabled on the owning shard only now, after every assign(); the thread start publishes it
+        for (int i = 0; i < latencyInstruments.length; i++) {
+            if (latencyInstruments[i]) {
+                shards[shardOfInstrument[i]].latencyRecorder.enable(i);
+            }
+            if (depthInstruments[i]) {
+                shards[shardOfInstrument[i]].publishDepth(registry.get(i));
+            }
+            if (orderInstruments[i]) {
+                shards[shardOfInstrument[i]].publishOrders(registry.get(i), orderFeedDirectory);
+            }
+        }
+        for (Shard shard : shards) {
+            shard.running = true;
+            shard.thread = new Thread(shard, "matcher-" + shard.shardId);
+            shard.thread.setDaemon(true);
+            shard.thread.start();
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.running = false;
+        }
+        for (Shard shard : shards) {
+            if (shard.thread != null) {
+                shard.thread.join();
+            }
+        }
+    }
+
+    public int submitLimitOrder(int instrumentId, int quantity, double price, Side side) {
+        // decimal -> ticks on the producer thread, the matcher only sees ticks
+        final long priceTicks = registry.get(instrumentId).toTicks(price);
+        final int orderId = orderIdSequence.getAndIncrement();
+        shardOf(instrumentId).ring.publish(CommandRing.NEW_LIMIT_ORDER, instrumentId, orderId, quantity, priceTicks, side);
+        return orderId;
+    }
+
+    // IOC, FOK, POST_ONLY, GTD (expireTime in ms) or DAY; see LimitOrderHandler
+    public int submitLimitOrder(int instrumentId, int quantity, double price, Side side, OrderType orderType, long expireTime) {
+        if (orderType == null || orderType == OrderType.MARKET) {
+            throw new IllegalArgumentException("Not a limit order type: " + orderType);
+        }
+        final long priceTicks = registry.get(instrumentId).toTicks(price);
+        final int orderId = orderIdSequence.getAndIncrement();
+        shardOf(instrumentId).ring.publish(CommandRing.NEW_LIMIT_ORDER, instrumentId, orderId, quantity, priceTicks, side,
+                orderType, expireTime);
+        return orderId;
+    }
+
+    // immediate-or-cancel within the instrument's slippage bound
+    public int submitMarketOrder(int instrumentId, int quantity, Side side) {
+        final int orderId = orderIdSequence.getAndIncrement();
+        shardOf(instrumentId).ring.publish(CommandRing.NEW_MARKET_ORDER, instrumentId, orderId, quantity, EngineConstants.NULL_PRICE, side);
+        return orderId;
+    }
+
+    // maxSlippage is a price distance from the best price at arrival, converted here like limit prices
+    public int submitMarketOrder(int instrumentId, int quantity, double maxSlippage, Side side) {
+        if (!(maxSlippage >= 0)) {
+            throw new IllegalArgumentException("Market slippage must not be negative: " + maxSlippage);
+        }
+        final long slippageTicks = registry.get(instrumentId).toTicks(maxSlippage);
+        final int orderId = orderIdSequence.getAndIncrement();
+        shardOf(instrumentId).ring.publish(CommandRing.NEW_MARKET_ORDER, instrumentId, orderId, quantity, slippageTicks, side);
+        return orderId;
+    }
+
+    public void submitCancel(int instrumentId, Side side, int orderId) {
+        shardOf(instrumentId).ring.publish(CommandRing.CANCEL_ORDER, instrumentId, orderId, 0, 0, side);
+    }
+
+    // new open quantity and price of a resting order, in place and keeping priority when only the quantity goes down
+    public void submitAmend(int instrumentId, Side side, int orderId, int quantity, double price) {
+        final long priceTicks = registry.get(instrumentId).toTicks(price);
+        shardOf(instrumentId).ring.publish(CommandRing.AMEND_ORDER, instrumentId, orderId, quantity, priceTicks, side);
+    }
+
+    public Shard shardOf(int instrumentId) {
+        if (instrumentId < 0 || instrumentId >= shardOfInstrument.length) {
+            throw new IllegalArgumentException("Unknown instrument: " + instrumentId);
+        }
+        return shards[shardOfInstrument[instrumentId]];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public long getProcessedCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.getProcessedCount();
+        }
+        return count;
+    }
+
+    public long getPublishedCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.getPublishedCount();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,281 @@
+package core.snapshot;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.order.OrderBook;
+import core.price.OrderSlab;
+import core.price.PriceLevel;
+import trader.bean.LimitOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Copy of every resting order of every book, plus the journal position and order id counter it
+ * corresponds to. {@link #capture} only copies primitives out of the books, so it is cheap enough
+ * for the matcher thread. Encoding and file I/O ({@link #write}) can then run on any thread.
+ * {@link #restore} replays the levels in FIFO order into empty books, which rebuilds the queues
+ * and the order index exactly, icebergs with their displayed slice, reserve and display size.
+ *
+ * <p>File layout, native byte order: header {magic, version, journalSequence, nextOrderId, bookCount},
+ * then per book {instrumentId, side, levelCount} and per level {price, orderCount, (orderId, quantity)*}. An iceberg's quantity is its displayed slice
+ * negated and followed by {reserve, displayQuantity}, so plain orders stay at 8 bytes.
+ */
+public class BookSnapshot {
+    static final int MAGIC = 0x534E4150; // "SNAP"
+    static final int VERSION = 2;
+    private static final int IO_CHUNK = 1 << 20;
+    private static final Side[] SIDES = Side.values();
+
+    long journalSequence; // first journal command not reflected in the snapshot
+    int nextOrderId;
+
+    int bookCount;
+    int[] bookInstrumentIds = new int[16];
+    byte[] bookSides = new byte[16];
+    int[] bookLevelCounts = new int[16];
+
+    int levelCount;
+    long[] levelPrices = new long[64];
+    int[] levelOrderCounts = new int[64];
+
+    int orderCount;
+    int[] orderIds = new int[1024];
+    int[] quantities = new int[1024]; // displayed
+    int[] reserves = new int[1024];
+    int[] displayQuantities = new int[1024];
+
+    // matcher thread: copies the books, nothing else is touched
+    public static BookSnapshot capture(InstrumentRegistry registry, long journalSequence, int nextOrderId) {
+        final BookSnapshot snapshot = new BookSnapshot();
+        snapshot.journalSequence = journalSequence;
+        snapshot.nextOrderId = nextOrderId;
+        for (int instrumentId = 0; instrumentId < registry.capacity(); instrumentId++) {
+            if (!registry.isRegistered(instrumentId)) {
+                continue;
+            }
+            for (Side side : SIDES) {
+                snapshot.copyBook(instrumentId, side, registry.get(instrumentId).orderBook(side));
+            }
+        }
+        return snapshot;
+    }
+
+    private void copyBook(int instrumentId, Side side, OrderBook orderBook) {
+        if (bookCount == bookInstrumentIds.length) {
+            bookInstrumentIds = Arrays.copyOf(bookInstrumentIds, bookCount << 1);
+            bookSides = Arrays.copyOf(bookSides, bookCount << 1);
+            bookLevelCounts = Arrays.copyOf(bookLevelCounts, bookCount << 1);
+        }
+        final int book = bookCount++;
+        bookInstrumentIds[book] = instrumentId;
+        bookSides[book] = (byte) side.ordinal();
+
+        final PriceLevel[] priceLevels = orderBook.getPriceLevels();
+        int levels = 0;
+        for (int i = 0; i < orderBook.getAllocatedPriceLevels(); i++) {
+            final PriceLevel level = priceLevels[i];
+            if (level.isEmpty()) {
+                continue; // pooled slot
+            }
+            copyLevel(level);
+            levels++;
+        }
+        bookLevelCounts[book] = levels;
+    }
+
+    private void copyLevel(PriceLevel level) {
+        if (levelCount == levelPrices.length) {
+            levelPrices = Arrays.copyOf(levelPrices, levelCount << 1);
+            levelOrderCounts = Arrays.copyOf(levelOrderCounts, levelCount << 1);
+        }
+        levelPrices[levelCount] = level.getPrice();
+        levelOrderCounts[levelCount] = level.getOpenOrderCount();
+        levelCount++;
+
+        final int needed = orderCount + level.getOpenOrderCount();
+        if (needed > orderIds.length) {
+            final int capacity = Math.max(needed, orderIds.length << 1);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            reserves = Arrays.copyOf(reserves, capacity);
+            displayQuantities = Arrays.copyOf(displayQuantities, capacity);
+        }
+        final OrderSlab slab = level.getSlab();
+        for (int node = level.getHeadNode(); node != OrderSlab.NULL_NODE; node = slab.getNext(node)) {
+            orderIds[orderCount] = slab.getOrderId(node);
+            quantities[orderCount] = slab.getQuantity(node);
+            reserves[orderCount] = slab.getReserve(node);
+            displayQuantities[orderCount] = slab.getDisplayQuantity(node);
+            orderCount++;
+        }
+    }
+
+    // into a temp file first, then moved over the target so a crash never leaves half a snapshot
+    public long write(Path file) {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_CHUNK).order(ByteOrder.nativeOrder());
+        final long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(journalSequence).putInt(nextOrderId).putInt(bookCount);
+            int level = 0;
+            int order = 0;
+            for (int book = 0; book < bookCount; book++) {
+                ensureRemaining(channel, buffer, 12);
+                buffer.putInt(bookInstrumentIds[book]).putInt(bookSides[book]).putInt(bookLevelCounts[book]);
+                for (int l = 0; l < bookLevelCounts[book]; l++, level++) {
+                    ensureRemaining(channel, buffer, 12);
+                    buffer.putLong(levelPrices[level]).putInt(levelOrderCounts[level]);
+                    for (int o = 0; o < levelOrderCounts[level]; o++, order++) {
+                        ensureRemaining(channel, buffer, 16);
+                        if (reserves[order] == 0 && displayQuantities[order] == 0) {
+                            buffer.putInt(orderIds[order]).putInt(quantities[order]);
+                        } else {
+                            buffer.putInt(orderIds[order]).putInt(-quantities[order]).putInt(reserves[order])
+                                    .putInt(displayQuantities[order]);
+                        }
+                    }
+                }
+            }
+            drain(channel, buffer);
+            channel.force(true);
+            size = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // closed before the move
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return size;
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static BookSnapshot read(Path file) {
+        final BookSnapshot snapshot = new BookSnapshot();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.nativeOrder());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a book snapshot: " + file);
+            }
+            snapshot.journalSequence = buffer.getLong();
+            snapshot.nextOrderId = buffer.getInt();
+            final int books = buffer.getInt();
+            for (int book = 0; book < books; book++) {
+                final int instrumentId = buffer.getInt();
+                final int side = buffer.getInt();
+                final int levels = buffer.getInt();
+                snapshot.readBook(buffer, instrumentId, side, levels);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return snapshot;
+    }
+
+    private void readBook(ByteBuffer buffer, int instrumentId, int side, int levels) {
+        if (bookCount == bookInstrumentIds.length) {
+            bookInstrumentIds = Arrays.copyOf(bookInstrumentIds, bookCount << 1);
+            bookSides = Arrays.copyOf(bookSides, bookCount << 1);
+            bookLevelCounts = Arrays.copyOf(bookLevelCounts, bookCount << 1);
+        }
+        bookInstrumentIds[bookCount] = instrumentId;
+        bookSides[bookCount] = (byte) side;
+        bookLevelCounts[bookCount] = levels;
+        bookCount++;
+        for (int l = 0; l < levels; l++) {
+            if (levelCount == levelPrices.length) {
+                levelPrices = Arrays.copyOf(levelPrices, levelCount << 1);
+                levelOrderCounts = Arrays.copyOf(levelOrderCounts, levelCount << 1);
+            }
+            levelPrices[levelCount] = buffer.getLong();
+            final int orders = buffer.getInt();
+            levelOrderCounts[levelCount++] = orders;
+            if (orderCount + orders > orderIds.length) {
+                final int capacity = Math.max(orderCount + orders, orderIds.length << 1);
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                reserves = Arrays.copyOf(reserves, capacity);
+                displayQuantities = Arrays.copyOf(displayQuantities, capacity);
+            }
+            for (int o = 0; o < orders; o++) {
+                orderIds[orderCount] = buffer.getInt();
+                final int quantity = buffer.getInt();
+                if (quantity < 0) {
+                    quantities[orderCount] = -quantity;
+                    reserves[orderCount] = buffer.getInt();
+                    displayQuantities[orderCount] = buffer.getInt();
+                } else {
+                    quantities[orderCount] = quantity;
+                    reserves[orderCount] = 0;
+                    displayQuantities[orderCount] = 0;
+                }
+                orderCount++;
+            }
+        }
+    }
+
+    // books of the registry must be empty, e.g. right after registering the instruments at startup
+    public void restore(InstrumentRegistry registry) {
+        for (int book = 0; book < bookCount; book++) {
+            final OrderBook orderBook = registry.get(bookInstrumentIds[book]).orderBook(SIDES[bookSides[book]]);
+            if (!orderBook.isEmpty()) {
+                throw new IllegalStateException("Cannot restore into a non-empty book of instrument " + bookInstrumentIds[book]);
+            }
+        }
+        final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+        int level = 0;
+        int index = 0;
+        for (int book = 0; book < bookCount; book++) {
+            final Side side = SIDES[bookSides[book]];
+            final OrderBook orderBook = registry.get(bookInstrumentIds[book]).orderBook(side);
+            for (int l = 0; l < bookLevelCounts[book]; l++, level++) {
+                for (int o = 0; o < levelOrderCounts[level]; o++, index++) {
+                    order.reset(orderIds[index], quantities[index] + reserves[index], levelPrices[level], side);
+                    order.setDisplayQuantity(displayQuantities[index]);
+                    orderBook.onNewOrder(order, quantities[index]);
+                }
+            }
+        }
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public int getNextOrderId() {
+        return nextOrderId;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
@@ -0,0 +1,80 @@
+package core.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// writes captured snapshots on a background thread, one at a time, as snapshot-<journalSequence>.snap
+public class SnapshotWriter implements Closeable {
+    static final String PREFIX = "snapshot-";
+    static final String SUFFIX = ".snap";
+
+    final Path directory;
+    final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SnapshotWriter(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.directory = directory;
+    }
+
+    // snapshot with the highest journal sequence in the directory, null when there is none
+    public static Path findLatest(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        long latestSequence = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                final long sequence;
+                try {
+                    sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (sequence > latestSequence) {
+                    latestSequence = sequence;
+                    latest = file;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return latest;
+    }
+
+    // completes with the written file
+    public CompletableFuture<Path> submit(BookSnapshot snapshot) {
+        final Path file = directory.resolve(PREFIX + snapshot.getJournalSequence() + SUFFIX);
+        return CompletableFuture.supplyAsync(() -> {
+            snapshot.write(file);
+            return file;
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package trader;
+
+import core.EngineConstants;
+import core.bean.TradeBuffer;
+import core.common.Clock;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.marketdata.DepthFeed;
+import core.metrics.LatencyRecorder;
+import core.shard.CommandRing;
+
+/**
+ * Applies an {@link OrderBatch} in one pass on the calling thread. Per-batch costs are paid once:
+ * the clock is read once, the fills of the whole batch reach the trade persistence in one call,
+ * and depth updates are published once at the end. A bad command is marked rejected and the rest
+ * of the batch still runs.
+ */
+public class BatchMatcher implements EngineConstants {
+    final InstrumentRegistry registry;
+    final TradePersistence tradePersistence;
+    final Clock clock;
+    final ManualClock batchClock = new ManualClock(); // every fill of a batch has the same trade time
+    final LimitOrderHandler limitOrderHandler;
+    final MarketOrderHandler marketOrderHandler;
+    DepthFeed depthFeed; // null unless depth is published
+
+    public BatchMatcher(InstrumentRegistry registry, TradePersistence tradePersistence) {
+        this(registry, tradePersistence, Clock.SYSTEM);
+    }
+
+    public BatchMatcher(InstrumentRegistry registry, TradePersistence tradePersistence, Clock clock) {
+        this.registry = registry;
+        this.tradePersistence = tradePersistence;
+        this.clock = clock;
+        // the handlers only match, persistence and publication are done here per batch
+        this.limitOrderHandler = new LimitOrderHandler(registry, DiscardingTradePersistence.INSTANCE, batchClock);
+        this.marketOrderHandler = new MarketOrderHandler(registry, DiscardingTradePersistence.INSTANCE, batchClock);
+    }
+
+    // fills are appended to trades, returns the number of fills
+    public int matchBatch(OrderBatch batch, TradeBuffer trades) {
+        return matchBatch(batch, trades, clock.currentTimeMillis());
+    }
+
+    // tradeTime given by the caller, e.g. the timestamp a journal recorded with the batch
+    public int matchBatch(OrderBatch batch, TradeBuffer trades, long tradeTime) {
+        batch.useClientOrderIds();
+        return matchAssigned(batch, trades, tradeTime);
+    }
+
+    // the engine order ids are already in the batch, see OrderBatch.assignOrderIds
+    int matchAssigned(OrderBatch batch, TradeBuffer trades, long tradeTime) {
+        batchClock.set(tradeTime);
+        final int from = trades.size();
+        batch.fillStart = from;
+        batch.rejectedCount = 0;
+        try {
+            for (int i = 0; i < batch.size; i++) {
+                batch.rejected[i] = false;
+                try {
+                    apply(batch, i, trades);
+                } catch (RuntimeException e) {
+                    batch.rejected[i] = true;
+                    batch.rejectedCount++;
+                }
+                batch.fillEnds[i] = trades.size();
+            }
+            if (trades.size() > from) {
+                tradePersistence.addTrades(batch, trades);
+            }
+        } finally {
+            if (depthFeed != null) {
+                depthFeed.publish();
+            }
+        }
+        return trades.size() - from;
+    }
+
+    private void apply(OrderBatch batch, int i, TradeBuffer trades) {
+        final int instrumentId = batch.instrumentIds[i];
+        switch (batch.types[i]) {
+            case CommandRing.NEW_LIMIT_ORDER:
+                limitOrderHandler.matchOrder(instrumentId, batch.orderIds[i], batch.quantities[i], batch.prices[i], batch.getSide(i), trades);
+                break;
+            case CommandRing.NEW_MARKET_ORDER:
+                if (batch.prices[i] == NULL_PRICE) {
+                    marketOrderHandler.matchOrder(instrumentId, batch.orderIds[i], batch.quantities[i], batch.getSide(i), trades);
+                } else {
+                    marketOrderHandler.matchOrder(instrumentId, batch.orderIds[i], batch.quantities[i], batch.prices[i], batch.getSide(i), trades);
+                }
+                break;
+            case CommandRing.CANCEL_ORDER:
+                limitOrderHandler.cancelOrder(instrumentId, batch.getSide(i), batch.orderIds[i]);
+                break;
+            case CommandRing.AMEND_ORDER:
+                limitOrderHandler.amendOrder(instrumentId, batch.getSide(i), batch.orderIds[i], batch.quantities[i], batch.prices[i], trades);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported command type: " + batch.types[i]);
+        }
+    }
+
+    // depth updates of a whole batch are published together, instruments are attached to the feed separately; null to stop
+    public void setDepthFeed(DepthFeed depthFeed) {
+        this.depthFeed = depthFeed;
+    }
+
+    public void setLatencyRecorder(LatencyRecorder latencyRecorder) {
+        limitOrderHandler.setLatencyRecorder(latencyRecorder);
+        marketOrderHandler.setLatencyRecorder(latencyRecorder);
+    }
+
+    public TradePersistence getTradePersistence() {
+        return tradePersistence;
+    }
+
+    public InstrumentRegistry getRegistry() {
+        return registry;
+    }
+}
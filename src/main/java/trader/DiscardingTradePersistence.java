@@ -0,0 +1,45 @@
+package trader;
+
+import core.bean.Trade;
+import core.bean.TradeBuffer;
+
+import java.util.Collections;
+import java.util.List;
+
+// drops every fill, used while replaying a journal whose trades were already recorded
+public class DiscardingTradePersistence implements TradePersistence {
+    public static final DiscardingTradePersistence INSTANCE = new DiscardingTradePersistence();
+
+    @Override
+    public void addTrades(List<Trade> trades) {
+    }
+
+    @Override
+    public void addTrades(int instrumentId, TradeBuffer buffer, int from, int to) {
+    }
+
+    @Override
+    public List<Trade> getTrades() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public int getTradeSumQuantityByActiveOrderId(int orderId) {
+        return 0;
+    }
+
+    @Override
+    public int getTradeSumQuantityByPassiveOrderId(int orderId) {
+        return 0;
+    }
+
+    @Override
+    public double getVwapByOrderId(int orderId) {
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,76 @@
+package trader;
+
+import core.bean.Trade;
+import core.bean.TradeBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// append-only and process local, kept column-wise in a TradeStore so recording fills does not create objects
+public class InMemoryTradePersistence implements TradePersistence {
+    final TradeStore trades;
+
+    public InMemoryTradePersistence() {
+        this.trades = new TradeStore();
+    }
+
+    public InMemoryTradePersistence(int expectedTrades) {
+        this.trades = new TradeStore(expectedTrades);
+    }
+
+    // instrument is not known on this path, -1 is recorded
+    @Override
+    public void addTrades(List<Trade> trade) {
+        for (Trade t : trade) {
+            trades.append(-1, t.getActiveOrderId(), t.getPassiveOrderId(), t.getPrice(), t.getQuantity(), t.getTradeTime(), false);
+        }
+    }
+
+    @Override
+    public void addTrades(int instrumentId, TradeBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            trades.append(instrumentId, buffer.getActiveOrderId(i), buffer.getPassiveOrderId(i), buffer.getPrice(i),
+                    buffer.getQuantity(i), buffer.getTradeTime(i), buffer.isPassiveCompleted(i));
+        }
+    }
+
+    @Override
+    public List<Trade> getTrades() {
+        final List<Trade> list = new ArrayList<>(trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            list.add(new Trade(trades.getActiveOrderId(i), trades.getPassiveOrderId(i), trades.getPrice(i),
+                    trades.getQuantity(i), trades.getTradeTime(i)));
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return trades.size();
+    }
+
+    @Override
+    public int getTradeSumQuantityByActiveOrderId(int orderId) {
+        return (int) trades.getActiveQuantity(orderId);
+    }
+
+    @Override
+    public int getTradeSumQuantityByPassiveOrderId(int orderId) {
+        return (int) trades.getPassiveQuantity(orderId);
+    }
+
+    @Override
+    public double getVwapByOrderId(int orderId) {
+        return trades.getOrderVwap(orderId);
+    }
+
+    // time-range scans and aggregates over the recorded fills
+    public TradeStore getStore() {
+        return trades;
+    }
+
+    // drops every recorded fill; the mapped journal is append-only and has no counterpart
+    public void clear() {
+        trades.clear();
+    }
+}
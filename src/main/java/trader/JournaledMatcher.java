@@ -0,0 +1,233 @@
+package trader;
+
+import core.EngineConstants;
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.common.Clock;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.journal.CommandJournal;
+import core.journal.ReplayStats;
+import core.shard.CommandRing;
+import core.snapshot.BookSnapshot;
+import core.snapshot.SnapshotWriter;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Single-threaded front of the handlers that sequences every inbound command into a
+ * {@link CommandJournal} before applying it. The handlers only see the timestamp recorded with the
+ * command, never the wall clock, so {@link #recover()} rebuilds the books and trade timestamps
+ * exactly by replaying the journal. Replay has no side effects: its fills are discarded and its
+ * rejects are counted instead of thrown. With snapshots, startup is {@link #restore} of the latest
+ * snapshot followed by {@link #recover()} of the commands journaled after it.
+ */
+public class JournaledMatcher implements EngineConstants {
+    final InstrumentRegistry registry;
+    final CommandJournal journal;
+    final Clock clock; // stamps commands when they are journaled
+    final ManualClock applyClock = new ManualClock();
+    final LimitOrderHandler limitOrderHandler;
+    final MarketOrderHandler marketOrderHandler;
+    final BatchMatcher batchMatcher;
+    final LimitOrderHandler replayLimitOrderHandler;
+    final MarketOrderHandler replayMarketOrderHandler;
+    final TradeBuffer replayTrades = new TradeBuffer();
+
+    int nextOrderId = 100000000;
+    long appliedSequence = 0; // next journal sequence to apply
+
+    public JournaledMatcher(InstrumentRegistry registry, CommandJournal journal, TradePersistence tradePersistence) {
+        this(registry, journal, tradePersistence, Clock.SYSTEM);
+    }
+
+    public JournaledMatcher(InstrumentRegistry registry, CommandJournal journal, TradePersistence tradePersistence, Clock clock) {
+        if (journal == null) {
+            throw new IllegalArgumentException("Command journal is required");
+        }
+        this.registry = registry;
+        this.journal = journal;
+        this.clock = clock;
+        this.limitOrderHandler = new LimitOrderHandler(registry, tradePersistence, applyClock);
+        this.marketOrderHandler = new MarketOrderHandler(registry, tradePersistence, applyClock);
+        this.batchMatcher = new BatchMatcher(registry, tradePersistence, applyClock);
+        this.replayLimitOrderHandler = new LimitOrderHandler(registry, DiscardingTradePersistence.INSTANCE, applyClock);
+        this.replayMarketOrderHandler = new MarketOrderHandler(registry, DiscardingTradePersistence.INSTANCE, applyClock);
+    }
+
+    // replays whatever the journal holds past the last applied command, call once before taking new commands
+    public ReplayStats recover() {
+        final long start = System.nanoTime();
+        final long from = appliedSequence;
+        final long[] rejected = new long[1];
+        appliedSequence = journal.replay(from, (sequence, timestamp, type, instrumentId, orderId, quantity, price, side,
+                                                orderType, expireTime, displayQuantity) -> {
+            replayTrades.clear();
+            try {
+                apply(replayLimitOrderHandler, replayMarketOrderHandler, timestamp, type, instrumentId, orderId, quantity, price,
+                        side, orderType, expireTime, displayQuantity, replayTrades);
+            } catch (RuntimeException e) {
+                rejected[0]++; // rejected live as well, the book was not changed then either
+            }
+            if (type != CommandRing.CANCEL_ORDER && type != CommandRing.AMEND_ORDER && orderId >= nextOrderId) {
+                nextOrderId = orderId + 1;
+            }
+        });
+        return new ReplayStats(appliedSequence - from, rejected[0], System.nanoTime() - start);
+    }
+
+    // copies the books on this thread, the writer encodes and writes them in the background
+    public CompletableFuture<Path> snapshot(SnapshotWriter writer) {
+        return writer.submit(BookSnapshot.capture(registry, appliedSequence, nextOrderId));
+    }
+
+    // loads a snapshot into the still empty books, recover() then replays only the journal tail after it
+    public BookSnapshot restore(Path snapshotFile) {
+        if (appliedSequence != 0) {
+            throw new IllegalStateException("Restore must happen before any command is applied");
+        }
+        final BookSnapshot snapshot = BookSnapshot.read(snapshotFile);
+        snapshot.restore(registry);
+        appliedSequence = snapshot.getJournalSequence();
+        nextOrderId = snapshot.getNextOrderId();
+        return snapshot;
+    }
+
+    // returns the order id, fills are appended to trades
+    public int submitLimitOrder(int instrumentId, int quantity, long price, Side side, TradeBuffer trades) {
+        return submitLimitOrder(instrumentId, quantity, price, side, OrderType.LIMIT, 0, trades);
+    }
+
+    // time in force and execution instruction as in LimitOrderHandler, journaled with the order so replay matches it the same way
+    public int submitLimitOrder(int instrumentId, int quantity, long price, Side side, OrderType orderType, long expireTime,
+                                TradeBuffer trades) {
+        final int orderId = nextOrderId++;
+        journalAndApply(CommandRing.NEW_LIMIT_ORDER, instrumentId, orderId, quantity, price, side, orderType, expireTime, 0, trades);
+        return orderId;
+    }
+
+    public int submitIcebergOrder(int instrumentId, int quantity, int displayQuantity, long price, Side side, TradeBuffer trades) {
+        return submitIcebergOrder(instrumentId, quantity, displayQuantity, price, side, OrderType.LIMIT, 0, trades);
+    }
+
+    public int submitIcebergOrder(int instrumentId, int quantity, int displayQuantity, long price, Side side, OrderType orderType,
+                                  long expireTime, TradeBuffer trades) {
+        // a display quantity of 0 is how the journal tells a plain order, so it is refused before it is journaled
+        if (displayQuantity <= 0) {
+            throw new IllegalArgumentException("Display quantity must be positive: " + displayQuantity);
+        }
+        final int orderId = nextOrderId++;
+        journalAndApply(CommandRing.NEW_LIMIT_ORDER, instrumentId, orderId, quantity, price, side, orderType, expireTime,
+                displayQuantity, trades);
+        return orderId;
+    }
+
+    public int submitMarketOrder(int instrumentId, int quantity, Side side, TradeBuffer trades) {
+        return submitMarketOrder(instrumentId, quantity, NULL_PRICE, side, trades);
+    }
+
+    // slippageTicks NULL_PRICE for the instrument's bound
+    public int submitMarketOrder(int instrumentId, int quantity, long slippageTicks, Side side, TradeBuffer trades) {
+        final int orderId = nextOrderId++;
+        journalAndApply(CommandRing.NEW_MARKET_ORDER, instrumentId, orderId, quantity, slippageTicks, side, OrderType.MARKET, 0, 0, trades);
+        return orderId;
+    }
+
+    public void submitCancel(int instrumentId, Side side, int orderId) {
+        journalAndApply(CommandRing.CANCEL_ORDER, instrumentId, orderId, 0, 0, side, OrderType.LIMIT, 0, 0, null);
+    }
+
+    // the order keeps its id; fills of a price move are appended to trades
+    public void submitAmend(int instrumentId, Side side, int orderId, int quantity, long price, TradeBuffer trades) {
+        journalAndApply(CommandRing.AMEND_ORDER, instrumentId, orderId, quantity, price, side, OrderType.LIMIT, 0, 0, trades);
+    }
+
+    /**
+     * Journals the whole batch under one timestamp in one append, then applies it in one pass. New
+     * orders get engine order ids, returned in {@link OrderBatch#getOrderId(int)}; the caller's ids
+     * stay in {@link OrderBatch#getClientOrderId(int)}. A batch naming an unknown instrument is
+     * refused before anything is journaled. Replay applies the journaled commands one by one, with
+     * the same result.
+     */
+    public int submitBatch(OrderBatch batch, TradeBuffer trades) {
+        for (int i = 0; i < batch.size(); i++) {
+            registry.get(batch.getInstrumentId(i));
+        }
+        final long timestamp = clock.currentTimeMillis();
+        nextOrderId = batch.assignOrderIds(nextOrderId);
+        appliedSequence = journal.append(timestamp, batch) + batch.size();
+        return batchMatcher.matchAssigned(batch, trades, timestamp);
+    }
+
+    private void journalAndApply(byte type, int instrumentId, int orderId, int quantity, long price, Side side,
+                                 OrderType orderType, long expireTime, int displayQuantity, TradeBuffer trades) {
+        if (side == null) {
+            throw new IllegalArgumentException("Unsupported order side");
+        }
+        if (orderType == null) {
+            throw new IllegalArgumentException("Not a limit order type: null");
+        }
+        registry.get(instrumentId); // unknown instruments are refused before they reach the journal
+        final long timestamp = clock.currentTimeMillis();
+        appliedSequence = journal.append(timestamp, type, instrumentId, orderId, quantity, price, side, orderType, expireTime,
+                displayQuantity) + 1;
+        apply(limitOrderHandler, marketOrderHandler, timestamp, type, instrumentId, orderId, quantity, price, side, orderType,
+                expireTime, displayQuantity, trades);
+    }
+
+    private void apply(LimitOrderHandler limitHandler, MarketOrderHandler marketHandler, long timestamp, byte type,
+                       int instrumentId, int orderId, int quantity, long price, Side side, OrderType orderType,
+                       long expireTime, int displayQuantity, TradeBuffer trades) {
+        applyClock.set(timestamp);
+        switch (type) {
+            case CommandRing.NEW_LIMIT_ORDER:
+                if (displayQuantity > 0) {
+                    limitHandler.matchIcebergOrder(instrumentId, orderId, quantity, displayQuantity, price, side, orderType,
+                            expireTime, trades);
+                } else {
+                    limitHandler.matchOrder(instrumentId, orderId, quantity, price, side, orderType, expireTime, trades);
+                }
+                break;
+            case CommandRing.NEW_MARKET_ORDER:
+                if (price == NULL_PRICE) {
+                    marketHandler.matchOrder(instrumentId, orderId, quantity, side, trades);
+                } else {
+                    marketHandler.matchOrder(instrumentId, orderId, quantity, price, side, trades);
+                }
+                break;
+            case CommandRing.CANCEL_ORDER:
+                limitHandler.cancelOrder(instrumentId, side, orderId);
+                break;
+            case CommandRing.AMEND_ORDER:
+                limitHandler.amendOrder(instrumentId, side, orderId, quantity, price, trades);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported command type: " + type);
+        }
+    }
+
+    // DAY orders expire at this time of the UTC day, live and on replay alike; set it before recover()
+    public void setTradingDayEnd(long millisOfDay) {
+        limitOrderHandler.setTradingDayEnd(millisOfDay);
+        replayLimitOrderHandler.setTradingDayEnd(millisOfDay);
+        batchMatcher.limitOrderHandler.setTradingDayEnd(millisOfDay);
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public int getNextOrderId() {
+        return nextOrderId;
+    }
+
+    public InstrumentRegistry getRegistry() {
+        return registry;
+    }
+
+    public CommandJournal getJournal() {
+        return journal;
+    }
+}
@@ -1,33 +1,317 @@
 package trader;
 
 import core.Engine;
+import core.bean.OrderType;
 import core.bean.Side;
 import core.bean.Trade;
+import core.bean.TradeBuffer;
+import core.common.Clock;
+import core.instrument.Instrument;
+import core.instrument.InstrumentRegistry;
+import core.marketdata.DepthFeed;
+import core.metrics.LatencyRecorder;
+import core.metrics.Operation;
+import core.order.OrderBook;
 import trader.bean.LimitOrder;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class LimitOrderHandler extends Engine {
 
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
     int orderId = 100000000;
 
-    TradePersistence marketTradePersistence = new TradePersistence();
+    final TradePersistence marketTradePersistence;
+
+    // single matcher thread per handler, so one order and one buffer are enough to serve every call
+    final LimitOrder order = new LimitOrder(0, 0, 0, Side.BUY);
+    final TradeBuffer tradeBuffer = new TradeBuffer();
+
+    LatencyRecorder latencyRecorder; // null unless latency is recorded
+    DepthFeed depthFeed; // null unless depth is published, its updates are published once per command
+    int lastCancelledQuantity = 0;
+
+    // GTD and DAY orders wait in their instrument, see Instrument.expireOrders; these are the instruments
+    // this handler has scheduled expiries in, the ones expireOrders() sweeps
+    final boolean[] timedInstrument;
+    final int[] timedInstrumentIds;
+    int timedInstrumentCount = 0;
+    long tradingDayEnd = 0; // ms into the UTC day at which DAY orders expire
+
+    public LimitOrderHandler(InstrumentRegistry registry) {
+        this(registry, new InMemoryTradePersistence());
+    }
+
+    public LimitOrderHandler(InstrumentRegistry registry, TradePersistence tradePersistence) {
+        this(registry, tradePersistence, Clock.SYSTEM);
+    }
+
+    public LimitOrderHandler(InstrumentRegistry registry, TradePersistence tradePersistence, Clock clock) {
+        super(registry, clock);
+        this.marketTradePersistence = tradePersistence;
+        this.timedInstrument = new boolean[registry.capacity()];
+        this.timedInstrumentIds = new int[registry.capacity()];
+    }
+
+    public List<Trade> matchOrder(int instrumentId, int quantity, double price, Side side) {
+        return matchOrder(instrumentId, orderId++, quantity, registry.get(instrumentId).toTicks(price), side);
+    }
+
+    // price already in ticks, order id assigned by the caller, e.g. a sharded engine sequencing ids for all its shards
+    public List<Trade> matchOrder(int instrumentId, int orderId, int quantity, long price, Side side) {
+        tradeBuffer.clear();
+        matchOrder(instrumentId, orderId, quantity, price, side, tradeBuffer);
+        return tradeBuffer.toTrades(0);
+    }
+
+    // allocation free entry point: fills are appended to the caller's buffer, returns the number of fills
+    public int matchOrder(int instrumentId, int orderId, int quantity, long price, Side side, TradeBuffer trades) {
+        return matchOrder(instrumentId, orderId, quantity, price, side, OrderType.LIMIT, 0, trades);
+    }
+
+    /**
+     * Limit order with a time in force or execution instruction: LIMIT, IOC, FOK, POST_ONLY, GTD
+     * or DAY. expireTime (ms) is only read for GTD. IOC never rests, FOK first checks the
+     * opposite depth without touching it and trades only when it fills in full, POST_ONLY only
+     * rests and is refused when it would cross, GTD and DAY rest until their instrument expires
+     * them. What neither traded nor rested is {@link #getLastCancelledQuantity()}.
+     */
+    public int matchOrder(int instrumentId, int orderId, int quantity, long price, Side side, OrderType type,
+                          long expireTime, TradeBuffer trades) {
+        try {
+            final long now = clock.currentTimeMillis();
+            registry.get(instrumentId).expireOrders(now);
+            return match(instrumentId, orderId, quantity, 0, price, side, type, expireTime, now, trades);
+        } finally {
+            if (depthFeed != null) {
+                depthFeed.publish();
+            }
+        }
+    }
 
-    public List<Trade> matchOrder(int quantity, double price, Side side) {
-        List<Trade> trades = new ArrayList<>();
-        LimitOrder order = new LimitOrder(orderId++, quantity, price, side);
-        trades = Engine.OPPOSITE_ORDER_BOOK(side).matchOrder(order);
-        marketTradePersistence.addTrades(trades);
+    public int matchIcebergOrder(int instrumentId, int orderId, int quantity, int displayQuantity, long price, Side side,
+                                 TradeBuffer trades) {
+        return matchIcebergOrder(instrumentId, orderId, quantity, displayQuantity, price, side, OrderType.LIMIT, 0, trades);
+    }
+
+    /**
+     * Iceberg: trades its full quantity like any limit order, but what rests shows only
+     * {@code displayQuantity} at a time. Each slice taken is refilled from the reserve by the price
+     * level and queued again at the back, the order keeps its id until its total quantity is filled
+     * or cancelled. Takes the same types as {@link #matchOrder(int, int, int, long, Side, OrderType, long, TradeBuffer)}.
+     */
+    public int matchIcebergOrder(int instrumentId, int orderId, int quantity, int displayQuantity, long price, Side side,
+                                 OrderType type, long expireTime, TradeBuffer trades) {
+        if (displayQuantity <= 0) {
+            throw new IllegalArgumentException("Display quantity must be positive: " + displayQuantity);
+        }
+        try {
+            final long now = clock.currentTimeMillis();
+            registry.get(instrumentId).expireOrders(now);
+            return match(instrumentId, orderId, quantity, displayQuantity, price, side, type, expireTime, now, trades);
+        } finally {
+            if (depthFeed != null) {
+                depthFeed.publish();
+            }
+        }
+    }
+
+    // displayQuantity 0 rests the whole order displayed
+    private int match(int instrumentId, int orderId, int quantity, int displayQuantity, long price, Side side, OrderType type,
+                      long expireTime, long now, TradeBuffer trades) {
+        final Instrument instrument = registry.get(instrumentId);
+        final OrderBook oppositeOrderBook = instrument.oppositeOrderBook(side);
+        lastCancelledQuantity = 0;
+        long expiry = 0;
+        if (type == OrderType.GTD) {
+            expiry = expireTime;
+        } else if (type == OrderType.DAY) {
+            expiry = dayEnd(now);
+        } else if (type == OrderType.MARKET || type == null) {
+            throw new IllegalArgumentException("Not a limit order type: " + type);
+        }
+        // rejected before matching, a rejected order must not have traded
+        if (type != OrderType.IOC && type != OrderType.FOK && !instrument.orderBook(side).acceptsPrice(price)) {
+            throw new IllegalArgumentException("Price " + price + " cannot rest in the book of instrument " + instrumentId);
+        }
+        // refused before they touch the book
+        if ((type == OrderType.POST_ONLY && oppositeOrderBook.getCrossingQuantity(price, 1) > 0)
+                || (type == OrderType.FOK && oppositeOrderBook.getCrossingQuantity(price, quantity) < quantity)
+                || (expiry != 0 && expiry <= Math.max(now, instrument.getExpiryTime()))) {
+            lastCancelledQuantity = quantity;
+            return 0;
+        }
+
+        final boolean timed = latencyRecorder != null && latencyRecorder.isEnabled(instrumentId);
+        order.reset(orderId, quantity, price, side);
+        order.setDisplayQuantity(displayQuantity);
+        final int from = trades.size();
+        long start = timed ? System.nanoTime() : 0;
+        oppositeOrderBook.matchOrder(order, trades, now);
+        if (timed) {
+            latencyRecorder.record(instrumentId, Operation.MATCH, System.nanoTime() - start);
+        }
+        marketTradePersistence.addTrades(instrumentId, trades, from, trades.size());
 
         if (!order.isCompleted()){
-            Engine.ORDER_BOOK(side).onNewOrder(order);
+            if (type == OrderType.IOC || type == OrderType.FOK) {
+                lastCancelledQuantity = order.getPendingMatchQuantity();
+                return trades.size() - from;
+            }
+            start = timed ? System.nanoTime() : 0;
+            instrument.orderBook(side).onNewOrder(order);
+            if (timed) {
+                latencyRecorder.record(instrumentId, Operation.INSERT, System.nanoTime() - start);
+            }
+            if (expiry != 0 && instrument.scheduleExpiry(expiry, side, orderId) && !timedInstrument[instrumentId]) {
+                timedInstrument[instrumentId] = true;
+                timedInstrumentIds[timedInstrumentCount++] = instrumentId;
+            }
+        }
+        return trades.size() - from;
+    }
+
+    // next end of the trading day strictly after now
+    private long dayEnd(long now) {
+        return Math.floorDiv(now - tradingDayEnd, DAY_MILLIS) * DAY_MILLIS + tradingDayEnd + DAY_MILLIS;
+    }
+
+    // expires what is due by the clock between commands, e.g. while the matcher thread is idle; returns how many.
+    // Commands expire their own instrument before they match, this catches the instruments no command reaches
+    public int expireOrders() {
+        if (timedInstrumentCount == 0) {
+            return 0;
+        }
+        final long now = clock.currentTimeMillis();
+        int expired = 0;
+        for (int i = 0; i < timedInstrumentCount; i++) {
+            expired += registry.get(timedInstrumentIds[i]).expireOrders(now);
+        }
+        if (depthFeed != null) {
+            depthFeed.publish();
+        }
+        return expired;
+    }
+
+    public TradePersistence getTradePersistence() {
+        return marketTradePersistence;
+    }
+
+    public void cancelOrder(int instrumentId, Side side, int orderId) {
+        final Instrument instrument = registry.get(instrumentId);
+        if (instrument.getPendingExpiryCount() > 0) {
+            instrument.expireOrders(clock.currentTimeMillis());
+        }
+        final boolean timed = latencyRecorder != null && latencyRecorder.isEnabled(instrumentId);
+        final long start = timed ? System.nanoTime() : 0;
+        instrument.orderBook(side).onCancelOrder(orderId);
+        if (timed) {
+            latencyRecorder.record(instrumentId, Operation.CANCEL, System.nanoTime() - start);
+        }
+        if (depthFeed != null) {
+            depthFeed.publish();
+        }
+    }
+
+    /**
+     * Amends a resting order to {@code quantity} open at {@code price} (ticks) in one call, keeping
+     * its order id. Lowering the quantity at the same price edits it in place and keeps its queue
+     * position; a price change or a larger quantity moves it to the back of the queue at the new
+     * price, matching first if it now crosses. For an iceberg quantity is the total, reserve
+     * included, and it stays an iceberg. A rejected amend leaves the order untouched. Fills
+     * are appended to trades; returns their number, -1 when the order is not resting.
+     */
+    public int amendOrder(int instrumentId, Side side, int orderId, int quantity, long price, TradeBuffer trades) {
+        try {
+            final long now = clock.currentTimeMillis();
+            registry.get(instrumentId).expireOrders(now);
+            return amend(instrumentId, side, orderId, quantity, price, now, trades);
+        } finally {
+            if (depthFeed != null) {
+                depthFeed.publish();
+            }
+        }
+    }
+
+    private int amend(int instrumentId, Side side, int orderId, int quantity, long price, long now, TradeBuffer trades) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Amended quantity must be positive: " + quantity);
+        }
+        final OrderBook book = orderBook(instrumentId, side);
+        final int openQuantity = book.getOpenQuantity(orderId);
+        if (openQuantity == 0) {
+            return -1;
         }
-        return trades;
+        final boolean timed = latencyRecorder != null && latencyRecorder.isEnabled(instrumentId);
+        if (price == book.getOrderPrice(orderId)) {
+            if (quantity == openQuantity) {
+                return 0;
+            }
+            if (quantity < openQuantity) {
+                final long start = timed ? System.nanoTime() : 0;
+                book.reduceOrder(orderId, quantity);
+                if (timed) {
+                    latencyRecorder.record(instrumentId, Operation.AMEND, System.nanoTime() - start);
+                }
+                return 0;
+            }
+        } else if (!book.acceptsPrice(price)) {
+            throw new IllegalArgumentException("Price " + price + " cannot rest in the book of instrument " + instrumentId);
+        }
+        // loses priority: pulled from its level, then entered again like a new order under the same id, keeping its expiry and display
+        final int displayQuantity = book.getDisplayQuantity(orderId);
+        final long start = timed ? System.nanoTime() : 0;
+        book.onCancelOrder(orderId);
+        if (timed) {
+            latencyRecorder.record(instrumentId, Operation.CANCEL, System.nanoTime() - start);
+        }
+        return match(instrumentId, orderId, quantity, displayQuantity, price, side, OrderType.LIMIT, 0, now, trades);
+    }
+
+    // quantity of the last limit order that was cancelled instead of rested: IOC remainder, killed FOK, refused post-only or expired on arrival
+    public int getLastCancelledQuantity() {
+        return lastCancelledQuantity;
+    }
+
+    // DAY orders expire at this time of the UTC day, midnight by default
+    public void setTradingDayEnd(long millisOfDay) {
+        if (millisOfDay < 0 || millisOfDay >= DAY_MILLIS) {
+            throw new IllegalArgumentException("Trading day end must be within a day: " + millisOfDay);
+        }
+        this.tradingDayEnd = millisOfDay;
+    }
+
+    // GTD and DAY orders cancelled by expiry so far in the instruments this handler scheduled them in
+    public long getExpiredCount() {
+        long expired = 0;
+        for (int i = 0; i < timedInstrumentCount; i++) {
+            expired += registry.get(timedInstrumentIds[i]).getExpiredCount();
+        }
+        return expired;
+    }
+
+    // GTD and DAY orders waiting for their expiry, including ones already filled or cancelled
+    public int getPendingExpiryCount() {
+        int pending = 0;
+        for (int i = 0; i < timedInstrumentCount; i++) {
+            pending += registry.get(timedInstrumentIds[i]).getPendingExpiryCount();
+        }
+        return pending;
+    }
+
+    // publishes the depth updates of each command, instruments are attached to the feed separately; null to stop
+    public void setDepthFeed(DepthFeed depthFeed) {
+        this.depthFeed = depthFeed;
+    }
+
+    // latency of match, insert, cancel and amend for the recorder's enabled instruments, null to stop recording
+    public void setLatencyRecorder(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
     }
 
-    public void cancelOrder(Side side, int orderId) {
-        Engine.ORDER_BOOK(side).onCancelOrder(orderId);
+    public LatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
     }
 
 }
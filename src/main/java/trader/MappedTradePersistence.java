@@ -0,0 +1,135 @@
+package trader;
+
+import core.bean.Trade;
+import core.bean.TradeBuffer;
+import core.journal.FlushPolicy;
+import core.journal.MappedRecordLog;
+
+import java.io.Closeable;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// fills as fixed-width records in a memory-mapped, segmented trade journal that survives restarts;
+// per-order totals are kept in memory, rebuilt from the journal on open
+public class MappedTradePersistence implements TradePersistence, Closeable {
+    // record layout, public for tools that read the journal directly
+    public static final int INSTRUMENT_ID = 0;
+    public static final int ACTIVE_ORDER_ID = 4;
+    public static final int PASSIVE_ORDER_ID = 8;
+    public static final int QUANTITY = 12;
+    public static final int PRICE = 16;
+    public static final int TRADE_TIME = 24;
+    public static final int FLAGS = 32;
+    public static final int RECORD_BYTES = 36;
+    public static final int PASSIVE_COMPLETED = 1;
+
+    final MappedRecordLog log;
+    final OrderFillIndex fillIndex = new OrderFillIndex(1 << 12);
+
+    public MappedTradePersistence(Path directory, FlushPolicy flushPolicy) {
+        this(new MappedRecordLog(directory, "trades", RECORD_BYTES, flushPolicy));
+    }
+
+    public MappedTradePersistence(Path directory, long segmentBytes, FlushPolicy flushPolicy) {
+        this(new MappedRecordLog(directory, "trades", RECORD_BYTES, segmentBytes, flushPolicy));
+    }
+
+    MappedTradePersistence(MappedRecordLog log) {
+        if (log.getPayloadBytes() != RECORD_BYTES) {
+            throw new IllegalArgumentException("Not a trade journal, payload is " + log.getPayloadBytes() + " bytes");
+        }
+        this.log = log;
+        log.read(0, (sequence, buffer, offset) -> fillIndex.onFill(buffer.getInt(offset + ACTIVE_ORDER_ID),
+                buffer.getInt(offset + PASSIVE_ORDER_ID), buffer.getLong(offset + PRICE), buffer.getInt(offset + QUANTITY)));
+    }
+
+    // instrument is not known on this path, -1 is recorded
+    @Override
+    public void addTrades(List<Trade> trades) {
+        for (Trade t : trades) {
+            append(-1, t.getActiveOrderId(), t.getPassiveOrderId(), t.getPrice(), t.getQuantity(), t.getTradeTime(), false);
+        }
+    }
+
+    @Override
+    public void addTrades(int instrumentId, TradeBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            append(instrumentId, buffer.getActiveOrderId(i), buffer.getPassiveOrderId(i), buffer.getPrice(i),
+                    buffer.getQuantity(i), buffer.getTradeTime(i), buffer.isPassiveCompleted(i));
+        }
+    }
+
+    // the fills of the whole batch reach the flusher as one group
+    @Override
+    public void addTrades(OrderBatch batch, TradeBuffer buffer) {
+        for (int i = 0; i < batch.size(); i++) {
+            final int instrumentId = batch.getInstrumentId(i);
+            for (int t = batch.getFillStart(i); t < batch.getFillEnd(i); t++) {
+                write(instrumentId, buffer.getActiveOrderId(t), buffer.getPassiveOrderId(t), buffer.getPrice(t),
+                        buffer.getQuantity(t), buffer.getTradeTime(t), buffer.isPassiveCompleted(t));
+                log.commitInGroup();
+            }
+        }
+        log.publish();
+    }
+
+    private void append(int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime, boolean passiveCompleted) {
+        write(instrumentId, activeOrderId, passiveOrderId, price, quantity, tradeTime, passiveCompleted);
+        log.commit();
+    }
+
+    private void write(int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime, boolean passiveCompleted) {
+        final int offset = log.claim();
+        final MappedByteBuffer buffer = log.buffer();
+        buffer.putInt(offset + INSTRUMENT_ID, instrumentId);
+        buffer.putInt(offset + ACTIVE_ORDER_ID, activeOrderId);
+        buffer.putInt(offset + PASSIVE_ORDER_ID, passiveOrderId);
+        buffer.putInt(offset + QUANTITY, quantity);
+        buffer.putLong(offset + PRICE, price);
+        buffer.putLong(offset + TRADE_TIME, tradeTime);
+        buffer.putInt(offset + FLAGS, passiveCompleted ? PASSIVE_COMPLETED : 0);
+        fillIndex.onFill(activeOrderId, passiveOrderId, price, quantity);
+    }
+
+    // reads the journal back, for tools and tests rather than the matching path
+    @Override
+    public List<Trade> getTrades() {
+        final List<Trade> trades = new ArrayList<>();
+        log.read(0, (sequence, buffer, offset) -> trades.add(new Trade(buffer.getInt(offset + ACTIVE_ORDER_ID),
+                buffer.getInt(offset + PASSIVE_ORDER_ID), buffer.getLong(offset + PRICE),
+                buffer.getInt(offset + QUANTITY), buffer.getLong(offset + TRADE_TIME))));
+        return trades;
+    }
+
+    // sequence of the next record, also the number of records in the journal
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, log.getNextSequence());
+    }
+
+    @Override
+    public int getTradeSumQuantityByActiveOrderId(int orderId) {
+        return (int) fillIndex.getActiveQuantity(orderId);
+    }
+
+    @Override
+    public int getTradeSumQuantityByPassiveOrderId(int orderId) {
+        return (int) fillIndex.getPassiveQuantity(orderId);
+    }
+
+    @Override
+    public double getVwapByOrderId(int orderId) {
+        return fillIndex.getVwap(orderId);
+    }
+
+    public MappedRecordLog getLog() {
+        return log;
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
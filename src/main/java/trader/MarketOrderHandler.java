@@ -1,29 +1,129 @@
 package trader;
 
 import core.Engine;
+import core.EngineConstants;
 import core.bean.Order;
 import core.bean.Side;
 import core.bean.Trade;
+import core.bean.TradeBuffer;
+import core.common.Clock;
+import core.instrument.Instrument;
+import core.instrument.InstrumentRegistry;
+import core.marketdata.DepthFeed;
+import core.metrics.LatencyRecorder;
+import core.metrics.Operation;
+import core.order.OrderBook;
 import trader.bean.MarketOrder;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class MarketOrderHandler extends Engine {
+// market orders are immediate-or-cancel: they sweep the opposite book up to the slippage bound and never rest
+public class MarketOrderHandler extends Engine implements EngineConstants {
     int orderId = 0;
-    TradePersistence marketTradePersistence = new TradePersistence();
+    final TradePersistence marketTradePersistence;
 
-    public void matchOrder(int quantity, Side side) {
-        List<Trade> trades = new ArrayList<>();
-        //价格优先
-        double price = Engine.OPPOSITE_ORDER_BOOK(side).getBestPrice();
-        //TODO:滑点控制
-        MarketOrder order = new MarketOrder(orderId++, quantity, price, side, 0);
-        Engine.OPPOSITE_ORDER_BOOK(side).matchOrder(order);
-        marketTradePersistence.addTrades(trades);
+    final MarketOrder order = new MarketOrder(0, 0, 0, Side.BUY, 0);
+    final TradeBuffer tradeBuffer = new TradeBuffer();
+    int lastCancelledQuantity = 0;
+    LatencyRecorder latencyRecorder; // null unless latency is recorded
+    DepthFeed depthFeed; // null unless depth is published
+
+    public MarketOrderHandler(InstrumentRegistry registry) {
+        this(registry, new InMemoryTradePersistence());
+    }
+
+    public MarketOrderHandler(InstrumentRegistry registry, TradePersistence tradePersistence) {
+        this(registry, tradePersistence, Clock.SYSTEM);
+    }
+
+    public MarketOrderHandler(InstrumentRegistry registry, TradePersistence tradePersistence, Clock clock) {
+        super(registry, clock);
+        this.marketTradePersistence = tradePersistence;
+    }
+
+    public List<Trade> matchOrder(int instrumentId, int quantity, Side side) {
+        return matchOrder(instrumentId, orderId++, quantity, side);
+    }
+
+    public List<Trade> matchOrder(int instrumentId, int orderId, int quantity, Side side) {
+        tradeBuffer.clear();
+        matchOrder(instrumentId, orderId, quantity, side, tradeBuffer);
+        return tradeBuffer.toTrades(0);
+    }
+
+    // slippage bound of the instrument
+    public int matchOrder(int instrumentId, int orderId, int quantity, Side side, TradeBuffer trades) {
+        return matchOrder(instrumentId, orderId, quantity, registry.get(instrumentId).getMarketSlippageTicks(), side, trades);
+    }
+
+    // allocation free: fills are appended to the caller's buffer, returns the number of fills
+    public int matchOrder(int instrumentId, int orderId, int quantity, long slippageTicks, Side side, TradeBuffer trades) {
+        try {
+            return match(instrumentId, orderId, quantity, slippageTicks, side, trades);
+        } finally {
+            if (depthFeed != null) {
+                depthFeed.publish();
+            }
+        }
+    }
+
+    private int match(int instrumentId, int orderId, int quantity, long slippageTicks, Side side, TradeBuffer trades) {
+        if (slippageTicks < 0) {
+            throw new IllegalArgumentException("Slippage must not be negative: " + slippageTicks);
+        }
+        final Instrument instrument = registry.get(instrumentId);
+        final OrderBook oppositeOrderBook = instrument.oppositeOrderBook(side);
+        // GTD and DAY orders past their time must not be taken, even when no limit order came since
+        final long now = clock.currentTimeMillis();
+        instrument.expireOrders(now);
+        //价格优先：以到达时的对手方最优价为基准，按滑点计算最差可成交价
+        final long arrivalPrice = oppositeOrderBook.getBestPrice();
+        if (arrivalPrice == NULL_PRICE) {
+            lastCancelledQuantity = quantity;
+            return 0;
+        }
+        order.reset(orderId, quantity, limitPrice(arrivalPrice, slippageTicks, side), side, slippageTicks);
+        final int from = trades.size();
+        final boolean timed = latencyRecorder != null && latencyRecorder.isEnabled(instrumentId);
+        final long start = timed ? System.nanoTime() : 0;
+        oppositeOrderBook.matchOrder(order, trades, now);
+        if (timed) {
+            latencyRecorder.record(instrumentId, Operation.MATCH, System.nanoTime() - start);
+        }
+        marketTradePersistence.addTrades(instrumentId, trades, from, trades.size());
+        // IOC: whatever is left is cancelled, not rested
+        lastCancelledQuantity = order.getPendingMatchQuantity();
+        return trades.size() - from;
+    }
+
+    // saturating, so NO_SLIPPAGE_LIMIT walks the whole book
+    static long limitPrice(long arrivalPrice, long slippageTicks, Side side) {
+        if (side == Side.BUY) {
+            return arrivalPrice > Long.MAX_VALUE - slippageTicks ? Long.MAX_VALUE : arrivalPrice + slippageTicks;
+        }
+        return arrivalPrice < Long.MIN_VALUE + 1 + slippageTicks ? Long.MIN_VALUE + 1 : arrivalPrice - slippageTicks;
+    }
+
+    // quantity of the last market order cancelled for lack of liquidity within the slippage bound
+    public int getLastCancelledQuantity() {
+        return lastCancelledQuantity;
+    }
+
+    // match latency for the recorder's enabled instruments, null to stop recording
+    public void setLatencyRecorder(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    // publishes the depth updates of each market order, instruments are attached to the feed separately; null to stop
+    public void setDepthFeed(DepthFeed depthFeed) {
+        this.depthFeed = depthFeed;
+    }
+
+    public TradePersistence getTradePersistence() {
+        return marketTradePersistence;
     }
 
-    public void cancelOrder(Order order) {
-        Engine.ORDER_BOOK(order.getSide()).onCancelOrder(order.getOrderId());
+    public void cancelOrder(int instrumentId, Order order) {
+        orderBook(instrumentId, order.getSide()).onCancelOrder(order.getOrderId());
     }
 }
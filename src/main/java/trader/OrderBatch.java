@@ -0,0 +1,172 @@
+package trader;
+
+import core.EngineConstants;
+import core.bean.Side;
+import core.shard.CommandRing;
+
+import java.util.Arrays;
+
+/**
+ * Reusable, caller-owned burst of commands stored column-wise, applied in one pass by a
+ * {@link BatchMatcher}. Command types are the {@link CommandRing} codes the journal uses as well.
+ * The caller's order ids are kept as given in their own column; the ids the engine matched the
+ * commands under come back in another, {@link #getOrderId(int)}, the same ids unless a sequencer
+ * such as {@link JournaledMatcher#submitBatch} assigns its own. After matching,
+ * {@link #getFillEnd(int)} and {@link #isRejected(int)} tell each command's outcome. Columns double
+ * when full and are kept across {@link #clear()}.
+ */
+public class OrderBatch implements EngineConstants {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final Side[] SIDES = Side.values();
+
+    byte[] types;
+    int[] instrumentIds;
+    int[] clientOrderIds; // as given; for cancels and amends the engine id of the order they target
+    int[] quantities;
+    long[] prices; // in ticks, slippage bound in ticks for market orders
+    byte[] sides;
+    int size = 0;
+
+    // outcome, written by the matcher
+    int[] orderIds; // engine order id each command ran under
+    int fillStart; // size of the trade buffer when matching began
+    int[] fillEnds; // end of the command's fills in the trade buffer, they start at the previous command's end
+    boolean[] rejected;
+    int rejectedCount = 0;
+
+    public OrderBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OrderBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity must be positive");
+        }
+        types = new byte[capacity];
+        instrumentIds = new int[capacity];
+        clientOrderIds = new int[capacity];
+        quantities = new int[capacity];
+        prices = new long[capacity];
+        sides = new byte[capacity];
+        orderIds = new int[capacity];
+        fillEnds = new int[capacity];
+        rejected = new boolean[capacity];
+    }
+
+    public void addLimitOrder(int instrumentId, int clientOrderId, int quantity, long price, Side side) {
+        add(CommandRing.NEW_LIMIT_ORDER, instrumentId, clientOrderId, quantity, price, side);
+    }
+
+    // slippageTicks NULL_PRICE for the instrument's bound
+    public void addMarketOrder(int instrumentId, int clientOrderId, int quantity, long slippageTicks, Side side) {
+        add(CommandRing.NEW_MARKET_ORDER, instrumentId, clientOrderId, quantity, slippageTicks, side);
+    }
+
+    public void addCancel(int instrumentId, int orderId, Side side) {
+        add(CommandRing.CANCEL_ORDER, instrumentId, orderId, 0, 0, side);
+    }
+
+    // new open quantity and price of a resting order
+    public void addAmend(int instrumentId, int orderId, int quantity, long price, Side side) {
+        add(CommandRing.AMEND_ORDER, instrumentId, orderId, quantity, price, side);
+    }
+
+    private void add(byte type, int instrumentId, int clientOrderId, int quantity, long price, Side side) {
+        if (side == null) {
+            throw new IllegalArgumentException("Unsupported order side");
+        }
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = type;
+        instrumentIds[size] = instrumentId;
+        clientOrderIds[size] = clientOrderId;
+        quantities[size] = quantity;
+        prices[size] = price;
+        sides[size] = (byte) side.ordinal();
+        size++;
+    }
+
+    private void grow() {
+        final int capacity = types.length << 1;
+        types = Arrays.copyOf(types, capacity);
+        instrumentIds = Arrays.copyOf(instrumentIds, capacity);
+        clientOrderIds = Arrays.copyOf(clientOrderIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        fillEnds = Arrays.copyOf(fillEnds, capacity);
+        rejected = Arrays.copyOf(rejected, capacity);
+    }
+
+    public void clear() {
+        size = 0;
+        rejectedCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int i) {
+        return types[i];
+    }
+
+    public int getInstrumentId(int i) {
+        return instrumentIds[i];
+    }
+
+    // the id the caller added the command with, never overwritten
+    public int getClientOrderId(int i) {
+        return clientOrderIds[i];
+    }
+
+    // the engine order id command i ran under, once matched
+    public int getOrderId(int i) {
+        return orderIds[i];
+    }
+
+    // the commands run under the caller's ids
+    void useClientOrderIds() {
+        System.arraycopy(clientOrderIds, 0, orderIds, 0, size);
+    }
+
+    // new orders get engine ids from nextOrderId on, cancels and amends keep the id they target; returns the next free id
+    int assignOrderIds(int nextOrderId) {
+        for (int i = 0; i < size; i++) {
+            final byte type = types[i];
+            orderIds[i] = type == CommandRing.CANCEL_ORDER || type == CommandRing.AMEND_ORDER ? clientOrderIds[i] : nextOrderId++;
+        }
+        return nextOrderId;
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i];
+    }
+
+    public long getPrice(int i) {
+        return prices[i];
+    }
+
+    public Side getSide(int i) {
+        return SIDES[sides[i]];
+    }
+
+    // fills of command i are [getFillStart(i), getFillEnd(i)) of the trade buffer passed to the matcher
+    public int getFillStart(int i) {
+        return i == 0 ? fillStart : fillEnds[i - 1];
+    }
+
+    public int getFillEnd(int i) {
+        return fillEnds[i];
+    }
+
+    public boolean isRejected(int i) {
+        return rejected[i];
+    }
+
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+}
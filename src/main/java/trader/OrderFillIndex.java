@@ -0,0 +1,91 @@
+package trader;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Running fill totals per order id, kept up to date on every append so reconciliation reads them
+ * in O(1) instead of scanning the trades. Each order has one slot holding its filled quantity and
+ * notional (price ticks x quantity) as the active and as the passive side.
+ */
+final class OrderFillIndex {
+    private final Int2IntOpenHashMap slotOfOrder;
+    long[] activeQuantities;
+    long[] activeNotionals;
+    long[] passiveQuantities;
+    long[] passiveNotionals;
+
+    OrderFillIndex(int expectedOrders) {
+        slotOfOrder = new Int2IntOpenHashMap(expectedOrders);
+        slotOfOrder.defaultReturnValue(-1);
+        activeQuantities = new long[expectedOrders];
+        activeNotionals = new long[expectedOrders];
+        passiveQuantities = new long[expectedOrders];
+        passiveNotionals = new long[expectedOrders];
+    }
+
+    void onFill(int activeOrderId, int passiveOrderId, long price, int quantity) {
+        final long notional = price * quantity;
+        int slot = slotOf(activeOrderId);
+        activeQuantities[slot] += quantity;
+        activeNotionals[slot] += notional;
+        slot = slotOf(passiveOrderId);
+        passiveQuantities[slot] += quantity;
+        passiveNotionals[slot] += notional;
+    }
+
+    // creates the slot on first sight of the order
+    private int slotOf(int orderId) {
+        int slot = slotOfOrder.get(orderId);
+        if (slot == -1) {
+            slot = slotOfOrder.size();
+            if (slot == activeQuantities.length) {
+                grow();
+            }
+            slotOfOrder.put(orderId, slot);
+        }
+        return slot;
+    }
+
+    long getActiveQuantity(int orderId) {
+        final int slot = slotOfOrder.get(orderId);
+        return slot == -1 ? 0 : activeQuantities[slot];
+    }
+
+    long getPassiveQuantity(int orderId) {
+        final int slot = slotOfOrder.get(orderId);
+        return slot == -1 ? 0 : passiveQuantities[slot];
+    }
+
+    // over both sides the order traded on, NaN when it never traded
+    double getVwap(int orderId) {
+        final int slot = slotOfOrder.get(orderId);
+        if (slot == -1) {
+            return Double.NaN;
+        }
+        return (double) (activeNotionals[slot] + passiveNotionals[slot]) / (activeQuantities[slot] + passiveQuantities[slot]);
+    }
+
+    int size() {
+        return slotOfOrder.size();
+    }
+
+    // keeps the arrays, so refilling does not allocate
+    void clear() {
+        final int size = slotOfOrder.size();
+        Arrays.fill(activeQuantities, 0, size, 0);
+        Arrays.fill(activeNotionals, 0, size, 0);
+        Arrays.fill(passiveQuantities, 0, size, 0);
+        Arrays.fill(passiveNotionals, 0, size, 0);
+        slotOfOrder.clear();
+    }
+
+    private void grow() {
+        final int newCapacity = activeQuantities.length << 1;
+        activeQuantities = Arrays.copyOf(activeQuantities, newCapacity);
+        activeNotionals = Arrays.copyOf(activeNotionals, newCapacity);
+        passiveQuantities = Arrays.copyOf(passiveQuantities, newCapacity);
+        passiveNotionals = Arrays.copyOf(passiveNotionals, newCapacity);
+    }
+}
@@ -0,0 +1,7 @@
+package trader;
+
+// visitor of a TradeStore range scan
+public interface TradeHandler {
+    // index is the trade's position in append order
+    void onTrade(int index, int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime);
+}
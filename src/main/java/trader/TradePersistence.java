@@ -1,26 +1,35 @@
 package trader;
 
 import core.bean.Trade;
+import core.bean.TradeBuffer;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class TradePersistence {
-    List<Trade> trades = new ArrayList<>();
+// where a handler records its fills, written only from the handler's matcher thread
+public interface TradePersistence {
+    void addTrades(List<Trade> trades);
 
-    public void addTrades(List<Trade> trade) {
-        trades.addAll(trade);
-    }
+    // fills [from, to) of the buffer
+    void addTrades(int instrumentId, TradeBuffer buffer, int from, int to);
 
-    public List<Trade> getTrades() {
-        return trades;
+    // every fill of a matched batch in one call, each under the instrument of the command that made it
+    default void addTrades(OrderBatch batch, TradeBuffer buffer) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getFillEnd(i) > batch.getFillStart(i)) {
+                addTrades(batch.getInstrumentId(i), buffer, batch.getFillStart(i), batch.getFillEnd(i));
+            }
+        }
     }
 
-    public int getTradeSumQuantityByActiveOrderId(int orderId) {
-        return trades.stream().filter(t -> t.getActiveOrderId() == orderId).mapToInt(Trade::getQuantity).sum();
-    }
+    List<Trade> getTrades();
 
-    public void clear() {
-        trades.clear();
-    }
+    int size();
+
+    int getTradeSumQuantityByActiveOrderId(int orderId);
+
+    // quantity the order filled while resting
+    int getTradeSumQuantityByPassiveOrderId(int orderId);
+
+    // average price in ticks over all fills of the order, either side; NaN when it never traded
+    double getVwapByOrderId(int orderId);
 }
@@ -0,0 +1,230 @@
+package trader;
+
+import java.util.Arrays;
+
+/**
+ * Append-only columnar store of fills. Each field is its own primitive column, split into chunks
+ * of {@link #CHUNK_SIZE} trades so growing never copies what is already stored, and range scans
+ * walk a few contiguous arrays. Every chunk remembers its earliest and latest trade time, so a
+ * time-range query skips the chunks outside the range; per-order totals come from an
+ * {@link OrderFillIndex} updated on append. Single writer; chunks are kept across {@link #clear()}.
+ */
+public class TradeStore {
+    static final int CHUNK_BITS = 12;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 4096 trades
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    int[][] instrumentIds = new int[0][];
+    int[][] activeOrderIds = new int[0][];
+    int[][] passiveOrderIds = new int[0][];
+    long[][] prices = new long[0][]; // in ticks
+    int[][] quantities = new int[0][];
+    long[][] tradeTimes = new long[0][];
+    boolean[][] passiveCompleted = new boolean[0][];
+    long[] chunkMinTimes = new long[0];
+    long[] chunkMaxTimes = new long[0];
+    int allocatedChunks;
+    int size;
+    final OrderFillIndex fillIndex;
+
+    public TradeStore() {
+        this(0);
+    }
+
+    // presizes the chunks and the order index for the expected number of trades
+    public TradeStore(int expectedTrades) {
+        if (expectedTrades < 0) {
+            throw new IllegalArgumentException("Expected trades must not be negative: " + expectedTrades);
+        }
+        // two orders per fill at most
+        this.fillIndex = new OrderFillIndex((int) Math.min(1 << 30, Math.max(16, 2L * expectedTrades)));
+        final int chunks = (int) (((long) expectedTrades + CHUNK_MASK) >>> CHUNK_BITS);
+        while (allocatedChunks < chunks) {
+            addChunk();
+        }
+    }
+
+    public void append(int instrumentId, int activeOrderId, int passiveOrderId, long price, int quantity, long tradeTime,
+                       boolean passiveCompleted) {
+        final int chunk = size >>> CHUNK_BITS;
+        final int i = size & CHUNK_MASK;
+        if (chunk == allocatedChunks) {
+            addChunk();
+        }
+        if (i == 0) {
+            chunkMinTimes[chunk] = tradeTime;
+            chunkMaxTimes[chunk] = tradeTime;
+        } else if (tradeTime < chunkMinTimes[chunk]) {
+            chunkMinTimes[chunk] = tradeTime;
+        } else if (tradeTime > chunkMaxTimes[chunk]) {
+            chunkMaxTimes[chunk] = tradeTime;
+        }
+        instrumentIds[chunk][i] = instrumentId;
+        activeOrderIds[chunk][i] = activeOrderId;
+        passiveOrderIds[chunk][i] = passiveOrderId;
+        prices[chunk][i] = price;
+        quantities[chunk][i] = quantity;
+        tradeTimes[chunk][i] = tradeTime;
+        this.passiveCompleted[chunk][i] = passiveCompleted;
+        size++;
+        fillIndex.onFill(activeOrderId, passiveOrderId, price, quantity);
+    }
+
+    private void addChunk() {
+        final int chunks = allocatedChunks + 1;
+        if (chunks > instrumentIds.length) {
+            final int capacity = Math.max(4, instrumentIds.length << 1);
+            instrumentIds = Arrays.copyOf(instrumentIds, capacity);
+            activeOrderIds = Arrays.copyOf(activeOrderIds, capacity);
+            passiveOrderIds = Arrays.copyOf(passiveOrderIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            tradeTimes = Arrays.copyOf(tradeTimes, capacity);
+            passiveCompleted = Arrays.copyOf(passiveCompleted, capacity);
+            chunkMinTimes = Arrays.copyOf(chunkMinTimes, capacity);
+            chunkMaxTimes = Arrays.copyOf(chunkMaxTimes, capacity);
+        }
+        final int chunk = allocatedChunks;
+        instrumentIds[chunk] = new int[CHUNK_SIZE];
+        activeOrderIds[chunk] = new int[CHUNK_SIZE];
+        passiveOrderIds[chunk] = new int[CHUNK_SIZE];
+        prices[chunk] = new long[CHUNK_SIZE];
+        quantities[chunk] = new int[CHUNK_SIZE];
+        tradeTimes[chunk] = new long[CHUNK_SIZE];
+        passiveCompleted[chunk] = new boolean[CHUNK_SIZE];
+        allocatedChunks = chunks;
+    }
+
+    /**
+     * Calls the handler for every trade with {@code fromTime <= tradeTime < toTime}, in append
+     * order, and returns how many there were. Chunks whose time span misses the range are skipped.
+     */
+    public int scan(long fromTime, long toTime, TradeHandler handler) {
+        int count = 0;
+        final int chunks = chunkCount();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (chunkMaxTimes[chunk] < fromTime || chunkMinTimes[chunk] >= toTime) {
+                continue;
+            }
+            final long[] times = tradeTimes[chunk];
+            final int end = chunkEnd(chunk);
+            for (int i = 0; i < end; i++) {
+                final long time = times[i];
+                if (time >= fromTime && time < toTime) {
+                    handler.onTrade((chunk << CHUNK_BITS) + i, instrumentIds[chunk][i], activeOrderIds[chunk][i],
+                            passiveOrderIds[chunk][i], prices[chunk][i], quantities[chunk][i], time);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // traded quantity of the instrument with fromTime <= tradeTime < toTime
+    public long getVolume(int instrumentId, long fromTime, long toTime) {
+        long volume = 0;
+        final int chunks = chunkCount();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (chunkMaxTimes[chunk] < fromTime || chunkMinTimes[chunk] >= toTime) {
+                continue;
+            }
+            final long[] times = tradeTimes[chunk];
+            final int[] instruments = instrumentIds[chunk];
+            final int[] qty = quantities[chunk];
+            final int end = chunkEnd(chunk);
+            for (int i = 0; i < end; i++) {
+                final long time = times[i];
+                if (instruments[i] == instrumentId && time >= fromTime && time < toTime) {
+                    volume += qty[i];
+                }
+            }
+        }
+        return volume;
+    }
+
+    // volume weighted average price in ticks of the instrument over [fromTime, toTime), NaN when it did not trade
+    public double getVwap(int instrumentId, long fromTime, long toTime) {
+        long volume = 0;
+        long notional = 0;
+        final int chunks = chunkCount();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            if (chunkMaxTimes[chunk] < fromTime || chunkMinTimes[chunk] >= toTime) {
+                continue;
+            }
+            final long[] times = tradeTimes[chunk];
+            final int[] instruments = instrumentIds[chunk];
+            final int[] qty = quantities[chunk];
+            final long[] price = prices[chunk];
+            final int end = chunkEnd(chunk);
+            for (int i = 0; i < end; i++) {
+                final long time = times[i];
+                if (instruments[i] == instrumentId && time >= fromTime && time < toTime) {
+                    volume += qty[i];
+                    notional += price[i] * qty[i];
+                }
+            }
+        }
+        return volume == 0 ? Double.NaN : (double) notional / volume;
+    }
+
+    private int chunkCount() {
+        return (size + CHUNK_MASK) >>> CHUNK_BITS;
+    }
+
+    private int chunkEnd(int chunk) {
+        return Math.min(CHUNK_SIZE, size - (chunk << CHUNK_BITS));
+    }
+
+    // quantity the order filled as the incoming order, O(1)
+    public long getActiveQuantity(int orderId) {
+        return fillIndex.getActiveQuantity(orderId);
+    }
+
+    // quantity the order filled while resting, O(1)
+    public long getPassiveQuantity(int orderId) {
+        return fillIndex.getPassiveQuantity(orderId);
+    }
+
+    // average fill price in ticks of the order over all its fills, NaN when it never traded; O(1)
+    public double getOrderVwap(int orderId) {
+        return fillIndex.getVwap(orderId);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        fillIndex.clear();
+    }
+
+    public int getInstrumentId(int i) {
+        return instrumentIds[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public int getActiveOrderId(int i) {
+        return activeOrderIds[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public int getPassiveOrderId(int i) {
+        return passiveOrderIds[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public long getPrice(int i) {
+        return prices[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public long getTradeTime(int i) {
+        return tradeTimes[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+    public boolean isPassiveCompleted(int i) {
+        return passiveCompleted[i >>> CHUNK_BITS][i & CHUNK_MASK];
+    }
+
+}
@@ -4,7 +4,7 @@ import core.bean.Order;
 import core.bean.Side;
 
 public class LimitOrder extends Order {
-    public LimitOrder(int orderId, int quantity, double price, Side side) {
+    public LimitOrder(int orderId, int quantity, long price, Side side) {
         super(orderId, quantity, price, side);
     }
 }
@@ -4,11 +4,16 @@ import core.bean.Order;
 import core.bean.Side;
 
 public class MarketOrder extends Order {
-    public MarketOrder(int orderId, int quantity, double price, Side side, double slipPointLimit) {
+    public MarketOrder(int orderId, int quantity, long price, Side side, long slipPointLimit) {
         super(orderId, quantity, price, side);
         this.slipPointLimit = slipPointLimit;
     }
 
-    //no consider slip point
-    public double slipPointLimit;
+    // price is the worst acceptable level, i.e. the arrival best price moved by slipPointLimit
+    public void reset(int orderId, int quantity, long price, Side side, long slipPointLimit) {
+        reset(orderId, quantity, price, side);
+        this.slipPointLimit = slipPointLimit;
+    }
+
+    public long slipPointLimit; // in ticks
 }
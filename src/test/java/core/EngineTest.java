@@ -1,28 +1,50 @@
 package core;
 
 import core.bean.Side;
-import core.order.OrderBook;
+import core.instrument.InstrumentRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class EngineTest {
+    private static final int INSTRUMENT_ID = 0;
+
+    private InstrumentRegistry registry;
+    private Engine engine;
 
     @BeforeEach
     void setUp() {
-        // Reset the order books before each test to ensure isolation
-        Engine.SELL_ORDER_BOOK = new OrderBook(Side.SELL);
-        Engine.BUY_ORDER_BOOK = new OrderBook(Side.BUY);
+        // Every engine owns its registry, so a fresh one gives isolated order books
+        registry = new InstrumentRegistry(4);
+        registry.register(INSTRUMENT_ID, "BTC-USDT");
+        engine = new Engine(registry);
     }
 
     @Test
     void testCurrProcOrderBookWithInvalidSide() {
-        // Test CURR_PROC_ORDER_BOOK with an invalid side
+        // Test ORDER_BOOK with an invalid side
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            Engine.ORDER_BOOK(null);
+            engine.orderBook(INSTRUMENT_ID, null);
         });
         String expectedMessage = "Unsupported order side";
         assertEquals(expectedMessage, exception.getMessage(), "Exception message should match the expected message exactly");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUnknownInstrument() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            engine.orderBook(3, Side.BUY);
+        });
+        assertEquals("Unknown instrument: 3", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> engine.orderBook(4, Side.BUY), "Id beyond capacity should be rejected");
+    }
+
+    @Test
+    void testRegistryLookup() {
+        assertEquals(INSTRUMENT_ID, registry.getInstrumentId("BTC-USDT"));
+        assertEquals(-1, registry.getInstrumentId("ETH-USDT"));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(INSTRUMENT_ID, "ETH-USDT"), "Id should not be registered twice");
+        assertSame(engine.orderBook(INSTRUMENT_ID, Side.SELL), engine.oppositeOrderBook(INSTRUMENT_ID, Side.BUY));
+    }
+}
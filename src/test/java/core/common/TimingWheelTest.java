@@ -0,0 +1,87 @@
+package core.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+    private static final long START = 1_700_000_000_123L;
+
+    private final List<Long> fired = new ArrayList<>();
+    private final TimerHandler collector = fired::add;
+
+    @Test
+    void testTimersFireOnceTheirDeadlineIsReached() {
+        TimingWheel wheel = new TimingWheel(START);
+        assertTrue(wheel.schedule(START + 5, 5));
+        assertTrue(wheel.schedule(START + 300, 300)); // level 1
+        assertTrue(wheel.schedule(START + 70_000, 70_000)); // level 2
+        assertFalse(wheel.schedule(START, 0), "a deadline that has passed is not kept");
+        assertEquals(3, wheel.size());
+
+        assertEquals(0, wheel.advance(START + 4, collector));
+        assertEquals(1, wheel.advance(START + 5, collector));
+        assertEquals(0, wheel.advance(START + 299, collector));
+        assertEquals(1, wheel.advance(START + 1_000, collector));
+        assertEquals(1, wheel.advance(START + 100_000, collector));
+        assertEquals(List.of(5L, 300L, 70_000L), fired);
+        assertEquals(0, wheel.size());
+        assertEquals(0, wheel.advance(START + 10, collector), "time going backwards fires nothing");
+    }
+
+    @Test
+    void testRandomDeadlinesFireInOrderAndOnTime() {
+        TimingWheel wheel = new TimingWheel(START, 4);
+        SplittableRandom random = new SplittableRandom(3);
+        int scheduled = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // spread over every level
+            long delay = 1 + random.nextLong(1L << (4 + random.nextInt(30)));
+            wheel.schedule(START + delay, delay);
+            scheduled++;
+        }
+        long now = START;
+        long lastDelay = 0;
+        int total = 0;
+        while (wheel.size() > 0) {
+            final long before = now;
+            now += 1 + random.nextLong(1L << 24);
+            fired.clear();
+            total += wheel.advance(now, collector);
+            for (long delay : fired) {
+                assertTrue(START + delay <= now, "fired before its deadline");
+                assertTrue(START + delay > before, "fired late");
+                assertTrue(delay >= lastDelay, "fired out of order");
+                lastDelay = delay;
+            }
+        }
+        assertEquals(scheduled, total);
+    }
+
+    @Test
+    void testDeadlinesBeyondTheWheelAreHeldUntilDue() {
+        TimingWheel wheel = new TimingWheel(START);
+        long far = START + 3 * TimingWheel.SPAN + 17;
+        wheel.schedule(far, 1);
+        wheel.schedule(START + TimingWheel.SPAN - 1, 2);
+        assertEquals(1, wheel.advance(far - 1, collector));
+        assertEquals(List.of(2L), fired);
+        assertEquals(1, wheel.advance(far, collector));
+        assertEquals(List.of(2L, 1L), fired);
+    }
+
+    @Test
+    void testTimersAreRecycledThroughThePool() {
+        TimingWheel wheel = new TimingWheel(START, 2);
+        for (int round = 1; round <= 100; round++) {
+            wheel.schedule(START + round, round);
+            wheel.schedule(START + round, -round);
+            assertEquals(2, wheel.advance(START + round, collector));
+        }
+        assertEquals(2, wheel.deadlines.length, "two timers at a time never grow the pool");
+    }
+}
@@ -0,0 +1,344 @@
+package core.gateway;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import trader.InMemoryTradePersistence;
+import trader.LimitOrderHandler;
+import trader.MarketOrderHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderGatewayTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private InstrumentRegistry registry;
+    private OrderGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        gateway = new OrderGateway(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        gateway.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        gateway.close();
+    }
+
+    // reports as "type tag order side price x quantity matched", plus the reject reason
+    static final class Reports implements ExecutionReportHandler {
+        final List<String> received = new ArrayList<>();
+        final List<Integer> orderIds = new ArrayList<>();
+
+        @Override
+        public void onExecutionReport(long clientTag, int instrumentId, int orderId, byte execType, Side side, byte reason,
+                                      long price, int quantity, int matchedOrderId, long timestamp) {
+            received.add(name(execType) + (reason != 0 ? "(" + reason + ")" : "") + " " + clientTag + " " + side
+                    + " " + price + "x" + quantity + (matchedOrderId != 0 ? " vs " + matchedOrderId : ""));
+            orderIds.add(orderId);
+        }
+
+        static String name(byte execType) {
+            switch (execType) {
+                case WireCodec.EXEC_NEW:
+                    return "NEW";
+                case WireCodec.EXEC_FILL:
+                    return "FILL";
+                case WireCodec.EXEC_CANCELLED:
+                    return "CANCELLED";
+                case WireCodec.EXEC_REPLACED:
+                    return "REPLACED";
+                default:
+                    return "REJECTED";
+            }
+        }
+    }
+
+    private static Reports await(GatewayClient client, Reports reports, int count) {
+        return assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (reports.received.size() < count) {
+                assertTrue(client.poll(reports) >= 0, "Gateway closed the connection");
+            }
+            return reports;
+        });
+    }
+
+    private GatewayClient connect() throws IOException {
+        return new GatewayClient(gateway.getLocalAddress());
+    }
+
+    @Test
+    void testCodecRoundTrip() {
+        ByteBuffer buffer = WireCodec.allocate(128);
+        assertEquals(WireCodec.EXECUTION_REPORT_LENGTH, WireCodec.encodeExecutionReport(buffer, 8, 77L, 3, 100000005,
+                WireCodec.EXEC_FILL, Side.SELL, (byte) 0, -42, 9, 100000001, 123456789L));
+        assertEquals(WireCodec.EXECUTION_REPORT_LENGTH, WireCodec.length(buffer, 8));
+        assertEquals(WireCodec.EXECUTION_REPORT, WireCodec.type(buffer, 8));
+        Reports reports = new Reports();
+        WireCodec.decodeExecutionReport(buffer, 8, reports);
+        assertEquals(List.of("FILL 77 SELL -42x9 vs 100000001"), reports.received);
+        assertEquals(List.of(100000005), reports.orderIds);
+    }
+
+    @Test
+    void testFillsAreReportedToBothSides() throws IOException {
+        try (GatewayClient seller = connect(); GatewayClient buyer = connect()) {
+            Reports sellerReports = new Reports();
+            Reports buyerReports = new Reports();
+            seller.sendLimitOrder(1, INSTRUMENT_ID, 10, 100, Side.SELL);
+            seller.flush();
+            await(seller, sellerReports, 1);
+            final int sellOrderId = sellerReports.orderIds.get(0);
+
+            buyer.sendLimitOrder(2, INSTRUMENT_ID, 4, 100, Side.BUY);
+            buyer.flush();
+            await(buyer, buyerReports, 2);
+            assertEquals(List.of("NEW 2 BUY 100x4", "FILL 2 BUY 100x4 vs " + sellOrderId), buyerReports.received);
+            await(seller, sellerReports, 2);
+            assertEquals("FILL 1 SELL 100x4 vs " + buyerReports.orderIds.get(0), sellerReports.received.get(1));
+
+            // the rest is cancelled with its open quantity; a second cancel finds nothing
+            seller.sendCancel(3, INSTRUMENT_ID, sellOrderId, Side.SELL);
+            seller.sendCancel(4, INSTRUMENT_ID, sellOrderId, Side.SELL);
+            seller.flush();
+            await(seller, sellerReports, 4);
+            assertEquals(List.of("CANCELLED 3 SELL 0x6", "REJECTED(" + WireCodec.REJECT_UNKNOWN_ORDER + ") 4 BUY 0x0"),
+                    sellerReports.received.subList(2, 4));
+            assertTrue(registry.get(INSTRUMENT_ID).orderBook(Side.SELL).isEmpty());
+            assertEquals(0, gateway.getOpenOrderCount());
+        }
+    }
+
+    @Test
+    void testOnlyTheOwnerMayCancel() throws IOException {
+        try (GatewayClient owner = connect(); GatewayClient other = connect()) {
+            Reports ownerReports = new Reports();
+            Reports otherReports = new Reports();
+            owner.sendLimitOrder(1, INSTRUMENT_ID, 5, 100, Side.BUY);
+            owner.flush();
+            await(owner, ownerReports, 1);
+            other.sendCancel(9, INSTRUMENT_ID, ownerReports.orderIds.get(0), Side.BUY);
+            other.flush();
+            await(other, otherReports, 1);
+            assertEquals("REJECTED(" + WireCodec.REJECT_UNKNOWN_ORDER + ") 9 BUY 0x0", otherReports.received.get(0));
+            assertEquals(1, gateway.getOpenOrderCount());
+        }
+    }
+
+    @Test
+    void testReplaceAmendsUnderTheSameOrderId() throws IOException {
+        try (GatewayClient client = connect()) {
+            Reports reports = new Reports();
+            client.sendLimitOrder(1, INSTRUMENT_ID, 5, 100, Side.BUY);
+            client.sendLimitOrder(2, INSTRUMENT_ID, 5, 100, Side.BUY);
+            client.flush();
+            await(client, reports, 2);
+            final int first = reports.orderIds.get(0);
+            final int second = reports.orderIds.get(1);
+            // a smaller quantity at the same price stays ahead of the second order
+            client.sendReplace(3, INSTRUMENT_ID, first, 2, 100, Side.BUY);
+            client.sendReplace(4, INSTRUMENT_ID, second, 8, 99, Side.BUY);
+            client.flush();
+            await(client, reports, 4);
+            assertEquals("REPLACED 3 BUY 100x2 vs " + first, reports.received.get(2));
+            assertEquals(first, (int) reports.orderIds.get(2));
+            assertEquals("REPLACED 4 BUY 99x8 vs " + second, reports.received.get(3));
+            assertEquals(2, registry.get(INSTRUMENT_ID).orderBook(Side.BUY).getPriceLevel(100).getOpenQuantity());
+            assertEquals(8, registry.get(INSTRUMENT_ID).orderBook(Side.BUY).getPriceLevel(99).getOpenQuantity());
+            assertEquals(2, gateway.getOpenOrderCount());
+
+            // the fill of the amended order is reported under the tag of the replace
+            client.sendLimitOrder(5, INSTRUMENT_ID, 2, 100, Side.SELL);
+            client.flush();
+            await(client, reports, 7);
+            assertEquals("FILL 3 BUY 100x2 vs " + reports.orderIds.get(4), reports.received.get(6));
+            assertEquals(1, gateway.getOpenOrderCount());
+        }
+    }
+
+    @Test
+    void testMarketOrderRemainderIsCancelled() throws IOException {
+        try (GatewayClient client = connect()) {
+            Reports reports = new Reports();
+            client.sendLimitOrder(1, INSTRUMENT_ID, 3, 100, Side.SELL);
+            client.sendMarketOrder(2, INSTRUMENT_ID, 5, 0, Side.BUY);
+            client.flush();
+            // new sell, new market, its fill, the passive fill, the cancelled rest
+            await(client, reports, 5);
+            assertEquals(List.of("NEW 1 SELL 100x3", "NEW 2 BUY 0x5", "FILL 2 BUY 100x3 vs " + reports.orderIds.get(0),
+                    "FILL 1 SELL 100x3 vs " + reports.orderIds.get(1), "CANCELLED 2 BUY 0x2"), reports.received);
+        }
+    }
+
+    @Test
+    void testIocAndPostOnlyAreCancelledInsteadOfResting() throws IOException {
+        try (GatewayClient client = connect()) {
+            Reports reports = new Reports();
+            client.sendLimitOrder(1, INSTRUMENT_ID, 3, 100, Side.SELL);
+            client.sendLimitOrder(2, INSTRUMENT_ID, 5, 100, Side.BUY, WireCodec.IOC);
+            client.sendLimitOrder(3, INSTRUMENT_ID, 4, 101, Side.SELL, WireCodec.POST_ONLY);
+            client.sendLimitOrder(4, INSTRUMENT_ID, 2, 99, Side.BUY);
+            client.sendLimitOrder(5, INSTRUMENT_ID, 4, 99, Side.SELL, WireCodec.POST_ONLY);
+            client.flush();
+            // new sell, new IOC, its fill, the passive fill, the cancelled rest, then the resting orders and the refused post-only
+            await(client, reports, 9);
+            assertEquals(List.of("NEW 1 SELL 100x3", "NEW 2 BUY 100x5", "FILL 2 BUY 100x3 vs " + reports.orderIds.get(0),
+                    "FILL 1 SELL 100x3 vs " + reports.orderIds.get(1), "CANCELLED 2 BUY 0x2",
+                    "NEW 3 SELL 101x4", "NEW 4 BUY 99x2", "NEW 5 SELL 99x4", "CANCELLED 5 SELL 0x4"), reports.received);
+            assertEquals(2, gateway.getOpenOrderCount(), "the refused post-only does not rest");
+        }
+    }
+
+    @Test
+    void testBadRequestsAreRejectedAndConnectionStaysUsable() throws IOException {
+        try (GatewayClient client = connect()) {
+            Reports reports = new Reports();
+            client.sendLimitOrder(1, 5, 1, 100, Side.BUY); // unknown instrument
+            client.sendLimitOrder(2, INSTRUMENT_ID, 0, 100, Side.BUY);
+            client.flush();
+            await(client, reports, 2);
+            assertEquals(List.of("REJECTED(" + WireCodec.REJECT_INVALID + ") 1 BUY 100x1",
+                    "REJECTED(" + WireCodec.REJECT_INVALID + ") 2 BUY 100x0"), reports.received);
+
+            // a well-framed message of a type the gateway does not know
+            ByteBuffer raw = WireCodec.allocate(16);
+            raw.putShort(0, (short) 16).put(2, (byte) 99).put(3, WireCodec.VERSION).putLong(4, 3L);
+            while (raw.hasRemaining()) {
+                client.channel.write(raw);
+            }
+            client.sendLimitOrder(4, INSTRUMENT_ID, 1, 100, Side.BUY);
+            client.flush();
+            await(client, reports, 4);
+            assertEquals(List.of("REJECTED(" + WireCodec.REJECT_UNKNOWN_MESSAGE + ") 3 BUY 0x0", "NEW 4 BUY 100x1"),
+                    reports.received.subList(2, 4));
+        }
+    }
+
+    // gateway side of a client connection, found by the client's local port
+    private static Session sessionOf(OrderGateway gateway, GatewayClient client) throws IOException {
+        final int port = ((InetSocketAddress) client.channel.getLocalAddress()).getPort();
+        for (SelectionKey key : gateway.selector.keys()) {
+            if (key.attachment() instanceof Session
+                    && ((InetSocketAddress) ((Session) key.attachment()).channel.getRemoteAddress()).getPort() == port) {
+                return (Session) key.attachment();
+            }
+        }
+        return null;
+    }
+
+    // reads the session until the gateway's open order count reaches or leaves the given value
+    private static void readUntil(OrderGateway gateway, Session session, IntPredicate openOrders) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (!openOrders.test(gateway.getOpenOrderCount())) {
+                gateway.read(session);
+            }
+        });
+    }
+
+    @Test
+    void testFillsToAPausedPassiveClientDoNotRunItsHeldRequests() throws IOException {
+        InstrumentRegistry ownRegistry = new InstrumentRegistry(1);
+        ownRegistry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        // small buffers: a dozen reports fill half of one; the gateway thread is only started at the end
+        try (OrderGateway stepped = new OrderGateway(new LimitOrderHandler(ownRegistry, new InMemoryTradePersistence()),
+                new MarketOrderHandler(ownRegistry, new InMemoryTradePersistence()),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+             GatewayClient passive = new GatewayClient(stepped.getLocalAddress());
+             GatewayClient active = new GatewayClient(stepped.getLocalAddress())) {
+            assertTimeoutPreemptively(TIMEOUT, () -> {
+                while (stepped.selector.keys().size() < 3) {
+                    stepped.selector.selectNow(stepped.onReady);
+                }
+            });
+            Session passiveSession = sessionOf(stepped, passive);
+            Session activeSession = sessionOf(stepped, active);
+            Reports passiveReports = new Reports();
+            Reports activeReports = new Reports();
+
+            for (int batch = 1; batch <= 4; batch++) {
+                for (int i = 0; i < 10; i++) {
+                    passive.sendLimitOrder(10 * (batch - 1) + i, INSTRUMENT_ID, 1, 100, Side.SELL);
+                }
+                passive.flush();
+                final int resting = 10 * batch;
+                readUntil(stepped, passiveSession, count -> count == resting);
+                stepped.flushPending();
+                await(passive, passiveReports, resting);
+            }
+
+            // a burst the passive client does not read: 11 acks fill half its output, the other 9 requests are held
+            for (int i = 40; i < 60; i++) {
+                passive.sendLimitOrder(i, INSTRUMENT_ID, 1, 50, Side.BUY);
+            }
+            passive.flush();
+            readUntil(stepped, passiveSession, count -> count == 51);
+            assertTrue(passiveSession.readPaused);
+
+            // the sweep's fill reports overflow the paused passive output, which is written out in between
+            active.sendLimitOrder(100, INSTRUMENT_ID, 40, 100, Side.BUY);
+            active.flush();
+            readUntil(stepped, activeSession, count -> count != 51);
+            assertEquals(11, stepped.getOpenOrderCount(), "all 40 sells filled, the held buys did not run inside the sweep");
+
+            stepped.start();
+            await(active, activeReports, 41);
+            await(passive, passiveReports, 100);
+            for (int i = 1; i <= 40; i++) {
+                assertEquals("FILL 100 BUY 100x1 vs " + passiveReports.orderIds.get(i - 1), activeReports.received.get(i));
+            }
+            for (int i = 40; i < 51; i++) {
+                assertTrue(passiveReports.received.get(i).startsWith("NEW " + i + " BUY"), "ack " + i);
+            }
+            for (int i = 51; i < 91; i++) {
+                assertTrue(passiveReports.received.get(i).startsWith("FILL " + (i - 51) + " SELL 100x1"), "fill of sell " + (i - 51));
+            }
+            for (int i = 91; i < 100; i++) {
+                assertTrue(passiveReports.received.get(i).startsWith("NEW " + (i - 40) + " BUY"), "held request " + (i - 40) + " after the fills");
+            }
+            assertEquals(20, stepped.getOpenOrderCount());
+        }
+    }
+
+    @Test
+    void testPipelinedBurstIsAnsweredInOrder() throws IOException {
+        try (GatewayClient client = connect()) {
+            Reports reports = new Reports();
+            final int orders = 20_000; // well past one buffer of reports, exercises the read pause
+            // sent from another thread, the gateway stops reading while this one is not polling
+            Thread sender = new Thread(() -> {
+                try {
+                    for (int i = 0; i < orders; i++) {
+                        client.sendLimitOrder(i, INSTRUMENT_ID, 1, 100 + (i & 1), (i & 1) == 0 ? Side.BUY : Side.SELL);
+                    }
+                    client.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            sender.start();
+            await(client, reports, orders);
+            for (int i = 0; i < orders; i++) {
+                assertTrue(reports.received.get(i).startsWith("NEW " + i + " "), "Ack " + i + " in order");
+            }
+            assertEquals(orders, gateway.getOpenOrderCount());
+        }
+    }
+}
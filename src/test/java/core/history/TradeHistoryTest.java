@@ -0,0 +1,145 @@
+package core.history;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.journal.FlushPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import trader.LimitOrderHandler;
+import trader.MappedTradePersistence;
+import trader.TradeStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeHistoryTest {
+    @TempDir
+    Path dir;
+
+    // realistic ids and times, with one stretch of widely spread prices that defeats the dictionary
+    private static TradeStore randomStore(int trades) {
+        TradeStore store = new TradeStore(trades);
+        SplittableRandom random = new SplittableRandom(17);
+        int activeOrderId = 100000000;
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < trades; i++) {
+            if (random.nextInt(3) > 0) {
+                activeOrderId += 1 + random.nextInt(4);
+                time += random.nextInt(3);
+            }
+            final long price = i >= 3_000 && i < 4_000 ? random.nextLong(1_000_000) : 10_000 + random.nextInt(40);
+            store.append(random.nextInt(3), activeOrderId, activeOrderId - 1 - random.nextInt(500), price,
+                    1 + random.nextInt(100), time, random.nextBoolean());
+        }
+        return store;
+    }
+
+    @Test
+    void testRowsRoundTrip() {
+        TradeStore store = randomStore(10_000);
+        Path file = dir.resolve("trades.hist");
+        try (TradeHistoryWriter writer = new TradeHistoryWriter(file, 1_000)) {
+            for (int i = 0; i < store.size(); i++) {
+                writer.append(store.getInstrumentId(i), store.getActiveOrderId(i), store.getPassiveOrderId(i),
+                        store.getPrice(i), store.getQuantity(i), store.getTradeTime(i), store.isPassiveCompleted(i));
+            }
+            writer.append(-1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE - 1, true);
+        }
+        try (TradeHistoryFile history = TradeHistoryFile.open(file)) {
+            assertEquals(10_001, history.getRowCount());
+            assertEquals(11, history.getChunkCount());
+            final List<String> rows = new ArrayList<>();
+            assertEquals(10_001, history.scan(Long.MIN_VALUE, Long.MAX_VALUE, (row, instrumentId, activeOrderId, passiveOrderId, price, quantity, tradeTime, passiveCompleted) -> {
+                assertEquals(rows.size(), row);
+                rows.add(instrumentId + " " + activeOrderId + " " + passiveOrderId + " " + price + "x" + quantity + " @" + tradeTime + " " + passiveCompleted);
+            }));
+            for (int i = 0; i < store.size(); i++) {
+                assertEquals(store.getInstrumentId(i) + " " + store.getActiveOrderId(i) + " " + store.getPassiveOrderId(i) + " "
+                        + store.getPrice(i) + "x" + store.getQuantity(i) + " @" + store.getTradeTime(i) + " "
+                        + store.isPassiveCompleted(i), rows.get(i), "Row " + i);
+            }
+            assertEquals("-1 " + Integer.MAX_VALUE + " " + Integer.MIN_VALUE + " " + Long.MIN_VALUE + "x" + Integer.MAX_VALUE
+                    + " @" + (Long.MAX_VALUE - 1) + " true", rows.get(10_000), "Extreme values survive the encodings");
+        }
+    }
+
+    @Test
+    void testParallelAggregatesMatchStore() {
+        TradeStore store = randomStore(50_000);
+        Path file = dir.resolve("trades.hist");
+        TradeHistoryWriter.export(store, file);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try (TradeHistoryFile history = TradeHistoryFile.open(file, pool)) {
+            final long first = store.getTradeTime(0);
+            final long last = store.getTradeTime(store.size() - 1);
+            final long[][] ranges = {{Long.MIN_VALUE, Long.MAX_VALUE}, {first + 100, first + 5_000}, {last, last + 1}, {last + 1, last + 2}};
+            for (long[] range : ranges) {
+                for (int instrumentId = 0; instrumentId < 3; instrumentId++) {
+                    final int id = instrumentId;
+                    final long[] count = new long[1];
+                    store.scan(range[0], range[1], (index, instrument, activeOrderId, passiveOrderId, price, quantity, tradeTime) -> {
+                        if (instrument == id) {
+                            count[0]++;
+                        }
+                    });
+                    assertEquals(count[0], history.getTradeCount(instrumentId, range[0], range[1]));
+                    assertEquals(store.getVolume(instrumentId, range[0], range[1]), history.getVolume(instrumentId, range[0], range[1]));
+                    final double expected = store.getVwap(instrumentId, range[0], range[1]);
+                    if (Double.isNaN(expected)) {
+                        assertTrue(Double.isNaN(history.getVwap(instrumentId, range[0], range[1])));
+                    } else {
+                        assertEquals(expected, history.getVwap(instrumentId, range[0], range[1]), 1e-6);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testJournalRollsIntoMuchSmallerFile() throws IOException {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(0, "BTC-USDT", 1);
+        Path journalDir = dir.resolve("journal");
+        Path file = dir.resolve("trades.hist");
+        try (MappedTradePersistence journal = new MappedTradePersistence(journalDir, FlushPolicy.none())) {
+            LimitOrderHandler handler = new LimitOrderHandler(registry, journal);
+            TradeBuffer trades = new TradeBuffer();
+            SplittableRandom random = new SplittableRandom(3);
+            for (int orderId = 1; journal.size() < 100_000; orderId++) {
+                trades.clear();
+                final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                handler.matchOrder(0, orderId, 1 + random.nextInt(20), 1_000 + random.nextInt(11) - 5, side, trades);
+            }
+            TradeHistoryWriter.export(journal, file);
+
+            final long rowBytes = journal.size() * (long) (MappedTradePersistence.RECORD_BYTES + 8);
+            final long historyBytes = Files.size(file);
+            assertTrue(historyBytes * 5 <= rowBytes, "History should be at least 5x smaller than the row records: "
+                    + historyBytes + " vs " + rowBytes + " bytes");
+            try (TradeHistoryFile history = TradeHistoryFile.open(file)) {
+                assertEquals(journal.size(), history.getRowCount());
+                final long volume = history.getVolume(0, Long.MIN_VALUE, Long.MAX_VALUE);
+                final long[] journalVolume = new long[1];
+                journal.getLog().read(0, (sequence, buffer, offset) -> journalVolume[0] += buffer.getInt(offset + MappedTradePersistence.QUANTITY));
+                assertEquals(journalVolume[0], volume);
+            }
+        }
+    }
+
+    @Test
+    void testRejectsForeignFile() throws IOException {
+        Path file = dir.resolve("not-history");
+        Files.write(file, new byte[128]);
+        assertThrows(IllegalArgumentException.class, () -> TradeHistoryFile.open(file));
+    }
+}
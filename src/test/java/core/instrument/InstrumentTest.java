@@ -0,0 +1,33 @@
+package core.instrument;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentTest {
+
+    @Test
+    void testDecimalPricesLandOnSameTick() {
+        Instrument instrument = new Instrument(0, "BTC-USDT", 0.01);
+        // 0.1 + 0.2 != 0.3 as doubles, but both must map to the same price level
+        assertEquals(instrument.toTicks(0.3), instrument.toTicks(0.1 + 0.2));
+        assertEquals(30, instrument.toTicks(0.3));
+        assertEquals(0.3, instrument.toPrice(30), "Ticks should convert back to the exact decimal");
+    }
+
+    @Test
+    void testOffTickPriceRejected() {
+        Instrument instrument = new Instrument(0, "BTC-USDT", 0.5);
+        assertEquals(201, instrument.toTicks(100.5));
+        assertThrows(IllegalArgumentException.class, () -> instrument.toTicks(100.25), "Price between ticks should be rejected");
+        assertThrows(IllegalArgumentException.class, () -> new Instrument(1, "ETH-USDT", 0));
+    }
+
+    @Test
+    void testLargeAndNegativePrices() {
+        Instrument instrument = new Instrument(0, "BTC-USDT", 0.001);
+        assertEquals(9999999999L, instrument.toTicks(9999999.999));
+        assertEquals(-100000, instrument.toTicks(-100));
+        assertEquals(9999999.999, instrument.toPrice(9999999999L));
+    }
+}
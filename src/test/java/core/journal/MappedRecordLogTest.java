@@ -0,0 +1,110 @@
+package core.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRecordLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static void append(MappedRecordLog log, long value) {
+        final int offset = log.claim();
+        log.buffer().putLong(offset, value);
+        log.commit();
+    }
+
+    private static List<Long> readAll(MappedRecordLog log, long from) {
+        final List<Long> values = new ArrayList<>();
+        log.read(from, (sequence, buffer, offset) -> {
+            assertEquals(from + values.size(), sequence, "Records should come back in sequence order");
+            values.add(buffer.getLong(offset));
+        });
+        return values;
+    }
+
+    @Test
+    void testSegmentsRollAndRecordsReadBackInOrder() {
+        // 16 byte records, 10 per segment
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 160, FlushPolicy.none())) {
+            for (long i = 0; i < 25; i++) {
+                append(log, i * 7);
+            }
+            assertEquals(3, log.segmentPaths().size(), "25 records at 10 per segment need 3 segments");
+            assertTrue(Files.exists(dir.resolve("test-2.log")));
+
+            List<Long> values = readAll(log, 0);
+            assertEquals(25, values.size());
+            assertEquals(24 * 7, values.get(24));
+            assertEquals(List.of(12L * 7, 13L * 7), readAll(log, 12).subList(0, 2), "Reading can start mid-log");
+        }
+    }
+
+    @Test
+    void testReopenContinuesAfterLastCommittedRecord() {
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 160, FlushPolicy.everyNRecords(4))) {
+            for (long i = 0; i < 13; i++) {
+                append(log, i);
+            }
+            log.claim(); // never committed, must not survive
+        }
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 160, FlushPolicy.everyNMicros(100))) {
+            assertEquals(13, log.getNextSequence());
+            append(log, 13);
+            List<Long> values = readAll(log, 0);
+            assertEquals(14, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(i, values.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testFlusherCatchesUp() throws InterruptedException {
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 1 << 12, FlushPolicy.everyNRecords(10))) {
+            for (long i = 0; i < 1000; i++) {
+                append(log, i);
+            }
+            final long deadline = System.nanoTime() + 5_000_000_000L;
+            while (log.getFlushedCount() < 1000 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1000, log.getFlushedCount(), "Background flusher should force everything appended");
+        }
+    }
+
+    @Test
+    void testFlushedCountNeverGoesBackwards() {
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 1 << 12, FlushPolicy.everyNRecords(1))) {
+            long seen = 0;
+            for (long i = 0; i < 2000; i++) {
+                append(log, i);
+                if (i % 7 == 0) {
+                    log.flush();
+                    assertEquals(i + 1, log.getFlushedCount(), "a synchronous flush covers everything appended");
+                }
+                final long flushed = log.getFlushedCount();
+                assertTrue(flushed >= seen, "flushed count went back from " + seen + " to " + flushed);
+                seen = flushed;
+            }
+        }
+    }
+
+    @Test
+    void testRejectsBadUsage() {
+        assertThrows(IllegalArgumentException.class, () -> FlushPolicy.everyNRecords(0));
+        assertThrows(IllegalArgumentException.class, () -> new MappedRecordLog(dir, "test", 8, 8, FlushPolicy.none()));
+        try (MappedRecordLog log = new MappedRecordLog(dir, "test", 8, 160, FlushPolicy.none())) {
+            assertThrows(IllegalStateException.class, log::commit);
+            log.claim();
+            assertThrows(IllegalStateException.class, log::claim);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package core.marketdata;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import trader.LimitOrderHandler;
+import trader.MarketOrderHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthFeedTest {
+    private static final int INSTRUMENT_ID = 0;
+
+    private InstrumentRegistry registry;
+    private DepthFeed feed;
+    private LimitOrderHandler handler;
+    private final List<String> updates = new ArrayList<>();
+    private final List<Long> overruns = new ArrayList<>();
+    private final DepthHandler collector = new DepthHandler() {
+        @Override
+        public void onDepth(long sequence, int instrumentId, Side side, long price, int quantity, int orderCount, boolean endOfCommand) {
+            updates.add(side + "@" + price + "=" + quantity + "/" + orderCount + (endOfCommand ? "|" : ""));
+        }
+
+        @Override
+        public void onOverrun(long fromSequence, long toSequence) {
+            overruns.add(toSequence - fromSequence);
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        feed = new DepthFeed(16);
+        feed.attach(registry.get(INSTRUMENT_ID));
+        handler = new LimitOrderHandler(registry);
+        handler.setDepthFeed(feed);
+    }
+
+    @Test
+    void testEveryCommandPublishesTheLevelsItChanged() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 100, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 3, 7, 101, Side.SELL);
+        long next = feed.poll(0, collector, Integer.MAX_VALUE);
+        assertEquals(List.of("SELL@100=5/1|", "SELL@100=10/2|", "SELL@101=7/1|"), updates);
+
+        // sweeps two levels and rests the remainder: one update per level, one end of command
+        updates.clear();
+        handler.matchOrder(INSTRUMENT_ID, 4, 20, 101, Side.BUY);
+        next = feed.poll(next, collector, Integer.MAX_VALUE);
+        assertEquals(List.of("SELL@100=0/0", "SELL@101=0/0", "BUY@101=3/1|"), updates);
+
+        updates.clear();
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, 4);
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, 4); // already gone, publishes nothing
+        assertEquals(next + 1, feed.poll(next, collector, Integer.MAX_VALUE));
+        assertEquals(List.of("BUY@101=0/0|"), updates);
+        assertTrue(overruns.isEmpty());
+    }
+
+    @Test
+    void testUpdatesAreInvisibleUntilCommandEnds() {
+        feed.levelChanged(INSTRUMENT_ID, Side.SELL, 100, 5, 1);
+        feed.levelChanged(INSTRUMENT_ID, Side.SELL, 100, 3, 1); // same level again, coalesced
+        feed.levelChanged(INSTRUMENT_ID, Side.SELL, 101, 2, 1);
+        assertEquals(0, feed.poll(0, collector, Integer.MAX_VALUE), "Nothing should be readable mid-command");
+        feed.publish();
+        assertEquals(2, feed.poll(0, collector, Integer.MAX_VALUE));
+        assertEquals(List.of("SELL@100=3/1", "SELL@101=2/1|"), updates);
+    }
+
+    @Test
+    void testLevelsAreCoalescedAcrossTheWholeCommand() {
+        DepthFeed wide = new DepthFeed(1024);
+        for (int price = 100; price < 200; price++) {
+            wide.levelChanged(INSTRUMENT_ID, Side.SELL, price, 1, 1);
+            wide.levelChanged(INSTRUMENT_ID, Side.BUY, price, 1, 1);
+        }
+        for (int price = 100; price < 200; price++) {
+            wide.levelChanged(INSTRUMENT_ID, Side.SELL, price, 2, 2);
+        }
+        wide.publish();
+        long next = wide.poll(0, collector, Integer.MAX_VALUE);
+        assertEquals(200, next, "one update per level touched");
+        assertEquals("SELL@100=2/2", updates.get(0));
+        assertEquals("BUY@100=1/1", updates.get(1));
+        assertEquals("BUY@199=1/1|", updates.get(199));
+
+        // a new command starts afresh
+        updates.clear();
+        wide.levelChanged(INSTRUMENT_ID, Side.SELL, 100, 0, 0);
+        wide.levelChanged(INSTRUMENT_ID, Side.SELL, 101, 0, 0);
+        wide.levelChanged(INSTRUMENT_ID, Side.SELL, 100, 4, 1);
+        wide.publish();
+        assertEquals(next + 2, wide.poll(next, collector, Integer.MAX_VALUE));
+        assertEquals(List.of("SELL@100=4/1", "SELL@101=0/0|"), updates);
+    }
+
+    @Test
+    void testMarketOrdersPublishDepth() {
+        MarketOrderHandler marketHandler = new MarketOrderHandler(registry);
+        marketHandler.setDepthFeed(feed);
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL);
+        marketHandler.matchOrder(INSTRUMENT_ID, 2, 2, Side.BUY);
+        feed.poll(0, collector, Integer.MAX_VALUE);
+        assertEquals(List.of("SELL@100=5/1|", "SELL@100=3/1|"), updates);
+    }
+
+    @Test
+    void testSlowConsumerIsToldAboutOverrun() {
+        for (int i = 0; i < 40; i++) {
+            handler.matchOrder(INSTRUMENT_ID, i + 1, 1, 100 + i, Side.SELL);
+        }
+        long next = feed.poll(0, collector, Integer.MAX_VALUE);
+        assertEquals(List.of(40L), overruns, "Updates lapped by the producer should be reported, not delivered");
+        assertEquals(40, next);
+        assertTrue(updates.isEmpty());
+
+        handler.matchOrder(INSTRUMENT_ID, 100, 1, 200, Side.SELL);
+        assertEquals(41, feed.poll(next, collector, Integer.MAX_VALUE), "The consumer should carry on after the overrun");
+        assertEquals(List.of("SELL@200=1/1|"), updates);
+    }
+}
@@ -0,0 +1,211 @@
+package core.marketdata;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.shard.ShardListener;
+import core.shard.ShardedEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import trader.LimitOrderHandler;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderFeedTest {
+    private static final int INSTRUMENT_ID = 0;
+
+    @TempDir
+    Path directory;
+
+    private InstrumentRegistry registry;
+    private LimitOrderHandler handler;
+    private final List<String> events = new ArrayList<>();
+    private final List<Long> overruns = new ArrayList<>();
+    private final OrderEventHandler collector = new OrderEventHandler() {
+        @Override
+        public void onOrderEvent(long sequence, byte type, int instrumentId, long instrumentSequence, Side side,
+                                 int orderId, long price, int quantity, int matchedOrderId) {
+            events.add(instrumentSequence + ":" + type + ":" + side + ":" + orderId + "@" + price + "x" + quantity + (matchedOrderId != 0 ? "<" + matchedOrderId : ""));
+        }
+
+        @Override
+        public void onOverrun(long fromSequence, long toSequence) {
+            overruns.add(toSequence - fromSequence);
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        handler = new LimitOrderHandler(registry);
+    }
+
+    @Test
+    void testEveryOrderChangeIsReadFromTheMappedFile() {
+        OrderFeed feed = new OrderFeed(directory.resolve("orders.l3"), 64, registry.capacity());
+        feed.attach(registry.get(INSTRUMENT_ID));
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 101, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 3, 7, 101, Side.BUY);
+        handler.cancelOrder(INSTRUMENT_ID, Side.SELL, 2);
+        handler.cancelOrder(INSTRUMENT_ID, Side.SELL, 2); // gone already, no event
+
+        OrderFeedReader reader = new OrderFeedReader(feed.getFile());
+        assertEquals(5, reader.getHeadSequence());
+        assertEquals(5, reader.poll(0, collector, Integer.MAX_VALUE));
+        // the fully filled buy never rests, so it has no event of its own
+        assertEquals(List.of(
+                "1:1:SELL:1@100x5",
+                "2:1:SELL:2@101x5",
+                "3:3:SELL:1@100x5<3",
+                "4:3:SELL:2@101x2<3",
+                "5:2:SELL:2@101x3"), events);
+        assertTrue(overruns.isEmpty());
+    }
+
+    @Test
+    void testAmendIsReducedInPlaceOrMovedAsCancelAndAdd() {
+        OrderFeed feed = new OrderFeed(directory.resolve("orders.l3"), 64, registry.capacity());
+        feed.attach(registry.get(INSTRUMENT_ID));
+        TradeBuffer trades = new TradeBuffer();
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.BUY);
+        handler.amendOrder(INSTRUMENT_ID, Side.BUY, 1, 3, 100, trades);
+        handler.amendOrder(INSTRUMENT_ID, Side.BUY, 1, 3, 99, trades);
+
+        OrderFeedReader reader = new OrderFeedReader(feed.getFile());
+        assertEquals(4, reader.poll(0, collector, Integer.MAX_VALUE));
+        assertEquals(List.of(
+                "1:1:BUY:1@100x5",
+                "2:4:BUY:1@100x3",
+                "3:2:BUY:1@100x3",
+                "4:1:BUY:1@99x3"), events);
+    }
+
+    @Test
+    void testLateSubscriberCatchesUpFromImage() {
+        OrderFeed feed = new OrderFeed(directory.resolve("orders.l3"), 1 << 12, registry.capacity());
+        feed.attach(registry.get(INSTRUMENT_ID));
+        SplittableRandom random = new SplittableRandom(3);
+        int orderId = 1;
+        for (int i = 0; i < 500; i++) {
+            orderId = randomCommand(random, orderId);
+        }
+
+        // join: remember where the ring is, take an image, then apply newer events only
+        OrderFeedReader reader = new OrderFeedReader(feed.getFile());
+        long next = reader.getHeadSequence();
+        for (int i = 0; i < 50; i++) {
+            orderId = randomCommand(random, orderId); // happens while the image is being fetched
+        }
+        OrderBookImage image = feed.image(registry.get(INSTRUMENT_ID));
+        Map<Integer, Integer> resting = new LinkedHashMap<>();
+        for (int i = 0; i < image.getOrderCount(); i++) {
+            resting.put(image.getOrderId(i), image.getQuantity(i));
+        }
+        for (int i = 0; i < 500; i++) {
+            orderId = randomCommand(random, orderId);
+        }
+        reader.poll(next, new OrderEventHandler() {
+            @Override
+            public void onOrderEvent(long sequence, byte type, int instrumentId, long instrumentSequence, Side side,
+                                     int orderId, long price, int quantity, int matchedOrderId) {
+                if (instrumentSequence <= image.getSequence()) {
+                    return;
+                }
+                switch (type) {
+                    case OrderFeed.ADD:
+                        resting.put(orderId, quantity);
+                        break;
+                    case OrderFeed.CANCEL:
+                        resting.remove(orderId);
+                        break;
+                    case OrderFeed.EXECUTE:
+                        resting.computeIfPresent(orderId, (id, open) -> open == quantity ? null : open - quantity);
+                        break;
+                    default:
+                        fail("Unexpected event type " + type);
+                }
+            }
+
+            @Override
+            public void onOverrun(long fromSequence, long toSequence) {
+                fail("The ring is large enough for the catch-up");
+            }
+        }, Integer.MAX_VALUE);
+
+        OrderBookImage now = feed.image(registry.get(INSTRUMENT_ID));
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < now.getOrderCount(); i++) {
+            expected.put(now.getOrderId(i), now.getQuantity(i));
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, resting, "Image plus newer events should rebuild the resting orders");
+    }
+
+    private int randomCommand(SplittableRandom random, int orderId) {
+        if (random.nextInt(4) == 0) {
+            handler.cancelOrder(INSTRUMENT_ID, random.nextBoolean() ? Side.BUY : Side.SELL, 1 + random.nextInt(orderId));
+            return orderId;
+        }
+        handler.matchOrder(INSTRUMENT_ID, orderId, 1 + random.nextInt(10), 95 + random.nextInt(10), random.nextBoolean() ? Side.BUY : Side.SELL);
+        return orderId + 1;
+    }
+
+    @Test
+    void testSlowReaderIsToldAboutOverrun() {
+        OrderFeed feed = new OrderFeed(directory.resolve("orders.l3"), 8, registry.capacity());
+        feed.attach(registry.get(INSTRUMENT_ID));
+        for (int i = 0; i < 20; i++) {
+            handler.matchOrder(INSTRUMENT_ID, i + 1, 1, 100 + i, Side.SELL);
+        }
+        OrderFeedReader reader = new OrderFeedReader(feed.getFile());
+        assertEquals(20, reader.poll(0, collector, Integer.MAX_VALUE));
+        assertEquals(List.of(12L), overruns, "Events 0 to 11 were overwritten");
+        assertEquals(8, events.size(), "The last ring of events should still be delivered");
+        assertEquals("13:1:SELL:13@112x1", events.get(0));
+    }
+
+    @Test
+    void testShardedEngineServesImagesAtFeedSequence() throws Exception {
+        ShardedEngine engine = new ShardedEngine(registry, 1, 1 << 10, new ShardListener() {
+            @Override
+            public void onTrades(int instrumentId, TradeBuffer trades) {
+            }
+
+            @Override
+            public void onReject(int instrumentId, int orderId, RuntimeException cause) {
+            }
+        });
+        engine.publishOrders(INSTRUMENT_ID, directory);
+        engine.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                engine.submitLimitOrder(INSTRUMENT_ID, 2, 100 + i, Side.SELL);
+            }
+            engine.submitLimitOrder(INSTRUMENT_ID, 3, 100, Side.BUY);
+            OrderBookImage image = engine.requestOrderImage(INSTRUMENT_ID).get(5, TimeUnit.SECONDS);
+            for (int tries = 0; image.getSequence() < 12 && tries < 1000; tries++) {
+                image = engine.requestOrderImage(INSTRUMENT_ID).get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(12, image.getSequence(), "10 adds, the execution at 100 and the resting remainder");
+            assertEquals(10, image.getOrderCount());
+
+            OrderFeedReader reader = new OrderFeedReader(engine.getOrderFeedFile(INSTRUMENT_ID));
+            assertEquals(12, reader.poll(0, collector, Integer.MAX_VALUE));
+            assertEquals("12:1:BUY:100000010@100x1", events.get(11), "The unfilled remainder rests");
+        } finally {
+            engine.stop();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package core.metrics;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import org.junit.jupiter.api.Test;
+import trader.LimitOrderHandler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            assertEquals(LatencyHistogram.highestValue(i - 1) + 1, LatencyHistogram.lowestValue(i), "Bucket " + i + " should start where the previous one ends");
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.bucketIndex(-5), "Negative values should count as 0");
+    }
+
+    @Test
+    void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 1_000_000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(1_000_000, histogram.getTotalCount());
+        assertEquals(1_000_000, histogram.getMaxValue(), "Max should be exact");
+        assertWithin(500_000, histogram.getValueAtPercentile(50));
+        assertWithin(990_000, histogram.getValueAtPercentile(99));
+        assertWithin(999_000, histogram.getValueAtPercentile(99.9));
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testTailIsNotAveragedAway() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9990; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5_000_000);
+        }
+        assertEquals(100, histogram.getValueAtPercentile(99));
+        assertWithin(5_000_000, histogram.getValueAtPercentile(99.95));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99), "Empty histogram should report 0");
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    @Test
+    void testCopyAndAddAreIndependent() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20_000);
+        LatencyHistogram sum = a.copy();
+        sum.add(b);
+        assertEquals(2, sum.getTotalCount());
+        assertEquals(20_000, sum.getMaxValue());
+        assertEquals(1, a.getTotalCount(), "Adding into a copy should not touch the source");
+
+        a.reset();
+        assertEquals(0, a.getTotalCount());
+        assertEquals(2, sum.getTotalCount());
+    }
+
+    @Test
+    void testHandlerRecordsOnlyEnabledInstruments() {
+        InstrumentRegistry registry = new InstrumentRegistry(2);
+        registry.register(new InstrumentSpec(0, "BTC-USDT").tickSize(1));
+        registry.register(new InstrumentSpec(1, "ETH-USDT").tickSize(1));
+        LatencyRecorder recorder = new LatencyRecorder(registry.capacity());
+        recorder.enable(0);
+        LimitOrderHandler handler = new LimitOrderHandler(registry);
+        handler.setLatencyRecorder(recorder);
+
+        for (int instrumentId = 0; instrumentId < 2; instrumentId++) {
+            handler.matchOrder(instrumentId, 1, 10, 100, Side.SELL); // rests
+            handler.matchOrder(instrumentId, 2, 4, 100, Side.BUY);   // fills completely
+            handler.cancelOrder(instrumentId, Side.SELL, 1);
+        }
+
+        assertEquals(2, recorder.getHistogram(0, Operation.MATCH).getTotalCount(), "Every order is matched first");
+        assertEquals(1, recorder.getHistogram(0, Operation.INSERT).getTotalCount(), "Only the unfilled order rests");
+        assertEquals(1, recorder.getHistogram(0, Operation.CANCEL).getTotalCount());
+        assertFalse(recorder.isEnabled(1));
+        assertNull(recorder.getHistogram(1, Operation.MATCH), "Disabled instruments should have no histograms");
+        assertEquals(2, recorder.aggregate(Operation.MATCH).getTotalCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 128 + 1, "Expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,87 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.price.PriceLevel;
+import org.junit.jupiter.api.Test;
+import trader.bean.LimitOrder;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepthCacheTest {
+    private static final long MIN_PRICE = 100;
+    private static final int PRICE_RANGE = 40;
+
+    @Test
+    void testDepthIsBestFirst() {
+        OrderBook bids = new TreeOrderBook(Side.BUY);
+        bids.onNewOrder(new LimitOrder(1, 5, 100, Side.BUY));
+        bids.onNewOrder(new LimitOrder(2, 7, 102, Side.BUY));
+        bids.onNewOrder(new LimitOrder(3, 1, 102, Side.BUY));
+        bids.onNewOrder(new LimitOrder(4, 2, 101, Side.BUY));
+
+        long[] prices = new long[10];
+        int[] quantities = new int[10];
+        int[] counts = new int[10];
+        assertEquals(2, bids.getDepth(2, prices, quantities, counts));
+        assertArrayEquals(new long[]{102, 101}, java.util.Arrays.copyOf(prices, 2));
+        assertEquals(8, quantities[0]);
+        assertEquals(2, counts[0]);
+        assertEquals(3, bids.getDepth(10, prices, quantities, counts), "Fewer levels than asked for");
+        assertThrows(IllegalArgumentException.class, () -> bids.getDepth(11, prices, quantities, counts));
+    }
+
+    @Test
+    void testCacheFollowsRandomFlowOnBothBooks() {
+        checkRandomFlow(new TreeOrderBook(Side.SELL), new TreeOrderBook(Side.BUY));
+        checkRandomFlow(new LadderOrderBook(Side.SELL, MIN_PRICE, PRICE_RANGE), new LadderOrderBook(Side.BUY, MIN_PRICE, PRICE_RANGE));
+    }
+
+    private static void checkRandomFlow(OrderBook asks, OrderBook bids) {
+        SplittableRandom random = new SplittableRandom(7);
+        TradeBuffer trades = new TradeBuffer();
+        int[] depths = {1, 3, 5, 5, 5, 8};
+        int orderId = 1;
+        for (int step = 0; step < 20_000; step++) {
+            final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            final OrderBook own = side == Side.BUY ? bids : asks;
+            final OrderBook opposite = side == Side.BUY ? asks : bids;
+            if (random.nextInt(3) == 0 && orderId > 1) {
+                own.onCancelOrder(1 + random.nextInt(orderId - 1));
+            } else {
+                LimitOrder order = new LimitOrder(orderId++, 1 + random.nextInt(10), MIN_PRICE + random.nextInt(PRICE_RANGE), side);
+                trades.clear();
+                opposite.matchOrder(order, trades, 0);
+                if (!order.isCompleted()) {
+                    own.onNewOrder(order);
+                }
+            }
+            final int n = depths[random.nextInt(depths.length)];
+            assertDepth(asks, n, "step " + step);
+            assertDepth(bids, n, "step " + step);
+        }
+    }
+
+    // compares getDepth with a scan of every price in the range
+    private static void assertDepth(OrderBook book, int n, String context) {
+        long[] prices = new long[n];
+        int[] quantities = new int[n];
+        int[] counts = new int[n];
+        final int levels = book.getDepth(n, prices, quantities, counts);
+        int expected = 0;
+        for (int i = 0; i < PRICE_RANGE && expected < n; i++) {
+            final long price = book.getSide() == Side.BUY ? MIN_PRICE + PRICE_RANGE - 1 - i : MIN_PRICE + i;
+            final PriceLevel level = book.getPriceLevel(price);
+            if (level == null) {
+                continue;
+            }
+            assertEquals(price, prices[expected], book.getSide() + " level " + expected + " price at " + context);
+            assertEquals(level.getOpenQuantity(), quantities[expected], book.getSide() + " level " + expected + " quantity at " + context);
+            assertEquals(level.getOpenOrderCount(), counts[expected], book.getSide() + " level " + expected + " count at " + context);
+            expected++;
+        }
+        assertEquals(expected, levels, book.getSide() + " level count at " + context);
+    }
+}
@@ -0,0 +1,65 @@
+package core.order;
+
+import core.bean.Side;
+import org.junit.jupiter.api.Test;
+import trader.bean.LimitOrder;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LadderOrderBookTest {
+
+    @Test
+    void testBestPriceFollowsTreeBook() {
+        for (Side side : Side.values()) {
+            OrderBook tree = new TreeOrderBook(side);
+            OrderBook ladder = new LadderOrderBook(side, 1000, 200);
+            Random random = new Random(7);
+            int orderId = 1;
+            for (int i = 0; i < 2000; i++) {
+                if (random.nextInt(3) > 0 || tree.isEmpty()) {
+                    long price = 1000 + random.nextInt(200);
+                    tree.onNewOrder(new LimitOrder(orderId, 1, price, side));
+                    ladder.onNewOrder(new LimitOrder(orderId, 1, price, side));
+                    orderId++;
+                } else {
+                    int cancelId = 1 + random.nextInt(orderId - 1);
+                    tree.onCancelOrder(cancelId);
+                    ladder.onCancelOrder(cancelId);
+                }
+                assertEquals(tree.getBestPrice(), ladder.getBestPrice(), side + " best price after step " + i);
+                assertEquals(tree.getPriceLevelCount(), ladder.getPriceLevelCount(), side + " level count after step " + i);
+            }
+        }
+    }
+
+    @Test
+    void testBestPriceMovesAcrossBitmapWords() {
+        LadderOrderBook asks = new LadderOrderBook(Side.SELL, 0, 300);
+        asks.onNewOrder(new LimitOrder(1, 5, 10, Side.SELL));
+        asks.onNewOrder(new LimitOrder(2, 5, 250, Side.SELL));
+        assertEquals(10, asks.getBestPrice());
+        asks.onCancelOrder(1);
+        assertEquals(250, asks.getBestPrice(), "Best ask should skip the empty words up to the next level");
+        asks.onCancelOrder(2);
+        assertTrue(asks.isEmpty());
+        assertEquals(OrderBook.NULL_PRICE, asks.getBestPrice());
+
+        LadderOrderBook bids = new LadderOrderBook(Side.BUY, 0, 300);
+        bids.onNewOrder(new LimitOrder(3, 5, 3, Side.BUY));
+        bids.onNewOrder(new LimitOrder(4, 5, 299, Side.BUY));
+        assertEquals(299, bids.getBestPrice());
+        bids.onCancelOrder(4);
+        assertEquals(3, bids.getBestPrice(), "Best bid should scan down to the next level");
+    }
+
+    @Test
+    void testPriceOutsideBandRejected() {
+        LadderOrderBook asks = new LadderOrderBook(Side.SELL, 100, 10);
+        assertThrows(IllegalArgumentException.class, () -> asks.onNewOrder(new LimitOrder(1, 5, 110, Side.SELL)));
+        assertThrows(IllegalArgumentException.class, () -> asks.onNewOrder(new LimitOrder(2, 5, 99, Side.SELL)));
+        assertTrue(asks.isEmpty(), "A rejected order should leave the book untouched");
+        assertNull(asks.getPriceLevel(99));
+    }
+}
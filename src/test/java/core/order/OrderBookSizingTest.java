@@ -0,0 +1,53 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.Trade;
+import org.junit.jupiter.api.Test;
+import trader.bean.LimitOrder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookSizingTest {
+
+    @Test
+    void testPriceLevelsGrowPastInitialSize() {
+        OrderBook book = new TreeOrderBook(Side.SELL, new OrderBookSizing(4, 16));
+        int levels = 1000;
+        for (int i = 0; i < levels; i++) {
+            book.onNewOrder(new LimitOrder(i + 1, 1, 100 + i, Side.SELL));
+        }
+        assertEquals(levels, book.getPriceLevelCount(), "Levels beyond the initial size should be created on demand");
+        assertEquals(100, book.getBestPrice());
+
+        book.onCancelOrder(1);
+        assertEquals(101, book.getBestPrice(), "Cancel should address the right level after growth");
+        assertEquals(levels - 1, book.getPriceLevelCount());
+    }
+
+    @Test
+    void testOrdersAtOneLevelGrowPastOldCap() {
+        OrderBook book = new LadderOrderBook(Side.BUY, 0, 16);
+        int orders = 40000; // above the former 32768 per-level limit
+        for (int i = 0; i < orders; i++) {
+            book.onNewOrder(new LimitOrder(i + 1, 1, 10, Side.BUY));
+        }
+        assertEquals(orders, book.getPriceLevel(10).getOpenOrderCount());
+
+        // the last order sits past the old position range, its index handle must still resolve
+        book.onCancelOrder(orders);
+        assertEquals(orders - 1, book.getPriceLevel(10).getOpenOrderCount());
+        assertFalse(book.getOrderIndex().contains(orders));
+
+        List<Trade> trades = book.matchOrder(new LimitOrder(orders + 1, 3, 10, Side.SELL));
+        assertEquals(3, trades.size());
+        assertEquals(1, trades.get(0).getPassiveOrderId(), "Fills should stay in arrival order");
+    }
+
+    @Test
+    void testRejectsNonPositiveSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderBookSizing(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new OrderBookSizing(16, -1));
+    }
+}
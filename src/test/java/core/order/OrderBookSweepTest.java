@@ -0,0 +1,67 @@
+package core.order;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import org.junit.jupiter.api.Test;
+import trader.bean.LimitOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookSweepTest {
+
+    private static OrderBook[] books(Side side) {
+        return new OrderBook[]{new TreeOrderBook(side), new LadderOrderBook(side, 0, 1024)};
+    }
+
+    @Test
+    void testBuySweepsAsksUpToItsLimit() {
+        for (OrderBook asks : books(Side.SELL)) {
+            asks.onNewOrder(new LimitOrder(1, 10, 100, Side.SELL));
+            asks.onNewOrder(new LimitOrder(2, 10, 99, Side.SELL));
+            asks.onNewOrder(new LimitOrder(3, 10, 101, Side.SELL));
+            asks.onNewOrder(new LimitOrder(4, 10, 102, Side.SELL));
+
+            TradeBuffer trades = new TradeBuffer();
+            LimitOrder buy = new LimitOrder(5, 35, 101, Side.BUY);
+            asks.matchOrder(buy, trades);
+
+            assertEquals(3, trades.size(), "Levels 99, 100 and 101 cross a buy at 101");
+            assertEquals(99, trades.getPrice(0), "Fills should start at the best ask");
+            assertEquals(100, trades.getPrice(1));
+            assertEquals(101, trades.getPrice(2), "Each fill is at the resting level's price");
+            assertEquals(5, buy.getPendingMatchQuantity(), "The remainder is left for the caller to rest");
+            assertEquals(102, asks.getBestPrice(), "A level beyond the limit must not trade");
+            assertEquals(1, asks.getPriceLevelCount());
+            assertFalse(asks.getOrderIndex().contains(2));
+        }
+    }
+
+    @Test
+    void testSellSweepsBidsDownToItsLimit() {
+        for (OrderBook bids : books(Side.BUY)) {
+            bids.onNewOrder(new LimitOrder(1, 10, 100, Side.BUY));
+            bids.onNewOrder(new LimitOrder(2, 10, 98, Side.BUY));
+            bids.onNewOrder(new LimitOrder(3, 10, 99, Side.BUY));
+
+            TradeBuffer trades = new TradeBuffer();
+            bids.matchOrder(new LimitOrder(4, 15, 99, Side.SELL), trades);
+
+            assertEquals(2, trades.size());
+            assertEquals(100, trades.getPrice(0), "Fills should start at the best bid");
+            assertEquals(99, trades.getPrice(1));
+            assertEquals(5, trades.getQuantity(1));
+            assertEquals(99, bids.getBestPrice(), "The partly filled level stays best");
+        }
+    }
+
+    @Test
+    void testNonCrossingOrderDoesNotTrade() {
+        for (OrderBook asks : books(Side.SELL)) {
+            asks.onNewOrder(new LimitOrder(1, 10, 100, Side.SELL));
+            TradeBuffer trades = new TradeBuffer();
+            asks.matchOrder(new LimitOrder(2, 10, 99, Side.BUY), trades);
+            assertTrue(trades.isEmpty());
+            assertEquals(1, asks.getPriceLevelCount());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package core.price;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import org.junit.jupiter.api.Test;
+import trader.bean.LimitOrder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceLevelTest {
+
+    @Test
+    void testCancelUnlinksAnywhereInTheQueue() {
+        PriceLevel level = new PriceLevel(Side.SELL);
+        int[] nodes = new int[100];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = level.newOrder(new LimitOrder(i + 1, 1, 100, Side.SELL));
+        }
+        assertEquals(100, level.getOpenOrderCount());
+
+        // nodes handed out before the slab grew still address the same orders
+        assertTrue(level.cancelOrder(nodes[3], 4));
+        assertFalse(level.cancelOrder(nodes[3], 4), "Second cancel of the same order should be ignored");
+        assertFalse(level.cancelOrder(nodes[5], 99), "Cancel with a mismatching id should be ignored");
+        assertTrue(level.cancelOrder(nodes[0], 1), "Cancel at the head");
+        assertTrue(level.cancelOrder(nodes[99], 100), "Cancel at the tail");
+        assertEquals(97, level.getOpenQuantity());
+        assertEquals(2, level.getStartOrder().first());
+        assertEquals(99, level.getEndOrder().first());
+    }
+
+    @Test
+    void testMatchingNeverVisitsCancelledOrders() {
+        PriceLevel level = new PriceLevel(Side.SELL);
+        int[] nodes = new int[1000];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = level.newOrder(new LimitOrder(i + 1, 1, 100, Side.SELL));
+        }
+        // market-making flow: almost everything gets pulled before it trades
+        for (int i = 0; i < nodes.length; i++) {
+            if (i % 100 != 99) {
+                assertTrue(level.cancelOrder(nodes[i], i + 1));
+            }
+        }
+        assertEquals(10, level.getOpenOrderCount());
+
+        TradeBuffer trades = new TradeBuffer();
+        level.matchOrder(new LimitOrder(5000, 4, 100, Side.BUY), trades, 0L);
+        assertEquals(4, trades.size());
+        for (int i = 0; i < trades.size(); i++) {
+            assertEquals(100 * (i + 1), trades.getPassiveOrderId(i), "Orders should fill in arrival order");
+            assertTrue(trades.isPassiveCompleted(i));
+        }
+        assertEquals(6, level.getOpenOrderCount());
+    }
+
+    @Test
+    void testNodesAreRecycledThroughTheSlab() {
+        OrderSlab slab = new OrderSlab(4);
+        PriceLevel level = new PriceLevel(Side.BUY, slab, 0);
+        int orderId = 1;
+        for (int round = 0; round < 10_000; round++) {
+            int a = level.newOrder(new LimitOrder(orderId, 1, 100, Side.BUY));
+            int b = level.newOrder(new LimitOrder(orderId + 1, 1, 100, Side.BUY));
+            level.cancelOrder(a, orderId);
+            level.cancelOrder(b, orderId + 1);
+            orderId += 2;
+        }
+        assertTrue(level.isEmpty());
+        assertEquals(0, slab.size());
+        assertEquals(4, slab.getCapacity(), "Cancelled nodes should be reused instead of growing the slab");
+    }
+
+    @Test
+    void testReleaseReturnsRemainingNodes() {
+        OrderSlab slab = new OrderSlab(16);
+        PriceLevel level = new PriceLevel(Side.BUY, slab, 0);
+        for (int i = 0; i < 2000; i++) {
+            level.newOrder(new LimitOrder(i + 1, 1, 100, Side.BUY));
+        }
+        level.release();
+        assertTrue(level.isEmpty());
+        assertEquals(0, level.getOpenQuantity());
+        assertEquals(0, slab.size(), "Released level should hand its nodes back to the slab");
+    }
+
+    @Test
+    void testIcebergSliceIsRefilledAtTheBackOfTheQueue() {
+        PriceLevel level = new PriceLevel(Side.SELL);
+        LimitOrder iceberg = new LimitOrder(1, 25, 100, Side.SELL);
+        iceberg.setDisplayQuantity(10);
+        int node = level.newOrder(iceberg);
+        level.newOrder(new LimitOrder(2, 5, 100, Side.SELL));
+        assertEquals(15, level.getOpenQuantity(), "only the slice is displayed");
+        assertEquals(15, level.getReserveQuantity());
+
+        TradeBuffer trades = new TradeBuffer();
+        level.matchOrder(new LimitOrder(10, 12, 100, Side.BUY), trades, 0L);
+        assertEquals(2, trades.size());
+        assertEquals(10, trades.getQuantity(0));
+        assertFalse(trades.isPassiveCompleted(0), "the iceberg still has reserve");
+        assertEquals(2, trades.getPassiveOrderId(1), "the refilled slice queues behind order 2");
+        assertEquals(1, level.getReplenishedCount());
+        assertEquals(0, level.getReplenishedTrade(0));
+        assertEquals(10, level.getReplenishedQuantity(0));
+        assertEquals(13, level.getOpenQuantity());
+        assertEquals(5, level.getReserveQuantity());
+        assertTrue(level.getSlab().isLive(node, 1), "same node, never released");
+        assertEquals(1, level.getEndOrder().first());
+
+        // takes order 2, the slice, the last refill of 5 and stops with 2 left over
+        trades.clear();
+        LimitOrder sweep = new LimitOrder(11, 20, 100, Side.BUY);
+        level.matchOrder(sweep, trades, 0L);
+        assertEquals(3, trades.size());
+        assertEquals(List.of(3, 10, 5), List.of(trades.getQuantity(0), trades.getQuantity(1), trades.getQuantity(2)));
+        assertTrue(trades.isPassiveCompleted(2));
+        assertEquals(5, level.getReplenishedQuantity(0), "the last slice is what the reserve had left");
+        assertEquals(2, sweep.getPendingMatchQuantity());
+        assertTrue(level.isEmpty());
+        assertEquals(0, level.getReserveQuantity());
+        assertEquals(0, level.getSlab().size());
+    }
+
+    @Test
+    void testIcebergReduceGivesUpReserveFirst() {
+        PriceLevel level = new PriceLevel(Side.BUY);
+        LimitOrder iceberg = new LimitOrder(1, 30, 100, Side.BUY);
+        iceberg.setDisplayQuantity(10);
+        int node = level.newOrder(iceberg);
+        assertTrue(level.reduceOrder(node, 1, 12));
+        assertEquals(10, level.getOpenQuantity(), "the displayed slice is untouched");
+        assertEquals(2, level.getReserveQuantity());
+        assertTrue(level.reduceOrder(node, 1, 4));
+        assertEquals(4, level.getOpenQuantity());
+        assertEquals(0, level.getReserveQuantity());
+        assertThrows(IllegalArgumentException.class, () -> level.reduceOrder(node, 1, 4));
+        assertTrue(level.cancelOrder(node, 1));
+        assertEquals(0, level.getOpenQuantity());
+    }
+}
@@ -0,0 +1,133 @@
+package core.shard;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.metrics.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedEngineTest {
+    private InstrumentRegistry registry;
+    private ShardedEngine engine;
+    private final AtomicInteger tradedQuantity = new AtomicInteger();
+    private final AtomicInteger rejects = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(3);
+        registry.register(0, "BTC-USDT");
+        registry.register(1, "ETH-USDT");
+        engine = new ShardedEngine(registry, 2, 1 << 10, new ShardListener() {
+            @Override
+            public void onTrades(int instrumentId, TradeBuffer trades) {
+                for (int i = 0; i < trades.size(); i++) {
+                    tradedQuantity.addAndGet(trades.getQuantity(i));
+                }
+            }
+
+            @Override
+            public void onReject(int instrumentId, int orderId, RuntimeException cause) {
+                rejects.incrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Test
+    void testInstrumentsArePinnedToShards() {
+        assertNotSame(engine.shardOf(0), engine.shardOf(1), "Instruments should be spread over the shards");
+        assertThrows(IllegalArgumentException.class, () -> engine.assign(0, 2));
+    }
+
+    @Test
+    void testConcurrentProducersAreAppliedByOwningShard() throws InterruptedException {
+        engine.start();
+        final int ordersPerProducer = 2000;
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int instrumentId = p % 2;
+            final Side side = p < 2 ? Side.SELL : Side.BUY;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < ordersPerProducer; i++) {
+                    engine.submitLimitOrder(instrumentId, 1, 100, side);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        engine.stop();
+
+        assertEquals(engine.getPublishedCount(), engine.getProcessedCount(), "Every published command should be applied");
+        assertEquals(0, rejects.get(), "No command should be rejected");
+        // buys and sells of equal size at one price cross completely, on each instrument
+        assertEquals(2 * ordersPerProducer, tradedQuantity.get());
+        for (int instrumentId = 0; instrumentId < 2; instrumentId++) {
+            assertTrue(registry.get(instrumentId).orderBook(Side.BUY).isEmpty(), "No buy should rest on instrument " + instrumentId);
+            assertTrue(registry.get(instrumentId).orderBook(Side.SELL).isEmpty(), "No sell should rest on instrument " + instrumentId);
+        }
+    }
+
+    @Test
+    void testBadCommandIsRejectedWithoutStoppingShard() throws InterruptedException {
+        engine.start();
+        engine.submitLimitOrder(0, 5, 100, Side.SELL);
+        assertThrows(IllegalArgumentException.class, () -> engine.submitLimitOrder(0, 5, 100.001, Side.BUY), "Off-tick price should be refused at the edge");
+        engine.submitCancel(2, Side.BUY, 1);
+        engine.submitLimitOrder(0, 5, 100, Side.BUY);
+        engine.stop();
+
+        assertEquals(1, rejects.get(), "The cancel for an unregistered instrument should be rejected");
+        assertEquals(5, tradedQuantity.get(), "The shard should keep matching after the reject");
+    }
+
+    @Test
+    void testLatencyIsRecordedForOptedInInstrument() throws InterruptedException {
+        engine.recordLatency(1);
+        engine.start();
+        assertThrows(IllegalStateException.class, () -> engine.recordLatency(0), "Latency should be enabled before start");
+        for (int i = 0; i < 10; i++) {
+            engine.submitLimitOrder(0, 1, 100, Side.SELL);
+            engine.submitLimitOrder(1, 1, 100, Side.SELL);
+        }
+        engine.submitMarketOrder(1, 4, Side.BUY);
+        engine.stop();
+
+        assertNull(engine.getLatency(0, Operation.MATCH), "Instrument 0 was not opted in");
+        assertEquals(11, engine.getLatency(1, Operation.MATCH).getTotalCount(), "Limit and market orders should both be timed");
+        assertEquals(10, engine.getLatency(1, Operation.INSERT).getTotalCount());
+        assertTrue(engine.getLatency(1, Operation.MATCH).getValueAtPercentile(99) <= engine.getLatency(1, Operation.MATCH).getMaxValue());
+    }
+
+    @Test
+    void testIdleShardExpiresGtdOrders() throws InterruptedException {
+        engine.start();
+        final long now = System.currentTimeMillis();
+        engine.submitLimitOrder(0, 5, 99, Side.BUY, OrderType.GTD, now + 50);
+        engine.submitLimitOrder(0, 5, 98, Side.BUY, OrderType.GTD, now + 60_000);
+        engine.submitLimitOrder(0, 5, 100, Side.SELL, OrderType.POST_ONLY, 0);
+        final long remaining = registry.get(0).toTicks(98);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get(0).orderBook(Side.BUY).getBestPrice() != remaining && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        engine.stop();
+
+        assertEquals(remaining, registry.get(0).orderBook(Side.BUY).getBestPrice(), "The first GTD order should expire without another command");
+        assertEquals(registry.get(0).toTicks(100), registry.get(0).orderBook(Side.SELL).getBestPrice());
+        assertEquals(0, tradedQuantity.get());
+    }
+}
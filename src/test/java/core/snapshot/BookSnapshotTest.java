@@ -0,0 +1,110 @@
+package core.snapshot;
+
+import core.bean.Side;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.OrderBook;
+import core.price.OrderSlab;
+import core.price.PriceLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import trader.bean.LimitOrder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private static InstrumentRegistry newRegistry() {
+        InstrumentRegistry registry = new InstrumentRegistry(4);
+        registry.register(0, "BTC-USDT", 1);
+        registry.register(new InstrumentSpec(2, "ETH-USDT").tickSize(1).ladderBook(0, 1000));
+        return registry;
+    }
+
+    @Test
+    void testRoundTripKeepsFifoQueuesAndIndex() throws Exception {
+        InstrumentRegistry registry = newRegistry();
+        OrderBook asks = registry.get(0).orderBook(Side.SELL);
+        OrderBook bids = registry.get(2).orderBook(Side.BUY);
+        for (int i = 0; i < 300; i++) {
+            asks.onNewOrder(new LimitOrder(i + 1, 1 + i % 7, 100 + i % 5, Side.SELL));
+            bids.onNewOrder(new LimitOrder(1000 + i, 2, 50 + i % 3, Side.BUY));
+        }
+        asks.onCancelOrder(3); // level slots get released and reused
+        for (int i = 0; i < 60; i++) {
+            asks.onCancelOrder(5 * i + 5);
+        }
+
+        BookSnapshot snapshot = BookSnapshot.capture(registry, 42, 777);
+        SnapshotWriter writer = new SnapshotWriter(dir);
+        Path file = writer.submit(snapshot).get();
+        writer.close();
+        assertEquals(file, SnapshotWriter.findLatest(dir));
+        assertTrue(Files.size(file) < 12 * snapshot.getOrderCount() + 1024, "Snapshot should be compact");
+
+        BookSnapshot read = BookSnapshot.read(file);
+        assertEquals(42, read.getJournalSequence());
+        assertEquals(777, read.getNextOrderId());
+        assertEquals(snapshot.getOrderCount(), read.getOrderCount());
+
+        InstrumentRegistry restored = newRegistry();
+        read.restore(restored);
+        for (int instrumentId : new int[]{0, 2}) {
+            for (Side side : Side.values()) {
+                OrderBook original = registry.get(instrumentId).orderBook(side);
+                OrderBook copy = restored.get(instrumentId).orderBook(side);
+                assertEquals(original.getBestPrice(), copy.getBestPrice());
+                assertEquals(original.getPriceLevelCount(), copy.getPriceLevelCount());
+                assertEquals(original.getOrderIndex().size(), copy.getOrderIndex().size());
+                for (long price = 0; price < 200; price++) {
+                    assertEquals(queue(original.getPriceLevel(price)), queue(copy.getPriceLevel(price)), "Queue at " + price);
+                }
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> read.restore(restored), "Restore needs empty books");
+    }
+
+    @Test
+    void testIcebergsKeepTheirSliceAndReserve() throws Exception {
+        InstrumentRegistry registry = newRegistry();
+        OrderBook asks = registry.get(2).orderBook(Side.SELL);
+        LimitOrder iceberg = new LimitOrder(1, 40, 100, Side.SELL);
+        iceberg.setDisplayQuantity(10);
+        asks.onNewOrder(iceberg);
+        asks.onNewOrder(new LimitOrder(2, 5, 100, Side.SELL));
+        asks.matchOrder(new LimitOrder(3, 4, 100, Side.BUY)); // part way through the first slice
+
+        SnapshotWriter writer = new SnapshotWriter(dir);
+        Path file = writer.submit(BookSnapshot.capture(registry, 1, 4)).get();
+        writer.close();
+        InstrumentRegistry restored = newRegistry();
+        BookSnapshot.read(file).restore(restored);
+        PriceLevel level = restored.get(2).orderBook(Side.SELL).getPriceLevel(100);
+        assertEquals(queue(asks.getPriceLevel(100)), queue(level));
+        assertEquals("1x6+30/10 2x5 ", queue(level));
+        assertEquals(11, level.getOpenQuantity());
+        assertEquals(30, level.getReserveQuantity());
+    }
+
+    private static String queue(PriceLevel level) {
+        if (level == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        OrderSlab slab = level.getSlab();
+        for (int node = level.getHeadNode(); node != OrderSlab.NULL_NODE; node = slab.getNext(node)) {
+            sb.append(slab.getOrderId(node)).append('x').append(slab.getQuantity(node));
+            if (slab.getDisplayQuantity(node) != 0) {
+                sb.append('+').append(slab.getReserve(node)).append('/').append(slab.getDisplayQuantity(node));
+            }
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,219 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.journal.CommandJournal;
+import core.journal.FlushPolicy;
+import core.marketdata.OrderBookImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchMatcherTest {
+    private static final long MIN_PRICE = 90;
+
+    @TempDir
+    Path dir;
+
+    private static InstrumentRegistry newRegistry() {
+        InstrumentRegistry registry = new InstrumentRegistry(2);
+        registry.register(0, "BTC-USDT", 1);
+        registry.register(1, "ETH-USDT", 1);
+        return registry;
+    }
+
+    // counts the calls, so the per-batch hand-over can be checked
+    static class CountingTradePersistence extends InMemoryTradePersistence {
+        int calls = 0;
+
+        @Override
+        public void addTrades(OrderBatch batch, TradeBuffer buffer) {
+            calls++;
+            super.addTrades(batch, buffer);
+        }
+    }
+
+    private static void randomBatch(SplittableRandom random, OrderBatch batch, int size, int firstOrderId) {
+        batch.clear();
+        for (int i = 0; i < size; i++) {
+            final int instrumentId = random.nextInt(4) == 0 ? 1 : 0;
+            final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            final int roll = random.nextInt(10);
+            if (roll < 6) {
+                batch.addLimitOrder(instrumentId, firstOrderId + i, 1 + random.nextInt(20), MIN_PRICE + random.nextInt(21), side);
+            } else if (roll < 9) {
+                batch.addCancel(instrumentId, firstOrderId + i - 1 - random.nextInt(60), side);
+            } else {
+                batch.addMarketOrder(instrumentId, firstOrderId + i, 1 + random.nextInt(30), 3, side);
+            }
+        }
+    }
+
+    private static String describe(InstrumentRegistry registry) {
+        StringBuilder sb = new StringBuilder();
+        for (int instrumentId = 0; instrumentId < 2; instrumentId++) {
+            OrderBookImage image = OrderBookImage.capture(registry.get(instrumentId), 0);
+            for (int i = 0; i < image.getOrderCount(); i++) {
+                sb.append(instrumentId).append(image.getSide(i)).append(image.getPrice(i)).append(':')
+                        .append(image.getOrderId(i)).append('x').append(image.getQuantity(i)).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testBatchMatchesLikeOrderByOrder() {
+        InstrumentRegistry batchRegistry = newRegistry();
+        InstrumentRegistry singleRegistry = newRegistry();
+        ManualClock clock = new ManualClock(1_000);
+        CountingTradePersistence persistence = new CountingTradePersistence();
+        BatchMatcher matcher = new BatchMatcher(batchRegistry, persistence, clock);
+        LimitOrderHandler limitHandler = new LimitOrderHandler(singleRegistry, new InMemoryTradePersistence(), clock);
+        MarketOrderHandler marketHandler = new MarketOrderHandler(singleRegistry, new InMemoryTradePersistence(), clock);
+
+        SplittableRandom random = new SplittableRandom(11);
+        OrderBatch batch = new OrderBatch(4);
+        TradeBuffer batchTrades = new TradeBuffer();
+        TradeBuffer singleTrades = new TradeBuffer();
+        int orderId = 1;
+        int[] sizes = {1, 16, 256, 3, 100};
+        for (int round = 0; round < 50; round++) {
+            randomBatch(random, batch, sizes[round % sizes.length], orderId);
+            orderId += batch.size();
+            batchTrades.clear();
+            singleTrades.clear();
+            matcher.matchBatch(batch, batchTrades);
+            for (int i = 0; i < batch.size(); i++) {
+                final int from = singleTrades.size();
+                switch (batch.getType(i)) {
+                    case 1:
+                        limitHandler.matchOrder(batch.getInstrumentId(i), batch.getOrderId(i), batch.getQuantity(i), batch.getPrice(i), batch.getSide(i), singleTrades);
+                        break;
+                    case 2:
+                        marketHandler.matchOrder(batch.getInstrumentId(i), batch.getOrderId(i), batch.getQuantity(i), batch.getPrice(i), batch.getSide(i), singleTrades);
+                        break;
+                    default:
+                        limitHandler.cancelOrder(batch.getInstrumentId(i), batch.getSide(i), batch.getOrderId(i));
+                }
+                assertEquals(singleTrades.size() - from, batch.getFillEnd(i) - batch.getFillStart(i), "Fill range of command " + i + " in round " + round);
+            }
+            assertEquals(singleTrades.size(), batchTrades.size());
+            for (int t = 0; t < singleTrades.size(); t++) {
+                assertEquals(singleTrades.toTrade(t).toString(), batchTrades.toTrade(t).toString(), "Fill " + t + " in round " + round);
+            }
+            assertEquals(describe(singleRegistry), describe(batchRegistry), "Books after round " + round);
+        }
+        assertEquals(limitHandler.getTradePersistence().size() + marketHandler.getTradePersistence().size(), persistence.size(),
+                "Every fill should be persisted");
+    }
+
+    @Test
+    void testFillsArePersistedOncePerBatch() {
+        CountingTradePersistence persistence = new CountingTradePersistence();
+        BatchMatcher matcher = new BatchMatcher(newRegistry(), persistence);
+        OrderBatch batch = new OrderBatch();
+        for (int i = 0; i < 10; i++) {
+            batch.addLimitOrder(0, 1 + i, 1, 100, Side.SELL);
+        }
+        for (int i = 0; i < 10; i++) {
+            batch.addLimitOrder(0, 100 + i, 1, 100, Side.BUY); // each fills one sell
+        }
+        batch.addLimitOrder(1, 200, 1, 100, Side.SELL);
+        batch.addLimitOrder(1, 201, 1, 100, Side.BUY);
+        batch.addLimitOrder(0, 300, 1, 100, Side.BUY); // back to the first instrument
+        TradeBuffer trades = new TradeBuffer();
+        assertEquals(11, matcher.matchBatch(batch, trades));
+        assertEquals(1, persistence.calls, "One hand-over per batch");
+        assertEquals(11, persistence.size());
+        assertEquals(1, persistence.getTradeSumQuantityByActiveOrderId(201));
+    }
+
+    @Test
+    void testFillsOfAMappedPersistenceAreOneGroup() {
+        try (MappedTradePersistence persistence = new MappedTradePersistence(dir, FlushPolicy.none())) {
+            BatchMatcher matcher = new BatchMatcher(newRegistry(), persistence);
+            OrderBatch batch = new OrderBatch();
+            batch.addLimitOrder(0, 1, 5, 100, Side.SELL);
+            batch.addLimitOrder(1, 2, 5, 100, Side.SELL);
+            batch.addLimitOrder(0, 3, 2, 100, Side.BUY);
+            batch.addLimitOrder(1, 4, 3, 100, Side.BUY);
+            batch.addLimitOrder(0, 5, 1, 100, Side.BUY);
+            TradeBuffer trades = new TradeBuffer();
+            assertEquals(3, matcher.matchBatch(batch, trades));
+            assertEquals(3, persistence.size());
+            assertEquals(List.of(3, 4, 5), List.of(persistence.getTrades().get(0).getActiveOrderId(),
+                    persistence.getTrades().get(1).getActiveOrderId(), persistence.getTrades().get(2).getActiveOrderId()));
+            assertEquals(3, persistence.getTradeSumQuantityByPassiveOrderId(1));
+        }
+    }
+
+    @Test
+    void testBadCommandIsRejectedAndBatchGoesOn() {
+        InstrumentRegistry registry = newRegistry();
+        BatchMatcher matcher = new BatchMatcher(registry, new InMemoryTradePersistence());
+        OrderBatch batch = new OrderBatch();
+        batch.addLimitOrder(0, 1, 5, 100, Side.SELL);
+        batch.addLimitOrder(7, 2, 5, 100, Side.SELL); // unknown instrument
+        batch.addLimitOrder(0, 3, 2, 100, Side.BUY);
+        TradeBuffer trades = new TradeBuffer();
+        matcher.matchBatch(batch, trades);
+        assertTrue(batch.isRejected(1));
+        assertFalse(batch.isRejected(2));
+        assertEquals(1, batch.getRejectedCount());
+        assertEquals(1, batch.getFillEnd(2) - batch.getFillStart(2));
+        assertEquals(3, registry.get(0).orderBook(Side.SELL).getPriceLevel(100).getOpenQuantity());
+    }
+
+    @Test
+    void testJournaledBatchReplaysToSameBooks() {
+        ManualClock clock = new ManualClock(5_000);
+        String expected;
+        List<String> fills = new ArrayList<>();
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            SplittableRandom random = new SplittableRandom(5);
+            OrderBatch batch = new OrderBatch();
+            TradeBuffer trades = new TradeBuffer();
+            for (int round = 0; round < 20; round++) {
+                clock.set(5_000 + round);
+                // client ids of new orders are ignored by the engine, cancels refer to engine ids near the next one
+                randomBatch(random, batch, 64, matcher.getNextOrderId());
+                trades.clear();
+                final int firstId = matcher.getNextOrderId();
+                final long firstSequence = journal.getNextSequence();
+                matcher.submitBatch(batch, trades);
+                assertEquals(firstSequence + 64, journal.getNextSequence());
+                int assigned = firstId;
+                for (int i = 0; i < batch.size(); i++) {
+                    if (batch.getType(i) == 1 || batch.getType(i) == 2) {
+                        assertEquals(assigned++, batch.getOrderId(i), "Engine ids should be assigned in a separate column");
+                        assertEquals(firstId + i, batch.getClientOrderId(i), "The caller's id should be kept");
+                    } else {
+                        assertEquals(batch.getClientOrderId(i), batch.getOrderId(i), "Cancels keep the id they target");
+                    }
+                }
+                assertEquals(assigned, matcher.getNextOrderId());
+                for (int t = 0; t < trades.size(); t++) {
+                    fills.add(trades.toTrade(t).toString());
+                }
+            }
+            expected = describe(matcher.getRegistry());
+            assertEquals(20 * 64, matcher.getAppliedSequence());
+        }
+
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher recovered = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence());
+            assertEquals(20 * 64, recovered.recover().getCommands());
+            assertEquals(expected, describe(recovered.getRegistry()), "Replaying a journaled batch should rebuild the books");
+        }
+        assertFalse(fills.isEmpty());
+    }
+}
@@ -0,0 +1,247 @@
+package trader;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.journal.CommandJournal;
+import core.journal.FlushPolicy;
+import core.journal.ReplayStats;
+import core.order.OrderBook;
+import core.price.OrderSlab;
+import core.price.PriceLevel;
+import core.snapshot.SnapshotWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledMatcherTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final long MIN_PRICE = 90;
+    private static final long MAX_PRICE = 110;
+
+    @TempDir
+    Path dir;
+
+    private static InstrumentRegistry newRegistry() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(INSTRUMENT_ID, "BTC-USDT", 1);
+        return registry;
+    }
+
+    // every level of both books in price order, each queue in FIFO order
+    private static String describe(JournaledMatcher matcher) {
+        StringBuilder sb = new StringBuilder();
+        for (Side side : Side.values()) {
+            OrderBook book = matcher.getRegistry().get(INSTRUMENT_ID).orderBook(side);
+            sb.append(side).append(" best=").append(book.getBestPrice()).append(" orders=").append(book.getOrderIndex().size()).append('\n');
+            for (long price = MIN_PRICE; price <= MAX_PRICE; price++) {
+                PriceLevel level = book.getPriceLevel(price);
+                if (level == null) {
+                    continue;
+                }
+                sb.append(price).append(':');
+                OrderSlab slab = level.getSlab();
+                for (int node = level.getHeadNode(); node != OrderSlab.NULL_NODE; node = slab.getNext(node)) {
+                    sb.append(' ').append(slab.getOrderId(node)).append('x').append(slab.getQuantity(node));
+                }
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testReplayRebuildsBooksAndTradeTimestamps() {
+        ManualClock clock = new ManualClock(1_000);
+        String expected;
+        int nextOrderId;
+        long lastTradeTime = 0;
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            SplittableRandom random = new SplittableRandom(7);
+            TradeBuffer trades = new TradeBuffer();
+            for (int i = 0; i < 5000; i++) {
+                clock.set(1_000 + i);
+                trades.clear();
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                int roll = random.nextInt(10);
+                if (roll < 6) {
+                    matcher.submitLimitOrder(INSTRUMENT_ID, 1 + random.nextInt(20), MIN_PRICE + random.nextInt(21), side, trades);
+                } else if (roll < 9) {
+                    matcher.submitCancel(INSTRUMENT_ID, side, matcher.getNextOrderId() - 1 - random.nextInt(50));
+                } else {
+                    matcher.submitMarketOrder(INSTRUMENT_ID, 1 + random.nextInt(30), 3, side, trades);
+                }
+                if (!trades.isEmpty()) {
+                    lastTradeTime = trades.getTradeTime(0);
+                }
+            }
+            assertTrue(lastTradeTime > 1_000 && lastTradeTime < 1_000 + 5000, "Trade times come from the injected clock");
+            expected = describe(matcher);
+            nextOrderId = matcher.getNextOrderId();
+        }
+
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            InMemoryTradePersistence persistence = new InMemoryTradePersistence();
+            // a wall clock far from the journaled times, replay must not read it
+            JournaledMatcher recovered = new JournaledMatcher(newRegistry(), journal, persistence, new ManualClock(999_999));
+            ReplayStats stats = recovered.recover();
+
+            assertEquals(5000, stats.getCommands());
+            assertTrue(stats.getCommandsPerSecond() > 0);
+            assertEquals(0, persistence.size(), "Replay must not persist trades again");
+            assertEquals(expected, describe(recovered), "Replay should rebuild identical books and queues");
+            assertEquals(nextOrderId, recovered.getNextOrderId(), "Order ids continue after the journaled ones");
+            assertEquals(5000, recovered.getAppliedSequence());
+
+            // new commands are journaled after the replayed ones and stamped by the live clock
+            TradeBuffer trades = new TradeBuffer();
+            long best = recovered.getRegistry().get(INSTRUMENT_ID).orderBook(Side.SELL).getBestPrice();
+            recovered.submitLimitOrder(INSTRUMENT_ID, 1, best, Side.BUY, trades);
+            assertEquals(999_999, trades.getTradeTime(0));
+            assertEquals(5001, journal.getNextSequence());
+        }
+    }
+
+    private static void randomFlow(JournaledMatcher matcher, SplittableRandom random, int commands) {
+        TradeBuffer trades = new TradeBuffer();
+        for (int i = 0; i < commands; i++) {
+            trades.clear();
+            Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+            if (random.nextInt(3) < 2) {
+                matcher.submitLimitOrder(INSTRUMENT_ID, 1 + random.nextInt(20), MIN_PRICE + random.nextInt(21), side, trades);
+            } else {
+                matcher.submitCancel(INSTRUMENT_ID, side, matcher.getNextOrderId() - 1 - random.nextInt(50));
+            }
+        }
+    }
+
+    @Test
+    void testRestoreSnapshotThenReplayTail() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        Path snapshotDir = dir.resolve("snapshots");
+        String expected;
+        try (CommandJournal journal = new CommandJournal(journalDir, 1 << 16, FlushPolicy.none());
+             SnapshotWriter writer = new SnapshotWriter(snapshotDir)) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence());
+            SplittableRandom random = new SplittableRandom(11);
+            randomFlow(matcher, random, 3000);
+            CompletableFuture<Path> written = matcher.snapshot(writer);
+            randomFlow(matcher, random, 500); // keeps matching while the snapshot is written
+            assertEquals(snapshotDir.resolve("snapshot-3000.snap"), written.get());
+            expected = describe(matcher);
+        }
+
+        try (CommandJournal journal = new CommandJournal(journalDir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher recovered = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence());
+            recovered.restore(SnapshotWriter.findLatest(snapshotDir));
+            ReplayStats stats = recovered.recover();
+            assertEquals(500, stats.getCommands(), "Only the journal tail after the snapshot is replayed");
+            assertEquals(expected, describe(recovered));
+            assertEquals(3500, recovered.getAppliedSequence());
+        }
+    }
+
+    @Test
+    void testUnknownInstrumentIsNotJournaled() {
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence());
+            assertThrows(IllegalArgumentException.class, () -> matcher.submitLimitOrder(5, 1, 100, Side.BUY, new TradeBuffer()));
+            assertEquals(0, journal.getNextSequence());
+        }
+    }
+
+    @Test
+    void testReplayRebuildsAmendedQueues() {
+        ManualClock clock = new ManualClock(1_000);
+        String expected;
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            TradeBuffer trades = new TradeBuffer();
+            int first = matcher.submitLimitOrder(INSTRUMENT_ID, 5, 100, Side.SELL, trades);
+            int second = matcher.submitLimitOrder(INSTRUMENT_ID, 5, 100, Side.SELL, trades);
+            int buy = matcher.submitLimitOrder(INSTRUMENT_ID, 4, 98, Side.BUY, trades);
+            matcher.submitAmend(INSTRUMENT_ID, Side.SELL, first, 2, 100, trades); // in place, still first
+            matcher.submitAmend(INSTRUMENT_ID, Side.SELL, second, 6, 101, trades);
+            matcher.submitAmend(INSTRUMENT_ID, Side.BUY, buy, 3, 100, trades); // crosses, takes the reduced order
+            assertEquals(1, trades.size());
+            assertEquals(first, trades.getPassiveOrderId(0));
+            assertEquals(2, trades.getQuantity(0));
+            expected = describe(matcher);
+            assertTrue(expected.contains("100: " + buy + "x1"), expected);
+            assertEquals(6, journal.getNextSequence());
+        }
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher replayed = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            ReplayStats stats = replayed.recover();
+            assertEquals(6, stats.getCommands());
+            assertEquals(0, stats.getRejected());
+            assertEquals(expected, describe(replayed));
+            assertEquals(100000003, replayed.getNextOrderId(), "amends do not consume order ids");
+        }
+    }
+
+    @Test
+    void testReplayKeepsTimeInForce() {
+        ManualClock clock = new ManualClock(1_000);
+        String expected;
+        int gtd;
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            TradeBuffer trades = new TradeBuffer();
+            matcher.submitLimitOrder(INSTRUMENT_ID, 5, 100, Side.SELL, trades);
+            gtd = matcher.submitLimitOrder(INSTRUMENT_ID, 5, 99, Side.BUY, OrderType.GTD, 2_000, trades);
+            matcher.submitLimitOrder(INSTRUMENT_ID, 8, 100, Side.BUY, OrderType.IOC, 0, trades); // 3 cancelled, not rested
+            matcher.submitLimitOrder(INSTRUMENT_ID, 5, 101, Side.BUY, OrderType.FOK, 0, trades);   // nothing left to take
+            matcher.submitLimitOrder(INSTRUMENT_ID, 4, 95, Side.SELL, OrderType.POST_ONLY, 0, trades); // would cross
+            matcher.submitLimitOrder(INSTRUMENT_ID, 4, 102, Side.SELL, OrderType.POST_ONLY, 0, trades);
+            clock.set(2_000);
+            matcher.submitLimitOrder(INSTRUMENT_ID, 5, 99, Side.SELL, trades); // the GTD bid is gone first
+            assertEquals(1, trades.size());
+            expected = describe(matcher);
+            assertTrue(expected.contains("99: " + (gtd + 5) + "x5"), expected);
+            assertTrue(expected.contains("102: " + (gtd + 4) + "x4"), expected);
+        }
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher replayed = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            ReplayStats stats = replayed.recover();
+            assertEquals(7, stats.getCommands());
+            assertEquals(expected, describe(replayed), "replayed as plain limits the IOC, FOK and post-only orders would rest");
+            assertEquals(0, replayed.getRegistry().get(INSTRUMENT_ID).getPendingExpiryCount());
+        }
+    }
+
+    @Test
+    void testReplayKeepsIcebergs() {
+        ManualClock clock = new ManualClock(1_000);
+        String expected;
+        int iceberg;
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher matcher = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            TradeBuffer trades = new TradeBuffer();
+            iceberg = matcher.submitIcebergOrder(INSTRUMENT_ID, 50, 10, 100, Side.SELL, trades);
+            matcher.submitLimitOrder(INSTRUMENT_ID, 5, 100, Side.SELL, trades);
+            matcher.submitLimitOrder(INSTRUMENT_ID, 12, 100, Side.BUY, trades); // takes a slice, the refill queues behind
+            assertThrows(IllegalArgumentException.class,
+                    () -> matcher.submitIcebergOrder(INSTRUMENT_ID, 50, 0, 100, Side.SELL, trades));
+            expected = describe(matcher);
+            assertTrue(expected.contains("100: " + (iceberg + 1) + "x3 " + iceberg + "x10"), expected);
+            assertEquals(3, journal.getNextSequence());
+        }
+        try (CommandJournal journal = new CommandJournal(dir, 1 << 16, FlushPolicy.none())) {
+            JournaledMatcher replayed = new JournaledMatcher(newRegistry(), journal, new InMemoryTradePersistence(), clock);
+            replayed.recover();
+            assertEquals(expected, describe(replayed));
+            OrderBook asks = replayed.getRegistry().get(INSTRUMENT_ID).orderBook(Side.SELL);
+            assertEquals(40, asks.getOpenQuantity(iceberg));
+            assertEquals(10, asks.getDisplayQuantity(iceberg));
+        }
+    }
+}
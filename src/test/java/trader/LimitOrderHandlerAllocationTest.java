@@ -0,0 +1,98 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.marketdata.DepthFeed;
+import core.metrics.LatencyRecorder;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitOrderHandlerAllocationTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final int ROUNDS = 20_000;
+    private static final int WINDOWS = 5;
+
+    // ladder book: the tree book allocates a map entry whenever a price level opens
+    @Test
+    void testSteadyStateOrderFlowDoesNotAllocate() {
+        InstrumentRegistry registry = newRegistry();
+        assertSteadyStateDoesNotAllocate(new LimitOrderHandler(registry, new InMemoryTradePersistence((WINDOWS + 1) * ROUNDS)));
+    }
+
+    @Test
+    void testDepthFeedAndLatencyRecordingDoNotAllocate() {
+        InstrumentRegistry registry = newRegistry();
+        LimitOrderHandler handler = new LimitOrderHandler(registry, new InMemoryTradePersistence((WINDOWS + 1) * ROUNDS));
+        DepthFeed feed = new DepthFeed();
+        feed.attach(registry.get(INSTRUMENT_ID));
+        handler.setDepthFeed(feed);
+        LatencyRecorder recorder = new LatencyRecorder(registry.capacity());
+        recorder.enable(INSTRUMENT_ID);
+        handler.setLatencyRecorder(recorder);
+        assertSteadyStateDoesNotAllocate(handler);
+        assertTrue(feed.getPublishedSequence() > 0, "Depth updates should have been published");
+    }
+
+    private static InstrumentRegistry newRegistry() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1).ladderBook(0, 1024));
+        return registry;
+    }
+
+    private static void assertSteadyStateDoesNotAllocate(LimitOrderHandler handler) {
+        final com.sun.management.ThreadMXBean threads = threadMXBean();
+        Assumptions.assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        TradeBuffer trades = new TradeBuffer();
+        // a resting order far from the touch keeps the book from being empty
+        handler.matchOrder(INSTRUMENT_ID, 1, 10, 1000L, Side.SELL, trades);
+
+        int orderId = 2;
+        for (int i = 0; i < ROUNDS; i++) {
+            orderId = round(handler, trades, orderId, i);
+        }
+
+        // JIT compilation and deoptimization can still charge a few bytes to this thread while the
+        // code settles, so steady state means some window of ROUNDS rounds allocates nothing
+        final long threadId = Thread.currentThread().getId();
+        long allocated = -1;
+        for (int window = 0; window < WINDOWS && allocated != 0; window++) {
+            final long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ROUNDS; i++) {
+                orderId = round(handler, trades, orderId, i);
+            }
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+
+        assertEquals(0, allocated, "Steady-state order entry should not allocate, got " + allocated + " bytes");
+        assertEquals(1, handler.orderBook(INSTRUMENT_ID, Side.SELL).getOrderIndex().size(),
+                "Filled and cancelled orders should leave the order index");
+    }
+
+    // rest two asks, cancel one, fill the other with a bid that also rests a remainder, then cancel it
+    private static int round(LimitOrderHandler handler, TradeBuffer trades, int orderId, int i) {
+        final long price = 100 + (i & 63);
+        trades.clear();
+        handler.matchOrder(INSTRUMENT_ID, orderId, 5, price, Side.SELL, trades);
+        handler.matchOrder(INSTRUMENT_ID, orderId + 1, 5, price, Side.SELL, trades);
+        handler.cancelOrder(INSTRUMENT_ID, Side.SELL, orderId);
+        final int fills = handler.matchOrder(INSTRUMENT_ID, orderId + 2, 8, price, Side.BUY, trades);
+        if (fills != 1 || trades.getQuantity(0) != 5) {
+            throw new AssertionError("Unexpected fills in round " + i);
+        }
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, orderId + 2);
+        return orderId + 3;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+}
@@ -0,0 +1,101 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.OrderBook;
+import core.price.PriceLevel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitOrderHandlerAmendTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final int LADDER_ID = 1;
+
+    private InstrumentRegistry registry;
+    private LimitOrderHandler handler;
+    private final TradeBuffer trades = new TradeBuffer();
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(2);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        registry.register(new InstrumentSpec(LADDER_ID, "ETH-USDT").tickSize(1).ladderBook(90, 110));
+        handler = new LimitOrderHandler(registry);
+    }
+
+    private OrderBook book(int instrumentId, Side side) {
+        return registry.get(instrumentId).orderBook(side);
+    }
+
+    @Test
+    void testQuantityDecreaseKeepsQueuePosition() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 100, Side.SELL);
+        final int node = book(INSTRUMENT_ID, Side.SELL).getOrderIndex().getNode(1);
+
+        assertEquals(0, handler.amendOrder(INSTRUMENT_ID, Side.SELL, 1, 2, 100, trades), "a reduce never trades");
+        PriceLevel level = book(INSTRUMENT_ID, Side.SELL).getPriceLevel(100);
+        assertEquals(7, level.getOpenQuantity(), "level quantity drops by the reduction");
+        assertEquals(2, level.getOpenOrderCount());
+        assertEquals(node, book(INSTRUMENT_ID, Side.SELL).getOrderIndex().getNode(1), "reduced in place, same node");
+
+        handler.matchOrder(INSTRUMENT_ID, 3, 3, 100, Side.BUY, trades);
+        assertEquals(2, trades.size());
+        assertEquals(1, trades.getPassiveOrderId(0), "reduced order is still first in the queue");
+        assertEquals(2, trades.getQuantity(0));
+        assertEquals(2, trades.getPassiveOrderId(1));
+        assertEquals(1, trades.getQuantity(1));
+    }
+
+    @Test
+    void testQuantityIncreaseGoesToTheBackOfTheQueue() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 100, Side.SELL);
+
+        assertEquals(0, handler.amendOrder(INSTRUMENT_ID, Side.SELL, 1, 8, 100, trades));
+        assertEquals(13, book(INSTRUMENT_ID, Side.SELL).getPriceLevel(100).getOpenQuantity());
+        assertEquals(8, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+
+        handler.matchOrder(INSTRUMENT_ID, 3, 5, 100, Side.BUY, trades);
+        assertEquals(1, trades.size());
+        assertEquals(2, trades.getPassiveOrderId(0), "the increased order lost its priority");
+    }
+
+    @Test
+    void testPriceChangeMovesAndMatchesUnderTheSameOrderId() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 101, Side.SELL);
+        handler.matchOrder(INSTRUMENT_ID, 2, 3, 99, Side.BUY);
+
+        assertEquals(1, handler.amendOrder(INSTRUMENT_ID, Side.BUY, 2, 4, 101, trades));
+        assertEquals(2, trades.getActiveOrderId(0), "the moved order trades as the active side");
+        assertEquals(1, trades.getPassiveOrderId(0));
+        assertEquals(4, trades.getQuantity(0));
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty(), "fully filled, nothing left at either price");
+        assertEquals(1, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+        assertEquals(4, handler.getTradePersistence().getTradeSumQuantityByActiveOrderId(2));
+
+        handler.matchOrder(INSTRUMENT_ID, 3, 2, 98, Side.BUY);
+        assertEquals(0, handler.amendOrder(INSTRUMENT_ID, Side.BUY, 3, 2, 97, trades));
+        assertNull(book(INSTRUMENT_ID, Side.BUY).getPriceLevel(98));
+        assertEquals(97, book(INSTRUMENT_ID, Side.BUY).getOrderPrice(3));
+    }
+
+    @Test
+    void testRejectedAmendLeavesTheOrderUntouched() {
+        handler.matchOrder(LADDER_ID, 1, 5, 100, Side.BUY);
+
+        assertEquals(-1, handler.amendOrder(LADDER_ID, Side.BUY, 7, 5, 100, trades), "unknown order");
+        assertEquals(-1, handler.amendOrder(LADDER_ID, Side.SELL, 1, 5, 100, trades), "wrong side");
+        assertThrows(IllegalArgumentException.class, () -> handler.amendOrder(LADDER_ID, Side.BUY, 1, 0, 100, trades));
+        assertThrows(IllegalArgumentException.class, () -> handler.amendOrder(LADDER_ID, Side.BUY, 1, 5, 120, trades),
+                "price outside the ladder band");
+        assertEquals(5, book(LADDER_ID, Side.BUY).getOpenQuantity(1));
+        assertEquals(100, book(LADDER_ID, Side.BUY).getOrderPrice(1));
+        assertEquals(0, handler.amendOrder(LADDER_ID, Side.BUY, 1, 5, 100, trades), "unchanged amend is a no-op");
+        assertEquals(1, book(LADDER_ID, Side.BUY).getPriceLevel(100).getOpenOrderCount());
+    }
+}
@@ -0,0 +1,144 @@
+package trader;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.OrderBook;
+import core.order.OrderListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitOrderHandlerIcebergTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final int LADDER_ID = 1;
+
+    private InstrumentRegistry registry;
+    private LimitOrderHandler handler;
+    private final TradeBuffer trades = new TradeBuffer();
+    private final List<String> events = new ArrayList<>();
+    private final OrderListener recorder = new OrderListener() {
+        @Override
+        public void onOrderAdded(Side side, int orderId, long price, int quantity) {
+            events.add("add " + orderId + "x" + quantity);
+        }
+
+        @Override
+        public void onOrderCancelled(Side side, int orderId, long price, int quantity) {
+            events.add("cancel " + orderId + "x" + quantity);
+        }
+
+        @Override
+        public void onOrderReduced(Side side, int orderId, long price, int quantity) {
+            events.add("reduce " + orderId + "x" + quantity);
+        }
+
+        @Override
+        public void onOrderExecuted(Side side, int orderId, long price, int quantity, int activeOrderId) {
+            events.add("execute " + orderId + "x" + quantity);
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(2);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        registry.register(new InstrumentSpec(LADDER_ID, "ETH-USDT").tickSize(1).ladderBook(90, 110));
+        handler = new LimitOrderHandler(registry);
+    }
+
+    private OrderBook book(int instrumentId, Side side) {
+        return registry.get(instrumentId).orderBook(side);
+    }
+
+    private int[] depth(int instrumentId, Side side) {
+        long[] prices = new long[4];
+        int[] quantities = new int[4];
+        int[] orderCounts = new int[4];
+        int levels = book(instrumentId, side).getDepth(4, prices, quantities, orderCounts);
+        return levels == 0 ? new int[0] : new int[]{quantities[0], orderCounts[0]};
+    }
+
+    @Test
+    void testOnlyTheSliceIsDisplayedButTheReserveTrades() {
+        for (int instrumentId : new int[]{INSTRUMENT_ID, LADDER_ID}) {
+            handler.matchIcebergOrder(instrumentId, 1, 100, 10, 100, Side.SELL, trades);
+            OrderBook asks = book(instrumentId, Side.SELL);
+            assertArrayEquals(new int[]{10, 1}, depth(instrumentId, Side.SELL), "depth shows the slice only");
+            assertEquals(100, asks.getOpenQuantity(1));
+            assertEquals(10, asks.getDisplayQuantity(1));
+            assertEquals(100, asks.getCrossingQuantity(100, 1000), "the reserve counts for a fill-or-kill check");
+
+            assertEquals(10, handler.matchOrder(instrumentId, 2, 100, 100, Side.BUY, OrderType.FOK, 0, trades), "one fill per slice");
+            assertEquals(0, handler.getLastCancelledQuantity(), "filled in full against the reserve");
+            assertEquals(10, trades.size());
+            assertTrue(trades.isPassiveCompleted(9));
+            assertTrue(asks.isEmpty());
+            trades.clear();
+        }
+    }
+
+    @Test
+    void testRefilledSliceLosesPriorityAndIsPublishedAsANewAdd() {
+        book(INSTRUMENT_ID, Side.SELL).setOrderListener(recorder);
+        handler.matchIcebergOrder(INSTRUMENT_ID, 1, 25, 10, 100, Side.SELL, trades);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 100, Side.SELL, trades);
+
+        handler.matchOrder(INSTRUMENT_ID, 3, 12, 100, Side.BUY, trades);
+        assertEquals(2, trades.size());
+        assertEquals(1, trades.getPassiveOrderId(0));
+        assertEquals(2, trades.getPassiveOrderId(1), "the refill queued behind order 2");
+        assertArrayEquals(new int[]{13, 2}, depth(INSTRUMENT_ID, Side.SELL));
+        assertEquals(15, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+        assertEquals(List.of(
+                "add 1x10",
+                "add 2x5",
+                "execute 1x10",
+                "add 1x10",
+                "execute 2x2"), events);
+    }
+
+    @Test
+    void testCancelRemovesTheReserveAndReportsTheSlice() {
+        book(INSTRUMENT_ID, Side.BUY).setOrderListener(recorder);
+        handler.matchIcebergOrder(INSTRUMENT_ID, 1, 50, 10, 99, Side.BUY, trades);
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, 1);
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty());
+        assertEquals(0, book(INSTRUMENT_ID, Side.BUY).getCrossingQuantity(0, 100));
+        assertEquals(List.of("add 1x10", "cancel 1x10"), events);
+    }
+
+    @Test
+    void testAmendKeepsTheIceberg() {
+        handler.matchIcebergOrder(INSTRUMENT_ID, 1, 50, 10, 100, Side.SELL, trades);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 100, Side.SELL, trades);
+        book(INSTRUMENT_ID, Side.SELL).setOrderListener(recorder);
+
+        // out of the reserve: nothing visible changes, so nothing is published and priority is kept
+        assertEquals(0, handler.amendOrder(INSTRUMENT_ID, Side.SELL, 1, 30, 100, trades));
+        assertTrue(events.isEmpty());
+        assertEquals(30, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+        handler.matchOrder(INSTRUMENT_ID, 3, 1, 100, Side.BUY, trades);
+        assertEquals(1, trades.getPassiveOrderId(0), "still first in the queue");
+        trades.clear();
+
+        assertEquals(0, handler.amendOrder(INSTRUMENT_ID, Side.SELL, 1, 40, 101, trades));
+        assertEquals(10, book(INSTRUMENT_ID, Side.SELL).getDisplayQuantity(1));
+        assertEquals(40, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+        assertEquals(10, book(INSTRUMENT_ID, Side.SELL).getPriceLevel(101).getOpenQuantity());
+        assertEquals(30, book(INSTRUMENT_ID, Side.SELL).getPriceLevel(101).getReserveQuantity());
+    }
+
+    @Test
+    void testDisplayQuantityMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.matchIcebergOrder(INSTRUMENT_ID, 1, 50, 0, 100, Side.SELL, trades));
+        assertTrue(book(INSTRUMENT_ID, Side.SELL).isEmpty());
+    }
+}
@@ -1,14 +1,17 @@
 package trader;
 
-import core.Engine;
 import core.bean.Side;
 import core.bean.Trade;
+import core.instrument.Instrument;
+import core.instrument.InstrumentRegistry;
+import core.order.OrderBook;
 import core.price.PriceLevel;
 import java.util.List;
-import java.lang.reflect.Field;
 
 class LimitOrderHandlerTest {
 
+    private static final int INSTRUMENT_ID = 0;
+
     private LimitOrderHandler limitOrderHandler;
     
     /**
@@ -129,8 +132,6 @@ class LimitOrderHandlerTest {
 
     void setUp() {
         // 在每个测试前创建新的引擎和处理器实例，确保测试互不影响
-        limitOrderHandler = new LimitOrderHandler();
-        // 重置订单簿
         resetOrderBooks();
     }
 
@@ -138,110 +139,47 @@ class LimitOrderHandlerTest {
      * 清空买单簿和卖单簿
      */
     private void resetOrderBooks() {
-        try {
-            // 通过反射获取priceLevelIndexMap字段
-            Field buyPriceLevelIndexMapField = Engine.BUY_ORDER_BOOK.getClass().getDeclaredField("priceLevelIndexMap");
-            Field sellPriceLevelIndexMapField = Engine.SELL_ORDER_BOOK.getClass().getDeclaredField("priceLevelIndexMap");
-            buyPriceLevelIndexMapField.setAccessible(true);
-            sellPriceLevelIndexMapField.setAccessible(true);
-            
-            // 清空价格级别索引映射
-            Object buyPriceLevelIndexMap = buyPriceLevelIndexMapField.get(Engine.BUY_ORDER_BOOK);
-            Object sellPriceLevelIndexMap = sellPriceLevelIndexMapField.get(Engine.SELL_ORDER_BOOK);
-            
-            // 通过反射调用clear方法
-            buyPriceLevelIndexMap.getClass().getMethod("clear").invoke(buyPriceLevelIndexMap);
-            sellPriceLevelIndexMap.getClass().getMethod("clear").invoke(sellPriceLevelIndexMap);
-            
-            // 重新初始化所有价格级别
-            Field buyPriceLevelsField = Engine.BUY_ORDER_BOOK.getClass().getDeclaredField("priceLevels");
-            Field sellPriceLevelsField = Engine.SELL_ORDER_BOOK.getClass().getDeclaredField("priceLevels");
-            buyPriceLevelsField.setAccessible(true);
-            sellPriceLevelsField.setAccessible(true);
-            
-            PriceLevel[] buyPriceLevels = (PriceLevel[])buyPriceLevelsField.get(Engine.BUY_ORDER_BOOK);
-            PriceLevel[] sellPriceLevels = (PriceLevel[])sellPriceLevelsField.get(Engine.SELL_ORDER_BOOK);
-            
-            for (int i = 0; i < buyPriceLevels.length; i++) {
-                buyPriceLevels[i] = new PriceLevel(Side.BUY);
-                sellPriceLevels[i] = new PriceLevel(Side.SELL);
-            }
-            
-            // 重置订单计数器
-            try {
-                Field counterField = limitOrderHandler.getClass().getDeclaredField("counter");
-                counterField.setAccessible(true);
-                counterField.set(limitOrderHandler, 100000000);
-            } catch (Exception e) {
-                // 如果counter字段不存在或无法访问，我们就忽略这个重置
-                System.out.println("无法重置订单计数器: " + e.getMessage());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // 每个处理器持有独立的品种注册表，重新创建即可得到空的订单簿
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(INSTRUMENT_ID, "TEST", 0.001);
+        limitOrderHandler = new LimitOrderHandler(registry);
+    }
+
+    private Instrument instrument() {
+        return limitOrderHandler.getRegistry().get(INSTRUMENT_ID);
+    }
+
+    private OrderBook orderBook(OrderBookSide side) {
+        return limitOrderHandler.orderBook(INSTRUMENT_ID, side == OrderBookSide.BUY ? Side.BUY : Side.SELL);
     }
 
     /**
      * 根据价格获取价格级别
      */
     private PriceLevel getPriceLevel(OrderBookSide side, double price) {
-        try {
-            Field priceLevelIndexMapField = (side == OrderBookSide.BUY ? 
-                Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK).getClass().getDeclaredField("priceLevelIndexMap");
-            priceLevelIndexMapField.setAccessible(true);
-            Object priceLevelIndexMap = priceLevelIndexMapField.get(
-                side == OrderBookSide.BUY ? Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK);
-            
-            // 通过反射调用containsKey方法
-            Boolean containsKey = (Boolean)priceLevelIndexMap.getClass().getMethod("containsKey", Object.class)
-                .invoke(priceLevelIndexMap, Double.valueOf(price));
-                
-            if (!containsKey) {
-                return null;
-            }
-            
-            // 通过反射调用get方法
-            Integer priceIndex = (Integer)priceLevelIndexMap.getClass().getMethod("get", Object.class)
-                .invoke(priceLevelIndexMap, Double.valueOf(price));
-            
-            Field priceLevelsField = (side == OrderBookSide.BUY ? 
-                Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK).getClass().getDeclaredField("priceLevels");
-            priceLevelsField.setAccessible(true);
-            PriceLevel[] priceLevels = (PriceLevel[])priceLevelsField.get(
-                side == OrderBookSide.BUY ? Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK);
-            
-            return priceLevels[priceIndex];
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        return orderBook(side).getPriceLevel(instrument().toTicks(price));
     }
     
     /**
      * 获取当前买单簿或卖单簿上的价格级别数量
      */
     private int getPriceLevelCount(OrderBookSide side) {
-        try {
-            Field priceLevelIndexMapField = (side == OrderBookSide.BUY ? 
-                Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK).getClass().getDeclaredField("priceLevelIndexMap");
-            priceLevelIndexMapField.setAccessible(true);
-            Object priceLevelIndexMap = priceLevelIndexMapField.get(
-                side == OrderBookSide.BUY ? Engine.BUY_ORDER_BOOK : Engine.SELL_ORDER_BOOK);
-            
-            // 通过反射调用size方法
-            return (Integer)priceLevelIndexMap.getClass().getMethod("size").invoke(priceLevelIndexMap);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
+        return orderBook(side).getPriceLevelCount();
     }
-    
+
+    /**
+     * 成交价格由tick转换为小数
+     */
+    private double tradePrice(Trade trade) {
+        return instrument().toPrice(trade.getPrice());
+    }
+
     /**
      * 简单卖单测试
      */
     public void simpleSellOrderTest() {
         // 添加单个卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL);
 
         // 验证卖单簿状态
         PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -259,14 +197,14 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 先添加卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL);
         
         // 添加匹配的买单
-        List<Trade> trades = limitOrderHandler.matchOrder(10, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.BUY);
         
         // 输出交易信息用于调试
         for (Trade trade : trades) {
-            System.out.println("简单买单匹配 - 交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity() + 
+            System.out.println("简单买单匹配 - 交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity() + 
                              ", 主动订单ID=" + trade.getActiveOrderId() + 
                              ", 被动订单ID=" + trade.getPassiveOrderId());
         }
@@ -275,7 +213,7 @@ class LimitOrderHandlerTest {
         assertEquals(1, trades.size(), "应该生成1笔交易");
         Trade trade = trades.get(0);
         assertEquals(10, trade.getQuantity(), "交易数量应为10");
-        assertEquals(100.0, trade.getPrice(), "交易价格应为100");
+        assertEquals(100.0, tradePrice(trade), "交易价格应为100");
         
         // 验证卖单已被完全匹配（卖单簿中该价格级别应为空）
         assertNull(getPriceLevel(OrderBookSide.SELL, 100.0), "价格100的卖单应已全部匹配");
@@ -289,11 +227,9 @@ class LimitOrderHandlerTest {
         // 重置订单簿状态
         resetOrderBooks();
         
-        // 添加卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL);
-        
-        // 使用正确的订单ID - 因为counter可能不会重置，所以我们不能依赖固定值
-        int orderId = 100000003;  // 根据OrderIndex调试信息，这里使用实际运行时的订单ID
+        // 记录即将分配的订单ID，再添加卖单
+        int orderId = limitOrderHandler.orderId;
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL);
         
         // 验证卖单添加成功
         PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -301,7 +237,7 @@ class LimitOrderHandlerTest {
         assertEquals(1, priceLevel.getOpenOrderCount(), "应该有1个订单");
         
         // 取消订单
-        limitOrderHandler.cancelOrder(Side.SELL, orderId);
+        limitOrderHandler.cancelOrder(INSTRUMENT_ID, Side.SELL, orderId);
         
         // 验证订单是否被取消 - 价格级别可能仍然存在但其中没有订单
         priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -320,9 +256,9 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加多个价格级别的卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL);
-        limitOrderHandler.matchOrder(20, 101, Side.SELL);
-        limitOrderHandler.matchOrder(30, 102, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 20, 101, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 30, 102, Side.SELL);
         
         // 验证卖单簿状态
         assertEquals(3, getPriceLevelCount(OrderBookSide.SELL), "应该有3个价格级别");
@@ -344,8 +280,8 @@ class LimitOrderHandlerTest {
         assertEquals(30, priceLevel102.getOpenQuantity(), "价格102的订单总量应为30");
         
         // 添加多个价格级别的买单
-        limitOrderHandler.matchOrder(5, 98, Side.BUY);
-        limitOrderHandler.matchOrder(15, 99, Side.BUY);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 5, 98, Side.BUY);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 15, 99, Side.BUY);
         
         // 验证买单簿状态
         assertEquals(2, getPriceLevelCount(OrderBookSide.BUY), "应该有2个价格级别");
@@ -373,16 +309,16 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加卖单 - 数量20，价格100
-        limitOrderHandler.matchOrder(20, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 20, 100, Side.SELL);
         
         // 添加买单 - 数量10，价格100，应该部分匹配
-        List<Trade> trades = limitOrderHandler.matchOrder(10, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.BUY);
         
         // 验证交易结果
         assertEquals(1, trades.size(), "应该生成1笔交易");
         Trade trade = trades.get(0);
         assertEquals(10, trade.getQuantity(), "交易数量应为10");
-        assertEquals(100.0, trade.getPrice(), "交易价格应为100");
+        assertEquals(100.0, tradePrice(trade), "交易价格应为100");
         
         // 验证卖单的剩余部分
         PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -401,12 +337,12 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加多个价格的卖单
-        limitOrderHandler.matchOrder(10, 102, Side.SELL);
-        limitOrderHandler.matchOrder(10, 101, Side.SELL);
-        limitOrderHandler.matchOrder(10, 103, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 102, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 101, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 103, Side.SELL);
         
         // 添加买单 - 价格103，应该优先匹配最低价卖单
-        List<Trade> trades = limitOrderHandler.matchOrder(25, 103, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 25, 103, Side.BUY);
         
         // 注意：根据订单匹配的实际行为，可能会生成1笔或多笔交易
         assertTrue(trades.size() >= 1, "应该至少生成1笔交易");
@@ -416,7 +352,7 @@ class LimitOrderHandlerTest {
         for (Trade trade : trades) {
             totalTradeQuantity += trade.getQuantity();
             // 输出交易信息用于调试
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity() + 
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity() + 
                               ", 主动订单ID=" + trade.getActiveOrderId() + 
                               ", 被动订单ID=" + trade.getPassiveOrderId());
         }
@@ -468,9 +404,9 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加多个相同价格的卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL); // 订单1
-        limitOrderHandler.matchOrder(20, 100, Side.SELL); // 订单2
-        limitOrderHandler.matchOrder(30, 100, Side.SELL); // 订单3
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL); // 订单1
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 20, 100, Side.SELL); // 订单2
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 30, 100, Side.SELL); // 订单3
         
         // 记录第一个卖单ID - 实际值取决于计数器状态
         long firstOrderId = 100000015; // 假设从这个ID开始
@@ -482,14 +418,14 @@ class LimitOrderHandlerTest {
         assertEquals(60, priceLevel.getOpenQuantity(), "订单总量应为60");
         
         // 添加买单匹配部分卖单
-        List<Trade> trades = limitOrderHandler.matchOrder(15, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 15, 100, Side.BUY);
         
         // 验证交易结果 - 应该优先匹配最早的卖单(订单1)，然后是订单2
         assertEquals(2, trades.size(), "应该生成2笔交易");
         
         // 输出交易信息用于调试
         for (Trade trade : trades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity() + 
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity() + 
                              ", 主动订单ID=" + trade.getActiveOrderId() + 
                              ", 被动订单ID=" + trade.getPassiveOrderId());
         }
@@ -523,7 +459,7 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加单个卖单
-        limitOrderHandler.matchOrder(100, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 100, 100, Side.SELL);
         
         // 查看初始状态
         PriceLevel initialSellLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -531,12 +467,12 @@ class LimitOrderHandlerTest {
         assertEquals(100, initialSellLevel.getOpenQuantity(), "卖单总量应为100");
         
         // 添加一个能完全匹配的买单
-        List<Trade> trades = limitOrderHandler.matchOrder(100, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 100, 100, Side.BUY);
         
         // 输出交易信息用于调试
         System.out.println("大订单匹配测试 - 交易数量: " + trades.size());
         for (Trade trade : trades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity() + 
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity() + 
                              ", 主动订单ID=" + trade.getActiveOrderId() + 
                              ", 被动订单ID=" + trade.getPassiveOrderId());
         }
@@ -560,8 +496,8 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加极端价格的卖单
-        limitOrderHandler.matchOrder(10, 0.001, Side.SELL);
-        limitOrderHandler.matchOrder(10, 9999999.999, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 0.001, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 9999999.999, Side.SELL);
         
         // 验证卖单添加成功
         PriceLevel lowPriceLevel = getPriceLevel(OrderBookSide.SELL, 0.001);
@@ -580,17 +516,17 @@ class LimitOrderHandlerTest {
         }
         
         // 添加能够匹配极低价卖单的买单
-        List<Trade> lowPriceTrades = limitOrderHandler.matchOrder(10, 0.001, Side.BUY);
+        List<Trade> lowPriceTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 0.001, Side.BUY);
         System.out.println("极低价匹配 - 交易数量: " + lowPriceTrades.size());
         for (Trade trade : lowPriceTrades) {
-            System.out.println("极低价交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("极低价交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 添加与极高价卖单同价格的买单
-        List<Trade> highPriceTrades = limitOrderHandler.matchOrder(10, 9999999.999, Side.BUY);
+        List<Trade> highPriceTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 9999999.999, Side.BUY);
         System.out.println("极高价匹配 - 交易数量: " + highPriceTrades.size());
         for (Trade trade : highPriceTrades) {
-            System.out.println("极高价交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("极高价交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 再次验证卖单状态
@@ -620,7 +556,7 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 测试最小数量订单
-        limitOrderHandler.matchOrder(1, 100, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, 100, Side.SELL);
         
         // 验证卖单添加成功
         PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
@@ -629,7 +565,7 @@ class LimitOrderHandlerTest {
         assertEquals(1, priceLevel.getOpenQuantity(), "订单总量应为1");
         
         // 测试最小数量撮合
-        List<Trade> trades = limitOrderHandler.matchOrder(1, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, 100, Side.BUY);
         assertEquals(1, trades.size(), "应该生成1笔交易");
         Trade trade = trades.get(0);
         assertEquals(1, trade.getQuantity(), "交易数量应为1");
@@ -648,13 +584,13 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 第一轮: 添加卖单和买单进行匹配
-        limitOrderHandler.matchOrder(10, 100, Side.SELL);
-        List<Trade> trades1 = limitOrderHandler.matchOrder(10, 100, Side.BUY);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL);
+        List<Trade> trades1 = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.BUY);
         assertEquals(1, trades1.size(), "第一轮应该生成1笔交易");
         assertEquals(10, trades1.get(0).getQuantity(), "第一轮交易数量应为10");
         
         // 第二轮: 添加卖单
-        limitOrderHandler.matchOrder(15, 101, Side.SELL);
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 15, 101, Side.SELL);
         
         // 验证卖单簿状态
         PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 101.0);
@@ -663,7 +599,7 @@ class LimitOrderHandlerTest {
         assertEquals(15, priceLevel.getOpenQuantity(), "订单总量应为15");
         
         // 第三轮: 添加不匹配的买单
-        List<Trade> trades2 = limitOrderHandler.matchOrder(5, 99, Side.BUY);
+        List<Trade> trades2 = limitOrderHandler.matchOrder(INSTRUMENT_ID, 5, 99, Side.BUY);
         assertEquals(0, trades2.size(), "第二轮不应该生成交易");
         
         // 验证买单簿状态
@@ -673,7 +609,7 @@ class LimitOrderHandlerTest {
         assertEquals(5, priceLevel.getOpenQuantity(), "订单总量应为5");
         
         // 第四轮: 添加与第二轮卖单匹配的买单
-        List<Trade> trades3 = limitOrderHandler.matchOrder(15, 101, Side.BUY);
+        List<Trade> trades3 = limitOrderHandler.matchOrder(INSTRUMENT_ID, 15, 101, Side.BUY);
         assertEquals(1, trades3.size(), "第三轮应该生成1笔交易");
         assertEquals(15, trades3.get(0).getQuantity(), "第三轮交易数量应为15");
         
@@ -696,12 +632,12 @@ class LimitOrderHandlerTest {
         
         // 添加多个不同价格的卖单 - 创建深度卖单簿
         for (int i = 0; i < 5; i++) {
-            limitOrderHandler.matchOrder(5 + i, 100 + i, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 5 + i, 100 + i, Side.SELL);
         }
         
         // 添加多个不同价格的买单 - 创建深度买单簿
         for (int i = 0; i < 5; i++) {
-            limitOrderHandler.matchOrder(5 + i, 99 - i, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 5 + i, 99 - i, Side.BUY);
         }
         
         // 验证卖单簿状态
@@ -712,12 +648,12 @@ class LimitOrderHandlerTest {
         System.out.println("买单簿价格级别数: " + buyPriceLevelCount);
         
         // 添加一个能够匹配部分价格级别的买单
-        List<Trade> trades = limitOrderHandler.matchOrder(20, 102, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 20, 102, Side.BUY);
         
         // 输出交易信息
         System.out.println("深度测试 - 交易数量: " + trades.size());
         for (Trade trade : trades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 验证最低价的卖单是否被匹配
@@ -744,7 +680,7 @@ class LimitOrderHandlerTest {
         
         try {
             // 尝试添加数量为0的卖单
-            List<Trade> trades = limitOrderHandler.matchOrder(0, 100, Side.SELL);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 0, 100, Side.SELL);
             // 检查是否成功执行 - 如果没有异常，则验证订单是否被添加
             PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, 100.0);
             if (priceLevel == null || priceLevel.getOpenQuantity() == 0) {
@@ -759,7 +695,7 @@ class LimitOrderHandlerTest {
         
         try {
             // 尝试添加数量为0的买单
-            List<Trade> trades = limitOrderHandler.matchOrder(0, 100, Side.BUY);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 0, 100, Side.BUY);
             // 检查是否成功执行
             PriceLevel priceLevel = getPriceLevel(OrderBookSide.BUY, 100.0);
             if (priceLevel == null || priceLevel.getOpenQuantity() == 0) {
@@ -784,7 +720,7 @@ class LimitOrderHandlerTest {
         
         try {
             // 尝试添加负价格的卖单
-            List<Trade> trades = limitOrderHandler.matchOrder(10, -100, Side.SELL);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, -100, Side.SELL);
             // 检查是否成功执行
             PriceLevel priceLevel = getPriceLevel(OrderBookSide.SELL, -100.0);
             if (priceLevel == null) {
@@ -799,7 +735,7 @@ class LimitOrderHandlerTest {
         
         try {
             // 尝试添加负价格的买单
-            List<Trade> trades = limitOrderHandler.matchOrder(10, -100, Side.BUY);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, -100, Side.BUY);
             // 检查是否成功执行
             PriceLevel priceLevel = getPriceLevel(OrderBookSide.BUY, -100.0);
             if (priceLevel == null) {
@@ -824,7 +760,7 @@ class LimitOrderHandlerTest {
         
         // 尝试取消一个不存在的订单
         try {
-            limitOrderHandler.cancelOrder(Side.SELL, 999999999);
+            limitOrderHandler.cancelOrder(INSTRUMENT_ID, Side.SELL, 999999999);
             // 如果执行到这里，应该检查是否有错误日志或抛出异常
             // 但实际上某些实现可能会静默忽略不存在的订单取消请求
             assertTrue(true, "取消不存在订单请求已处理");
@@ -845,12 +781,12 @@ class LimitOrderHandlerTest {
         
         // 添加一些卖单
         for (int i = 0; i < 10; i++) {
-            limitOrderHandler.matchOrder(1, 100 + i, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, 100 + i, Side.SELL);
         }
         
         // 添加一些买单
         for (int i = 0; i < 10; i++) {
-            limitOrderHandler.matchOrder(1, 95 + i, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, 95 + i, Side.BUY);
         }
         
         // 验证订单簿状态
@@ -896,17 +832,17 @@ class LimitOrderHandlerTest {
         resetOrderBooks();
         
         // 添加多个不同价格的卖单
-        limitOrderHandler.matchOrder(10, 100, Side.SELL); // 订单1
-        limitOrderHandler.matchOrder(20, 101, Side.SELL); // 订单2
-        limitOrderHandler.matchOrder(30, 102, Side.SELL); // 订单3
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100, Side.SELL); // 订单1
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 20, 101, Side.SELL); // 订单2
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 30, 102, Side.SELL); // 订单3
         
         // 添加一个能匹配多个价格级别的大买单
-        List<Trade> trades = limitOrderHandler.matchOrder(50, 102, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 50, 102, Side.BUY);
         
         // 输出交易信息用于调试
         System.out.println("多笔交易测试 - 交易数量: " + trades.size());
         for (Trade trade : trades) {
-            System.out.println("多笔交易测试 - 交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity() + 
+            System.out.println("多笔交易测试 - 交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity() + 
                              ", 主动订单ID=" + trade.getActiveOrderId() + 
                              ", 被动订单ID=" + trade.getPassiveOrderId());
         }
@@ -944,7 +880,7 @@ class LimitOrderHandlerTest {
         
         // 在同一价格添加多个卖单
         for (int i = 1; i <= 5; i++) {
-            limitOrderHandler.matchOrder(10 * i, 100, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10 * i, 100, Side.SELL);
         }
         
         // 验证卖单簿状态
@@ -955,7 +891,7 @@ class LimitOrderHandlerTest {
         
         // 在同一价格添加多个买单
         for (int i = 1; i <= 5; i++) {
-            limitOrderHandler.matchOrder(10 * i, 99, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10 * i, 99, Side.BUY);
         }
         
         // 验证买单簿状态
@@ -965,12 +901,12 @@ class LimitOrderHandlerTest {
         System.out.println("价格99的订单总量: " + buyPriceLevel.getOpenQuantity());
         
         // 添加一个匹配卖单的买单
-        List<Trade> trades = limitOrderHandler.matchOrder(80, 100, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 80, 100, Side.BUY);
         
         // 输出交易信息
         System.out.println("重复价格测试 - 交易数量: " + trades.size());
         for (Trade trade : trades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 计算交易总量
@@ -1001,7 +937,7 @@ class LimitOrderHandlerTest {
         
         // 阶段1: 市场上涨 - 添加逐渐升高价格的买单
         for (int i = 0; i < 5; i++) {
-            limitOrderHandler.matchOrder(10, 100 + i, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100 + i, Side.BUY);
         }
         
         // 验证买单簿状态
@@ -1010,7 +946,7 @@ class LimitOrderHandlerTest {
         
         // 阶段2: 市场下跌 - 添加逐渐降低价格的卖单
         for (int i = 0; i < 5; i++) {
-            List<Trade> trades = limitOrderHandler.matchOrder(10, 104 - i, Side.SELL);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 104 - i, Side.SELL);
             System.out.println("添加价格" + (104 - i) + "的卖单，产生交易数: " + trades.size());
         }
         
@@ -1019,10 +955,10 @@ class LimitOrderHandlerTest {
         System.out.println("卖单簿价格级别数: " + sellPriceLevelCount);
         
         // 阶段3: 市场大幅波动 - 添加极端价格的订单
-        List<Trade> highPriceTrades = limitOrderHandler.matchOrder(50, 110, Side.BUY);
+        List<Trade> highPriceTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 50, 110, Side.BUY);
         System.out.println("添加高价买单，产生交易数: " + highPriceTrades.size());
         
-        List<Trade> lowPriceTrades = limitOrderHandler.matchOrder(50, 90, Side.SELL);
+        List<Trade> lowPriceTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 50, 90, Side.SELL);
         System.out.println("添加低价卖单，产生交易数: " + lowPriceTrades.size());
         
         // 验证市场状态
@@ -1044,12 +980,12 @@ class LimitOrderHandlerTest {
         
         // 创建积压卖单
         for (int i = 0; i < 10; i++) {
-            limitOrderHandler.matchOrder(10, 100 + i, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100 + i, Side.SELL);
         }
         
         // 创建积压买单
         for (int i = 0; i < 10; i++) {
-            limitOrderHandler.matchOrder(10, 99 - i, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 99 - i, Side.BUY);
         }
         
         // 验证订单簿状态
@@ -1060,7 +996,7 @@ class LimitOrderHandlerTest {
         System.out.println("积压处理测试 - 买单簿价格级别数: " + buyPriceLevelCount);
         
         // 添加一个大买单，匹配多个卖单
-        List<Trade> trades = limitOrderHandler.matchOrder(100, 105, Side.BUY);
+        List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 100, 105, Side.BUY);
         
         // 输出交易信息
         System.out.println("积压处理测试 - 交易数量: " + trades.size());
@@ -1069,7 +1005,7 @@ class LimitOrderHandlerTest {
         int totalTradeQuantity = 0;
         for (Trade trade : trades) {
             totalTradeQuantity += trade.getQuantity();
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         System.out.println("交易总量: " + totalTradeQuantity);
         
@@ -1097,13 +1033,13 @@ class LimitOrderHandlerTest {
         // 添加卖单，价格递增
         System.out.println("添加卖单，价格从105到101");
         for (int i = 5; i >= 1; i--) {
-            limitOrderHandler.matchOrder(10, 100 + i, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100 + i, Side.SELL);
         }
         
         // 添加买单，价格递减
         System.out.println("添加买单，价格从95到99");
         for (int i = 5; i >= 1; i--) {
-            limitOrderHandler.matchOrder(10, 100 - i, Side.BUY);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100 - i, Side.BUY);
         }
         
         // 验证订单簿状态
@@ -1115,11 +1051,11 @@ class LimitOrderHandlerTest {
         
         // 添加价格穿越订单 - 买单价格高于最低卖单价格
         System.out.println("添加价格穿越买单 - 价格105 > 最低卖单价格101");
-        List<Trade> buyTrades = limitOrderHandler.matchOrder(30, 105, Side.BUY);
+        List<Trade> buyTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 30, 105, Side.BUY);
         
         System.out.println("价格穿越买单产生交易数: " + buyTrades.size());
         for (Trade trade : buyTrades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 验证买单穿越后的订单簿状态
@@ -1131,16 +1067,16 @@ class LimitOrderHandlerTest {
         
         // 添加新的卖单
         for (int i = 5; i >= 1; i--) {
-            limitOrderHandler.matchOrder(10, 100 + i, Side.SELL);
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 100 + i, Side.SELL);
         }
         
         // 添加价格穿越订单 - 卖单价格低于最高买单价格
         System.out.println("添加价格穿越卖单 - 价格95 < 最高买单价格99");
-        List<Trade> sellTrades = limitOrderHandler.matchOrder(30, 95, Side.SELL);
+        List<Trade> sellTrades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 30, 95, Side.SELL);
         
         System.out.println("价格穿越卖单产生交易数: " + sellTrades.size());
         for (Trade trade : sellTrades) {
-            System.out.println("交易: 价格=" + trade.getPrice() + ", 数量=" + trade.getQuantity());
+            System.out.println("交易: 价格=" + tradePrice(trade) + ", 数量=" + trade.getQuantity());
         }
         
         // 验证卖单穿越后的订单簿状态
@@ -1173,7 +1109,7 @@ class LimitOrderHandlerTest {
         for (int priceLevel = 0; priceLevel < 20; priceLevel++) {
             int price = 100 + priceLevel;
             for (int orderCount = 0; orderCount < 5; orderCount++) {
-                limitOrderHandler.matchOrder(1, price, Side.SELL);
+                limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, price, Side.SELL);
             }
         }
         
@@ -1185,7 +1121,7 @@ class LimitOrderHandlerTest {
         for (int priceLevel = 0; priceLevel < 20; priceLevel++) {
             int price = 99 - priceLevel;
             for (int orderCount = 0; orderCount < 5; orderCount++) {
-                limitOrderHandler.matchOrder(1, price, Side.BUY);
+                limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, price, Side.BUY);
             }
         }
         
@@ -1202,7 +1138,7 @@ class LimitOrderHandlerTest {
         int totalMatchCount = 0;
         for (int i = 0; i < 100; i++) {
             int price = 105 + (i % 6); // 价格在105-110之间
-            List<Trade> trades = limitOrderHandler.matchOrder(1, price, Side.BUY);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, price, Side.BUY);
             totalMatchCount += trades.size();
         }
         
@@ -1217,7 +1153,7 @@ class LimitOrderHandlerTest {
         totalMatchCount = 0;
         for (int i = 0; i < 100; i++) {
             int price = 90 + (i % 6); // 价格在90-95之间
-            List<Trade> trades = limitOrderHandler.matchOrder(1, price, Side.SELL);
+            List<Trade> trades = limitOrderHandler.matchOrder(INSTRUMENT_ID, 1, price, Side.SELL);
             totalMatchCount += trades.size();
         }
         
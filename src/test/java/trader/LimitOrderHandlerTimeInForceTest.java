@@ -0,0 +1,185 @@
+package trader;
+
+import core.bean.OrderType;
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.common.ManualClock;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.OrderBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitOrderHandlerTimeInForceTest {
+    private static final int INSTRUMENT_ID = 0;
+    private static final int LADDER_ID = 1;
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private InstrumentRegistry registry;
+    private ManualClock clock;
+    private LimitOrderHandler handler;
+    private final TradeBuffer trades = new TradeBuffer();
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(2);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1));
+        registry.register(new InstrumentSpec(LADDER_ID, "ETH-USDT").tickSize(1).ladderBook(90, 110));
+        clock = new ManualClock(START);
+        handler = new LimitOrderHandler(registry, new InMemoryTradePersistence(), clock);
+    }
+
+    private OrderBook book(int instrumentId, Side side) {
+        return registry.get(instrumentId).orderBook(side);
+    }
+
+    private void restAsks(int instrumentId) {
+        handler.matchOrder(instrumentId, 1, 3, 100, Side.SELL, trades);
+        handler.matchOrder(instrumentId, 2, 4, 101, Side.SELL, trades);
+        handler.matchOrder(instrumentId, 3, 5, 103, Side.SELL, trades);
+    }
+
+    @Test
+    void testCrossingQuantityWalksLevelsWithoutChangingTheBook() {
+        for (int instrumentId : new int[]{INSTRUMENT_ID, LADDER_ID}) {
+            restAsks(instrumentId);
+            OrderBook asks = book(instrumentId, Side.SELL);
+            assertEquals(0, asks.getCrossingQuantity(99, 100));
+            assertEquals(3, asks.getCrossingQuantity(100, 100));
+            assertEquals(7, asks.getCrossingQuantity(102, 100));
+            assertEquals(12, asks.getCrossingQuantity(110, 100));
+            assertEquals(7, asks.getCrossingQuantity(110, 5), "stops at the level that reaches the wanted quantity");
+            assertEquals(3, asks.getPriceLevelCount());
+            assertEquals(12, asks.getOpenQuantity(1) + asks.getOpenQuantity(2) + asks.getOpenQuantity(3));
+        }
+    }
+
+    @Test
+    void testIocTradesWhatItCanAndNeverRests() {
+        restAsks(INSTRUMENT_ID);
+        assertEquals(2, handler.matchOrder(INSTRUMENT_ID, 10, 9, 101, Side.BUY, OrderType.IOC, 0, trades));
+        assertEquals(2, handler.getLastCancelledQuantity());
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty());
+        assertEquals(103, book(INSTRUMENT_ID, Side.SELL).getBestPrice());
+    }
+
+    @Test
+    void testFokIsKilledWithoutTouchingTheBookUnlessItFillsInFull() {
+        restAsks(INSTRUMENT_ID);
+        assertEquals(0, handler.matchOrder(INSTRUMENT_ID, 10, 8, 101, Side.BUY, OrderType.FOK, 0, trades));
+        assertEquals(8, handler.getLastCancelledQuantity());
+        assertTrue(trades.isEmpty());
+        assertEquals(7, book(INSTRUMENT_ID, Side.SELL).getCrossingQuantity(101, 100), "killed FOK left the book alone");
+
+        assertEquals(3, handler.matchOrder(INSTRUMENT_ID, 11, 8, 103, Side.BUY, OrderType.FOK, 0, trades));
+        assertEquals(0, handler.getLastCancelledQuantity());
+        assertEquals(4, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(3));
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty());
+    }
+
+    @Test
+    void testPostOnlyRestsOrIsCancelledInsteadOfCrossing() {
+        restAsks(INSTRUMENT_ID);
+        assertEquals(0, handler.matchOrder(INSTRUMENT_ID, 10, 2, 100, Side.BUY, OrderType.POST_ONLY, 0, trades));
+        assertEquals(2, handler.getLastCancelledQuantity());
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty());
+        assertEquals(3, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+
+        assertEquals(0, handler.matchOrder(INSTRUMENT_ID, 11, 2, 99, Side.BUY, OrderType.POST_ONLY, 0, trades));
+        assertEquals(0, handler.getLastCancelledQuantity());
+        assertEquals(2, book(INSTRUMENT_ID, Side.BUY).getOpenQuantity(11));
+    }
+
+    @Test
+    void testGtdOrdersExpireOnTheClock() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 99, Side.BUY, OrderType.GTD, START + 1_000, trades);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 98, Side.BUY, OrderType.GTD, START + 90_000_000, trades);
+        handler.matchOrder(INSTRUMENT_ID, 3, 5, 97, Side.BUY, OrderType.GTD, START + 2_000, trades);
+        handler.cancelOrder(INSTRUMENT_ID, Side.BUY, 3); // its timer is ignored when it comes due
+        assertEquals(0, handler.matchOrder(INSTRUMENT_ID, 4, 5, 99, Side.BUY, OrderType.GTD, START, trades));
+        assertEquals(5, handler.getLastCancelledQuantity(), "expired on arrival");
+        assertEquals(3, handler.getPendingExpiryCount());
+
+        clock.set(START + 999);
+        assertEquals(0, handler.expireOrders());
+        clock.set(START + 1_000);
+        // the next command expires what is due before it runs, so the sell cannot trade with order 1
+        handler.matchOrder(INSTRUMENT_ID, 5, 5, 99, Side.SELL, trades);
+        assertTrue(trades.isEmpty());
+        assertEquals(0, book(INSTRUMENT_ID, Side.BUY).getOpenQuantity(1));
+        assertEquals(1, handler.getExpiredCount());
+
+        clock.set(START + 90_000_000);
+        assertEquals(1, handler.expireOrders());
+        assertTrue(book(INSTRUMENT_ID, Side.BUY).isEmpty());
+        assertEquals(2, handler.getExpiredCount(), "the cancelled order was not expired again");
+        assertEquals(0, handler.getPendingExpiryCount());
+    }
+
+    @Test
+    void testMarketOrderDoesNotFillAnExpiredGtdOrder() {
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 100, Side.SELL, OrderType.GTD, START + 1_000, trades);
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 101, Side.SELL, trades);
+        MarketOrderHandler marketHandler = new MarketOrderHandler(registry, new InMemoryTradePersistence(), clock);
+
+        clock.set(START + 1_000);
+        assertEquals(1, marketHandler.matchOrder(INSTRUMENT_ID, 3, 5, Side.BUY, trades), "no limit order came in between");
+        assertEquals(2, trades.getPassiveOrderId(0), "the expired order was not taken");
+        assertEquals(101, trades.getPrice(0));
+        assertEquals(0, book(INSTRUMENT_ID, Side.SELL).getOpenQuantity(1));
+        assertEquals(1, handler.getExpiredCount());
+        trades.clear();
+
+        // a batch matcher builds its own handlers, the expiry is the instrument's all the same
+        handler.matchOrder(INSTRUMENT_ID, 4, 5, 100, Side.SELL, OrderType.GTD, START + 2_000, trades);
+        handler.matchOrder(INSTRUMENT_ID, 5, 5, 102, Side.SELL, trades);
+        OrderBatch batch = new OrderBatch();
+        batch.addMarketOrder(INSTRUMENT_ID, 6, 5, 10, Side.BUY);
+        new BatchMatcher(registry, new InMemoryTradePersistence(), clock).matchBatch(batch, trades, START + 2_000);
+        assertEquals(1, trades.size());
+        assertEquals(5, trades.getPassiveOrderId(0));
+        assertTrue(book(INSTRUMENT_ID, Side.SELL).isEmpty());
+    }
+
+    @Test
+    void testDayOrdersExpireAtTheEndOfTheTradingDay() {
+        final long dayStart = START - Math.floorMod(START, DAY) + DAY; // the clock only moves forward
+        handler.setTradingDayEnd(22 * 60 * 60 * 1000L);
+        clock.set(dayStart + 21 * 60 * 60 * 1000L);
+        handler.matchOrder(INSTRUMENT_ID, 1, 5, 99, Side.BUY, OrderType.DAY, 0, trades);
+        clock.set(dayStart + 22 * 60 * 60 * 1000L - 1);
+        assertEquals(0, handler.expireOrders());
+        handler.matchOrder(INSTRUMENT_ID, 2, 5, 99, Side.BUY, OrderType.DAY, 0, trades);
+        clock.set(dayStart + 22 * 60 * 60 * 1000L);
+        assertEquals(2, handler.expireOrders());
+        handler.matchOrder(INSTRUMENT_ID, 3, 5, 99, Side.BUY, OrderType.DAY, 0, trades);
+        clock.set(dayStart + DAY + 22 * 60 * 60 * 1000L - 1);
+        assertEquals(0, handler.expireOrders(), "entered after the close, lives until the next one");
+        assertEquals(5, book(INSTRUMENT_ID, Side.BUY).getOpenQuantity(3));
+        assertThrows(IllegalArgumentException.class, () -> handler.setTradingDayEnd(DAY));
+    }
+
+    @Test
+    void testOrderThatCannotRestIsRejectedBeforeItTrades() {
+        restAsks(LADDER_ID);
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.matchOrder(LADDER_ID, 10, 20, 111, Side.BUY, OrderType.LIMIT, 0, trades));
+        assertTrue(trades.isEmpty(), "a rejected order must not have traded");
+        assertEquals(12, book(LADDER_ID, Side.SELL).getCrossingQuantity(110, 100));
+        assertTrue(book(LADDER_ID, Side.BUY).isEmpty());
+
+        // never rests, so the band does not apply
+        assertEquals(3, handler.matchOrder(LADDER_ID, 11, 20, 111, Side.BUY, OrderType.IOC, 0, trades));
+        assertEquals(8, handler.getLastCancelledQuantity());
+        assertTrue(book(LADDER_ID, Side.SELL).isEmpty());
+    }
+
+    @Test
+    void testMarketTypeIsRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.matchOrder(INSTRUMENT_ID, 1, 5, 99, Side.BUY, OrderType.MARKET, 0, trades));
+    }
+}
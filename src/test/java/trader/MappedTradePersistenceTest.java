@@ -0,0 +1,51 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.Trade;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.journal.FlushPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTradePersistenceTest {
+    private static final int INSTRUMENT_ID = 0;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testHandlerFillsSurviveReopen() {
+        InstrumentRegistry registry = new InstrumentRegistry(1);
+        registry.register(INSTRUMENT_ID, "BTC-USDT", 1);
+        try (MappedTradePersistence persistence = new MappedTradePersistence(dir, FlushPolicy.everyNRecords(2))) {
+            LimitOrderHandler handler = new LimitOrderHandler(registry, persistence);
+            TradeBuffer trades = new TradeBuffer();
+            handler.matchOrder(INSTRUMENT_ID, 1, 10, 100L, Side.SELL, trades);
+            handler.matchOrder(INSTRUMENT_ID, 2, 10, 101L, Side.SELL, trades);
+            handler.matchOrder(INSTRUMENT_ID, 3, 15, 101L, Side.BUY, trades);
+            assertEquals(2, persistence.size());
+        }
+
+        try (MappedTradePersistence persistence = new MappedTradePersistence(dir, FlushPolicy.none())) {
+            List<Trade> trades = persistence.getTrades();
+            assertEquals(2, trades.size(), "Fills should be read back after a restart");
+            assertEquals(3, trades.get(0).getActiveOrderId());
+            assertEquals(1, trades.get(0).getPassiveOrderId());
+            assertEquals(100, trades.get(0).getPrice());
+            assertEquals(10, trades.get(0).getQuantity());
+            assertEquals(101, trades.get(1).getPrice());
+            assertEquals(5, trades.get(1).getQuantity());
+            assertEquals(15, persistence.getTradeSumQuantityByActiveOrderId(3));
+            assertEquals(5, persistence.getTradeSumQuantityByPassiveOrderId(2), "Order totals are rebuilt on open");
+            assertEquals((100 * 10 + 101 * 5) / 15.0, persistence.getVwapByOrderId(3), 1e-9);
+            persistence.getLog().read(0, (sequence, buffer, offset) ->
+                    assertEquals(INSTRUMENT_ID, buffer.getInt(offset + MappedTradePersistence.INSTRUMENT_ID), "Records carry the instrument"));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package trader;
+
+import core.bean.Side;
+import core.bean.TradeBuffer;
+import core.instrument.InstrumentRegistry;
+import core.instrument.InstrumentSpec;
+import core.order.OrderBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketOrderHandlerTest {
+    private static final int INSTRUMENT_ID = 0;
+
+    InstrumentRegistry registry;
+    LimitOrderHandler limitOrderHandler;
+    MarketOrderHandler marketOrderHandler;
+    TradeBuffer trades;
+
+    @BeforeEach
+    void setUp() {
+        registry = new InstrumentRegistry(1);
+        registry.register(new InstrumentSpec(INSTRUMENT_ID, "BTC-USDT").tickSize(1).marketSlippage(2));
+        limitOrderHandler = new LimitOrderHandler(registry);
+        marketOrderHandler = new MarketOrderHandler(registry);
+        trades = new TradeBuffer();
+        // asks at 100, 101, 102, 103 with 10 each
+        for (int i = 0; i < 4; i++) {
+            limitOrderHandler.matchOrder(INSTRUMENT_ID, i + 1, 10, 100L + i, Side.SELL, new TradeBuffer());
+        }
+    }
+
+    @Test
+    void testSweepsUpToSlippageBoundAndCancelsTheRest() {
+        int fills = marketOrderHandler.matchOrder(INSTRUMENT_ID, 100, 50, Side.BUY, trades);
+
+        assertEquals(3, fills, "Instrument bound of 2 ticks from 100 allows 100, 101 and 102");
+        assertEquals(100, trades.getPrice(0));
+        assertEquals(102, trades.getPrice(2));
+        assertEquals(20, marketOrderHandler.getLastCancelledQuantity(), "The remainder is cancelled, not rested");
+        OrderBook asks = limitOrderHandler.orderBook(INSTRUMENT_ID, Side.SELL);
+        assertEquals(103, asks.getBestPrice());
+        assertTrue(limitOrderHandler.orderBook(INSTRUMENT_ID, Side.BUY).isEmpty(), "A market order never rests");
+        assertEquals(3, marketOrderHandler.getTradePersistence().size(), "Fills should be persisted");
+    }
+
+    @Test
+    void testExplicitSlippageOverridesInstrumentBound() {
+        marketOrderHandler.matchOrder(INSTRUMENT_ID, 100, 15, 0, Side.BUY, trades);
+        assertEquals(1, trades.size(), "Zero slippage fills only at the arrival best price");
+        assertEquals(10, trades.getQuantity(0));
+        assertEquals(5, marketOrderHandler.getLastCancelledQuantity());
+
+        trades.clear();
+        marketOrderHandler.matchOrder(INSTRUMENT_ID, 101, 30, Long.MAX_VALUE, Side.BUY, trades);
+        assertEquals(3, trades.size(), "An unbounded order walks the whole book");
+        assertEquals(0, marketOrderHandler.getLastCancelledQuantity());
+        assertTrue(limitOrderHandler.orderBook(INSTRUMENT_ID, Side.SELL).isEmpty());
+    }
+
+    @Test
+    void testSellSideAndEmptyBook() {
+        assertEquals(0, marketOrderHandler.matchOrder(INSTRUMENT_ID, 100, 5, Side.SELL, trades), "No bids, nothing to hit");
+        assertEquals(5, marketOrderHandler.getLastCancelledQuantity());
+
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 10, 10, 99L, Side.BUY, new TradeBuffer());
+        limitOrderHandler.matchOrder(INSTRUMENT_ID, 11, 10, 96L, Side.BUY, new TradeBuffer());
+        assertEquals(1, marketOrderHandler.matchOrder(INSTRUMENT_ID, 101, 20, Side.SELL, trades), "96 is beyond 2 ticks below 99");
+        assertEquals(99, trades.getPrice(0));
+        assertEquals(10, marketOrderHandler.getLastCancelledQuantity());
+        assertThrows(IllegalArgumentException.class, () -> marketOrderHandler.matchOrder(INSTRUMENT_ID, 102, 1, -1, Side.SELL, trades));
+    }
+}
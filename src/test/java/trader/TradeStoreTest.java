@@ -0,0 +1,123 @@
+package trader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeStoreTest {
+    private static final int TRADES = 3 * TradeStore.CHUNK_SIZE + 123; // a partly filled last chunk
+
+    // reference columns to scan by brute force
+    private final int[] instrumentIds = new int[TRADES];
+    private final int[] activeOrderIds = new int[TRADES];
+    private final int[] passiveOrderIds = new int[TRADES];
+    private final long[] prices = new long[TRADES];
+    private final int[] quantities = new int[TRADES];
+    private final long[] tradeTimes = new long[TRADES];
+
+    private TradeStore fill(TradeStore store, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long time = 1_000;
+        for (int i = 0; i < TRADES; i++) {
+            time += random.nextInt(3); // mostly increasing, with repeats
+            instrumentIds[i] = random.nextInt(3);
+            activeOrderIds[i] = 1 + random.nextInt(2_000);
+            passiveOrderIds[i] = 1 + random.nextInt(2_000);
+            prices[i] = 90 + random.nextInt(20);
+            quantities[i] = 1 + random.nextInt(50);
+            // a few late stamps, the chunk time spans must still cover them
+            tradeTimes[i] = random.nextInt(100) == 0 ? time - 500 : time;
+            store.append(instrumentIds[i], activeOrderIds[i], passiveOrderIds[i], prices[i], quantities[i], tradeTimes[i], false);
+        }
+        return store;
+    }
+
+    @Test
+    void testOrderTotalsMatchFullScan() {
+        TradeStore store = fill(new TradeStore(), 3);
+        assertEquals(TRADES, store.size());
+        for (int orderId = 0; orderId <= 2_001; orderId += 7) {
+            long active = 0;
+            long passive = 0;
+            long notional = 0;
+            for (int i = 0; i < TRADES; i++) {
+                if (activeOrderIds[i] == orderId) {
+                    active += quantities[i];
+                    notional += prices[i] * quantities[i];
+                }
+                if (passiveOrderIds[i] == orderId) {
+                    passive += quantities[i];
+                    notional += prices[i] * quantities[i];
+                }
+            }
+            assertEquals(active, store.getActiveQuantity(orderId), "Active quantity of order " + orderId);
+            assertEquals(passive, store.getPassiveQuantity(orderId), "Passive quantity of order " + orderId);
+            if (active + passive == 0) {
+                assertTrue(Double.isNaN(store.getOrderVwap(orderId)), "Order " + orderId + " never traded");
+            } else {
+                assertEquals((double) notional / (active + passive), store.getOrderVwap(orderId), 1e-9, "Vwap of order " + orderId);
+            }
+        }
+    }
+
+    @Test
+    void testRangeQueriesMatchFullScan() {
+        TradeStore store = fill(new TradeStore(16), 5);
+        final long[][] ranges = {{0, Long.MAX_VALUE}, {1_000, 1_500}, {5_000, 5_001}, {7_000, 9_000}, {20_000, 30_000}, {9_000, 9_000}};
+        for (long[] range : ranges) {
+            final long from = range[0];
+            final long to = range[1];
+            int count = 0;
+            long checksum = 0;
+            for (int i = 0; i < TRADES; i++) {
+                if (tradeTimes[i] >= from && tradeTimes[i] < to) {
+                    count++;
+                    checksum += (long) i * quantities[i];
+                }
+            }
+            final long[] scanned = new long[2];
+            assertEquals(count, store.scan(from, to, (index, instrumentId, activeOrderId, passiveOrderId, price, quantity, tradeTime) -> {
+                assertEquals(activeOrderIds[index], activeOrderId);
+                assertEquals(tradeTimes[index], tradeTime);
+                scanned[0]++;
+                scanned[1] += (long) index * quantity;
+            }), "Trades in [" + from + ", " + to + ")");
+            assertEquals(checksum, scanned[1], "Scan visits exactly the trades in range");
+
+            for (int instrumentId = 0; instrumentId < 3; instrumentId++) {
+                long volume = 0;
+                long notional = 0;
+                for (int i = 0; i < TRADES; i++) {
+                    if (instrumentIds[i] == instrumentId && tradeTimes[i] >= from && tradeTimes[i] < to) {
+                        volume += quantities[i];
+                        notional += prices[i] * quantities[i];
+                    }
+                }
+                assertEquals(volume, store.getVolume(instrumentId, from, to));
+                if (volume == 0) {
+                    assertTrue(Double.isNaN(store.getVwap(instrumentId, from, to)));
+                } else {
+                    assertEquals((double) notional / volume, store.getVwap(instrumentId, from, to), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testClearKeepsChunksAndResetsTotals() {
+        TradeStore store = fill(new TradeStore(), 7);
+        final int chunks = store.allocatedChunks;
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getActiveQuantity(activeOrderIds[0]));
+        assertEquals(0, store.scan(Long.MIN_VALUE, Long.MAX_VALUE, (index, instrumentId, activeOrderId, passiveOrderId, price, quantity, tradeTime) -> {
+        }));
+
+        fill(store, 7);
+        assertEquals(chunks, store.allocatedChunks, "Refilling reuses the chunks");
+        assertEquals(prices[TRADES - 1], store.getPrice(TRADES - 1));
+        assertEquals(instrumentIds[TradeStore.CHUNK_SIZE], store.getInstrumentId(TradeStore.CHUNK_SIZE));
+    }
+}